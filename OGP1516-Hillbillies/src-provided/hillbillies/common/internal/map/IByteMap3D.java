@@ -1,5 +1,7 @@
 package hillbillies.common.internal.map;
 
+import java.util.List;
+
 /**
  * For internal GUI use only.
  * 
@@ -17,6 +19,19 @@ public interface IByteMap3D {
 	@FunctionalInterface
 	public static interface Listener {
 		public void onChange(int x, int y, int z, byte oldValue, byte newValue);
+
+		/**
+		 * Called once after the values of several cubes have been changed
+		 * together, with the smallest and largest coordinates of the changed
+		 * cubes. By default, onChange is called for each changed cube.
+		 */
+		public default void onRegionChange(int[] min, int[] max, List<int[]> cubes, byte[] oldValues,
+				byte[] newValues) {
+			for (int i = 0; i < cubes.size(); i++) {
+				int[] cube = cubes.get(i);
+				onChange(cube[0], cube[1], cube[2], oldValues[i], newValues[i]);
+			}
+		}
 	}
 
 
@@ -30,6 +45,16 @@ public interface IByteMap3D {
 		}
 	}
 
+	/**
+	 * Set the values of the given cubes {x, y, z} to the values of the given
+	 * provider. By default, each cube is set separately.
+	 */
+	default void setValues(List<int[]> cubes, ValueProvider provider) {
+		for (int[] cube : cubes) {
+			setValue(cube[0], cube[1], cube[2], provider.getValue(cube[0], cube[1], cube[2]));
+		}
+	}
+
 	boolean isValidIndex(int worldX, int worldY, int worldZ);
 	
 	byte getValue(int worldX, int worldY, int worldZ);
@@ -3,6 +3,7 @@ package hillbillies.common.internal.ui.viewmodel;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import hillbillies.common.internal.map.IByteMap3D;
@@ -76,7 +77,18 @@ public abstract class ViewModel implements IViewModel {
 		xTileOffset.addListener(e -> updateAllVisibleTiles());
 		yTileOffset.addListener(e -> updateAllVisibleTiles());
 
-		mapCache.addListener(this::worldTileChanged);
+		mapCache.addListener(new IByteMap3D.Listener() {
+
+			@Override
+			public void onChange(int x, int y, int z, byte oldValue, byte newValue) {
+				worldTileChanged(x, y, z, oldValue, newValue);
+			}
+
+			@Override
+			public void onRegionChange(int[] min, int[] max, List<int[]> cubes, byte[] oldValues, byte[] newValues) {
+				worldRegionChanged(min, max);
+			}
+		});
 	}
 
 	protected void worldTileChanged(int worldX, int worldY, int worldZ, byte oldValue, byte newValue) {
@@ -87,6 +99,21 @@ public abstract class ViewModel implements IViewModel {
 		}
 	}
 
+	protected void worldRegionChanged(int[] min, int[] max) {
+		if (min[2] > getCurrentZLevel())
+			return;
+		// refresh each visible column of the region once, instead of once per changed cube
+		int fromX = Math.max(min[0], xTileOffset.get());
+		int toX = Math.min(max[0], xTileOffset.get() + nbVisibleTilesX - 1);
+		int fromY = Math.max(min[1], yTileOffset.get());
+		int toY = Math.min(max[1], yTileOffset.get() + nbVisibleTilesY - 1);
+		for (int worldX = fromX; worldX <= toX; worldX++) {
+			for (int worldY = fromY; worldY <= toY; worldY++) {
+				updateVisibleTileAndNotify(worldTileToVisibleTileX(worldX), worldTileToVisibleTileY(worldY));
+			}
+		}
+	}
+
 	public boolean isWorldTileVisible(int worldTileX, int worldTileY, int worldTileZ) {
 		return xTileOffset.get() <= worldTileX && worldTileX < xTileOffset.get() + nbVisibleTilesX
 				&& yTileOffset.get() <= worldTileY && worldTileY < yTileOffset.get() + nbVisibleTilesY
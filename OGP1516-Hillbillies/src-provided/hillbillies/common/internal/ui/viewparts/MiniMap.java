@@ -1,5 +1,7 @@
 package hillbillies.common.internal.ui.viewparts;
 
+import java.util.List;
+
 import hillbillies.common.internal.Constants;
 import hillbillies.common.internal.map.IByteMap3D;
 import hillbillies.common.internal.ui.viewmodel.IViewModel;
@@ -49,7 +51,18 @@ public class MiniMap<T> {
 		root.getChildren().add(viewport);
 
 		viewModel.currentZLevelProperty().addListener(c -> updateImage());
-		map.addListener((x, y, z, oldValue, newValue) -> updateImageAt(x, y, z, getTypeFor(newValue)));
+		map.addListener(new IByteMap3D.Listener() {
+
+			@Override
+			public void onChange(int x, int y, int z, byte oldValue, byte newValue) {
+				updateImageAt(x, y, z, getTypeFor(newValue));
+			}
+
+			@Override
+			public void onRegionChange(int[] min, int[] max, List<int[]> cubes, byte[] oldValues, byte[] newValues) {
+				updateImageIn(min, max);
+			}
+		});
 		updateImage();
 	}
 
@@ -104,6 +117,19 @@ public class MiniMap<T> {
 		gc.fillRect(x * mmPixelsPerTile, y * mmPixelsPerTile, Math.ceil(mmPixelsPerTile), Math.ceil(mmPixelsPerTile));
 	}
 
+	protected void updateImageIn(int[] min, int[] max) {
+		int z = viewModel.currentZLevelProperty().get();
+		if (z < min[2] || max[2] < z)
+			return;
+
+		for (int x = min[0]; x <= max[0]; x++) {
+			for (int y = min[1]; y <= max[1]; y++) {
+				T type = getTypeFor(map.getValue(x, y, z));
+				updateImageAt(x, y, z, type);
+			}
+		}
+	}
+
 	protected void updateImage() {
 		int nbX = map.getNbX();
 		int nbY = map.getNbY();
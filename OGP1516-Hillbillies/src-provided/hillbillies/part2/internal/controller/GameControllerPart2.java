@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -44,6 +45,13 @@ public class GameControllerPart2 extends GameController<IHillbilliesView2> imple
 				listener.notifyTerrainChanged(x, y, z);
 			}
 		}
+
+		@Override
+		public void notifyTerrainRegionChanged(int[] min, int[] max, List<int[]> cubes) {
+			for (TerrainChangeListener listener : new HashSet<>(listeners)) {
+				listener.notifyTerrainRegionChanged(min, max, cubes);
+			}
+		}
 	};
 
 	public GameControllerPart2(IFacade facade, Part2Options options, GameMap map) throws ModelException {
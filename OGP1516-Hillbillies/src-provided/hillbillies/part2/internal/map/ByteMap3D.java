@@ -1,6 +1,8 @@
 package hillbillies.part2.internal.map;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import hillbillies.common.internal.map.IByteMap3D;
@@ -67,6 +69,38 @@ public class ByteMap3D implements IByteMap3D {
 		}
 	}
 	
+	@Override
+	public void setValues(List<int[]> cubes, ValueProvider provider) {
+		List<int[]> changed = new ArrayList<>(cubes.size());
+		byte[] oldValues = new byte[cubes.size()];
+		byte[] newValues = new byte[cubes.size()];
+		int[] min = { nbX, nbY, nbZ };
+		int[] max = { -1, -1, -1 };
+		for (int[] cube : cubes) {
+			if (!isValidIndex(cube[0], cube[1], cube[2]))
+				throw new AssertionError("Invalid coordinates: " + cube[0] + ", " + cube[1] + ", " + cube[2]);
+
+			int index = cube[2] * nbXY + cube[1] * nbX + cube[0];
+			byte oldValue = tileTypes[index];
+			byte value = provider.getValue(cube[0], cube[1], cube[2]);
+			if (oldValue != value) {
+				tileTypes[index] = value;
+				oldValues[changed.size()] = oldValue;
+				newValues[changed.size()] = value;
+				changed.add(cube);
+				for (int i = 0; i < 3; i++) {
+					min[i] = Math.min(min[i], cube[i]);
+					max[i] = Math.max(max[i], cube[i]);
+				}
+			}
+		}
+		if (!changed.isEmpty()) {
+			for (Listener listener : listeners) {
+				listener.onRegionChange(min, max, changed, oldValues, newValues);
+			}
+		}
+	}
+
 	private void fireChange(int x, int y, int z, byte oldValue, byte newValue) {
 		for (Listener listener : listeners) {
 			listener.onChange(x, y, z, oldValue, newValue);
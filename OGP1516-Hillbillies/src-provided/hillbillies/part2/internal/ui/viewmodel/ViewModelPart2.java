@@ -1,6 +1,7 @@
 package hillbillies.part2.internal.ui.viewmodel;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import hillbillies.common.internal.map.IByteMap3D;
@@ -16,6 +17,7 @@ import hillbillies.part2.internal.providers.WorldInfoProvider2;
 import hillbillies.part2.internal.ui.sprites.BoulderSprite;
 import hillbillies.part2.internal.ui.sprites.LogSprite;
 import hillbillies.part2.internal.ui.sprites.UnitSprite2;
+import hillbillies.part2.listener.TerrainChangeListener;
 import javafx.geometry.Rectangle2D;
 import ogp.framework.util.internal.Matrix;
 
@@ -26,7 +28,18 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 
 	public ViewModelPart2(WorldInfoProvider2 wip, IGameObjectInfoProvider uip, Rectangle2D initialView, int tileSize) {
 		super(wip, uip, initialView, tileSize);
-		getWorldInfoProvider().addTerrainChangeListener(this::updateMapCacheAt);
+		getWorldInfoProvider().addTerrainChangeListener(new TerrainChangeListener() {
+
+			@Override
+			public void notifyTerrainChanged(int x, int y, int z) {
+				updateMapCacheAt(x, y, z);
+			}
+
+			@Override
+			public void notifyTerrainRegionChanged(int[] min, int[] max, List<int[]> cubes) {
+				updateMapCacheAt(cubes);
+			}
+		});
 		this.depthValues = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), 0);
 		this.anchored = new Matrix<>(getNbVisibleTilesX(), getNbVisibleTilesY(), false);
 	}
@@ -102,6 +115,10 @@ public class ViewModelPart2 extends ViewModel implements IViewModel2 {
 		getMap().setValue(x, y, z, getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
 	}
 
+	protected void updateMapCacheAt(List<int[]> cubes) {
+		getMap().setValues(cubes, (x, y, z) -> getWorldInfoProvider().getCubeTypeAt(x, y, z).getByteValue());
+	}
+
 	@Override
 	public void update() {
 		// super.update(); // skip, to not fill entire map again (we're using
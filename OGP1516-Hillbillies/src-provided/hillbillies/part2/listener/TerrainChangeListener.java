@@ -1,5 +1,7 @@
 package hillbillies.part2.listener;
 
+import java.util.List;
+
 /**
  * A listener for communicating terrain changes to the GUI.
  * 
@@ -25,4 +27,24 @@ public interface TerrainChangeListener {
 	 *            The z-coordinate of the cube that has changed type
 	 */
 	public void notifyTerrainChanged(int x, int y, int z);
+
+	/**
+	 * Notify the GUI that the terrain cubes in the given list have been
+	 * changed, all at once.
+	 * 
+	 * By default, the GUI is notified about each cube separately. Listeners
+	 * that can update a whole region at once should override this method.
+	 * 
+	 * @param min
+	 *            The smallest x-, y- and z-coordinate of the changed cubes
+	 * @param max
+	 *            The largest x-, y- and z-coordinate of the changed cubes
+	 * @param cubes
+	 *            The coordinates {x, y, z} of the cubes that have changed type,
+	 *            each listed once
+	 */
+	public default void notifyTerrainRegionChanged(int[] min, int[] max, List<int[]> cubes) {
+		for (int[] cube : cubes)
+			notifyTerrainChanged(cube[0], cube[1], cube[2]);
+	}
 }
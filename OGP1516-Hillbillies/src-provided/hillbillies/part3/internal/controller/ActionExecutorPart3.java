@@ -16,8 +16,8 @@ import hillbillies.model.Scheduler;
 import hillbillies.model.Task;
 import hillbillies.model.Unit;
 import hillbillies.part2.internal.controller.ActionExecutorPart2;
+import hillbillies.part3.TaskLibrary;
 import hillbillies.part3.facade.IFacade;
-import hillbillies.part3.programs.TaskParser;
 import hillbillies.part3.programs.internal.SelectedChecker;
 import ogp.framework.util.ModelException;
 
@@ -64,9 +64,17 @@ public class ActionExecutorPart3 extends ActionExecutorPart2 {
 		return null;
 	}
 
+	private TaskLibrary taskLibrary;
+
+	protected TaskLibrary getTaskLibrary() {
+		if (taskLibrary == null)
+			taskLibrary = new TaskLibrary(getFacade().createTaskFactory());
+		return taskLibrary;
+	}
+
 	protected void scheduleTasks(Scheduler scheduler, String filename, List<int[]> cubes) {
 		try {
-			List<Task> tasks = TaskParser.parseTasksFromFile(filename, getFacade().createTaskFactory(), cubes);
+			List<Task> tasks = getTaskLibrary().getTasks(filename, cubes);
 			if (tasks == null) {
 				throw new ModelException("Parsing file " + filename + " failed.");
 			} else {
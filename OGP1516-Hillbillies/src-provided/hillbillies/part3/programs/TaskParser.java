@@ -1,10 +1,18 @@
 package hillbillies.part3.programs;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import hillbillies.model.Task;
 import hillbillies.part3.programs.internal.ParserVisitor;
@@ -13,11 +21,16 @@ import hillbillies.part3.programs.internal.generated.HillbilliesTaskLangParser;
 import ogp.framework.util.internal.ResourceUtils;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 /**
  * Parser for Hillbillies tasks.
@@ -126,22 +139,42 @@ public class TaskParser<E, S, T> {
 	 *       {@link #parseTasksFromFile(String, ITaskFactory, List)},
 	 *       {@link #parseString(String, List)} and
 	 *       {@link #parseFile(String, List)} methods.
+	 * 
+	 * @note The input is first parsed with the faster SLL prediction mode,
+	 *       which gives up at the first syntax error. Only if that fails, the
+	 *       input is parsed again with full LL prediction, which reports all
+	 *       syntax errors. For valid input, both modes give the same tree.
 	 */
 	protected Optional<List<T>> parse(CharStream input, List<int[]> selectedCubes) {
 		reset();
 
 		HillbilliesTaskLangLexer lexer = new HillbilliesTaskLangLexer(input);
-		HillbilliesTaskLangParser parser = new HillbilliesTaskLangParser(new CommonTokenStream(lexer));
-		parser.addErrorListener(new BaseErrorListener() {
-			@Override
-			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-					int charPositionInLine, String msg, RecognitionException e) {
-				errors.add(msg + " (" + line + ", " + charPositionInLine + ")");
-			}
-		});
+		CommonTokenStream tokens = new CommonTokenStream(lexer);
+		HillbilliesTaskLangParser parser = new HillbilliesTaskLangParser(tokens);
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
 		ParserVisitor<E, S, T> visitor = new ParserVisitor<>(factory);
 		try {
-			visitor.visit(parser.task());
+			HillbilliesTaskLangParser.TaskContext tree;
+			try {
+				tree = parser.task();
+			} catch (ParseCancellationException e) {
+				tokens.seek(0);
+				parser.reset();
+				parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+				parser.setErrorHandler(new DefaultErrorStrategy());
+				parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+				parser.addErrorListener(new BaseErrorListener() {
+					@Override
+					public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+							int charPositionInLine, String msg, RecognitionException e) {
+						errors.add(msg + " (" + line + ", " + charPositionInLine + ")");
+					}
+				});
+				tree = parser.task();
+			}
+			visitor.visit(tree);
 			if (errors.isEmpty()) {
 				return Optional.ofNullable(factory.createTasks(visitor.getName(), visitor.getPriority(),
 						visitor.getActivity(), selectedCubes));
@@ -161,6 +194,104 @@ public class TaskParser<E, S, T> {
 		return Collections.unmodifiableList(errors);
 	}
 
+	/**
+	 * The result of parsing several task files: the tasks of all files that
+	 * were parsed successfully, and the errors of each file that was not.
+	 *
+	 * @param T
+	 *            The type of Task
+	 */
+	public static class BulkResult<T> {
+
+		private final List<T> tasks = new ArrayList<>();
+
+		private final Map<String, List<String>> errors = new LinkedHashMap<>();
+
+		/**
+		 * Returns the tasks of all files that were parsed successfully, in the
+		 * order of the files.
+		 */
+		public List<T> getTasks() {
+			return Collections.unmodifiableList(tasks);
+		}
+
+		/**
+		 * Returns the errors of each file that could not be read or parsed,
+		 * in the order of the files.
+		 */
+		public Map<String, List<String>> getErrors() {
+			return Collections.unmodifiableMap(errors);
+		}
+	}
+
+	/**
+	 * Parse all the given task files in parallel, each file with its own
+	 * parser, and return the combined tasks and the errors of each file.
+	 * 
+	 * The given factory is shared by all parsers, so it must be safe to use
+	 * from several threads at once.
+	 * 
+	 * @param filenames
+	 *            The files from which to read the task descriptions
+	 * @param factory
+	 *            The factory to use
+	 * @param selectedCubes
+	 *            The cubes which should be used as selected cubes in the
+	 *            created tasks.
+	 */
+	public static <T> BulkResult<T> parseFiles(List<String> filenames, ITaskFactory<?, ?, T> factory,
+			List<int[]> selectedCubes) {
+		int nbThreads = Math.max(1, Math.min(filenames.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService pool = Executors.newFixedThreadPool(nbThreads);
+		try {
+			List<TaskParser<?, ?, T>> parsers = new ArrayList<>();
+			List<Future<Optional<List<T>>>> results = new ArrayList<>();
+			for (String filename : filenames) {
+				TaskParser<?, ?, T> parser = create(factory);
+				parsers.add(parser);
+				results.add(pool.submit(() -> parser.parseFile(filename, selectedCubes)));
+			}
+			BulkResult<T> bulk = new BulkResult<>();
+			for (int i = 0; i < filenames.size(); i++) {
+				try {
+					Optional<List<T>> result = results.get(i).get();
+					if (result.isPresent())
+						bulk.tasks.addAll(result.get());
+					else
+						bulk.errors.put(filenames.get(i), parsers.get(i).getErrors());
+				} catch (ExecutionException e) {
+					bulk.errors.put(filenames.get(i), Collections.singletonList(e.getCause().toString()));
+				}
+			}
+			return bulk;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Parse all task files (files ending in .txt) in the given directory in
+	 * parallel, in the order of their names.
+	 * 
+	 * @see #parseFiles(List, ITaskFactory, List)
+	 * @throws IOException
+	 *             If the given directory cannot be listed.
+	 */
+	public static <T> BulkResult<T> parseDirectory(String directory, ITaskFactory<?, ?, T> factory,
+			List<int[]> selectedCubes) throws IOException {
+		File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".txt"));
+		if (files == null)
+			throw new IOException("Cannot list directory " + directory);
+		Arrays.sort(files);
+		List<String> filenames = new ArrayList<>();
+		for (File file : files)
+			filenames.add(file.getPath());
+		return parseFiles(filenames, factory, selectedCubes);
+	}
+
 	/**
 	 * Create a new parser from the given factory.
 	 * 
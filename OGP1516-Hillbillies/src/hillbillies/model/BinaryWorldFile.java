@@ -0,0 +1,348 @@
+package hillbillies.model;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A class of binary world files, storing the terrain of a world compactly.
+ *
+ * A binary world file starts with a header of six big-endian integers: the magic number MAGIC,
+ * the format VERSION, the number of cubes in the x-, y- and z-direction, and the encoding of the payload.
+ *
+ * With the PACKED encoding, the payload holds the integer of the terrain type of each cube in two bits,
+ * four cubes per byte, with the cubes numbered by the linear index x + y*X + z*X*Y.
+ *
+ * With the RUN_LENGTH encoding, the payload holds the columns of cubes along the z-direction, numbered by
+ * the linear index x + y*X. It starts with the offset of each column relative to the end of these offsets,
+ * as an integer. Each column is a sequence of runs of a byte with the integer of a terrain type followed by
+ * an unsigned short with the number of consecutive cubes of that terrain type, from z equal to 0 upwards.
+ *
+ * Binary world files are read through a memory mapped file channel, straight into a chunked terrain.
+ */
+public final class BinaryWorldFile {
+
+	private BinaryWorldFile() {
+	}
+
+	/**
+	 * Return the chunked terrain stored in the binary world file with the given path.
+	 *
+	 * @param path
+	 * 			The path of the binary world file.
+	 * @return A chunked terrain with the dimensions and terrain types stored in the given file.
+	 * @throws IOException
+	 * 			If the given file cannot be read, or is not a valid binary world file.
+	 */
+	public static ChunkedTerrain read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Return the chunked terrain stored in the given buffer, in the binary world file format.
+	 *
+	 * @param buffer
+	 * 			The buffer holding a binary world file, starting at index 0.
+	 * @return A chunked terrain with the dimensions and terrain types stored in the given buffer.
+	 * @throws IOException
+	 * 			If the given buffer does not hold a valid binary world file.
+	 */
+	public static ChunkedTerrain read(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a binary world file");
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported binary world file version: " + buffer.getInt(4));
+		int nbX = buffer.getInt(8);
+		int nbY = buffer.getInt(12);
+		int nbZ = buffer.getInt(16);
+		int encoding = buffer.getInt(20);
+		if (nbX <= 0 || nbY <= 0 || nbZ <= 0)
+			throw new IOException("Invalid dimensions: " + nbX + " " + nbY + " " + nbZ);
+		long volume = (long) nbX * nbY * nbZ;
+		if (encoding == PACKED) {
+			if (buffer.limit() < HEADER_SIZE + (volume + 3) / 4)
+				throw new EOFException("Unexpected end of binary world file");
+			return new ChunkedTerrain(nbX, nbY, nbZ, (x, y, z) -> {
+				int index = x + nbX * (y + nbY * z);
+				return (buffer.get(HEADER_SIZE + (index >>> 2)) >>> ((index & 3) << 1)) & 3;
+			});
+		}
+		if (encoding == RUN_LENGTH) {
+			checkColumns(buffer, nbX * nbY, nbZ);
+			return new ChunkedTerrain(nbX, nbY, nbZ, new RunLengthSource(buffer, nbX, nbY));
+		}
+		throw new IOException("Unknown encoding: " + encoding);
+	}
+
+	/**
+	 * Check whether the run length encoded columns in the given buffer are valid.
+	 *
+	 * @throws IOException
+	 * 			If a column does not lie inside the given buffer, has a run with an invalid terrain type
+	 * 			or an empty run, or does not have the given number of cubes.
+	 */
+	private static void checkColumns(ByteBuffer buffer, int nbColumns, int nbZ) throws IOException {
+		int runsStart = HEADER_SIZE + 4 * nbColumns;
+		if (buffer.limit() < runsStart)
+			throw new EOFException("Unexpected end of binary world file");
+		for (int column = 0; column < nbColumns; column++) {
+			int position = runsStart + buffer.getInt(HEADER_SIZE + 4 * column);
+			int z = 0;
+			while (z < nbZ) {
+				if (position < runsStart || position + RUN_SIZE > buffer.limit())
+					throw new EOFException("Unexpected end of column " + column);
+				int length = buffer.getShort(position + 1) & 0xFFFF;
+				if (buffer.get(position) < 0 || buffer.get(position) > 3 || length == 0)
+					throw new IOException("Invalid run in column " + column);
+				z += length;
+				position += RUN_SIZE;
+			}
+			if (z != nbZ)
+				throw new IOException("Column " + column + " does not have " + nbZ + " cubes");
+		}
+	}
+
+	/**
+	 * A class of sources of terrain types, decoding run length encoded columns.
+	 * The run of the last requested cube is remembered, so that requesting the cubes of a column
+	 * with increasing z-coordinates takes constant time per cube.
+	 */
+	private static class RunLengthSource implements ChunkedTerrain.TypeSource {
+
+		private RunLengthSource(ByteBuffer buffer, int nbX, int nbY) {
+			this.buffer = buffer;
+			this.nbX = nbX;
+			this.runsStart = HEADER_SIZE + 4 * nbX * nbY;
+		}
+
+		@Override
+		public int getType(int x, int y, int z) {
+			int column = x + nbX * y;
+			if (column != currentColumn || z < runStart) {
+				currentColumn = column;
+				runPosition = runsStart + buffer.getInt(HEADER_SIZE + 4 * column);
+				runStart = 0;
+				runEnd = buffer.getShort(runPosition + 1) & 0xFFFF;
+			}
+			while (z >= runEnd) {
+				runPosition += RUN_SIZE;
+				runStart = runEnd;
+				runEnd += buffer.getShort(runPosition + 1) & 0xFFFF;
+			}
+			return buffer.get(runPosition);
+		}
+
+		private final ByteBuffer buffer;
+		private final int nbX;
+		private final int runsStart;
+		private int currentColumn = -1;
+		private int runPosition;
+		private int runStart;
+		private int runEnd;
+	}
+
+	/**
+	 * Write the given chunked terrain to a binary world file with the given path.
+	 *
+	 * @param terrain
+	 * 			The chunked terrain to write.
+	 * @param path
+	 * 			The path of the binary world file.
+	 * @param runLengthEncoded
+	 * 			Whether the payload is run length encoded, instead of packed.
+	 * @post The file with the given path is a binary world file holding the given terrain.
+	 * @throws IOException
+	 * 			If the given file cannot be written.
+	 */
+	public static void write(ChunkedTerrain terrain, Path path, boolean runLengthEncoded) throws IOException {
+		int nbX = terrain.getxDimension();
+		int nbY = terrain.getyDimension();
+		int nbZ = terrain.getzDimension();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nbX);
+			out.writeInt(nbY);
+			out.writeInt(nbZ);
+			out.writeInt(runLengthEncoded ? RUN_LENGTH : PACKED);
+			if (runLengthEncoded)
+				writeRuns(terrain, out);
+			else
+				writePacked(terrain, out);
+		}
+	}
+
+	/**
+	 * Write the terrain types of the given terrain to the given stream, two bits per cube.
+	 */
+	private static void writePacked(ChunkedTerrain terrain, DataOutputStream out) throws IOException {
+		int nbX = terrain.getxDimension();
+		int nbY = terrain.getyDimension();
+		int current = 0;
+		int count = 0;
+		for (int z = 0; z < terrain.getzDimension(); z++)
+			for (int y = 0; y < nbY; y++)
+				for (int x = 0; x < nbX; x++) {
+					current |= terrain.getTerrain(x, y, z).getType() << (count << 1);
+					if (++count == 4) {
+						out.writeByte(current);
+						current = 0;
+						count = 0;
+					}
+				}
+		if (count != 0)
+			out.writeByte(current);
+	}
+
+	/**
+	 * Write the column offsets and run length encoded columns of the given terrain to the given stream.
+	 */
+	private static void writeRuns(ChunkedTerrain terrain, DataOutputStream out) throws IOException {
+		int nbX = terrain.getxDimension();
+		int nbY = terrain.getyDimension();
+		int nbZ = terrain.getzDimension();
+		ByteArrayOutputStream runBytes = new ByteArrayOutputStream();
+		DataOutputStream runs = new DataOutputStream(runBytes);
+		for (int y = 0; y < nbY; y++)
+			for (int x = 0; x < nbX; x++) {
+				out.writeInt(runs.size());
+				int z = 0;
+				while (z < nbZ) {
+					TerrainType type = terrain.getTerrain(x, y, z);
+					int length = 1;
+					while (z + length < nbZ && length < MAX_RUN_LENGTH && terrain.getTerrain(x, y, z + length) == type)
+						length++;
+					runs.writeByte(type.getType());
+					runs.writeShort(length);
+					z += length;
+				}
+			}
+		runBytes.writeTo(out);
+	}
+
+	/**
+	 * Return the chunked terrain described by the given reader, in the text world file format.
+	 *
+	 * @param reader
+	 * 			The reader of a text world file: a line with the number of cubes in the x-, y- and z-direction,
+	 * 			followed, for each z-coordinate from the top down, by an empty line and a line of characters per
+	 * 			y-coordinate, with a character per x-coordinate: '.' for air, 'R' for rock, 'S' for a tree and
+	 * 			'W' for a workshop.
+	 * @return A chunked terrain with the dimensions and terrain types described by the given reader.
+	 * @throws IOException
+	 * 			If the given reader cannot be read, or does not describe a valid text world file.
+	 */
+	public static ChunkedTerrain readText(Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		String line = lines.readLine();
+		if (line == null)
+			throw new EOFException("Empty world file");
+		String[] dims = line.trim().split(" ");
+		int nbX = Integer.parseInt(dims[0]);
+		int nbY = Integer.parseInt(dims[1]);
+		int nbZ = Integer.parseInt(dims[2]);
+		byte[] types = new byte[nbX * nbY * nbZ];
+		for (int z = nbZ - 1; z >= 0; z--) {
+			line = lines.readLine();
+			if (line == null)
+				throw new EOFException("Unexpected end of file; no data for z=" + z);
+			if (line.trim().length() != 0)
+				throw new IOException("Expected empty line");
+			for (int y = 0; y < nbY; y++) {
+				line = lines.readLine();
+				if (line == null)
+					throw new EOFException("Unexpected end of file; no data for z=" + z + " and y = " + y);
+				line = line.trim();
+				if (line.length() != nbX)
+					throw new EOFException("Unexpected end of line; for z=" + z + " and y = " + y);
+				for (int x = 0; x < nbX; x++)
+					types[x + nbX * (y + nbY * z)] = getTypeOfCharacter(line.charAt(x));
+			}
+		}
+		return new ChunkedTerrain(nbX, nbY, nbZ, (x, y, z) -> types[x + nbX * (y + nbY * z)]);
+	}
+
+	/**
+	 * Return the integer of the terrain type with the given character in the text world file format.
+	 *
+	 * @throws IOException
+	 * 			If the given character does not reference a terrain type.
+	 */
+	private static byte getTypeOfCharacter(char character) throws IOException {
+		switch (character) {
+		case '.':
+			return (byte) TerrainType.AIR.getType();
+		case 'R':
+			return (byte) TerrainType.ROCK.getType();
+		case 'S':
+			return (byte) TerrainType.TREE.getType();
+		case 'W':
+			return (byte) TerrainType.WORKSHOP.getType();
+		default:
+			throw new IOException("Unknown type: " + character);
+		}
+	}
+
+	/**
+	 * Convert the text world files with the given paths to binary world files.
+	 *
+	 * @param args
+	 * 			The paths of the text world files, optionally preceded by "-rle" to run length encode
+	 * 			the binary world files. Each binary world file gets the path of its text world file,
+	 * 			with the extension replaced by ".bwrld".
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean runLengthEncoded = args.length > 0 && args[0].equals("-rle");
+		for (int i = runLengthEncoded ? 1 : 0; i < args.length; i++) {
+			Path source = Paths.get(args[i]);
+			String name = source.getFileName().toString();
+			Path target = source.resolveSibling(
+					(name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name) + BINARY_EXTENSION);
+			try (Reader reader = Files.newBufferedReader(source)) {
+				write(readText(reader), target, runLengthEncoded);
+			}
+			System.out.println(source + " -> " + target + " (" + Files.size(target) + " bytes)");
+		}
+	}
+
+	/**
+	 * The extension of binary world files.
+	 */
+	public static final String BINARY_EXTENSION = ".bwrld";
+
+	/**
+	 * The magic number at the start of each binary world file: the characters "HBWF".
+	 */
+	public static final int MAGIC = 0x48425746;
+
+	/**
+	 * The version of the binary world file format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The encoding of a payload with the terrain types of the cubes packed in two bits.
+	 */
+	public static final int PACKED = 0;
+
+	/**
+	 * The encoding of a payload with run length encoded columns of cubes.
+	 */
+	public static final int RUN_LENGTH = 1;
+
+	private static final int HEADER_SIZE = 24;
+	private static final int RUN_SIZE = 3;
+	private static final int MAX_RUN_LENGTH = 0xFFFF;
+}
@@ -78,6 +78,11 @@ public class Boulder extends RawMaterial {
 			throws IllegalArgumentException {
 		if (! canHaveAsPosition(position))
 			throw new IllegalArgumentException();
+		if (this.getWorld()!=null && this.getWorld().isSameCube(this.position, position)){
+			// the boulder stays in its cube, so the maps of its world do not change
+			this.position = position;
+			return;
+		}
 		if (this.getWorld()!=null)
 			this.getWorld().removeBoulderFromBouldersAtCubeMap(this);
 		this.position = position;
@@ -149,16 +154,12 @@ public class Boulder extends RawMaterial {
 	 * 		is not passable terrain.
 	 */
 	public boolean mustFall() {
-		if ( (this.getCubeCoordinate()[2]==0)){
-			return false;
-		}
-		double[] ijk = new double[] { 0.0, 0.0, -1.0 };
-		double[] neighbouring = Vector.vectorAdd(this.getPosition(), ijk);
-		if (!world.getTerrain(neighbouring).isPassable()) {
+		double[] position = this.getPosition();
+		if ( (Math.floor(position[2])==0)){
 			return false;
 		}
-
-		return true;
+		return world.getPassable(world.getCubeIndex((int) Math.floor(position[0]), (int) Math.floor(position[1]), 
+				(int) Math.floor(position[2]) - 1));
 	}
 	/**
 	 * Makes the boulder fall.
@@ -0,0 +1,334 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of chunked terrains, storing the terrain type of each cube of a world in chunks of
+ * CHUNK_SIZE x CHUNK_SIZE x CHUNK_SIZE cubes.
+ *
+ * A chunk of which all cubes have the same terrain type is stored as that single terrain type.
+ * Only when a cube of such a uniform chunk changes, the chunk becomes a dense packed terrain.
+ * Large worlds that are mostly uniform rock below the surface and uniform air above it
+ * therefore only need memory for the chunks around the surface.
+ *
+ * @invar The dimensions of each chunked terrain are positive.
+ */
+public class ChunkedTerrain {
+
+	/**
+	 * Initialize this new chunked terrain with the given matrix of terrain types.
+	 *
+	 * @param terrainTypes
+	 * 			The matrix of terrain types, indexed as [x][y][z].
+	 * @post The dimensions of this new chunked terrain are equal to the dimensions of the given matrix.
+	 * @post The terrain type of each cube of this new chunked terrain is the terrain type
+	 * 			with the integer of the given matrix at that cube.
+	 * @post Each chunk of which all cubes have the same terrain type is uniform.
+	 * @throws IllegalArgumentException
+	 * 			If the given matrix is empty in some direction or contains an integer
+	 * 			that does not reference a terrain type.
+	 */
+	public ChunkedTerrain(int[][][] terrainTypes) throws IllegalArgumentException {
+		this(terrainTypes.length, terrainTypes.length == 0 ? 0 : terrainTypes[0].length,
+				terrainTypes.length == 0 || terrainTypes[0].length == 0 ? 0 : terrainTypes[0][0].length,
+				(x, y, z) -> terrainTypes[x][y][z]);
+	}
+
+	/**
+	 * Initialize this new chunked terrain with the given dimensions and the terrain types of the given source.
+	 *
+	 * @param xDimension
+	 * 			The number of cubes in the x-direction.
+	 * @param yDimension
+	 * 			The number of cubes in the y-direction.
+	 * @param zDimension
+	 * 			The number of cubes in the z-direction.
+	 * @param source
+	 * 			The source of the integers of the terrain types of the cubes.
+	 * @post The dimensions of this new chunked terrain are equal to the given dimensions.
+	 * @post The terrain type of each cube of this new chunked terrain is the terrain type
+	 * 			with the integer of the given source at that cube.
+	 * @post Each chunk of which all cubes have the same terrain type is uniform.
+	 * @throws IllegalArgumentException
+	 * 			If one of the given dimensions is not positive, or the given source returns an integer
+	 * 			that does not reference a terrain type.
+	 * @note The source is asked for the cubes chunk by chunk, with the z-coordinate changing fastest.
+	 */
+	public ChunkedTerrain(int xDimension, int yDimension, int zDimension, TypeSource source)
+			throws IllegalArgumentException {
+		this(xDimension, yDimension, zDimension, TerrainType.AIR);
+		for (int cx = 0; cx < nbChunksX; cx++)
+			for (int cy = 0; cy < nbChunksY; cy++)
+				for (int cz = 0; cz < nbChunksZ; cz++)
+					initializeChunk(cx, cy, cz, source);
+	}
+
+	/**
+	 * An interface of sources of terrain types, used to initialize a chunked terrain.
+	 */
+	public interface TypeSource {
+
+		/**
+		 * Return the integer of the terrain type of the cube with the given coordinates.
+		 */
+		int getType(int x, int y, int z);
+	}
+
+	/**
+	 * Initialize this new chunked terrain with the given dimensions, filled with the given terrain type.
+	 *
+	 * @param xDimension
+	 * 			The number of cubes in the x-direction.
+	 * @param yDimension
+	 * 			The number of cubes in the y-direction.
+	 * @param zDimension
+	 * 			The number of cubes in the z-direction.
+	 * @param terrain
+	 * 			The terrain type of all cubes of this new chunked terrain.
+	 * @post The dimensions of this new chunked terrain are equal to the given dimensions.
+	 * @post Each cube of this new chunked terrain has the given terrain type.
+	 * @post All chunks of this new chunked terrain are uniform.
+	 * @throws IllegalArgumentException
+	 * 			If one of the given dimensions is not positive, or the given terrain type is not effective.
+	 */
+	public ChunkedTerrain(int xDimension, int yDimension, int zDimension, TerrainType terrain)
+			throws IllegalArgumentException {
+		if (xDimension <= 0 || yDimension <= 0 || zDimension <= 0 || terrain == null)
+			throw new IllegalArgumentException();
+		this.xDimension = xDimension;
+		this.yDimension = yDimension;
+		this.zDimension = zDimension;
+		this.nbChunksX = (xDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.nbChunksY = (yDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.nbChunksZ = (zDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.uniformTypes = new byte[nbChunksX * nbChunksY * nbChunksZ];
+		this.denseChunks = new PackedTerrain[nbChunksX * nbChunksY * nbChunksZ];
+		if (terrain.getType() != 0)
+			Arrays.fill(uniformTypes, (byte) terrain.getType());
+	}
+
+	/**
+	 * Initialize the chunk with the given chunk coordinates with the terrain types of the given source.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			If the given source returns an integer in the given chunk that does not reference a terrain type.
+	 */
+	private void initializeChunk(int cx, int cy, int cz, TypeSource source) throws IllegalArgumentException {
+		int chunk = getChunkIndex(cx, cy, cz);
+		int first = source.getType(cx << CHUNK_SHIFT, cy << CHUNK_SHIFT, cz << CHUNK_SHIFT);
+		PackedTerrain dense = null;
+		for (int x = cx << CHUNK_SHIFT; x < Math.min(xDimension, (cx + 1) << CHUNK_SHIFT); x++)
+			for (int y = cy << CHUNK_SHIFT; y < Math.min(yDimension, (cy + 1) << CHUNK_SHIFT); y++)
+				for (int z = cz << CHUNK_SHIFT; z < Math.min(zDimension, (cz + 1) << CHUNK_SHIFT); z++) {
+					int type = source.getType(x, y, z);
+					if (type < 0 || type >= TerrainType.values().length)
+						throw new IllegalArgumentException();
+					if (dense == null && type != first)
+						dense = new PackedTerrain(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, TerrainType.getTerrain(first));
+					if (dense != null)
+						dense.setTerrain(x & CHUNK_MASK, y & CHUNK_MASK, z & CHUNK_MASK, TerrainType.getTerrain(type));
+				}
+		uniformTypes[chunk] = (byte) first;
+		denseChunks[chunk] = dense;
+	}
+
+	/**
+	 * Return the number of cubes of this chunked terrain in the x-direction.
+	 */
+	@Basic @Immutable
+	public int getxDimension() {
+		return xDimension;
+	}
+
+	/**
+	 * Return the number of cubes of this chunked terrain in the y-direction.
+	 */
+	@Basic @Immutable
+	public int getyDimension() {
+		return yDimension;
+	}
+
+	/**
+	 * Return the number of cubes of this chunked terrain in the z-direction.
+	 */
+	@Basic @Immutable
+	public int getzDimension() {
+		return zDimension;
+	}
+
+	private final int xDimension;
+	private final int yDimension;
+	private final int zDimension;
+
+	/**
+	 * Return the terrain type of the cube with the given coordinates.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @pre The given cube is inside this chunked terrain.
+	 */
+	public TerrainType getTerrain(int x, int y, int z) {
+		int chunk = getChunkIndex(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+		PackedTerrain dense = denseChunks[chunk];
+		if (dense == null)
+			return TerrainType.getTerrain(uniformTypes[chunk]);
+		return dense.getTerrain(x & CHUNK_MASK, y & CHUNK_MASK, z & CHUNK_MASK);
+	}
+
+	/**
+	 * Return the linear index of the cube with the given coordinates.
+	 *
+	 * @return The linear index x + y*X + z*X*Y of the given cube, in the same order as a packed terrain
+	 * 			of the dimensions of this chunked terrain.
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + xDimension * (y + yDimension * z);
+	}
+
+	/**
+	 * Return the terrain type of the cube with the given linear index.
+	 *
+	 * @param index
+	 * 			The linear index x + y*X + z*X*Y of the cube.
+	 * @pre The given index is the index of a cube inside this chunked terrain.
+	 * @return The terrain type of the cube with the given index.
+	 * 			| result == getTerrain(index % X, (index / X) % Y, index / (X * Y))
+	 */
+	public TerrainType getTerrain(int index) {
+		int x = index % xDimension;
+		int rest = index / xDimension;
+		return getTerrain(x, rest % yDimension, rest / yDimension);
+	}
+
+	/**
+	 * Set the terrain type of the cube with the given coordinates to the given terrain type.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @param terrain
+	 * 			The new terrain type of the cube.
+	 * @pre The given cube is inside this chunked terrain.
+	 * @post The terrain type of the given cube is equal to the given terrain type.
+	 * @post If the given cube is in a uniform chunk of another terrain type, that chunk is no longer uniform.
+	 */
+	public void setTerrain(int x, int y, int z, TerrainType terrain) {
+		int chunk = getChunkIndex(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+		PackedTerrain dense = denseChunks[chunk];
+		if (dense == null) {
+			if (uniformTypes[chunk] == terrain.getType())
+				return;
+			dense = new PackedTerrain(CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, TerrainType.getTerrain(uniformTypes[chunk]));
+			denseChunks[chunk] = dense;
+		}
+		dense.setTerrain(x & CHUNK_MASK, y & CHUNK_MASK, z & CHUNK_MASK, terrain);
+	}
+
+	/**
+	 * Check whether the chunk containing the cube with the given coordinates is uniform.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @pre The given cube is inside this chunked terrain.
+	 * @return True if and only if the chunk of the given cube is stored as a single terrain type.
+	 * @note A chunk that is not uniform never becomes uniform again.
+	 */
+	public boolean isUniform(int x, int y, int z) {
+		return denseChunks[getChunkIndex(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT)] == null;
+	}
+
+	/**
+	 * Return the number of chunks of this chunked terrain that are not uniform.
+	 */
+	public int getNbDenseChunks() {
+		int result = 0;
+		for (PackedTerrain dense : denseChunks)
+			if (dense != null)
+				result++;
+		return result;
+	}
+
+	/**
+	 * Return the coordinates of all cubes of this chunked terrain with the given terrain type.
+	 *
+	 * @param terrain
+	 * 			The terrain type to look for.
+	 * @return A list with the coordinates of each cube with the given terrain type.
+	 * @note Uniform chunks of another terrain type are skipped without looking at their cubes.
+	 */
+	public List<int[]> getCubesOfTerrain(TerrainType terrain) {
+		List<int[]> result = new ArrayList<int[]>();
+		for (int cx = 0; cx < nbChunksX; cx++)
+			for (int cy = 0; cy < nbChunksY; cy++)
+				for (int cz = 0; cz < nbChunksZ; cz++) {
+					int chunk = getChunkIndex(cx, cy, cz);
+					if (denseChunks[chunk] == null && uniformTypes[chunk] != terrain.getType())
+						continue;
+					for (int x = cx << CHUNK_SHIFT; x < Math.min(xDimension, (cx + 1) << CHUNK_SHIFT); x++)
+						for (int y = cy << CHUNK_SHIFT; y < Math.min(yDimension, (cy + 1) << CHUNK_SHIFT); y++)
+							for (int z = cz << CHUNK_SHIFT; z < Math.min(zDimension, (cz + 1) << CHUNK_SHIFT); z++)
+								if (getTerrain(x, y, z) == terrain)
+									result.add(new int[] { x, y, z });
+				}
+		return result;
+	}
+
+	/**
+	 * Return a new matrix with the integers of the terrain types of this chunked terrain, indexed as [x][y][z].
+	 */
+	public int[][][] toMatrix() {
+		int[][][] result = new int[xDimension][yDimension][zDimension];
+		for (int x = 0; x < xDimension; x++)
+			for (int y = 0; y < yDimension; y++)
+				for (int z = 0; z < zDimension; z++)
+					result[x][y][z] = getTerrain(x, y, z).getType();
+		return result;
+	}
+
+	/**
+	 * Return the index of the chunk with the given chunk coordinates.
+	 */
+	private int getChunkIndex(int cx, int cy, int cz) {
+		return cx + nbChunksX * (cy + nbChunksY * cz);
+	}
+
+	/**
+	 * The number of chunks in each direction.
+	 */
+	private final int nbChunksX, nbChunksY, nbChunksZ;
+
+	/**
+	 * An array registering for each uniform chunk the integer of the terrain type of all its cubes.
+	 */
+	private final byte[] uniformTypes;
+
+	/**
+	 * An array registering for each chunk that is not uniform the packed terrain types of its cubes,
+	 * or null if the chunk is uniform.
+	 */
+	private final PackedTerrain[] denseChunks;
+
+	/**
+	 * The number of cubes along each side of a chunk.
+	 */
+	public static final int CHUNK_SIZE = 16;
+
+	private static final int CHUNK_SHIFT = 4;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+}
@@ -0,0 +1,263 @@
+package hillbillies.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A class of maps registering the elements occupying each cube of a world, keyed by the index of the cube.
+ *
+ * The map uses open addressing with linear probing on primitive cube indices, so looking up a cube
+ * does not create a key object. The elements of each occupied cube are kept in a small array
+ * instead of a hash set, since a cube is rarely occupied by more than a few elements.
+ *
+ * @invar Each occupied cube is registered in exactly one slot of this map, with at least one element.
+ * @param <T> The type of the elements occupying the cubes.
+ */
+class CubeOccupancy<T> {
+
+	/**
+	 * Initialize this new occupancy map without occupied cubes.
+	 */
+	CubeOccupancy() {
+		clearSlots(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * The cube index of each slot of this map, or EMPTY if the slot is not in use.
+	 */
+	private int[] keys;
+
+	/**
+	 * The occupants of the cube of each slot of this map.
+	 */
+	private Occupants<T>[] values;
+
+	/**
+	 * The number of occupied cubes registered in this map.
+	 */
+	private int size = 0;
+
+	/**
+	 * Return the number of occupied cubes of this map.
+	 */
+	int getNbOccupiedCubes() {
+		return size;
+	}
+
+	/**
+	 * Return the elements occupying the cube with the given index.
+	 *
+	 * @param cube
+	 * 			The index of the cube.
+	 * @return An unmodifiable set with the elements at the given cube, which reflects later changes
+	 * 			as long as the cube stays occupied and stays empty once the cube is left. The shared empty
+	 * 			set if the cube is not occupied. Iterating over the set while it changes fails with a
+	 * 			ConcurrentModificationException.
+	 */
+	Set<T> get(int cube) {
+		int slot = findSlot(cube);
+		if (keys[slot] == EMPTY)
+			return Collections.emptySet();
+		return values[slot];
+	}
+
+	/**
+	 * Register the given element at the cube with the given index.
+	 *
+	 * @param cube
+	 * 			The index of the cube.
+	 * @param element
+	 * 			The element to register.
+	 * @post The given element is one of the elements at the given cube.
+	 * 		| new.get(cube).contains(element)
+	 */
+	void add(int cube, T element) {
+		int slot = findSlot(cube);
+		if (keys[slot] == EMPTY) {
+			if (2 * (size + 1) > keys.length) {
+				resize(2 * keys.length);
+				slot = findSlot(cube);
+			}
+			keys[slot] = cube;
+			values[slot] = new Occupants<T>();
+			size++;
+		}
+		values[slot].addElement(element);
+	}
+
+	/**
+	 * Remove the given element from the cube with the given index.
+	 *
+	 * @param cube
+	 * 			The index of the cube.
+	 * @param element
+	 * 			The element to remove.
+	 * @return True if and only if the given element was one of the elements at the given cube.
+	 * @post The given element is not one of the elements at the given cube.
+	 * 		| ! new.get(cube).contains(element)
+	 */
+	boolean remove(int cube, T element) {
+		int slot = findSlot(cube);
+		if (keys[slot] == EMPTY || !values[slot].removeElement(element))
+			return false;
+		if (values[slot].isEmpty()) {
+			deleteSlot(slot);
+			size--;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the slot of the cube with the given index, or the empty slot where it would be registered.
+	 */
+	private int findSlot(int cube) {
+		int mask = keys.length - 1;
+		int slot = hash(cube) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != cube)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	/**
+	 * Empty the given slot, moving later slots of the same probe sequence back so they stay reachable.
+	 */
+	private void deleteSlot(int slot) {
+		int mask = keys.length - 1;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == EMPTY)
+				break;
+			int home = hash(keys[next]) & mask;
+			// the entry at next may only move back if its home is not cyclically between slot and next
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+		}
+		keys[slot] = EMPTY;
+		values[slot] = null;
+	}
+
+	/**
+	 * Move all entries of this map to new slots of the given capacity.
+	 */
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Occupants<T>[] oldValues = values;
+		clearSlots(capacity);
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != EMPTY) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+	}
+
+	/**
+	 * Replace the slots of this map by the given number of empty slots.
+	 */
+	@SuppressWarnings("unchecked")
+	private void clearSlots(int capacity) {
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = (Occupants<T>[]) new Occupants<?>[capacity];
+	}
+
+	/**
+	 * Return the hash of the given cube index, spreading neighbouring cubes over the slots.
+	 */
+	private static int hash(int cube) {
+		int h = cube * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The key of slots that are not in use; cube indices are never negative.
+	 */
+	private static final int EMPTY = -1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * A class of small sets of the elements occupying a cube, stored in an array.
+	 */
+	private static class Occupants<T> extends AbstractSet<T> {
+
+		private Object[] elements = new Object[2];
+
+		private int nbElements = 0;
+
+		/**
+		 * The number of changes to this set, checked by its iterators.
+		 */
+		private int modCount = 0;
+
+		private void addElement(T element) {
+			if (indexOf(element) >= 0)
+				return;
+			if (nbElements == elements.length)
+				elements = Arrays.copyOf(elements, 2 * elements.length);
+			elements[nbElements++] = element;
+			modCount++;
+		}
+
+		private boolean removeElement(T element) {
+			int index = indexOf(element);
+			if (index < 0)
+				return false;
+			elements[index] = elements[--nbElements];
+			elements[nbElements] = null;
+			modCount++;
+			return true;
+		}
+
+		private int indexOf(Object element) {
+			for (int i = 0; i < nbElements; i++)
+				if (elements[i] == element)
+					return i;
+			return -1;
+		}
+
+		@Override
+		public boolean contains(Object element) {
+			return indexOf(element) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return nbElements;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+
+				private int next = 0;
+
+				private final int expectedModCount = modCount;
+
+				@Override
+				public boolean hasNext() {
+					return next < nbElements;
+				}
+
+				@SuppressWarnings("unchecked")
+				@Override
+				public T next() {
+					if (modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					if (!hasNext())
+						throw new NoSuchElementException();
+					return (T) elements[next++];
+				}
+			};
+		}
+	}
+}
@@ -1,59 +1,101 @@
 package hillbillies.model;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import hillbillies.model.expression.Expression;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * A class of execution contexts, each holding the frame of one execution of a task: 
+ * the executing unit, the selected cube, the values of the variables and the program counter.
+ * The variables of a program are resolved to slots when the program is created, so the frame 
+ * holds their values in an array indexed by slot.
+ * 
+ * The statements and expressions of a task hold no state of their own, so one task 
+ * program can be executed by many units at once, each in its own execution context.
+ */
 public class ExecutionContext {
-	public ExecutionContext(Unit executingUnit, int[] selectedCube, HashMap<String,Expression<?>> variables, boolean broken){
+	public ExecutionContext(Unit executingUnit, int[] selectedCube, int nbVariables){
 		setExecutingUnit(executingUnit);
 		setSelectedCube(selectedCube);
-		setVariables(variables);
+		this.variables = new Object[nbVariables];
 	}
 	
-	public ExecutionContext(Unit executingUnit, int[] selectedCube, HashMap<String,Expression<?>> variables){
-		this(executingUnit,selectedCube,variables,false);
+	/**
+	 * Return the index of the next instruction of the program executed in this context.
+	 */
+	public int getProgramCounter() {
+		return programCounter;
 	}
-	private boolean broken = false;
-	
+
+	/**
+	 * Set the index of the next instruction of the program executed in this context to the given index.
+	 * 
+	 * @param programCounter the index to set
+	 */
+	public void setProgramCounter(int programCounter) {
+		this.programCounter = programCounter;
+	}
+
+	private int programCounter = 0;
+
 	/**
-	 * @return the broken
+	 * Return the number of instructions the program executed in this context may still execute in the current tick.
 	 */
-	public boolean isBroken() {
-		return broken;
+	public int getInstructionBudget() {
+		return instructionBudget;
 	}
 
+	/**
+	 * Set the number of instructions the program executed in this context may still execute in the current tick.
+	 * 
+	 * @param instructionBudget the number of instructions to set
+	 */
+	public void setInstructionBudget(int instructionBudget) {
+		this.instructionBudget = instructionBudget;
+	}
+
+	private int instructionBudget = 0;
 
 	/**
-	 * @param broken the broken to set
+	 * Start the frame of this execution context over with the given number of variable slots: 
+	 * clear the variables and reset the program counter.
 	 */
-	public void setBroken(boolean broken) {
-		this.broken = broken;
+	public void resetFrame(int nbVariables) {
+		if (variables.length == nbVariables)
+			Arrays.fill(variables, null);
+		else
+			variables = new Object[nbVariables];
+		setProgramCounter(0);
 	}
-	private Unit executingUnit;
+
+	private final AtomicReference<Unit> executingUnit = new AtomicReference<>();
 	
 	private int[] selectedCube;
 	
-	private Map<String,Expression<?>> variables = new HashMap<String,Expression<?>>();
-
-	public void addVariable(String variableName,Expression<?> expr){
-		if (getVariables()==null)
-			setVariables(new HashMap<String,Expression<?>>());
-		try{
-			variables.put(variableName, expr);
-		}
-		catch(ClassCastException exc){
-		}
-		catch(UnsupportedOperationException exc2){
-		}
-		catch(IllegalArgumentException exc3){
-		}
-		catch(NullPointerException exc4){
-		
-		}
-		
-			
+	private Object[] variables;
+
+	/**
+	 * Assign the given value to the variable with the given slot in this execution context.
+	 * 
+	 * @param slot the slot of the variable
+	 * @param value the value to assign
+	 */
+	public void setVariable(int slot,Object value){
+		variables[slot] = value;
+	}
+
+	/**
+	 * Return the value of the variable with the given slot in this execution context, 
+	 * or null if no value has been assigned to it.
+	 */
+	public Object getVariable(int slot){
+		return variables[slot];
+	}
+
+	/**
+	 * Return the number of variable slots of this execution context.
+	 */
+	public int getNbVariables(){
+		return variables.length;
 	}
 
 
@@ -61,14 +103,26 @@ public class ExecutionContext {
 	 * @return the executingUnit
 	 */
 	public Unit getExecutingUnit() {
-		return executingUnit;
+		return executingUnit.get();
 	}
 
 	/**
 	 * @param executingUnit the executingUnit to set
 	 */
 	public void setExecutingUnit(Unit executingUnit) {
-		this.executingUnit = executingUnit;
+		this.executingUnit.set(executingUnit);
+	}
+
+	/**
+	 * Atomically set the executing unit of this execution context to the given unit,
+	 * if the current executing unit is the expected unit.
+	 * 
+	 * @param expected the expected current executing unit
+	 * @param executingUnit the executingUnit to set
+	 * @return true if and only if the executing unit was the expected unit and has been set
+	 */
+	public boolean compareAndSetExecutingUnit(Unit expected, Unit executingUnit) {
+		return this.executingUnit.compareAndSet(expected, executingUnit);
 	}
 
 	/**
@@ -84,20 +138,6 @@ public class ExecutionContext {
 	public void setSelectedCube(int[] selectedCube) {
 		this.selectedCube = selectedCube;
 	}
-
-	/**
-	 * @return the variables
-	 */
-	public Map<String, Expression<?>> getVariables() {
-		return variables;
-	}
-
-	/**
-	 * @param variables2 the variables to set
-	 */
-	public void setVariables(HashMap<String, Expression<?>> variables2) {
-		this.variables = variables2;
-	}
 	
 	
 	
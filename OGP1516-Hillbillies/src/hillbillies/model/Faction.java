@@ -243,5 +243,132 @@ public class Faction {
 	 * Variable registering the scheduler of this faction
 	 */
 	 private Scheduler scheduler;
+
+	/**
+	 * Return the number of task instructions the units of this faction may still execute in the current tick.
+	 */
+	@Basic
+	public int getInstructionBudget() {
+		return instructionBudget;
+	}
+
+	/**
+	 * Refill the instruction budget of this faction for a tick of the given duration.
+	 * 
+	 * @param duration
+	 * 		The duration of the tick, expressed in seconds of game time.
+	 * @post The units of this faction may execute INSTRUCTIONS_PER_MILLISECOND task instructions 
+	 * 		for each started millisecond of the given duration, and at least that many.
+	 * 		| new.getInstructionBudget() == 
+	 * 		|	Math.max(1, (int) Math.ceil(duration * 1000)) * INSTRUCTIONS_PER_MILLISECOND
+	 * @post The budget is shared evenly by as many units as claimed instructions in the previous tick, 
+	 * 		and at least one. The units that get one instruction more than the others, for the part of the budget
+	 * 		that cannot be shared evenly, are the next ones after those of the previous tick.
+	 */
+	void refillInstructionBudget(double duration) {
+		this.instructionBudget = Math.max(1, (int) Math.ceil(duration * 1000 - 1e-3)) * INSTRUCTIONS_PER_MILLISECOND;
+		this.tickBudget = instructionBudget;
+		this.nbSharers = Math.max(1, nbClaims);
+		this.firstExtraShare = (firstExtraShare + lastNbExtraShares) % nbSharers;
+		this.lastNbExtraShares = tickBudget % nbSharers;
+		this.nbClaims = 0;
+	}
+
+	/**
+	 * Claim at most the given number of instructions from the instruction budget of this faction,
+	 * for the next unit of this faction in the current tick.
+	 * 
+	 * @param nbInstructions
+	 * 		The number of instructions to claim.
+	 * @return The number of claimed instructions, which is the given number, or the share of the budget 
+	 * 		of the claiming unit, or the remaining budget of this faction, whichever is smallest.
+	 * 		The share of a unit is the budget of the tick divided evenly by the number of sharing units,
+	 * 		plus one instruction for the units that get part of the remainder of that division in this tick.
+	 * 		| result == Math.min(nbInstructions, Math.min(share, getInstructionBudget()))
+	 * @post The claimed instructions are subtracted from the budget of this faction.
+	 * 		| new.getInstructionBudget() == getInstructionBudget() - result
+	 * @note Because the units that get part of the remainder change each tick, and each unit gets an even share, 
+	 * 		units that come late in the order of the units of a world are not starved by busy units before them.
+	 */
+	int claimInstructions(int nbInstructions) {
+		int share = tickBudget / nbSharers;
+		if (Math.floorMod(nbClaims - firstExtraShare, nbSharers) < lastNbExtraShares)
+			share++;
+		nbClaims++;
+		int claimed = Math.max(0, Math.min(nbInstructions, Math.min(share, instructionBudget)));
+		instructionBudget -= claimed;
+		return claimed;
+	}
+
+	/**
+	 * Return the given number of claimed but unused instructions to the instruction budget of this faction.
+	 * 
+	 * @post The given number of instructions is added to the budget of this faction.
+	 * 		| new.getInstructionBudget() == getInstructionBudget() + nbInstructions
+	 */
+	void releaseInstructions(int nbInstructions) {
+		instructionBudget += nbInstructions;
+	}
+
+	/**
+	 * Variable registering the remaining instruction budget of this faction in the current tick.
+	 * The budget is refilled by the world of the units of this faction at the start of each tick.
+	 */
+	private int instructionBudget = 200 * INSTRUCTIONS_PER_MILLISECOND;
+
+	/**
+	 * Variable registering the instruction budget of this faction at the start of the current tick.
+	 */
+	private int tickBudget = instructionBudget;
+
+	/**
+	 * Variable registering the number of units sharing the budget of the current tick.
+	 */
+	private int nbSharers = 1;
+
+	/**
+	 * Variable registering the number of units that claimed instructions in the current tick.
+	 */
+	private int nbClaims = 0;
+
+	/**
+	 * Variable registering the position, in the order of claims of the current tick, 
+	 * of the first unit that gets an instruction of the remainder of the budget.
+	 */
+	private int firstExtraShare = 0;
+
+	/**
+	 * Variable registering the number of units that get an instruction of the remainder of the budget in the current tick.
+	 */
+	private int lastNbExtraShares = 0;
+
+	/**
+	 * A constant registering the number of task instructions all units of a faction together may execute
+	 * per millisecond of game time, so the busy loops of one scheduler cannot starve the simulation.
+	 */
+	public static final int INSTRUCTIONS_PER_MILLISECOND = 20;
+
+	/**
+	 * Return the number of times a unit of this faction ran out of instructions before its task gave it something to do.
+	 */
+	@Basic
+	public long getNbInstructionOverruns() {
+		return nbInstructionOverruns;
+	}
+
+	/**
+	 * Register that a unit of this faction ran out of instructions before its task gave it something to do.
+	 * 
+	 * @post The number of instruction overruns of this faction is incremented by one.
+	 * 		| new.getNbInstructionOverruns() == getNbInstructionOverruns() + 1
+	 */
+	void addInstructionOverrun() {
+		nbInstructionOverruns++;
+	}
+
+	/**
+	 * Variable registering the number of instruction overruns of the units of this faction.
+	 */
+	private long nbInstructionOverruns = 0;
 	 
 }
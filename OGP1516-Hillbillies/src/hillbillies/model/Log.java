@@ -65,6 +65,11 @@ public class Log extends RawMaterial {
 	protected void setPosition(double[] position) throws IllegalArgumentException {
 		if (!canHaveAsPosition(position))
 			throw new IllegalArgumentException();
+		if (this.getWorld()!=null && this.getWorld().isSameCube(this.position, position)){
+			// the log stays in its cube, so the maps of its world do not change
+			this.position = position;
+			return;
+		}
 		if (this.getWorld()!=null)
 			this.getWorld().removeLogFromLogsAtCubeMap(this);
 		this.position = position;
@@ -135,16 +140,12 @@ public class Log extends RawMaterial {
 	 * 		is not passable terrain.
 	 */
 	public boolean mustFall() {
-		if ( (this.getCubeCoordinate()[2]==0)){
-			return false;
-		}
-		double[] ijk = new double[] { 0.0, 0.0, -1.0 };
-		double[] neighbouring = Vector.vectorAdd(this.getPosition(), ijk);
-		if (!world.getTerrain(neighbouring).isPassable()) {
+		double[] position = this.getPosition();
+		if ( (Math.floor(position[2])==0)){
 			return false;
 		}
-
-		return true;
+		return world.getPassable(world.getCubeIndex((int) Math.floor(position[0]), (int) Math.floor(position[1]), 
+				(int) Math.floor(position[2]) - 1));
 	}
 	/**
 	 * Makes the log fall.
@@ -0,0 +1,185 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hillbillies.model.expression.AndExpression;
+import hillbillies.model.expression.BracketBooleanExpression;
+import hillbillies.model.expression.BracketPositionExpression;
+import hillbillies.model.expression.BracketUnitExpression;
+import hillbillies.model.expression.BracketVariableExpression;
+import hillbillies.model.expression.Expression;
+import hillbillies.model.expression.FalseExpression;
+import hillbillies.model.expression.IComposedBinaryExpression;
+import hillbillies.model.expression.IComposedUnaryExpression;
+import hillbillies.model.expression.NegationExpression;
+import hillbillies.model.expression.OrExpression;
+import hillbillies.model.expression.PositionExpression;
+import hillbillies.model.expression.TrueExpression;
+import hillbillies.model.expression.UnitExpression;
+import hillbillies.model.statement.ExpressionStatement;
+import hillbillies.model.statement.IfElseStatement;
+import hillbillies.model.statement.SequenceStatement;
+import hillbillies.model.statement.Statement;
+import hillbillies.model.statement.WhileStatement;
+
+/**
+ * A class of optimisers, simplifying the activities of a task before they are lowered into a program.
+ *
+ * The optimiser folds negations, conjunctions and disjunctions of the literals true and false,
+ * removes brackets, replaces if statements with a literal condition by the branch that is taken,
+ * and removes while statements whose condition is the literal false. Position literals hold their
+ * position, so once their brackets are removed, a position literal inside a loop is not evaluated
+ * again in each iteration.
+ *
+ * The activities are simplified in place. The optimiser only makes changes that do not change
+ * what a unit executing the activities does: all expressions it removes are free of side effects.
+ */
+public final class Optimiser {
+
+	private Optimiser() {
+	}
+
+	/**
+	 * Return the optimised version of the given activities.
+	 *
+	 * @param activities
+	 * 			The activities to optimise.
+	 * @return The optimised activities, or an empty sequence if nothing remains of the given activities.
+	 * @throws IllegalArgumentException
+	 * 			If the given activities are not effective.
+	 */
+	public static Statement optimise(Statement activities) throws IllegalArgumentException {
+		if (activities == null)
+			throw new IllegalArgumentException();
+		Statement result = optimiseStatement(activities);
+		if (result == null)
+			return new SequenceStatement<Statement>(new ArrayList<Statement>());
+		return result;
+	}
+
+	/**
+	 * Return the optimised version of the given statement, or null if the given statement does nothing.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Statement optimiseStatement(Statement statement) {
+		if (statement == null)
+			return null;
+		if (statement instanceof SequenceStatement) {
+			List<Statement> statements = new ArrayList<>();
+			for (Statement child : ((SequenceStatement<?>) statement).getStatements()) {
+				Statement optimised = optimiseStatement(child);
+				if (optimised != null)
+					statements.add(optimised);
+			}
+			if (statements.isEmpty())
+				return null;
+			((SequenceStatement) statement).setStatements(statements);
+			return statement;
+		}
+		if (statement instanceof IfElseStatement) {
+			IfElseStatement ifElse = (IfElseStatement) statement;
+			Expression<?> condition = optimiseExpression(ifElse.getCondition());
+			Statement thenBody = optimiseStatement(ifElse.getFirstStatement());
+			Statement elseBody = optimiseStatement(ifElse.getSecondStatement());
+			if (condition instanceof TrueExpression)
+				return thenBody;
+			if (condition instanceof FalseExpression)
+				return elseBody;
+			if (thenBody == null && elseBody == null)
+				return null;
+			ifElse.setExpression(condition);
+			if (thenBody == null) {
+				// an if statement needs a then part
+				ifElse.setExpression(new NegationExpression(condition));
+				thenBody = elseBody;
+				elseBody = null;
+			}
+			ifElse.setFirstStatement(thenBody);
+			ifElse.setSecondStatement(elseBody);
+			return ifElse;
+		}
+		if (statement instanceof WhileStatement) {
+			WhileStatement loop = (WhileStatement) statement;
+			Expression<?> condition = optimiseExpression(loop.getCondition());
+			if (condition instanceof FalseExpression)
+				return null;
+			loop.setExpression(condition);
+			Statement body = optimiseStatement(loop.getBody());
+			if (body != null)
+				loop.setStatement(body);
+			return loop;
+		}
+		if (statement instanceof ExpressionStatement) {
+			ExpressionStatement expressionStatement = (ExpressionStatement) statement;
+			expressionStatement.setExpression(optimiseExpression(expressionStatement.getExpression()));
+		}
+		return statement;
+	}
+
+	/**
+	 * Return the optimised version of the given expression, which evaluates to the same value as the
+	 * given expression whenever the given expression evaluates to true or false.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Expression<?> optimiseExpression(Expression<?> expression) {
+		if (expression == null)
+			return null;
+		if (expression instanceof IComposedUnaryExpression) {
+			IComposedUnaryExpression composed = (IComposedUnaryExpression) expression;
+			Expression<?> operand = optimiseExpression((Expression<?>) composed.getExpression());
+			if (isRemovableBracket(expression, operand))
+				return operand;
+			if (expression instanceof NegationExpression) {
+				if (operand instanceof TrueExpression)
+					return new FalseExpression();
+				if (operand instanceof FalseExpression)
+					return new TrueExpression();
+				if (operand instanceof NegationExpression)
+					return (Expression<?>) ((NegationExpression<?>) operand).getExpression();
+			}
+			composed.setExpression(operand);
+			return expression;
+		}
+		if (expression instanceof IComposedBinaryExpression) {
+			IComposedBinaryExpression composed = (IComposedBinaryExpression) expression;
+			Expression<?> left = optimiseExpression((Expression<?>) composed.getLeftExpression());
+			Expression<?> right = optimiseExpression((Expression<?>) composed.getRightExpression());
+			// the right operand is only evaluated if the left operand does not decide the result
+			if (expression instanceof AndExpression) {
+				if (left instanceof FalseExpression || left instanceof TrueExpression && right instanceof FalseExpression)
+					return new FalseExpression();
+				if (left instanceof TrueExpression)
+					return right;
+				if (right instanceof TrueExpression)
+					return left;
+			}
+			if (expression instanceof OrExpression) {
+				if (left instanceof TrueExpression || left instanceof FalseExpression && right instanceof TrueExpression)
+					return new TrueExpression();
+				if (left instanceof FalseExpression)
+					return right;
+				if (right instanceof FalseExpression)
+					return left;
+			}
+			composed.setLeftExpression(left);
+			composed.setRightExpression(right);
+			return expression;
+		}
+		return expression;
+	}
+
+	/**
+	 * Check whether the given bracket expression can be replaced by the given operand: the given
+	 * expression is a bracket expression and its operand is an expression of the same kind.
+	 */
+	private static boolean isRemovableBracket(Expression<?> expression, Expression<?> operand) {
+		if (expression instanceof BracketBooleanExpression || expression instanceof BracketVariableExpression)
+			return true;
+		if (expression instanceof BracketPositionExpression)
+			return operand instanceof PositionExpression;
+		if (expression instanceof BracketUnitExpression)
+			return operand instanceof UnitExpression;
+		return false;
+	}
+}
@@ -0,0 +1,199 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A class of packed terrains, storing the terrain type of each cube of a world in two bits.
+ *
+ * The cubes are numbered with the linear index x + y*X + z*X*Y, where X and Y are the number of
+ * cubes in the x- and y-direction, and each long word holds the terrain types of 32 consecutive cubes.
+ *
+ * @invar The dimensions of each packed terrain are positive.
+ */
+public class PackedTerrain {
+
+	/**
+	 * Initialize this new packed terrain with the given matrix of terrain types.
+	 *
+	 * @param terrainTypes
+	 * 			The matrix of terrain types, indexed as [x][y][z].
+	 * @post The dimensions of this new packed terrain are equal to the dimensions of the given matrix.
+	 * @post The terrain type of each cube of this new packed terrain is the terrain type
+	 * 			with the integer of the given matrix at that cube.
+	 * @throws IllegalArgumentException
+	 * 			If the given matrix is empty in some direction or contains an integer
+	 * 			that does not reference a terrain type.
+	 */
+	public PackedTerrain(int[][][] terrainTypes) throws IllegalArgumentException {
+		this(terrainTypes.length, terrainTypes.length == 0 ? 0 : terrainTypes[0].length,
+				terrainTypes.length == 0 || terrainTypes[0].length == 0 ? 0 : terrainTypes[0][0].length);
+		for (int x = 0; x < xDimension; x++)
+			for (int y = 0; y < yDimension; y++)
+				for (int z = 0; z < zDimension; z++) {
+					int type = terrainTypes[x][y][z];
+					if (type < 0 || type >= TerrainType.values().length)
+						throw new IllegalArgumentException();
+					setType(getIndex(x, y, z), type);
+				}
+	}
+
+	/**
+	 * Initialize this new packed terrain with the given dimensions, consisting of air only.
+	 *
+	 * @param xDimension
+	 * 			The number of cubes in the x-direction.
+	 * @param yDimension
+	 * 			The number of cubes in the y-direction.
+	 * @param zDimension
+	 * 			The number of cubes in the z-direction.
+	 * @effect Initialize this new packed terrain with the given dimensions, filled with air.
+	 */
+	public PackedTerrain(int xDimension, int yDimension, int zDimension) throws IllegalArgumentException {
+		this(xDimension, yDimension, zDimension, TerrainType.AIR);
+	}
+
+	/**
+	 * Initialize this new packed terrain with the given dimensions, filled with the given terrain type.
+	 *
+	 * @param xDimension
+	 * 			The number of cubes in the x-direction.
+	 * @param yDimension
+	 * 			The number of cubes in the y-direction.
+	 * @param zDimension
+	 * 			The number of cubes in the z-direction.
+	 * @param terrain
+	 * 			The terrain type of all cubes of this new packed terrain.
+	 * @post The dimensions of this new packed terrain are equal to the given dimensions.
+	 * @post Each cube of this new packed terrain has the given terrain type.
+	 * @throws IllegalArgumentException
+	 * 			If one of the given dimensions is not positive.
+	 */
+	public PackedTerrain(int xDimension, int yDimension, int zDimension, TerrainType terrain)
+			throws IllegalArgumentException {
+		if (xDimension <= 0 || yDimension <= 0 || zDimension <= 0)
+			throw new IllegalArgumentException();
+		this.xDimension = xDimension;
+		this.yDimension = yDimension;
+		this.zDimension = zDimension;
+		this.words = new long[(int) (((long) xDimension * yDimension * zDimension + CUBES_PER_WORD - 1) / CUBES_PER_WORD)];
+		if (terrain.getType() != 0)
+			Arrays.fill(words, terrain.getType() * FILL_PATTERN);
+	}
+
+	/**
+	 * Return the number of cubes of this packed terrain in the x-direction.
+	 */
+	@Basic @Immutable
+	public int getxDimension() {
+		return xDimension;
+	}
+
+	/**
+	 * Return the number of cubes of this packed terrain in the y-direction.
+	 */
+	@Basic @Immutable
+	public int getyDimension() {
+		return yDimension;
+	}
+
+	/**
+	 * Return the number of cubes of this packed terrain in the z-direction.
+	 */
+	@Basic @Immutable
+	public int getzDimension() {
+		return zDimension;
+	}
+
+	private final int xDimension;
+	private final int yDimension;
+	private final int zDimension;
+
+	/**
+	 * Return the linear index of the cube with the given coordinates.
+	 *
+	 * @return The linear index x + y*X + z*X*Y of the given cube.
+	 */
+	public int getIndex(int x, int y, int z) {
+		return x + xDimension * (y + yDimension * z);
+	}
+
+	/**
+	 * Return the terrain type of the cube with the given coordinates.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @pre The given cube is inside this packed terrain.
+	 */
+	public TerrainType getTerrain(int x, int y, int z) {
+		return TerrainType.getTerrain(getType(getIndex(x, y, z)));
+	}
+
+	/**
+	 * Set the terrain type of the cube with the given coordinates to the given terrain type.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @param terrain
+	 * 			The new terrain type of the cube.
+	 * @pre The given cube is inside this packed terrain.
+	 * @post The terrain type of the given cube is equal to the given terrain type.
+	 */
+	public void setTerrain(int x, int y, int z, TerrainType terrain) {
+		setType(getIndex(x, y, z), terrain.getType());
+	}
+
+	/**
+	 * Return the integer of the terrain type of the cube with the given linear index.
+	 */
+	public int getType(int index) {
+		return (int) (words[index >>> WORD_SHIFT] >>> ((index & WORD_MASK) << 1)) & TYPE_MASK;
+	}
+
+	/**
+	 * Set the integer of the terrain type of the cube with the given linear index to the given integer.
+	 */
+	private void setType(int index, int type) {
+		int shift = (index & WORD_MASK) << 1;
+		int word = index >>> WORD_SHIFT;
+		words[word] = (words[word] & ~((long) TYPE_MASK << shift)) | ((long) type << shift);
+	}
+
+	/**
+	 * Return a new matrix with the integers of the terrain types of this packed terrain, indexed as [x][y][z].
+	 */
+	public int[][][] toMatrix() {
+		int[][][] result = new int[xDimension][yDimension][zDimension];
+		for (int x = 0; x < xDimension; x++)
+			for (int y = 0; y < yDimension; y++)
+				for (int z = 0; z < zDimension; z++)
+					result[x][y][z] = getType(getIndex(x, y, z));
+		return result;
+	}
+
+	/**
+	 * The words holding the terrain types of the cubes, two bits per cube.
+	 */
+	private final long[] words;
+
+	private static final int CUBES_PER_WORD = 32;
+	private static final int WORD_SHIFT = 5;
+	private static final int WORD_MASK = CUBES_PER_WORD - 1;
+	private static final int TYPE_MASK = 0b11;
+
+	/**
+	 * A word with the integer 1 in each of its 32 cubes; multiplied by the integer of a terrain type,
+	 * it gives a word with that terrain type in each of its cubes.
+	 */
+	private static final long FILL_PATTERN = 0x5555555555555555L;
+}
@@ -0,0 +1,388 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * A class of path finders, computing paths between cubes of a world with the A* algorithm.
+ *
+ * A unit can walk from a cube to each of its 26 neighbouring cubes, if that neighbouring cube
+ * is passable and neighbouring solid terrain. The cost of a step is the distance between the
+ * centers of both cubes, and the remaining cost is estimated with the octile distance in three dimensions.
+ *
+ * The search state is registered per block of 8 x 8 x 8 cubes, and a block is only allocated once a search
+ * reaches it, so a path finder in a large world holds state for the region it searched, not for the whole world.
+ *
+ * @invar The world of each path finder is effective.
+ */
+public class PathFinder {
+
+	/**
+	 * Initialize this new path finder for the given world.
+	 *
+	 * @param world
+	 * 			The world in which this new path finder searches paths.
+	 * @post The world of this new path finder is equal to the given world.
+	 * @throws IllegalArgumentException
+	 * 			If the given world is not effective.
+	 */
+	public PathFinder(World world) throws IllegalArgumentException {
+		if (world == null)
+			throw new IllegalArgumentException();
+		this.world = world;
+	}
+
+	/**
+	 * Return the world of this path finder.
+	 */
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * A variable referencing the world of this path finder.
+	 */
+	private final World world;
+
+	/**
+	 * Find a shortest path from the given start cube to the given target cube.
+	 *
+	 * @param start
+	 * 			The cube to start from.
+	 * @param target
+	 * 			The cube to reach.
+	 * @return A list of the cubes to walk through, in order, starting with the first neighbouring cube of the
+	 * 			start cube and ending with the target cube. The list is empty if the start cube is the target cube.
+	 * 			Null if the target cube cannot be reached from the start cube.
+	 * @throws IllegalArgumentException
+	 * 			If the start cube or the target cube is not inside the world of this path finder.
+	 */
+	public LinkedList<int[]> findPath(int[] start, int[] target) throws IllegalArgumentException {
+		if (!getWorld().isCubeInWorld(start) || !getWorld().isCubeInWorld(target))
+			throw new IllegalArgumentException();
+		startSearch();
+		int startIndex = getIndex(start[0], start[1], start[2]);
+		int targetIndex = getIndex(target[0], target[1], target[2]);
+		int startSlot = getSlot(start[0], start[1], start[2]);
+		gScore[startSlot >>> BLOCK_BITS][startSlot & BLOCK_MASK] = 0.0;
+		parent[startSlot >>> BLOCK_BITS][startSlot & BLOCK_MASK] = -1;
+		state[startSlot >>> BLOCK_BITS][startSlot & BLOCK_MASK] = OPEN;
+		push(startIndex, heuristic(start[0], start[1], start[2], target));
+		while (heapSize > 0) {
+			int current = poll();
+			int x = current % nbX;
+			int y = (current / nbX) % nbY;
+			int z = current / (nbX * nbY);
+			int slot = getSlot(x, y, z);
+			byte[] currentStates = state[slot >>> BLOCK_BITS];
+			if (currentStates[slot & BLOCK_MASK] == CLOSED)
+				continue;
+			if (current == targetIndex)
+				return reconstructPath(current);
+			currentStates[slot & BLOCK_MASK] = CLOSED;
+			double currentScore = gScore[slot >>> BLOCK_BITS][slot & BLOCK_MASK];
+			for (int offset = 0; offset < World.NEIGHBOUR_OFFSETS.length; offset++) {
+				int nx = x + World.NEIGHBOUR_OFFSETS[offset][0];
+				int ny = y + World.NEIGHBOUR_OFFSETS[offset][1];
+				int nz = z + World.NEIGHBOUR_OFFSETS[offset][2];
+				if (nx < 0 || nx >= nbX || ny < 0 || ny >= nbY || nz < 0 || nz >= nbZ)
+					continue;
+				int neighbour = getIndex(nx, ny, nz);
+				int neighbourSlot = getSlot(nx, ny, nz);
+				int block = neighbourSlot >>> BLOCK_BITS, offsetInBlock = neighbourSlot & BLOCK_MASK;
+				byte neighbourState = state[block][offsetInBlock];
+				if (neighbourState == CLOSED)
+					continue;
+				if (neighbour != targetIndex && !isWalkable(neighbour, block, offsetInBlock))
+					continue;
+				double g = currentScore + STEP_COSTS[offset];
+				if (neighbourState == UNSEEN || g < gScore[block][offsetInBlock]) {
+					state[block][offsetInBlock] = OPEN;
+					gScore[block][offsetInBlock] = g;
+					parent[block][offsetInBlock] = current;
+					push(neighbour, g + heuristic(nx, ny, nz, target));
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the path ending in the given cube index, following the parents registered during the search.
+	 *
+	 * @param end
+	 * 			The index of the last cube of the path.
+	 * @return The cubes of the path from the first cube after the start cube up to the given cube.
+	 */
+	private LinkedList<int[]> reconstructPath(int end) {
+		LinkedList<int[]> path = new LinkedList<int[]>();
+		int index = end;
+		while (true) {
+			int[] cube = getWorld().getCubeOfIndex(index);
+			int slot = getSlot(cube[0], cube[1], cube[2]);
+			int previous = parent[slot >>> BLOCK_BITS][slot & BLOCK_MASK];
+			if (previous == -1)
+				return path;
+			path.addFirst(cube);
+			index = previous;
+		}
+	}
+
+	/**
+	 * Check whether a unit can walk through the cube with the given index.
+	 *
+	 * @return True if and only if the cube is passable and neighbouring solid terrain.
+	 * @note The result is computed once per cube and per search, and registered at the given offset in the given block.
+	 */
+	private boolean isWalkable(int index, int block, int offsetInBlock) {
+		if (walkable[block][offsetInBlock] == UNKNOWN)
+			walkable[block][offsetInBlock] = (getWorld().getPassable(index) && getWorld().isNeighboringSolidTerrain(index)) ? YES : NO;
+		return walkable[block][offsetInBlock] == YES;
+	}
+
+	/**
+	 * Return the estimated cost of walking from the given start cube to the given target cube,
+	 * without searching a path. The estimate is never larger than the cost of a shortest path.
+	 *
+	 * @param start
+	 * 			The cube to start from.
+	 * @param target
+	 * 			The cube to reach.
+	 * @return The octile distance in three dimensions between both cubes.
+	 */
+	public static double getEstimatedCost(int[] start, int[] target) {
+		return heuristic(start[0], start[1], start[2], target);
+	}
+
+	/**
+	 * Return the octile distance in three dimensions between the given cube and the given target cube.
+	 */
+	private static double heuristic(int x, int y, int z, int[] target) {
+		int dx = Math.abs(x - target[0]);
+		int dy = Math.abs(y - target[1]);
+		int dz = Math.abs(z - target[2]);
+		int min = Math.min(dx, Math.min(dy, dz));
+		int max = Math.max(dx, Math.max(dy, dz));
+		int mid = dx + dy + dz - min - max;
+		return SQRT3 * min + SQRT2 * (mid - min) + (max - mid);
+	}
+
+	/**
+	 * Return the index of the cube with the given coordinates, which is its index in the world of this path finder.
+	 */
+	private int getIndex(int x, int y, int z) {
+		return getWorld().getCubeIndex(x, y, z);
+	}
+
+	/**
+	 * Prepare the state of this path finder for a new search.
+	 *
+	 * @post The block tables of this path finder have a slot for each block of the world of this path finder.
+	 * @post If more than MAX_RETAINED_BLOCKS blocks were allocated, all blocks are released.
+	 * @post The registered state of all cubes is outdated.
+	 */
+	private void startSearch() {
+		if (blockStamps == null) {
+			nbX = getWorld().getxDimension();
+			nbY = getWorld().getyDimension();
+			nbZ = getWorld().getzDimension();
+			nbBlocksX = (nbX + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			nbBlocksY = (nbY + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			int nbBlocks = nbBlocksX * nbBlocksY * ((nbZ + BLOCK_SIZE - 1) / BLOCK_SIZE);
+			blockStamps = new int[nbBlocks];
+			state = new byte[nbBlocks][];
+			walkable = new byte[nbBlocks][];
+			gScore = new double[nbBlocks][];
+			parent = new int[nbBlocks][];
+			epoch = 0;
+		}
+		if (nbAllocatedBlocks > MAX_RETAINED_BLOCKS) {
+			Arrays.fill(state, null);
+			Arrays.fill(walkable, null);
+			Arrays.fill(gScore, null);
+			Arrays.fill(parent, null);
+			nbAllocatedBlocks = 0;
+		}
+		if (epoch == Integer.MAX_VALUE) {
+			Arrays.fill(blockStamps, 0);
+			epoch = 0;
+		}
+		epoch++;
+		heapSize = 0;
+	}
+
+	/**
+	 * Return the slot registering the search state of the cube with the given coordinates.
+	 *
+	 * @return The index of the block of the cube, shifted left by BLOCK_BITS, 
+	 * 			combined with the offset of the cube inside that block.
+	 * @post The block of the cube is allocated, and if it was last used in a previous search, 
+	 * 			all its cubes are unseen and of unknown walkability.
+	 */
+	private int getSlot(int x, int y, int z) {
+		int block = (x >> BLOCK_SHIFT) + nbBlocksX * ((y >> BLOCK_SHIFT) + nbBlocksY * (z >> BLOCK_SHIFT));
+		if (blockStamps[block] != epoch) {
+			if (state[block] == null) {
+				state[block] = new byte[BLOCK_VOLUME];
+				walkable[block] = new byte[BLOCK_VOLUME];
+				gScore[block] = new double[BLOCK_VOLUME];
+				parent[block] = new int[BLOCK_VOLUME];
+				nbAllocatedBlocks++;
+			} else {
+				Arrays.fill(state[block], UNSEEN);
+				Arrays.fill(walkable[block], UNKNOWN);
+			}
+			blockStamps[block] = epoch;
+		}
+		int offsetInBlock = (x & (BLOCK_SIZE - 1)) + BLOCK_SIZE * ((y & (BLOCK_SIZE - 1)) + BLOCK_SIZE * (z & (BLOCK_SIZE - 1)));
+		return (block << BLOCK_BITS) | offsetInBlock;
+	}
+
+	/**
+	 * Add the given cube index with the given key to the binary heap of open cubes.
+	 */
+	private void push(int index, double key) {
+		if (heapSize == heapNodes.length) {
+			heapNodes = Arrays.copyOf(heapNodes, 2 * heapSize);
+			heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+		}
+		int position = heapSize++;
+		while (position > 0) {
+			int parentPosition = (position - 1) / 2;
+			if (heapKeys[parentPosition] <= key)
+				break;
+			heapNodes[position] = heapNodes[parentPosition];
+			heapKeys[position] = heapKeys[parentPosition];
+			position = parentPosition;
+		}
+		heapNodes[position] = index;
+		heapKeys[position] = key;
+	}
+
+	/**
+	 * Remove and return the cube index with the smallest key from the binary heap of open cubes.
+	 */
+	private int poll() {
+		int result = heapNodes[0];
+		heapSize--;
+		int lastNode = heapNodes[heapSize];
+		double lastKey = heapKeys[heapSize];
+		int position = 0;
+		while (2 * position + 1 < heapSize) {
+			int child = 2 * position + 1;
+			if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child])
+				child++;
+			if (heapKeys[child] >= lastKey)
+				break;
+			heapNodes[position] = heapNodes[child];
+			heapKeys[position] = heapKeys[child];
+			position = child;
+		}
+		heapNodes[position] = lastNode;
+		heapKeys[position] = lastKey;
+		return result;
+	}
+
+	/**
+	 * The dimensions of the world of this path finder.
+	 */
+	private int nbX, nbY, nbZ;
+
+	/**
+	 * The number of blocks of the world of this path finder in the x-direction and the y-direction.
+	 */
+	private int nbBlocksX, nbBlocksY;
+
+	/**
+	 * A variable registering the number of the current search.
+	 */
+	private int epoch = 0;
+
+	/**
+	 * An array registering for each block the number of the last search in which one of its cubes was seen.
+	 */
+	private int[] blockStamps;
+
+	/**
+	 * A variable registering the number of blocks for which arrays are allocated.
+	 */
+	private int nbAllocatedBlocks = 0;
+
+	/**
+	 * Arrays registering per block for each cube whether it is unseen, open or closed in the current search,
+	 * or null for blocks that have not been seen.
+	 */
+	private byte[][] state;
+
+	/**
+	 * Arrays registering per block for each cube whether it is walkable, as computed in the current search.
+	 */
+	private byte[][] walkable;
+
+	/**
+	 * Arrays registering per block for each cube the cost of the cheapest known path from the start cube.
+	 */
+	private double[][] gScore;
+
+	/**
+	 * Arrays registering per block for each cube the index of the previous cube on the cheapest known path.
+	 */
+	private int[][] parent;
+
+	/**
+	 * The cube indices of the binary heap of open cubes.
+	 */
+	private int[] heapNodes = new int[64];
+
+	/**
+	 * The keys of the binary heap of open cubes.
+	 */
+	private double[] heapKeys = new double[64];
+
+	/**
+	 * The number of elements in the binary heap of open cubes.
+	 */
+	private int heapSize = 0;
+
+	/**
+	 * The number of cubes along each side of a block, and its binary logarithm.
+	 */
+	private static final int BLOCK_SHIFT = 3;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	/**
+	 * The number of cubes in a block, the number of bits of an offset inside a block, and the mask selecting it.
+	 */
+	private static final int BLOCK_BITS = 3 * BLOCK_SHIFT;
+	private static final int BLOCK_VOLUME = 1 << BLOCK_BITS;
+	private static final int BLOCK_MASK = BLOCK_VOLUME - 1;
+
+	/**
+	 * The number of blocks a path finder keeps allocated between searches, 
+	 * which is about 7 MB of search state.
+	 */
+	private static final int MAX_RETAINED_BLOCKS = 1024;
+
+	private static final byte UNSEEN = 0;
+	private static final byte OPEN = 1;
+	private static final byte CLOSED = 2;
+
+	private static final byte UNKNOWN = 0;
+	private static final byte YES = 1;
+	private static final byte NO = 2;
+
+	private static final double SQRT2 = Math.sqrt(2.0);
+	private static final double SQRT3 = Math.sqrt(3.0);
+
+	/**
+	 * The cost of a step to each of the neighbouring cubes, in the order of the neighbour offsets of worlds.
+	 */
+	private static final double[] STEP_COSTS = new double[World.NEIGHBOUR_OFFSETS.length];
+
+	static {
+		for (int offset = 0; offset < STEP_COSTS.length; offset++) {
+			int[] step = World.NEIGHBOUR_OFFSETS[offset];
+			STEP_COSTS[offset] = Math.sqrt(step[0] * step[0] + step[1] * step[1] + step[2] * step[2]);
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import hillbillies.model.statement.BreakStatement;
+import hillbillies.model.statement.ExpressionStatement;
+import hillbillies.model.statement.IfElseStatement;
+import hillbillies.model.statement.SequenceStatement;
+import hillbillies.model.statement.Statement;
+import hillbillies.model.statement.WhileStatement;
+
+/**
+ * A class of programs, holding the activities of a task lowered into a flat array of instructions.
+ *
+ * Sequences are laid out one after another, if-else statements and while statements become
+ * conditional jumps, and break statements jump to the end of their while statement. The variables
+ * of the activities are resolved to slots in the frame of an execution context. A program
+ * is executed in steps: each step executes instructions, starting at the program counter of
+ * the given execution context, up to and including the first instruction that gives the executing
+ * unit something to do, or that ends the step as the statement it stems from would have done.
+ *
+ * @invar The jump targets of all instructions of each program lie inside that program, or
+ * 			right after its last instruction.
+ */
+public class Program {
+
+	/**
+	 * Initialize this new program with the given activities.
+	 *
+	 * @param activities
+	 * 			The activities to lower.
+	 * @effect This new program is initialized with the given activities, without optimising them.
+	 * 			| this(activities, false)
+	 */
+	public Program(Statement activities) throws IllegalArgumentException {
+		this(activities, false);
+	}
+
+	/**
+	 * Initialize this new program with the given activities, optimised if asked.
+	 *
+	 * @param activities
+	 * 			The activities to lower.
+	 * @param optimise
+	 * 			Whether the given activities are to be optimised.
+	 * @post The variables of the given activities are resolved to slots, once.
+	 * @post If the given activities are to be optimised and are well formed, the activities of
+	 * 			this new program are the optimised activities. Otherwise, they are the given activities.
+	 * 			Only well formed activities are optimised, so the optimiser never changes whether
+	 * 			a program is well formed.
+	 * 			| if (optimise && Task.isWellFormed(activities, null))
+	 * 			|	then new.getActivities() == Optimiser.optimise(activities)
+	 * 			|	else new.getActivities() == activities
+	 * @post The instructions of this new program execute the activities of this new program.
+	 * @throws IllegalArgumentException
+	 * 			If the given activities are not effective.
+	 */
+	public Program(Statement activities, boolean optimise) throws IllegalArgumentException {
+		if (activities == null)
+			throw new IllegalArgumentException();
+		Map<String, Integer> slots = new HashMap<>();
+		this.wellFormed = Task.resolveVariables(activities, null, slots);
+		this.nbVariables = slots.size();
+		// the optimiser keeps the variable nodes it does not remove, so their slots stay valid
+		if (optimise && wellFormed)
+			activities = Optimiser.optimise(activities);
+		List<Instruction> instructions = new ArrayList<>();
+		compile(activities, instructions, null);
+		this.instructions = instructions.toArray(new Instruction[instructions.size()]);
+		this.activities = activities;
+	}
+
+	/**
+	 * Check whether the activities of this program are well formed.
+	 * 
+	 * @return True if and only if the activities of this program are well formed.
+	 * 			| result == Task.isWellFormed(getActivities(), null)
+	 */
+	@Basic @Immutable
+	public boolean isWellFormed() {
+		return wellFormed;
+	}
+
+	/**
+	 * Variable registering whether the activities of this program are well formed.
+	 */
+	private final boolean wellFormed;
+
+	/**
+	 * Return the number of variable slots of this program.
+	 */
+	@Basic @Immutable
+	public int getNbVariables() {
+		return nbVariables;
+	}
+
+	/**
+	 * Variable registering the number of variable slots of this program.
+	 */
+	private final int nbVariables;
+
+	/**
+	 * Return the activities of this program.
+	 */
+	@Basic @Immutable
+	public Statement getActivities() {
+		return activities;
+	}
+
+	/**
+	 * The activities of this program.
+	 */
+	private final Statement activities;
+
+	/**
+	 * Return the number of instructions of this program.
+	 */
+	@Basic @Immutable
+	public int getNbInstructions() {
+		return instructions.length;
+	}
+
+	/**
+	 * Check whether the program counter of the given execution context is past the last instruction of this program.
+	 *
+	 * @param context
+	 * 			The execution context to check.
+	 * @return True if and only if the program counter of the given context is at least the number of instructions.
+	 * 			| result == (context.getProgramCounter() >= getNbInstructions())
+	 */
+	public boolean isFinished(ExecutionContext context) {
+		return context.getProgramCounter() >= instructions.length;
+	}
+
+	/**
+	 * Execute the next step of this program in the given execution context.
+	 *
+	 * @param context
+	 * 			The execution context to execute the step in.
+	 * @effect The instructions starting at the program counter of the given context are executed
+	 * 			until one of them ends the step, and the program counter is advanced past that instruction,
+	 * 			or to the target of the jump it makes.
+	 * @effect If the end of this program is reached without executing an instruction that ends the step,
+	 * 			the executing unit of the given context stops executing its statement.
+	 * 			| if (new.isFinished(context))
+	 * 			|	then context.getExecutingUnit().stopExecutingStatement()
+	 * @post Each executed instruction is paid for with one instruction of the budget of the given context.
+	 * 			If the budget runs out before the step ends, the step is suspended at the program counter
+	 * 			of the next instruction, and is resumed by the next call.
+	 * @return True if and only if the step has ended, false if it was suspended.
+	 */
+	public boolean executeStep(ExecutionContext context) {
+		int pc = context.getProgramCounter();
+		Unit unit = context.getExecutingUnit();
+		while (pc < instructions.length) {
+			if (context.getInstructionBudget() <= 0) {
+				context.setProgramCounter(pc);
+				return false;
+			}
+			context.setInstructionBudget(context.getInstructionBudget() - 1);
+			Instruction instruction = instructions[pc];
+			switch (instruction.opcode) {
+			case EXECUTE:
+				context.setProgramCounter(pc + 1);
+				instruction.statement.executeStatement(context);
+				return true;
+			case BRANCH:
+				unit.setCurrentStatement(instruction.statement);
+				if (evaluateCondition(instruction.statement, context)) {
+					pc++;
+				} else {
+					context.setProgramCounter(instruction.target);
+					unit.stopExecutingStatement();
+					return true;
+				}
+				break;
+			case BRANCH_TO_ELSE:
+				unit.setCurrentStatement(instruction.statement);
+				pc = evaluateCondition(instruction.statement, context) ? pc + 1 : instruction.target;
+				break;
+			case LOOP:
+				pc = evaluateCondition(instruction.statement, context) ? instruction.target : pc + 1;
+				break;
+			case JUMP:
+				pc = instruction.target;
+				break;
+			case BREAK:
+				context.setProgramCounter(instruction.target);
+				unit.setCurrentStatement(instruction.statement);
+				unit.stopExecutingStatement();
+				return true;
+			}
+		}
+		context.setProgramCounter(pc);
+		unit.stopExecutingStatement();
+		return true;
+	}
+
+	/**
+	 * Evaluate the condition of the given if-else or while statement in the given execution context.
+	 */
+	private static boolean evaluateCondition(Statement statement, ExecutionContext context) {
+		Object value = ((ExpressionStatement<?>) statement).getExpression().evaluateExpression(context);
+		return Boolean.TRUE.equals(value);
+	}
+
+	/**
+	 * Append the instructions for the given statement to the given list of instructions.
+	 *
+	 * @param statement
+	 * 			The statement to lower.
+	 * @param instructions
+	 * 			The instructions lowered so far.
+	 * @param breaks
+	 * 			The break instructions of the innermost enclosing while statement, whose
+	 * 			targets are set at the end of that while statement, or null if there is none.
+	 */
+	private static void compile(Statement statement, List<Instruction> instructions, List<Instruction> breaks) {
+		if (statement == null)
+			return;
+		if (statement instanceof SequenceStatement) {
+			for (Statement child : ((SequenceStatement<?>) statement).getStatements())
+				compile(child, instructions, breaks);
+		} else if (statement instanceof IfElseStatement) {
+			IfElseStatement<?, ?, ?> ifElse = (IfElseStatement<?, ?, ?>) statement;
+			if (ifElse.getSecondStatement() == null) {
+				Instruction branch = add(instructions, Opcode.BRANCH, statement);
+				compile(ifElse.getFirstStatement(), instructions, breaks);
+				branch.target = instructions.size();
+			} else {
+				Instruction branch = add(instructions, Opcode.BRANCH_TO_ELSE, statement);
+				compile(ifElse.getFirstStatement(), instructions, breaks);
+				Instruction jump = add(instructions, Opcode.JUMP, statement);
+				branch.target = instructions.size();
+				compile(ifElse.getSecondStatement(), instructions, breaks);
+				jump.target = instructions.size();
+			}
+		} else if (statement instanceof WhileStatement) {
+			List<Instruction> loopBreaks = new ArrayList<>();
+			Instruction branch = add(instructions, Opcode.BRANCH, statement);
+			int body = instructions.size();
+			compile(((WhileStatement<?, ?>) statement).getBody(), instructions, loopBreaks);
+			add(instructions, Opcode.LOOP, statement).target = body;
+			branch.target = instructions.size();
+			for (Instruction loopBreak : loopBreaks)
+				loopBreak.target = instructions.size();
+		} else if (statement instanceof BreakStatement) {
+			Instruction loopBreak = add(instructions, Opcode.BREAK, statement);
+			if (breaks != null)
+				breaks.add(loopBreak);
+			else
+				loopBreak.target = Integer.MAX_VALUE;
+		} else {
+			add(instructions, Opcode.EXECUTE, statement);
+		}
+	}
+
+	/**
+	 * Append a new instruction with the given opcode for the given statement to the given list of instructions.
+	 *
+	 * @return The new instruction.
+	 */
+	private static Instruction add(List<Instruction> instructions, Opcode opcode, Statement statement) {
+		Instruction instruction = new Instruction(opcode, statement);
+		instructions.add(instruction);
+		return instruction;
+	}
+
+	/**
+	 * The instructions of this program.
+	 */
+	private final Instruction[] instructions;
+
+	/**
+	 * An enumeration of the kinds of instructions of a program.
+	 */
+	private enum Opcode {
+		/**
+		 * Execute a basic statement and end the step.
+		 */
+		EXECUTE,
+		/**
+		 * Evaluate the condition of an if statement without else or of a while statement;
+		 * if it is false, jump to the target and end the step.
+		 */
+		BRANCH,
+		/**
+		 * Evaluate the condition of an if-else statement; if it is false, jump to the else part.
+		 */
+		BRANCH_TO_ELSE,
+		/**
+		 * Evaluate the condition of a while statement at the end of its body;
+		 * if it is true, jump back to the start of the body.
+		 */
+		LOOP,
+		/**
+		 * Jump to the target.
+		 */
+		JUMP,
+		/**
+		 * Jump to the end of the enclosing while statement and end the step.
+		 */
+		BREAK,
+	}
+
+	/**
+	 * A class of instructions, each consisting of an opcode, the statement it stems from and a jump target.
+	 */
+	private static final class Instruction {
+
+		private Instruction(Opcode opcode, Statement statement) {
+			this.opcode = opcode;
+			this.statement = statement;
+		}
+
+		private final Opcode opcode;
+
+		private final Statement statement;
+
+		private int target;
+	}
+}
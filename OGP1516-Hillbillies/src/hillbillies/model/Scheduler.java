@@ -31,10 +31,10 @@ public class Scheduler implements Iterable<Task> {
 	 */
 	@Basic
 	@Raw
-	public boolean hasAsTask(Task task) throws IllegalArgumentException{
+	public synchronized boolean hasAsTask(Task task) throws IllegalArgumentException{
 		if (task==null)
 			throw new IllegalArgumentException();
-		return this.getTasks().contains(task);
+		return unclaimedTasks.contains(task) || claimedTasks.contains(task);
 	}
 	
 	/**
@@ -51,7 +51,7 @@ public class Scheduler implements Iterable<Task> {
 		if (tasks==null)
 			throw new IllegalArgumentException();
 		for (Task task: tasks){
-			if (!this.getTasks().contains(task))
+			if (!this.hasAsTask(task))
 				return false;
 		}
 		return true;
@@ -101,25 +101,26 @@ public class Scheduler implements Iterable<Task> {
 	 * 		 |for (all i from priority-1 to getTasks().size)
 	 * 		 |	this.getTasks()[i] == new.getTasks()[i+1]
 	 * @post The given new task has this scheduler as its scheduler.
+	 * @post The given new task comes after all tasks of this scheduler with the same priority.
 	 * @throws IllegalArgumentException
 	 * 		If this scheduler cannot have the given task as one of its tasks.
 	 * @throws IllegalArgumentException
 	 * 		If the given task is not well formed. (???)
 	 */
-	public void addAsTask(Task task) throws IllegalArgumentException{
+	public synchronized void addAsTask(Task task) throws IllegalArgumentException{
 		//System.out.print("adding task");
 		if(! canHaveAsTask(task)){
 			System.out.print("problem 1");
 			throw new IllegalArgumentException();
 		}
 		
-		if(!Task.isWellFormed(task.getActivities(),null)){
+		if(!task.getProgram().isWellFormed()){
 			System.out.print("problem 2");
 			throw new IllegalArgumentException();
 		}
-		if( ! getTasks().contains(task)){
-			//System.out.println(TasksExecuted);
-			this.tasks.add(task);
+		if( ! hasAsTask(task)){
+			this.insertionOrder.put(task, nbAddedTasks++);
+			getHeap(task).add(task);
 			task.addAsScheduler(this);
 		}
 		
@@ -147,15 +148,19 @@ public class Scheduler implements Iterable<Task> {
 	 * @param task
 	 * 		The task to be removed.
 	 * @post This new scheduler does not have the given task as one of its tasks.
-	 *			| this.tasks.remove(task);
+	 *			| ! new.hasAsTask(task)
 	 * @throws IllegalArgumentException
 	 * 			If the given task is not effective
 	 * 			| (task == null)
 	 */
-	public void removeAsTask(Task task) throws IllegalArgumentException{
+	public synchronized void removeAsTask(Task task) throws IllegalArgumentException{
 		if( task == null)
 			throw new IllegalArgumentException();
-		this.tasks.remove(task);
+		if (unclaimedTasks.remove(task) || claimedTasks.remove(task))
+			this.insertionOrder.remove(task);
+		Unit assignedUnit = assignedUnits.remove(task);
+		if (assignedUnit != null)
+			assignedTasks.remove(assignedUnit);
 		task.removeAsScheduler(this);
 	}
 	
@@ -208,11 +213,40 @@ public class Scheduler implements Iterable<Task> {
 
 	
 	/**
-	 * Return the list collecting all tasks attached to this scheduler.
+	 * Return a list collecting all tasks attached to this scheduler, by descending priority.
+	 * Tasks with the same priority are in the order in which they were added to this scheduler.
+	 * The list is a snapshot: later changes to this scheduler are not reflected in it.
 	 */
 	@Basic @Raw
-	public List<Task> getTasks(){
-		return tasks;
+	public synchronized List<Task> getTasks(){
+		List<Task> tasks = unclaimedTasks.getTasks();
+		tasks.addAll(claimedTasks.getTasks());
+		tasks.sort(taskOrder);
+		return Collections.unmodifiableList(tasks);
+	}
+
+	/**
+	 * Move the given task to its proper place in this scheduler, after its priority
+	 * or its executing unit has changed.
+	 * @param task
+	 * 		The task to move.
+	 * @post If this scheduler has the given task as one of its tasks, the given task is among
+	 * 		the claimed tasks of this scheduler if and only if it has an effective executing unit.
+	 */
+	synchronized void updateTask(Task task){
+		TaskHeap heap = getHeap(task);
+		if (heap.contains(task))
+			heap.update(task);
+		else if (unclaimedTasks.remove(task) || claimedTasks.remove(task))
+			heap.add(task);
+	}
+
+	/**
+	 * Return the heap of this scheduler in which the given task belongs: the heap of claimed tasks
+	 * if the given task is being executed, the heap of unclaimed tasks otherwise.
+	 */
+	private TaskHeap getHeap(Task task){
+		return (task.getExecutingUnit() == null) ? unclaimedTasks : claimedTasks;
 	}
 
 	
@@ -249,11 +283,176 @@ public class Scheduler implements Iterable<Task> {
 	 * 		|				&& prior = task.getPriority()
 	 * 		|	result == HighestPriorityTask
 	 */
-	public Task getHighestPriorityTask(){
-		Set<Task> tasks = new HashSet<Task>();
-		for (Task task: getTasks())
-			tasks.add(task);
-		return this.getHighestPriorityTask(tasks);
+	public synchronized Task getHighestPriorityTask(){
+		return unclaimedTasks.peek();
+	}
+
+	/**
+	 * Return the task with the highest priority that is currently not being executed
+	 * and that is not scheduled for another unit than the given unit.
+	 * @param unit
+	 * 		The unit looking for a task.
+	 * @return null if there is no such task. Otherwise, the task with the highest priority of all
+	 * 	tasks that are not being executed and are scheduled for no unit or for the given unit.
+	 * 		| result == getHighestPriorityTask(getTasksSatisfying(n->(n.getScheduledUnit()==null||n.getScheduledUnit()==unit)))
+	 */
+	public synchronized Task getHighestPriorityTask(Unit unit){
+		return unclaimedTasks.getFirstSatisfying(n->(n.getExecutingUnit()==null
+				&& (n.getScheduledUnit()==null||n.getScheduledUnit()==unit)));
+	}
+
+	/**
+	 * Let the given unit claim a task.
+	 * Claiming a task is atomic, so units can claim tasks of this scheduler at the same time
+	 * without two of them claiming the same task. The search for a task only locks this
+	 * scheduler while it looks at its heap of unclaimed tasks.
+	 * @param unit
+	 * 		The unit claiming a task.
+	 * @return The task claimed by the given unit, or null if there is no task left that the given
+	 * 	unit can claim.
+	 * @effect If a task has been assigned to the given unit and it is still unclaimed, the given unit
+	 * 	claims it. Otherwise, the given unit claims the task with the highest priority that is not being
+	 * 	executed, that is not scheduled for another unit and that is not assigned to another unit, if any.
+	 * 		| result.claim(unit)
+	 */
+	public Task claimTask(Unit unit){
+		Task assigned = takeAssignedTask(unit);
+		if (assigned != null && assigned.claim(unit))
+			return assigned;
+		while (true){
+			Task task = getUnassignedTask(unit);
+			// another unit can claim the task between the search and the claim; then search again
+			if (task == null || task.claim(unit))
+				return task;
+		}
+	}
+
+	/**
+	 * Assign the unclaimed tasks of this scheduler to the given idle units.
+	 * Tasks are assigned by descending priority. Among the tasks with the same priority, the
+	 * pairs of a task and a unit that can execute it are assigned greedily by ascending travel cost,
+	 * so each unit gets a task near its own position rather than a task on the other side of the world.
+	 * @param units
+	 * 		The idle units to assign tasks to.
+	 * @post Each of the given units has at most one assigned task, and each task is assigned to
+	 * 	at most one unit. Assignments of earlier calls are forgotten.
+	 * 		| for each unit in units: new.getAssignedTask(unit) == null || canBeAssigned(new.getAssignedTask(unit), unit)
+	 * @note The unclaimed tasks are visited best first, and no more tasks are visited once every 
+	 * 	given unit has a task, so a call without idle units does not look at any task.
+	 */
+	public synchronized void assignTasks(Collection<Unit> units){
+		assignedTasks.clear();
+		assignedUnits.clear();
+		if (units.isEmpty())
+			return;
+		List<Unit> idleUnits = new ArrayList<>(units);
+		List<Task> group = new ArrayList<>();
+		Iterator<Task> tasks = unclaimedTasks.iterator();
+		while (assignedTasks.size() < idleUnits.size() && (tasks.hasNext() || !group.isEmpty())){
+			Task task = tasks.hasNext() ? tasks.next() : null;
+			if (task != null && (group.isEmpty() || task.getPriority() == group.get(0).getPriority())){
+				group.add(task);
+				continue;
+			}
+			assignByTravelCost(group, idleUnits);
+			group.clear();
+			if (task != null)
+				group.add(task);
+		}
+	}
+
+	/**
+	 * Assign the given tasks, all with the same priority, to the given units that have no assigned
+	 * task yet, greedily by ascending travel cost.
+	 * Each pair of a task and a unit is packed in a long, with the bits of its travel cost as a float
+	 * in the high half and the index of the pair in the low half, so the pairs are sorted as primitives.
+	 * The bits of non-negative floats are ordered like the floats themselves.
+	 */
+	private void assignByTravelCost(List<Task> tasks, List<Unit> units){
+		int nbUnits = units.size();
+		int nbPairs = 0;
+		for (int t = 0; t < tasks.size(); t++)
+			for (int u = 0; u < nbUnits; u++)
+				if (!assignedTasks.containsKey(units.get(u)) && canBeAssigned(tasks.get(t), units.get(u))){
+					if (nbPairs == pairs.length)
+						pairs = Arrays.copyOf(pairs, 2 * nbPairs);
+					float cost = (float) getTravelCost(tasks.get(t), units.get(u));
+					pairs[nbPairs++] = ((long) Float.floatToIntBits(cost) << 32) | (t * nbUnits + u);
+				}
+		Arrays.sort(pairs, 0, nbPairs);
+		int nbAssigned = 0;
+		for (int i = 0; i < nbPairs && nbAssigned < tasks.size() && assignedTasks.size() < nbUnits; i++){
+			int pair = (int) pairs[i];
+			Task task = tasks.get(pair / nbUnits);
+			Unit unit = units.get(pair % nbUnits);
+			if (!assignedUnits.containsKey(task) && !assignedTasks.containsKey(unit)){
+				assignedTasks.put(unit, task);
+				assignedUnits.put(task, unit);
+				nbAssigned++;
+			}
+		}
+	}
+
+	/**
+	 * A buffer for the packed pairs of a task and a unit of assignByTravelCost, reused between calls.
+	 */
+	private long[] pairs = new long[16];
+
+	/**
+	 * Check whether the given task can be assigned to the given unit.
+	 * @return True if and only if the given task is not scheduled for another unit and
+	 * 	the given unit can execute the given task.
+	 * 		| result == ((task.getScheduledUnit()==null||task.getScheduledUnit()==unit)
+	 * 		|	&& task.canHaveAsExecutingUnit(unit))
+	 */
+	public boolean canBeAssigned(Task task, Unit unit){
+		return (task.getScheduledUnit()==null||task.getScheduledUnit()==unit) && task.canHaveAsExecutingUnit(unit);
+	}
+
+	/**
+	 * Return the estimated cost for the given unit to walk to the selected cube of the given task.
+	 * @return Zero if the given task has no selected cube, the estimated cost of walking from the cube
+	 * 	of the given unit to the selected cube otherwise.
+	 * 		| if (task.getSelectedCube() == null)
+	 * 		|	then result == 0
+	 * 		| else result == PathFinder.getEstimatedCost(unit.getCubeCoordinate(), task.getSelectedCube())
+	 */
+	private static double getTravelCost(Task task, Unit unit){
+		if (task.getSelectedCube() == null)
+			return 0;
+		return PathFinder.getEstimatedCost(unit.getCubeCoordinate(), task.getSelectedCube());
+	}
+
+	/**
+	 * Return the task assigned to the given unit by the last assignment of this scheduler,
+	 * or null if no task has been assigned to the given unit.
+	 * @param unit
+	 * 		The unit to return the assigned task of.
+	 */
+	public synchronized Task getAssignedTask(Unit unit){
+		return assignedTasks.get(unit);
+	}
+
+	/**
+	 * Remove the assignment of the given unit and return its assigned task, if that task
+	 * is still an unclaimed task of this scheduler.
+	 */
+	private synchronized Task takeAssignedTask(Unit unit){
+		Task task = assignedTasks.remove(unit);
+		if (task == null)
+			return null;
+		assignedUnits.remove(task);
+		return unclaimedTasks.contains(task) ? task : null;
+	}
+
+	/**
+	 * Return the task with the highest priority that is not being executed, not scheduled for another unit
+	 * than the given unit and not assigned to another unit than the given unit.
+	 */
+	private synchronized Task getUnassignedTask(Unit unit){
+		return unclaimedTasks.getFirstSatisfying(n->(n.getExecutingUnit()==null
+				&& (n.getScheduledUnit()==null||n.getScheduledUnit()==unit)
+				&& (assignedUnits.get(n)==null||assignedUnits.get(n)==unit)));
 	}
 	
 	/**
@@ -274,25 +473,13 @@ public class Scheduler implements Iterable<Task> {
 	 * 		|	result == HighestPriorityTask
 	 */
 	public Task getHighestPriorityTask(Set<Task> tasks){
-		List<Task> tasksNotExecuted = new ArrayList<>();
-		tasks.stream().filter(n->(n.getExecutingUnit()==null)).forEach(tasksNotExecuted::add);
-		if (tasksNotExecuted.size()==0){
-			System.out.println("TasksAllExecuted");
-			return null;
-		}
-		else{
-		int prior = tasksNotExecuted.get(0).getPriority();
-		Task HighestPriorityTask = tasksNotExecuted.get(0);
-		for(Task task: tasksNotExecuted){
-			if (task.getPriority()> prior){
+		Task HighestPriorityTask = null;
+		for(Task task: tasks){
+			if (task.getExecutingUnit()==null && (HighestPriorityTask==null
+					|| task.getPriority()> HighestPriorityTask.getPriority()))
 				HighestPriorityTask = task;
-				prior = task.getPriority();
-			}
-		}	
-		
-			return HighestPriorityTask;
 		}
-
+		return HighestPriorityTask;
 	}
 	
 	/**
@@ -358,8 +545,7 @@ public class Scheduler implements Iterable<Task> {
 	 *  Return an iterator returning all the tasks of this scheduler, one by one.
 	 */
 	public Iterator<Task> getAllTasksIterator(){
-		return tasks.iterator();
-
+		return getTasks().iterator();
 	}
 
 	/**
@@ -411,66 +597,58 @@ public class Scheduler implements Iterable<Task> {
 	private Faction faction;	
 	
 	/**
-	 * List collecting references to tasks attached to this scheduler.
+	 * Heap collecting the tasks attached to this scheduler that are not being executed.
 	 */
-	List<Task> tasks = new ArrayList<>();
-	
+	private final TaskHeap unclaimedTasks = new TaskHeap(this::compareTasks);
+
 	/**
-	 * List collecting all executed tasks.
+	 * Heap collecting the tasks attached to this scheduler that are being executed.
 	 */
-	private List<Task> TasksExecuted = new ArrayList<Task>();
-	
+	private final TaskHeap claimedTasks = new TaskHeap(this::compareTasks);
+
 	/**
-	 * List collecting all tasks that have been iterated over.
+	 * Map registering for each task attached to this scheduler when it was added.
 	 */
-	private List<Task> iteratedTasks = new ArrayList<Task>();
-	
+	private final Map<Task, Long> insertionOrder = new HashMap<>();
+
 	/**
-	 * Return an iterator returning all the tasks of this scheduler by descending priority.
+	 * Map registering the task assigned to each idle unit by the last assignment of this scheduler.
 	 */
-	@Override
-	public Iterator<Task> iterator() {
-		
-		return new Iterator<Task>(){
-		
-		//private Integer LastPriority;
-		private Task next;
-		
-		public boolean hasNext() {
-			return getTasks().size()!= iteratedTasks.size();
-			}
+	private final Map<Unit, Task> assignedTasks = new HashMap<>();
 
-		
-		public Task next() {
+	/**
+	 * Map registering the unit to which each task is assigned by the last assignment of this scheduler.
+	 */
+	private final Map<Task, Unit> assignedUnits = new HashMap<>();
 
-			if (!hasNext()){
-				throw new NoSuchElementException();
-			}
-			
-			else /*if(LastPriority == null)*/ {
-				int newPriority = 0;
-				next = getTasks().get(0);
-				newPriority = next.getPriority();
-				for(Task t: getTasks()){
-					if ((t.getPriority()>newPriority) && !iteratedTasks.contains(t)){
-						next = t;
-						newPriority = t.getPriority();
-						
-					}		
-				}
-				
-			}
-			iteratedTasks.add(next);
-			//LastPriority = null;
-			return next;	
-			
-		}
-	
-		
-	};
+	/**
+	 * Variable registering the number of tasks added to this scheduler so far.
+	 */
+	private long nbAddedTasks = 0;
 
-	}
-	}
-	
+	/**
+	 * The order of the tasks of this scheduler: by descending priority, and by the moment they were
+	 * added for tasks with the same priority.
+	 */
+	private final Comparator<Task> taskOrder = this::compareTasks;
 
+	/**
+	 * Compare the given tasks of this scheduler.
+	 * @return A negative number if the first task comes before the second task, a positive number
+	 * 		if it comes after the second task and zero if both tasks are the same.
+	 */
+	private int compareTasks(Task task1, Task task2){
+		if (task1.getPriority() != task2.getPriority())
+			return Integer.compare(task2.getPriority(), task1.getPriority());
+		return Long.compare(insertionOrder.get(task1), insertionOrder.get(task2));
+	}
 
+	/**
+	 * Return an iterator returning all the tasks of this scheduler by descending priority.
+	 * The iterator works on a snapshot of the tasks of this scheduler.
+	 */
+	@Override
+	public Iterator<Task> iterator() {
+		return getTasks().iterator();
+	}
+}
@@ -0,0 +1,228 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A class of spatial indices, bucketing the elements of a world per chunk of cubes and per group,
+ * to find the element nearest to a given position without looking at all elements.
+ *
+ * A chunk is a block of CHUNK_SIZE x CHUNK_SIZE x CHUNK_SIZE cubes. Inside a chunk, the elements are
+ * bucketed per group, for example the faction of a unit. Nearest elements are searched in rings of
+ * chunks around the given position, expanding until no closer element can exist.
+ *
+ * @param <T>
+ * 			The type of the elements in this spatial index.
+ */
+public class SpatialIndex<T> {
+
+	/**
+	 * Initialize this new spatial index for a world with the given dimensions.
+	 *
+	 * @param xDimension
+	 * 			The number of cubes of the world in the x-direction.
+	 * @param yDimension
+	 * 			The number of cubes of the world in the y-direction.
+	 * @param zDimension
+	 * 			The number of cubes of the world in the z-direction.
+	 * @param positionFunction
+	 * 			The function returning the position of an element.
+	 * @post This new spatial index has no elements.
+	 * @throws IllegalArgumentException
+	 * 			If one of the given dimensions is not positive or the given function is not effective.
+	 */
+	public SpatialIndex(int xDimension, int yDimension, int zDimension, Function<T, double[]> positionFunction)
+			throws IllegalArgumentException {
+		if (xDimension <= 0 || yDimension <= 0 || zDimension <= 0 || positionFunction == null)
+			throw new IllegalArgumentException();
+		this.nbChunksX = (xDimension + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		this.nbChunksY = (yDimension + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		this.nbChunksZ = (zDimension + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		this.positionFunction = positionFunction;
+		this.chunks = new ArrayList<Map<Object, Set<T>>>(nbChunksX * nbChunksY * nbChunksZ);
+		for (int i = 0; i < nbChunksX * nbChunksY * nbChunksZ; i++)
+			this.chunks.add(null);
+	}
+
+	/**
+	 * Add the given element to this spatial index at the given cube, in the given group.
+	 * If the element is already in this spatial index, it is moved.
+	 *
+	 * @param element
+	 * 			The element to add.
+	 * @param cube
+	 * 			The cube of the element.
+	 * @param group
+	 * 			The group of the element, possibly not effective.
+	 * @post This spatial index has the given element in the chunk of the given cube, in the given group.
+	 * @throws IllegalArgumentException
+	 * 			If the given element is not effective.
+	 */
+	public void add(T element, int[] cube, Object group) throws IllegalArgumentException {
+		if (element == null)
+			throw new IllegalArgumentException();
+		int chunk = getChunkIndex(cube[0], cube[1], cube[2]);
+		Slot slot = slots.get(element);
+		if (slot != null) {
+			if (slot.chunk == chunk && slot.group == group)
+				return;
+			removeFromBucket(element, slot);
+		}
+		Map<Object, Set<T>> buckets = chunks.get(chunk);
+		if (buckets == null) {
+			buckets = new HashMap<Object, Set<T>>();
+			chunks.set(chunk, buckets);
+		}
+		Set<T> bucket = buckets.get(group);
+		if (bucket == null) {
+			bucket = new HashSet<T>();
+			buckets.put(group, bucket);
+		}
+		bucket.add(element);
+		slots.put(element, new Slot(chunk, group));
+	}
+
+	/**
+	 * Remove the given element from this spatial index.
+	 *
+	 * @param element
+	 * 			The element to remove.
+	 * @post This spatial index does not have the given element.
+	 */
+	public void remove(T element) {
+		Slot slot = slots.remove(element);
+		if (slot != null)
+			removeFromBucket(element, slot);
+	}
+
+	/**
+	 * Return the number of elements in this spatial index.
+	 */
+	public int size() {
+		return slots.size();
+	}
+
+	/**
+	 * Return the element of this spatial index nearest to the given position, of which the group
+	 * satisfies the given filter.
+	 *
+	 * @param position
+	 * 			The position to search from.
+	 * @param groupFilter
+	 * 			The filter the group of the element must satisfy.
+	 * @param excluded
+	 * 			An element that may not be returned, possibly not effective.
+	 * @return The element at the smallest distance to the given position, among the elements
+	 * 			different from the excluded element whose group satisfies the given filter.
+	 * 			Null if there is no such element.
+	 */
+	public T findNearest(double[] position, Predicate<Object> groupFilter, T excluded) {
+		int cx = clamp((int) Math.floor(position[0]) / CHUNK_SIZE, nbChunksX);
+		int cy = clamp((int) Math.floor(position[1]) / CHUNK_SIZE, nbChunksY);
+		int cz = clamp((int) Math.floor(position[2]) / CHUNK_SIZE, nbChunksZ);
+		int maxRing = Math.max(Math.max(cx, nbChunksX - 1 - cx),
+				Math.max(Math.max(cy, nbChunksY - 1 - cy), Math.max(cz, nbChunksZ - 1 - cz)));
+		T nearest = null;
+		double nearestDist = 0;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int x = Math.max(0, cx - ring); x <= Math.min(nbChunksX - 1, cx + ring); x++)
+				for (int y = Math.max(0, cy - ring); y <= Math.min(nbChunksY - 1, cy + ring); y++)
+					for (int z = Math.max(0, cz - ring); z <= Math.min(nbChunksZ - 1, cz + ring); z++) {
+						if (Math.abs(x - cx) != ring && Math.abs(y - cy) != ring && Math.abs(z - cz) != ring)
+							continue;
+						Map<Object, Set<T>> buckets = chunks.get(x + nbChunksX * (y + nbChunksY * z));
+						if (buckets == null)
+							continue;
+						for (Map.Entry<Object, Set<T>> bucket : buckets.entrySet()) {
+							if (!groupFilter.test(bucket.getKey()))
+								continue;
+							for (T element : bucket.getValue()) {
+								if (element == excluded)
+									continue;
+								double dist = Vector.getDistance(position, positionFunction.apply(element));
+								if (nearest == null || nearestDist > dist) {
+									nearestDist = dist;
+									nearest = element;
+								}
+							}
+						}
+					}
+			// every element outside the rings searched so far is further away than ring * CHUNK_SIZE
+			if (nearest != null && nearestDist <= ring * CHUNK_SIZE)
+				break;
+		}
+		return nearest;
+	}
+
+	/**
+	 * Remove the given element from the bucket of the given slot.
+	 */
+	private void removeFromBucket(T element, Slot slot) {
+		Map<Object, Set<T>> buckets = chunks.get(slot.chunk);
+		Set<T> bucket = buckets.get(slot.group);
+		bucket.remove(element);
+		if (bucket.isEmpty())
+			buckets.remove(slot.group);
+	}
+
+	/**
+	 * Return the index of the chunk containing the cube with the given coordinates.
+	 */
+	private int getChunkIndex(int x, int y, int z) {
+		return clamp(x / CHUNK_SIZE, nbChunksX)
+				+ nbChunksX * (clamp(y / CHUNK_SIZE, nbChunksY) + nbChunksY * clamp(z / CHUNK_SIZE, nbChunksZ));
+	}
+
+	/**
+	 * Return the given chunk coordinate, limited to the range from 0 up to the given number of chunks.
+	 */
+	private static int clamp(int chunk, int nbChunks) {
+		return Math.max(0, Math.min(nbChunks - 1, chunk));
+	}
+
+	/**
+	 * The number of cubes along each side of a chunk.
+	 */
+	public static final int CHUNK_SIZE = 8;
+
+	/**
+	 * The number of chunks in each direction.
+	 */
+	private final int nbChunksX, nbChunksY, nbChunksZ;
+
+	/**
+	 * The function returning the position of an element.
+	 */
+	private final Function<T, double[]> positionFunction;
+
+	/**
+	 * A list registering for each chunk its elements per group, or null if the chunk never had elements.
+	 */
+	private final List<Map<Object, Set<T>>> chunks;
+
+	/**
+	 * A map registering for each element of this spatial index the chunk and group in which it is stored.
+	 */
+	private final Map<T, Slot> slots = new HashMap<T, Slot>();
+
+	/**
+	 * A class of slots, registering the chunk and group of an element.
+	 */
+	private static class Slot {
+
+		private Slot(int chunk, Object group) {
+			this.chunk = chunk;
+			this.group = group;
+		}
+
+		private final int chunk;
+
+		private final Object group;
+	}
+}
@@ -0,0 +1,443 @@
+package hillbillies.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A class of grids registering, for each cube of a terrain, the number of solid cubes
+ * neighbouring it and whether a unit can stand in it.
+ *
+ * A unit can stand in a cube if the cube is passable and it is at the bottom of the world
+ * or the cube below it is solid. The grid keeps a list of the cubes a unit can stand in,
+ * so a random one of them can be picked in constant time.
+ *
+ * The numbers of solid neighbours are stored per chunk, like the terrain types of a chunked terrain:
+ * only the chunks that are not uniform in the terrain have an array of numbers. For a cube of a uniform
+ * chunk, the number is derived from the terrain when it is requested, and only the cubes on the sides
+ * of such a chunk need more than the terrain type of the chunk itself.
+ *
+ * The grid does not observe its terrain: each change of the terrain must be reported
+ * by invoking terrainChanged.
+ *
+ * @invar The number of solid neighbours of each cube is the number of its neighbouring
+ * 			cubes that are not passable.
+ * @invar The list of standable cubes contains each cube in which a unit can stand exactly once.
+ */
+class StandableGrid {
+
+	/**
+	 * Initialize this new grid for the given terrain.
+	 *
+	 * @param terrain
+	 * 			The terrain of this new grid.
+	 * @throws IllegalArgumentException
+	 * 			If the given terrain is not effective.
+	 * 			| terrain == null
+	 */
+	StandableGrid(ChunkedTerrain terrain) throws IllegalArgumentException {
+		if (terrain == null)
+			throw new IllegalArgumentException();
+		this.terrain = terrain;
+		this.xDimension = terrain.getxDimension();
+		this.yDimension = terrain.getyDimension();
+		this.zDimension = terrain.getzDimension();
+		this.nbChunksX = (xDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.nbChunksY = (yDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.nbChunksZ = (zDimension + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.solidNeighbours = new byte[nbChunksX * nbChunksY * nbChunksZ][];
+		this.standableCubes = new int[16];
+		this.standableIndices = new IndexMap();
+		for (int cx = 0; cx < nbChunksX; cx++)
+			for (int cy = 0; cy < nbChunksY; cy++)
+				for (int cz = 0; cz < nbChunksZ; cz++) {
+					int x0 = cx << CHUNK_SHIFT, y0 = cy << CHUNK_SHIFT, z0 = cz << CHUNK_SHIFT;
+					boolean uniform = terrain.isUniform(x0, y0, z0);
+					if (!uniform)
+						createSolidNeighbours(cx, cy, cz);
+					// in a uniform chunk, a unit can only stand in the cubes of the lowest layer
+					int zEnd = uniform ? z0 + 1 : Math.min(zDimension, z0 + CHUNK_SIZE);
+					for (int x = x0; x < Math.min(xDimension, x0 + CHUNK_SIZE); x++)
+						for (int y = y0; y < Math.min(yDimension, y0 + CHUNK_SIZE); y++)
+							for (int z = z0; z < zEnd; z++)
+								updateStandable(x, y, z);
+				}
+	}
+
+	/**
+	 * The terrain of this grid.
+	 */
+	private final ChunkedTerrain terrain;
+
+	private final int xDimension;
+	private final int yDimension;
+	private final int zDimension;
+
+	/**
+	 * The number of chunks in each direction.
+	 */
+	private final int nbChunksX, nbChunksY, nbChunksZ;
+
+	/**
+	 * An array registering for each chunk that is not uniform in the terrain of this grid the number
+	 * of solid neighbours of each of its cubes, by the offset of the cube in the chunk,
+	 * or null for chunks that are uniform in the terrain of this grid.
+	 */
+	private final byte[][] solidNeighbours;
+
+	/**
+	 * The indices of the cubes in which a unit can stand, in the first nbStandableCubes elements.
+	 */
+	private int[] standableCubes;
+
+	/**
+	 * The number of cubes in which a unit can stand.
+	 */
+	private int nbStandableCubes = 0;
+
+	/**
+	 * A map registering, by the index of each cube in which a unit can stand,
+	 * the position of that cube in the list of standable cubes.
+	 */
+	private final IndexMap standableIndices;
+
+	/**
+	 * An array registering whether each cube of a chunk and the cubes around it are solid,
+	 * used while computing the numbers of solid neighbours of a chunk.
+	 */
+	private final boolean[] paddedSolid = new boolean[PADDED_SIZE * PADDED_SIZE * PADDED_SIZE];
+
+	/**
+	 * Check whether the given cube neighbours at least one solid cube.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube, inside the terrain of this grid.
+	 * @param y
+	 * 			The y-coordinate of the cube, inside the terrain of this grid.
+	 * @param z
+	 * 			The z-coordinate of the cube, inside the terrain of this grid.
+	 */
+	boolean isNeighbouringSolid(int x, int y, int z) {
+		return getNbSolidNeighbours(x, y, z) > 0;
+	}
+
+	/**
+	 * Check whether the cube with the given index neighbours at least one solid cube.
+	 *
+	 * @param index
+	 * 			The index of the cube, as given by World.getCubeIndex.
+	 */
+	boolean isNeighbouringSolid(int index) {
+		int rest = index / xDimension;
+		return isNeighbouringSolid(index % xDimension, rest % yDimension, rest / yDimension);
+	}
+
+	/**
+	 * Return the number of solid cubes neighbouring the given cube.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube, inside the terrain of this grid.
+	 * @param y
+	 * 			The y-coordinate of the cube, inside the terrain of this grid.
+	 * @param z
+	 * 			The z-coordinate of the cube, inside the terrain of this grid.
+	 */
+	int getNbSolidNeighbours(int x, int y, int z) {
+		byte[] numbers = solidNeighbours[getChunkIndex(x, y, z)];
+		if (numbers != null)
+			return numbers[getOffsetInChunk(x, y, z)];
+		int lx = x & CHUNK_MASK, ly = y & CHUNK_MASK, lz = z & CHUNK_MASK;
+		if (lx > 0 && lx < CHUNK_MASK && x + 1 < xDimension && ly > 0 && ly < CHUNK_MASK && y + 1 < yDimension
+				&& lz > 0 && lz < CHUNK_MASK && z + 1 < zDimension)
+			// all neighbours lie in the same uniform chunk
+			return terrain.getTerrain(x, y, z).isPassable() ? 0 : 26;
+		return countSolidNeighbours(x, y, z);
+	}
+
+	/**
+	 * Check whether a unit can stand in the given cube.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the cube, inside the terrain of this grid.
+	 * @param y
+	 * 			The y-coordinate of the cube, inside the terrain of this grid.
+	 * @param z
+	 * 			The z-coordinate of the cube, inside the terrain of this grid.
+	 */
+	boolean isStandable(int x, int y, int z) {
+		return standableIndices.get(getIndex(x, y, z)) >= 0;
+	}
+
+	/**
+	 * Return the number of cubes in which a unit can stand.
+	 */
+	int getNbStandableCubes() {
+		return nbStandableCubes;
+	}
+
+	/**
+	 * Return a random cube in which a unit can stand, or null if there is no such cube.
+	 *
+	 * @param random
+	 * 			The random generator to pick the cube with.
+	 */
+	int[] getRandomStandableCube(Random random) {
+		if (nbStandableCubes == 0)
+			return null;
+		int index = standableCubes[random.nextInt(nbStandableCubes)];
+		return new int[] { index % xDimension, (index / xDimension) % yDimension, index / (xDimension * yDimension) };
+	}
+
+	/**
+	 * Update this grid after the terrain of the given cube changed from the given terrain type.
+	 *
+	 * @param x
+	 * 			The x-coordinate of the changed cube, inside the terrain of this grid.
+	 * @param y
+	 * 			The y-coordinate of the changed cube, inside the terrain of this grid.
+	 * @param z
+	 * 			The z-coordinate of the changed cube, inside the terrain of this grid.
+	 * @param oldTerrain
+	 * 			The terrain type of the changed cube before the change.
+	 */
+	void terrainChanged(int x, int y, int z, TerrainType oldTerrain) {
+		boolean passable = terrain.getTerrain(x, y, z).isPassable();
+		if (passable == oldTerrain.isPassable())
+			return;
+		int chunk = getChunkIndex(x, y, z);
+		int computedChunk = -1;
+		if (solidNeighbours[chunk] == null) {
+			// the chunk of the changed cube is no longer uniform, and its numbers already include the change
+			createSolidNeighbours(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT, z >> CHUNK_SHIFT);
+			computedChunk = chunk;
+		}
+		addToNeighbours(x, y, z, passable ? -1 : 1, computedChunk);
+		updateStandable(x, y, z);
+		if (z + 1 < zDimension)
+			updateStandable(x, y, z + 1);
+	}
+
+	/**
+	 * Add the given difference to the number of solid neighbours of each neighbour of the given cube,
+	 * in the chunks that have an array of numbers, except the given chunk.
+	 */
+	private void addToNeighbours(int x, int y, int z, int difference, int skippedChunk) {
+		for (int nx = Math.max(0, x - 1); nx <= Math.min(xDimension - 1, x + 1); nx++)
+			for (int ny = Math.max(0, y - 1); ny <= Math.min(yDimension - 1, y + 1); ny++)
+				for (int nz = Math.max(0, z - 1); nz <= Math.min(zDimension - 1, z + 1); nz++) {
+					if (nx == x && ny == y && nz == z)
+						continue;
+					int chunk = getChunkIndex(nx, ny, nz);
+					byte[] numbers = solidNeighbours[chunk];
+					if (numbers != null && chunk != skippedChunk)
+						numbers[getOffsetInChunk(nx, ny, nz)] += difference;
+				}
+	}
+
+	/**
+	 * Return the number of solid cubes neighbouring the given cube, counted in the terrain of this grid.
+	 */
+	private int countSolidNeighbours(int x, int y, int z) {
+		int result = 0;
+		for (int nx = Math.max(0, x - 1); nx <= Math.min(xDimension - 1, x + 1); nx++)
+			for (int ny = Math.max(0, y - 1); ny <= Math.min(yDimension - 1, y + 1); ny++)
+				for (int nz = Math.max(0, z - 1); nz <= Math.min(zDimension - 1, z + 1); nz++)
+					if ((nx != x || ny != y || nz != z) && !terrain.getTerrain(nx, ny, nz).isPassable())
+						result++;
+		return result;
+	}
+
+	/**
+	 * Create the array of numbers of solid neighbours of the chunk with the given chunk coordinates,
+	 * computed from the terrain of this grid.
+	 */
+	private void createSolidNeighbours(int cx, int cy, int cz) {
+		int x0 = (cx << CHUNK_SHIFT) - 1, y0 = (cy << CHUNK_SHIFT) - 1, z0 = (cz << CHUNK_SHIFT) - 1;
+		for (int px = 0; px < PADDED_SIZE; px++)
+			for (int py = 0; py < PADDED_SIZE; py++)
+				for (int pz = 0; pz < PADDED_SIZE; pz++) {
+					int x = x0 + px, y = y0 + py, z = z0 + pz;
+					paddedSolid[px + PADDED_SIZE * (py + PADDED_SIZE * pz)] = x >= 0 && x < xDimension && y >= 0
+							&& y < yDimension && z >= 0 && z < zDimension && !terrain.getTerrain(x, y, z).isPassable();
+				}
+		byte[] numbers = new byte[CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE];
+		for (int lx = 0; lx < CHUNK_SIZE; lx++)
+			for (int ly = 0; ly < CHUNK_SIZE; ly++)
+				for (int lz = 0; lz < CHUNK_SIZE; lz++) {
+					int count = 0;
+					for (int dx = 0; dx < 3; dx++)
+						for (int dy = 0; dy < 3; dy++)
+							for (int dz = 0; dz < 3; dz++)
+								if ((dx != 1 || dy != 1 || dz != 1)
+										&& paddedSolid[(lx + dx) + PADDED_SIZE * ((ly + dy) + PADDED_SIZE * (lz + dz))])
+									count++;
+					numbers[lx + CHUNK_SIZE * (ly + CHUNK_SIZE * lz)] = (byte) count;
+				}
+		solidNeighbours[cx + nbChunksX * (cy + nbChunksY * cz)] = numbers;
+	}
+
+	/**
+	 * Register whether a unit can stand in the given cube, according to the terrain of this grid.
+	 */
+	private void updateStandable(int x, int y, int z) {
+		boolean canStand = terrain.getTerrain(x, y, z).isPassable()
+				&& (z == 0 || !terrain.getTerrain(x, y, z - 1).isPassable());
+		int index = getIndex(x, y, z);
+		int position = standableIndices.get(index);
+		if (canStand == (position >= 0))
+			return;
+		if (canStand) {
+			if (nbStandableCubes == standableCubes.length)
+				standableCubes = Arrays.copyOf(standableCubes, 2 * standableCubes.length);
+			standableCubes[nbStandableCubes] = index;
+			standableIndices.put(index, nbStandableCubes++);
+		} else {
+			// move the last standable cube to the place of the removed cube
+			int last = standableCubes[--nbStandableCubes];
+			standableCubes[position] = last;
+			standableIndices.put(last, position);
+			standableIndices.remove(index);
+		}
+	}
+
+	/**
+	 * Return the index of the given cube in its world and in its terrain.
+	 */
+	private int getIndex(int x, int y, int z) {
+		return terrain.getIndex(x, y, z);
+	}
+
+	/**
+	 * Return the index of the chunk containing the given cube.
+	 */
+	private int getChunkIndex(int x, int y, int z) {
+		return (x >> CHUNK_SHIFT) + nbChunksX * ((y >> CHUNK_SHIFT) + nbChunksY * (z >> CHUNK_SHIFT));
+	}
+
+	/**
+	 * Return the offset of the given cube in the array of numbers of its chunk.
+	 */
+	private static int getOffsetInChunk(int x, int y, int z) {
+		return (x & CHUNK_MASK) + CHUNK_SIZE * ((y & CHUNK_MASK) + CHUNK_SIZE * (z & CHUNK_MASK));
+	}
+
+	/**
+	 * The number of cubes along each side of a chunk, which is the chunk size of chunked terrains.
+	 */
+	private static final int CHUNK_SIZE = ChunkedTerrain.CHUNK_SIZE;
+
+	private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * The number of cubes along each side of a chunk together with the cubes around it.
+	 */
+	private static final int PADDED_SIZE = CHUNK_SIZE + 2;
+
+	/**
+	 * A class of maps from cube indices to non-negative integers, with open addressing and linear probing,
+	 * so that no index is boxed and the map only takes memory for the cubes it contains.
+	 */
+	private static class IndexMap {
+
+		/**
+		 * Return the integer of the given cube index, or -1 if this map does not contain the given cube index.
+		 */
+		int get(int key) {
+			for (int slot = getSlot(key); ; slot = (slot + 1) & (keys.length - 1)) {
+				if (keys[slot] == key)
+					return values[slot];
+				if (keys[slot] == EMPTY)
+					return -1;
+			}
+		}
+
+		/**
+		 * Register the given integer for the given cube index.
+		 */
+		void put(int key, int value) {
+			if (2 * (size + 1) > keys.length)
+				resize(2 * keys.length);
+			for (int slot = getSlot(key); ; slot = (slot + 1) & (keys.length - 1)) {
+				if (keys[slot] == key) {
+					values[slot] = value;
+					return;
+				}
+				if (keys[slot] == EMPTY) {
+					keys[slot] = key;
+					values[slot] = value;
+					size++;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Remove the given cube index from this map, if this map contains it.
+		 */
+		void remove(int key) {
+			int mask = keys.length - 1;
+			int hole = getSlot(key);
+			while (keys[hole] != key) {
+				if (keys[hole] == EMPTY)
+					return;
+				hole = (hole + 1) & mask;
+			}
+			// shift the following entries of the run back, so no entry is separated from its slot by an empty slot
+			for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+				int home = getSlot(keys[next]);
+				boolean movable = (next > hole) ? (home <= hole || home > next) : (home <= hole && home > next);
+				if (movable) {
+					keys[hole] = keys[next];
+					values[hole] = values[next];
+					hole = next;
+				}
+			}
+			keys[hole] = EMPTY;
+			size--;
+		}
+
+		/**
+		 * Return the first slot to look for the given cube index.
+		 */
+		private int getSlot(int key) {
+			int hash = key * 0x9E3779B9;
+			return (hash ^ (hash >>> 16)) & (keys.length - 1);
+		}
+
+		/**
+		 * Move the entries of this map to arrays of the given capacity, which is a power of two.
+		 */
+		private void resize(int capacity) {
+			int[] oldKeys = keys, oldValues = values;
+			keys = newKeys(capacity);
+			values = new int[capacity];
+			size = 0;
+			for (int slot = 0; slot < oldKeys.length; slot++)
+				if (oldKeys[slot] != EMPTY)
+					put(oldKeys[slot], oldValues[slot]);
+		}
+
+		/**
+		 * The cube indices of this map, or EMPTY for free slots.
+		 */
+		private int[] keys = newKeys(32);
+
+		/**
+		 * The integers registered for the cube indices in the same slots.
+		 */
+		private int[] values = new int[32];
+
+		/**
+		 * The number of cube indices in this map.
+		 */
+		private int size = 0;
+
+		private static int[] newKeys(int capacity) {
+			int[] result = new int[capacity];
+			Arrays.fill(result, EMPTY);
+			return result;
+		}
+
+		private static final int EMPTY = -1;
+	}
+}
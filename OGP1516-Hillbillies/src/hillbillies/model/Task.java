@@ -1,13 +1,13 @@
 package hillbillies.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 
 import hillbillies.model.expression.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import be.kuleuven.cs.som.annotate.*;
 import hillbillies.model.statement.*;
@@ -50,21 +50,53 @@ public class Task {
 	 *       | if (isValidPriority(priority)) 
 	 *       | 		then new.getPriority() == priority 
 	 *       |else new.getPriority() == 0
-	 * @effect The activities of this new task is set to the given activities. 
-	 * 		 |this.setActivities(activities)
+	 * @effect This new task is initialized with the given name, the given priority,
+	 * 		 a new program for the given activities and the given selected cube.
+	 * 		 |this(name, priority, new Program(activities), selectedCube)
+	 */
+	public Task(String name, int priority, Statement activities, int[] selectedCube) throws IllegalArgumentException {
+		this(name, priority, new Program(activities), selectedCube);
+	}
+
+	/**
+	 * Initialize this new task with given name, the given priority and the
+	 * given program.
+	 * 
+	 * @param name
+	 *            The name for this new task.
+	 * @param priority
+	 *            The priority for this new task.
+	 * @param program
+	 *            The program for this new task, which may be shared with other tasks.
+	 * @param selectedCube
+	 * 			  The selected cube for this new task       
+	 * @post If the given name is a valid name for any task, the name of this
+	 *       new task is equal to the given name. Otherwise, the name of this
+	 *       new task is equal to "task". 
+	 *       | if (isValidName(name)) 
+	 *       | 	then new.getName() == name 
+	 *       | else new.getName() == "task"
+	 * @post If the given priority is a valid priority for any task, the
+	 *       priority of this new task is equal to the given priority.
+	 *       Otherwise, the priority of this new task is equal to 0. 
+	 *       | if (isValidPriority(priority)) 
+	 *       | 		then new.getPriority() == priority 
+	 *       |else new.getPriority() == 0
+	 * @effect The program of this new task is set to the given program. 
+	 * 		 |this.setProgram(program)
 	 * @effect The execution context of this initialized 
 	 * 		 as an execution context with the given selected cube as its selected cube.
-	 * 		 |this.setExecutionContext(new ExecutionContext(null,selectedCube,null))
+	 * 		 |this.setExecutionContext(new ExecutionContext(null,selectedCube,program.getNbVariables()))
 	 */
-	public Task(String name, int priority, Statement activities, int[] selectedCube) throws IllegalArgumentException {
+	public Task(String name, int priority, Program program, int[] selectedCube) throws IllegalArgumentException {
 		if (!canHaveAsName(name))
 			name = "task";
 		this.name = name;
 		if (!isValidPriority(priority))
 			priority = 0;
 		setPriority(priority);
-		this.setActivities(activities);
-		this.setExecutionContext(new ExecutionContext(null,selectedCube,null));
+		this.setProgram(program);
+		this.setExecutionContext(new ExecutionContext(null,selectedCube,program.getNbVariables()));
 	}
 	
 	/**
@@ -142,11 +174,16 @@ public class Task {
 	 *       priority of this new task is equal to the given priority. 
 	 *       | if (isValidPriority(priority)) 
 	 *       | 	then new.getPriority() == priority
+	 * @effect Each scheduler of this task moves this task to its place for the new priority.
+	 *       | for each scheduler in getSchedulers():
+	 *       |	scheduler.updateTask(this)
 	 */
 	@Raw
 	public void setPriority(int priority) {
 		if (isValidPriority(priority))
 			this.priority = priority;
+		for (Scheduler scheduler: getSchedulers())
+			scheduler.updateTask(this);
 	}
 
 	/**
@@ -179,7 +216,7 @@ public class Task {
 	@Basic
 	@Raw
 	public Statement getActivities() {
-		return this.activities;
+		return this.getProgram().getActivities();
 	}
 
 	/**
@@ -199,23 +236,47 @@ public class Task {
 	 * 
 	 * @param activities
 	 *            The new activities for this task.
-	 * @post The activities of this new task is equal to the given activities. |
-	 *       new.getActivities() == activities
-	 * @throws IllegalArgumentException
-	 *             The given activities is not a valid activities for any task.
-	 *             | ! isValidActivities(getActivities())
+	 * @effect The program of this task is set to a new program for the given activities.
+	 * 		 | setProgram(new Program(activities))
+	 * @effect The execution of this task starts over with a fresh frame.
+	 * 		 | this.getExecutionContext().resetFrame(getProgram().getNbVariables())
 	 */
 	@Raw
 	public void setActivities(Statement activities) throws IllegalArgumentException {
-		if (!isValidActivities(activities))
+		setProgram(new Program(activities));
+		getExecutionContext().resetFrame(getProgram().getNbVariables());
+	}
+
+	/**
+	 * Return the program of this task, holding the activities of this task lowered into instructions.
+	 */
+	@Basic @Raw
+	public Program getProgram() {
+		return this.program;
+	}
+
+	/**
+	 * Set the program of this task to the given program.
+	 * 
+	 * @param program
+	 *            The new program for this task.
+	 * @post The program of this new task is equal to the given program.
+	 *       | new.getProgram() == program
+	 * @throws IllegalArgumentException
+	 *             The given program is not well formed.
+	 *             | ! program.isWellFormed()
+	 */
+	@Raw
+	private void setProgram(Program program) throws IllegalArgumentException {
+		if (program == null || !program.isWellFormed())
 			throw new IllegalArgumentException();
-		this.activities = activities;
+		this.program = program;
 	}
-	
+
 	/**
-	 * Variable registering the non-completed activities of this task.
+	 * Variable registering the program of this task.
 	 */
-	private Statement activities;
+	private Program program;
 
 
 	/**
@@ -248,6 +309,7 @@ public class Task {
 	 * 					if the variable is not in the list of defined variables, return false
 	 * 					| if (!definedVariables.contains(expression.getName()))
 	 * 					|	result == false
+	 * 				  the same holds for the variable expressions nested in the expression of the statement
 	 * 				- if the statement is a ComposedUnaryStatement
 	 * 					if this statement in this statement not well formed 
 	 * 						with the current variableNames as assigned variables, return false
@@ -264,6 +326,27 @@ public class Task {
 	 * 			|result == true
 	 */
 	public static boolean isWellFormed(Statement activities, List<String> variables){
+		return resolveVariables(activities, variables, null);
+	}
+
+	/**
+	 * Check whether the given statement is well formed, and resolve each of its variables to a slot.
+	 * 
+	 * @param activities
+	 * 			The statement to check.
+	 * @param variables
+	 * 			The already assigned variables in superstatements of this statement.
+	 * @param slots
+	 * 			The slots of the variables resolved so far, extended with a new slot 
+	 * 			for each variable first assigned in the given statement, or null to only check the statement.
+	 * @effect If the given slots are effective, each assignment statement and each variable expression 
+	 * 			in the given statement that is checked is given the slot of its variable, numbering 
+	 * 			the variables in the order in which they are first assigned.
+	 * @return The given statement is well formed, as defined in isWellFormed(Statement, List).
+	 */
+	static boolean resolveVariables(Statement activities, List<String> variables, Map<String,Integer> slots){
+		if (activities == null)
+			return true;
 		List<Statement> statements = new ArrayList<Statement>();
 		List<String> variableNames = new ArrayList<String>();
 
@@ -280,7 +363,14 @@ public class Task {
 	
 		for (Statement stat: statements){
 			if (stat instanceof AssignmentStatement<?>){
-				variableNames.add(((AssignmentStatement<?>) stat).getVariableName());
+				AssignmentStatement<?> assignment = (AssignmentStatement<?>) stat;
+				if (!resolveVariables(assignment.getExpression(), variableNames, slots))
+					return false;
+				variableNames.add(assignment.getVariableName());
+				if (slots != null){
+					slots.putIfAbsent(assignment.getVariableName(), slots.size());
+					assignment.setSlot(slots.get(assignment.getVariableName()));
+				}
 			}
 			else if (stat instanceof BreakStatement){
 				if (stat.getSuperStatement() == null)
@@ -292,34 +382,20 @@ public class Task {
 				}
 			}
 			else if(stat instanceof SequenceStatement){
-				if (! isWellFormed(stat,variableNames))
+				if (! resolveVariables(stat,variableNames,slots))
 					return false;
 			}
 			else{
-					Expression<?> e = ((ExpressionStatement<?>)stat).getExpression();
-					if (e instanceof BracketVariableExpression){
-						e = ((BracketVariableExpression)e).getExpression();
-					}
-					if (e instanceof BasicVariableExpression<?>){
-						boolean variableAssigned = false;
-						for (String name: variableNames){
-							if (name.equals(((BasicVariableExpression<?>)e).getName())){
-								variableAssigned = true;
-							}
-							
-						}
-						if (!variableAssigned){
-							return false;
-						}
-					}
+					if (!resolveVariables(((ExpressionStatement<?>)stat).getExpression(), variableNames, slots))
+						return false;
 					if (stat instanceof IComposedUnaryStatement<?>){
-						if (!isWellFormed((Statement)((IComposedUnaryStatement<?>)stat).getStatement(),variableNames))
+						if (!resolveVariables((Statement)((IComposedUnaryStatement<?>)stat).getStatement(),variableNames,slots))
 							return false;
 					}
 					if (stat instanceof IComposedBinaryStatement<?,?>){
-						if (!isWellFormed((Statement)((IComposedBinaryStatement<?,?>)stat).getFirstStatement(),variableNames))
+						if (!resolveVariables((Statement)((IComposedBinaryStatement<?,?>)stat).getFirstStatement(),variableNames,slots))
 							return false;
-						if (!isWellFormed((Statement)((IComposedBinaryStatement<?,?>)stat).getSecondStatement(),variableNames))
+						if (!resolveVariables((Statement)((IComposedBinaryStatement<?,?>)stat).getSecondStatement(),variableNames,slots))
 							return false;
 
 					}
@@ -328,6 +404,34 @@ public class Task {
 			}
 		return true;
 		}
+
+	/**
+	 * Check whether all variables in the given expression are assigned, and resolve each of them to its slot.
+	 * 
+	 * @param expression
+	 * 			The expression to check.
+	 * @param variableNames
+	 * 			The assigned variables.
+	 * @param slots
+	 * 			The slots of the assigned variables, or null to only check the expression.
+	 * @return True if and only if the name of each variable expression in the given expression 
+	 * 			is one of the given variable names.
+	 */
+	private static boolean resolveVariables(Expression<?> expression, List<String> variableNames, Map<String,Integer> slots){
+		if (expression instanceof BasicVariableExpression<?>){
+			BasicVariableExpression<?> variable = (BasicVariableExpression<?>) expression;
+			if (!variableNames.contains(variable.getName()))
+				return false;
+			if (slots != null)
+				variable.setSlot(slots.get(variable.getName()));
+		}
+		if (expression instanceof IComposedUnaryExpression<?>)
+			return resolveVariables((Expression<?>) ((IComposedUnaryExpression<?>) expression).getExpression(), variableNames, slots);
+		if (expression instanceof IComposedBinaryExpression<?,?>)
+			return resolveVariables((Expression<?>) ((IComposedBinaryExpression<?,?>) expression).getLeftExpression(), variableNames, slots)
+					&& resolveVariables((Expression<?>) ((IComposedBinaryExpression<?,?>) expression).getRightExpression(), variableNames, slots);
+		return true;
+	}
 	
 
 	/**
@@ -378,13 +482,16 @@ public class Task {
 	 * 
 	 * @param executingUnit 
 	 * 			the executingUnit to set
-	 * @effect If the current executing unit of this task is not null, set its task to null
+	 * @effect If the current executing unit of this task is not null, it releases this task.
 	 * 			|if (this.getExecutingUnit()!= null)
-	 *			|	this.getExecutingUnit().setTask(null);
-	 * @post The executing unit of this new task is the given unit.
-	 * 			|new.getExecutingUnit() == executingUnit
-	 * @effect The task of the given executing unit is set to this task.
-	 * 			|executingUnit.setTask(this);
+	 *			|	this.release(this.getExecutingUnit());
+	 * @effect If the given unit is not null, it claims this task.
+	 * 			|if (executingUnit != null)
+	 *			|	this.claim(executingUnit);
+	 * @effect If this task had no executing unit and the given unit is null, this task
+	 * 			has no scheduled unit.
+	 * 			|if (this.getExecutingUnit() == null && executingUnit == null)
+	 *			|	this.setScheduledUnit(null);
 	 * 
 	 */
 	@Raw
@@ -392,13 +499,76 @@ public class Task {
 		if (!canHaveAsExecutingUnit(executingUnit)){
 			throw new IllegalArgumentException();
 		}
-		if (this.getExecutingUnit()!= null)
-			this.getExecutingUnit().setTask(null);
-		this.getExecutionContext().setExecutingUnit(executingUnit);
-		
-		this.setScheduledUnit(executingUnit);
+		Unit previous = this.getExecutingUnit();
+		if (previous != null)
+			this.release(previous);
 		if (executingUnit != null)
-			executingUnit.setTask(this);
+			this.claim(executingUnit);
+		else if (previous == null)
+			this.setScheduledUnit(null);
+	}
+
+	/**
+	 * Let the given unit claim this task, if no unit is executing this task.
+	 * The claim is atomic: if several units try to claim this task at the same time,
+	 * exactly one of them succeeds.
+	 * 
+	 * @param unit
+	 * 			The unit claiming this task.
+	 * @return True if and only if this task had no executing unit.
+	 * 			| result == (getExecutingUnit() == null)
+	 * @effect If the claim succeeds, the executing unit of this task is set to the given unit,
+	 * 			the execution of this task starts over with a fresh frame, the given unit is the
+	 * 			scheduled unit of this task, the task of the given unit is set to this task and
+	 * 			each scheduler of this task moves this task among its claimed tasks.
+	 * 			| if (result)
+	 * 			|	then new.getExecutingUnit() == unit
+	 * 			|		&& this.getExecutionContext().resetFrame(getProgram().getNbVariables())
+	 * 			|		&& this.setScheduledUnit(unit) && unit.setTask(this)
+	 * 			|		&& for each scheduler in getSchedulers(): scheduler.updateTask(this)
+	 * @throws IllegalArgumentException
+	 * 			If the given unit is not effective or cannot execute this task.
+	 * 			| unit == null || !canHaveAsExecutingUnit(unit)
+	 */
+	public boolean claim(Unit unit) throws IllegalArgumentException {
+		if (unit == null || !canHaveAsExecutingUnit(unit))
+			throw new IllegalArgumentException();
+		if (!this.getExecutionContext().compareAndSetExecutingUnit(null, unit))
+			return false;
+		this.getExecutionContext().resetFrame(getProgram().getNbVariables());
+		this.setScheduledUnit(unit);
+		unit.setTask(this);
+		for (Scheduler scheduler: getSchedulers())
+			scheduler.updateTask(this);
+		return true;
+	}
+
+	/**
+	 * Let the given unit release this task, if the given unit is executing this task.
+	 * The release is atomic: a unit that is not executing this task cannot release it.
+	 * 
+	 * @param unit
+	 * 			The unit releasing this task.
+	 * @return True if and only if the given unit was executing this task.
+	 * 			| result == (getExecutingUnit() == unit)
+	 * @effect If the release succeeds, the task of the given unit is set to null, this task has
+	 * 			no executing unit and no scheduled unit, the execution of this task starts over with
+	 * 			a fresh frame and each scheduler of this task moves this task among its unclaimed tasks.
+	 * 			| if (result)
+	 * 			|	then unit.setTask(null) && new.getExecutingUnit() == null
+	 * 			|		&& this.getExecutionContext().resetFrame(getProgram().getNbVariables())
+	 * 			|		&& this.setScheduledUnit(null)
+	 * 			|		&& for each scheduler in getSchedulers(): scheduler.updateTask(this)
+	 */
+	public boolean release(Unit unit) {
+		if (unit == null || !this.getExecutionContext().compareAndSetExecutingUnit(unit, null))
+			return false;
+		unit.setTask(null);
+		this.getExecutionContext().resetFrame(getProgram().getNbVariables());
+		this.setScheduledUnit(null);
+		for (Scheduler scheduler: getSchedulers())
+			scheduler.updateTask(this);
+		return true;
 	}
 
 	
@@ -444,21 +614,6 @@ public class Task {
 	}
 	
 	
-	/**
-	 * Add the variable with the given name and given assigned expression to this task.
-	 * 
-	 * @param variableName
-	 * 			the name of the new variable for this new task.
-	 * @param expr
-	 * 			The assigned expression of the new variable of this new task
-	 * @effect The variable with the given name and assigned expression is 
-	 * 			added to the execution context of this new task.
-	 * 			|this.getExecutionContext().addVariable(variableName,expr);
-	 */
-	public void addVariable(String variableName,Expression<?> expr){
-		 this.getExecutionContext().addVariable(variableName,expr);
-	}
-	
 	/**
 	 * 
 	 * Return the execution context of this task.
@@ -486,10 +641,11 @@ public class Task {
 	private ExecutionContext executionContext;
 	
 	/**
-	 * Execute this task.
+	 * Execute the next step of this task, with the instruction budget a unit has in a tick of 0.2 seconds.
 	 * 
-	 * @effect Execute the activities statement of this task.
-	 * 			|getActivities().executeStatement(getExecutionContext())
+	 * @effect Execute the next step of the program of this task.
+	 * 			|getExecutionContext().setInstructionBudget(Unit.getInstructionBudget(0.2))
+	 * 			|executeStep()
 	 * @throws NullPointerException
 	 * 			If the executing unit of this task is null.
 	 * 			|this.getExecutingUnit()==null
@@ -498,7 +654,21 @@ public class Task {
 	public void executeTask() throws NullPointerException{
 		if (this.getExecutingUnit() == null)
 			throw new NullPointerException();
-		getActivities().executeStatement(getExecutionContext());
+		getExecutionContext().setInstructionBudget(Unit.getInstructionBudget(0.2));
+		executeStep();
+		getExecutionContext().setInstructionBudget(0);
+	}
+
+	/**
+	 * Execute the next step of this task with the instruction budget of its execution context.
+	 * 
+	 * @effect Execute the next step of the program of this task.
+	 * 			|getProgram().executeStep(getExecutionContext())
+	 * @return True if and only if the step has ended, false if the instruction budget ran out.
+	 * 			|result == getProgram().executeStep(getExecutionContext())
+	 */
+	boolean executeStep(){
+		return getProgram().executeStep(getExecutionContext());
 	}
 	
 	/**
@@ -547,6 +717,7 @@ public class Task {
 	public boolean executableActivities(){
 		List<Statement> statements = new ArrayList<Statement>();
 		List<Expression<?>> expressions = new ArrayList<Expression<?>>();
+		Statement activities = getActivities();
 	
 		if (activities instanceof SequenceStatement){
 			statements = (List<Statement>) ((SequenceStatement<?>)activities).getStatements();
@@ -598,7 +769,7 @@ public class Task {
 	/**
 	 * Variable registering the set of schedulers of which this task is a task.
 	 */
-	private Set<Scheduler> schedulers = new HashSet<Scheduler>();
+	private Set<Scheduler> schedulers = new CopyOnWriteArraySet<Scheduler>();
 
 	/**
 	 * Remove the given scheduler from the set of schedulers of this task.
@@ -19,13 +19,15 @@ public class TaskFactory implements ITaskFactory<Expression<?>, Statement, Task>
 	@Override
 	public List<Task> createTasks(String name, int priority, Statement activity, List<int[]> selectedCubes) {
 		List<Task> tasks = new ArrayList<Task>();
+		// all tasks share one program; each task executes it in its own execution context
+		Program program = new Program(activity, true);
 		if (selectedCubes.isEmpty()){
-			tasks.add(new Task(name,priority,activity));
+			tasks.add(new Task(name,priority,program,null));
 			
 		}
 		else{
 			for (int[] selectedCube: selectedCubes){
-				Task task = new Task(name,priority,activity,selectedCube);
+				Task task = new Task(name,priority,program,selectedCube);
 				tasks.add(task);
 			}
 		}
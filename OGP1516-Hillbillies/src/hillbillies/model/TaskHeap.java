@@ -0,0 +1,273 @@
+package hillbillies.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A class of indexed binary heaps of tasks, ordered by a given comparator.
+ *
+ * The heap remembers the index of each of its tasks, so a task can be removed or moved
+ * to its new place after its priority changed in logarithmic time.
+ *
+ * @invar Each task in this heap comes not before its parent in the heap.
+ * 		| for each i in 1..size()-1:
+ * 		|	comparator.compare(tasks.get((i-1)/2), tasks.get(i)) <= 0
+ */
+class TaskHeap {
+
+	/**
+	 * Initialize this new task heap with the given comparator.
+	 *
+	 * @param comparator
+	 * 			The comparator ordering the tasks of this heap; the task that compares smallest
+	 * 			is at the top of this heap.
+	 * @post This new task heap has no tasks.
+	 * @throws IllegalArgumentException
+	 * 			If the given comparator is not effective.
+	 * 			| comparator == null
+	 */
+	TaskHeap(Comparator<Task> comparator) throws IllegalArgumentException {
+		if (comparator == null)
+			throw new IllegalArgumentException();
+		this.comparator = comparator;
+	}
+
+	/**
+	 * The comparator ordering the tasks of this heap.
+	 */
+	private final Comparator<Task> comparator;
+
+	/**
+	 * The tasks of this heap, stored as a binary heap.
+	 */
+	private final List<Task> tasks = new ArrayList<>();
+
+	/**
+	 * A map registering the index of each task of this heap in the list of tasks.
+	 */
+	private final Map<Task, Integer> indices = new HashMap<>();
+
+	/**
+	 * Return the number of tasks in this heap.
+	 */
+	int size() {
+		return tasks.size();
+	}
+
+	/**
+	 * Check whether this heap has the given task as one of its tasks.
+	 *
+	 * @param task
+	 * 			The task to check.
+	 */
+	boolean contains(Task task) {
+		return indices.containsKey(task);
+	}
+
+	/**
+	 * Return the task at the top of this heap, or null if this heap has no tasks.
+	 */
+	Task peek() {
+		return tasks.isEmpty() ? null : tasks.get(0);
+	}
+
+	/**
+	 * Return a list with all tasks of this heap, in no particular order.
+	 */
+	List<Task> getTasks() {
+		return new ArrayList<>(tasks);
+	}
+
+	/**
+	 * Add the given task to this heap.
+	 *
+	 * @param task
+	 * 			The task to add.
+	 * @post This heap has the given task as one of its tasks.
+	 * 		| new.contains(task)
+	 */
+	void add(Task task) {
+		if (contains(task))
+			return;
+		tasks.add(task);
+		indices.put(task, tasks.size() - 1);
+		siftUp(tasks.size() - 1);
+	}
+
+	/**
+	 * Remove the given task from this heap.
+	 *
+	 * @param task
+	 * 			The task to remove.
+	 * @return True if and only if this heap had the given task as one of its tasks.
+	 * 		| result == contains(task)
+	 * @post This heap does not have the given task as one of its tasks.
+	 * 		| ! new.contains(task)
+	 */
+	boolean remove(Task task) {
+		Integer index = indices.remove(task);
+		if (index == null)
+			return false;
+		Task last = tasks.remove(tasks.size() - 1);
+		if (index < tasks.size()) {
+			tasks.set(index, last);
+			indices.put(last, index);
+			update(last);
+		}
+		return true;
+	}
+
+	/**
+	 * Move the given task to its proper place in this heap, after its key has changed.
+	 *
+	 * @param task
+	 * 			The task to move.
+	 */
+	void update(Task task) {
+		Integer index = indices.get(task);
+		if (index != null)
+			siftDown(siftUp(index));
+	}
+
+	/**
+	 * Return the first task of this heap satisfying the given condition, or null if no
+	 * task of this heap satisfies it.
+	 *
+	 * The heap is searched best first, so only the tasks that come before the result and
+	 * their direct children are visited.
+	 *
+	 * @param condition
+	 * 			The condition to satisfy.
+	 */
+	Task getFirstSatisfying(Predicate<Task> condition) {
+		for (Iterator<Task> iterator = iterator(); iterator.hasNext();) {
+			Task task = iterator.next();
+			if (condition.test(task))
+				return task;
+		}
+		return null;
+	}
+
+	/**
+	 * Return an iterator over the tasks of this heap, from the top of this heap on.
+	 *
+	 * The heap is searched best first, so returning the first k tasks only visits those
+	 * tasks and their direct children, instead of sorting all tasks of this heap.
+	 * The iterator may not be used anymore once this heap has changed.
+	 */
+	Iterator<Task> iterator() {
+		return new Iterator<Task>() {
+
+			/**
+			 * The indices in this heap of the tasks that can be returned next, as a binary heap.
+			 */
+			private int[] frontier = new int[8];
+
+			private int size = tasks.isEmpty() ? 0 : 1;
+
+			@Override
+			public boolean hasNext() {
+				return size > 0;
+			}
+
+			@Override
+			public Task next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				int index = frontier[0];
+				int last = frontier[--size];
+				if (size > 0)
+					siftDown(last);
+				for (int child = 2 * index + 1; child <= 2 * index + 2 && child < tasks.size(); child++)
+					siftUp(child);
+				return tasks.get(index);
+			}
+
+			/**
+			 * Add the given index at the end of the frontier and move it up to its place.
+			 */
+			private void siftUp(int index) {
+				if (size == frontier.length)
+					frontier = Arrays.copyOf(frontier, 2 * size);
+				int position = size++;
+				while (position > 0) {
+					int parent = (position - 1) / 2;
+					if (compare(frontier[parent], index) <= 0)
+						break;
+					frontier[position] = frontier[parent];
+					position = parent;
+				}
+				frontier[position] = index;
+			}
+
+			/**
+			 * Put the given index at the root of the frontier and move it down to its place.
+			 */
+			private void siftDown(int index) {
+				int position = 0;
+				while (2 * position + 1 < size) {
+					int child = 2 * position + 1;
+					if (child + 1 < size && compare(frontier[child + 1], frontier[child]) < 0)
+						child++;
+					if (compare(index, frontier[child]) <= 0)
+						break;
+					frontier[position] = frontier[child];
+					position = child;
+				}
+				frontier[position] = index;
+			}
+
+			private int compare(int i, int j) {
+				return comparator.compare(tasks.get(i), tasks.get(j));
+			}
+		};
+	}
+
+	/**
+	 * Move the task at the given index up until its parent comes before it, and return
+	 * its new index.
+	 */
+	private int siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			if (comparator.compare(tasks.get(parent), tasks.get(index)) <= 0)
+				break;
+			swap(parent, index);
+			index = parent;
+		}
+		return index;
+	}
+
+	/**
+	 * Move the task at the given index down until it comes before both its children.
+	 */
+	private void siftDown(int index) {
+		while (2 * index + 1 < tasks.size()) {
+			int child = 2 * index + 1;
+			if (child + 1 < tasks.size() && comparator.compare(tasks.get(child + 1), tasks.get(child)) < 0)
+				child++;
+			if (comparator.compare(tasks.get(index), tasks.get(child)) <= 0)
+				break;
+			swap(index, child);
+			index = child;
+		}
+	}
+
+	/**
+	 * Swap the tasks at the given indices.
+	 */
+	private void swap(int i, int j) {
+		Task task = tasks.get(i);
+		tasks.set(i, tasks.get(j));
+		tasks.set(j, task);
+		indices.put(tasks.get(i), i);
+		indices.put(tasks.get(j), j);
+	}
+}
@@ -23,13 +23,27 @@ public enum TerrainType {
 		return this.type;
 	}
 	
+	/**
+	 * Return the terrain type with the given integer.
+	 * 
+	 * @param type
+	 * 		The integer of the terrain type.
+	 * @return The terrain type with the given integer, or air if no terrain type has the given integer.
+	 */
 	public static final TerrainType getTerrain(int type){
-		for (TerrainType terrain: TerrainType.values()){
-			if (terrain.getType() == type){
-				return terrain;
-			}
-		}
-		return AIR;
+		if (type < 0 || type >= BY_TYPE.length)
+			return AIR;
+		return BY_TYPE[type];
+	}
+	
+	/**
+	 * An array registering each terrain type at the index of its integer.
+	 */
+	private static final TerrainType[] BY_TYPE = new TerrainType[values().length];
+	
+	static {
+		for (TerrainType terrain: values())
+			BY_TYPE[terrain.getType()] = terrain;
 	}
 
 	/**
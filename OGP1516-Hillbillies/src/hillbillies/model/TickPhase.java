@@ -0,0 +1,17 @@
+package hillbillies.model;
+
+import be.kuleuven.cs.som.annotate.Value;
+
+/**
+ * An enumeration of the phases of advancing time in a world.
+ */
+@Value
+public enum TickPhase {
+	TERRAIN,
+	ASSIGNMENT,
+	PLANNING,
+	UNITS,
+	BOULDERS,
+	LOGS,
+
+}
@@ -657,6 +657,11 @@ public class Unit {
 		
 		if (!canHaveAsPosition(position))
 			throw new IllegalArgumentException();
+		if (this.getWorld()!=null && this.getWorld().isSameCube(this.position, position)){
+			// the unit stays in its cube, so the maps of its world do not change
+			this.position = position;
+			return;
+		}
 		if (this.getWorld()!=null)
 			this.getWorld().removeUnitFromUnitsAtCubeMap(this);
 		this.position = position;
@@ -742,11 +747,16 @@ public class Unit {
 	 * 		| assert (faction.hasAsUnit(this))
 	 * @post This unit references the given faction as the faction attached to it.
 	 * 		| new.getFaction() == faction
+	 * @effect If this unit has a world, the faction of this unit is updated in the spatial index of that world.
+	 * 		| if (this.getWorld() != null)
+	 * 		|	then this.getWorld().updateUnitFaction(this)
 	 */
 	public void setFaction(@Raw Faction faction){
 		if (faction !=null)
 			assert faction.hasAsUnit(this);
 		this.faction = faction;
+		if (this.getWorld() != null)
+			this.getWorld().updateUnitFaction(this);
 	}
 	/**
 	 * Check whether this unit has a proper faction attached to it.
@@ -855,9 +865,6 @@ public class Unit {
 			throw new IllegalArgumentException();
 		}
 		restTimer += duration;
-		taskTimer += duration;
-		if (this.isExecutingStatement)
-			taskTimer += duration;
 		System.out.println(" a ");
 		if (this.getExperiencePoints() >=10){
 			setExperiencePoints(this.getExperiencePoints()-10);
@@ -965,6 +972,8 @@ public class Unit {
 	 * 		|this.isExecutingStatement = false
 	 * 		|this.isExecutingTask = false
 	 * 		|!this.getTask().isComplete()
+	 * @effect This unit releases its task.
+	 * 		|this.getTask().release(this)
 	 * @post This unit has no currentStatement or targetPosition() or task.
 	 * 		|this.setCurrentStatement(null)
 	 * 		|this.targetPosition = null
@@ -979,7 +988,7 @@ public class Unit {
 		this.setCurrentStatement(null);
 		this.targetPosition = null;
 		this.getTask().setComplete(false);
-		this.getTask().setExecutingUnit(null);
+		this.getTask().release(this);
 		this.setTask(null);
 		if (this.isFollowing()!=null)
 			this.stopFollowing();
@@ -1017,90 +1026,84 @@ public class Unit {
 	 * 
 	 * @param duration
 	 * 		The game time after which executeProgram is called.
-	 * @post The task timer of this new unit is equal to 0,001
-	 * 		|new.taskTimer = 0.001
-	 * @effect If the task of this unit is not complete, 
-	 * 			|if (!this.getTask().isComplete())
-	 * 			_if the taskTimer is greater than duration,
-	 * 			 - if the current statement is null, this unit executes its task.
-	 * 				|if (this.getCurrentStatement()==null){
-	 *				| 	this.isExecutingStatement = true;
-	 * 				|	this.getTask().executeTask();
-	 * 			 - else if the next statement of the current statement of this unit is not null, 
-	 * 					this unit executes this next statement
-	 * 				|else if (this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) != null){
-	 *				|	this.isExecutingStatement = true;
-	 *				|	this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()).executeStatement(this.getTask().getExecutionContext());
-	 * 			 - else, set this task to complete.
-	 * 				|this.getTask().setComplete(true);
-	 * 			_if the taskTimer is smaller than duration, while 
-	 * 			  while the taskTimer is smaller than duration and this unit is not executing a statement and its task is not complete
-	 * 			 - if the current statement is null, this unit executes its task.
-	 * 				|if (this.getCurrentStatement()==null){
-	 *				| 	this.isExecutingStatement = true;
-	 * 				|	this.getTask().executeTask();
-	 * 			 - else if the next statement of the current statement of this unit is not null, 
-	 * 					this unit executes this next statement
-	 * 				|else if (this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) != null){
-	 *				|	this.isExecutingStatement = true;
-	 *				|	this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()).executeStatement(this.getTask().getExecutionContext());
-	 * 			 - else, set this task to complete.
-	 * 				|this.getTask().setComplete(true);
-	 * 			 - taskTimer is incremented with 0.001
-	 * 				| taskTimer += 0.001
-	 * @effect Afterwards, if the task of this unit is complete, 
-	 * 			or if the unit is not executing a statemnet but has a task and has no next statement:
+	 * @effect The execution context of the task of this unit gets a budget of instructions for this tick,
+	 * 			claimed from the budget of the faction of this unit.
+	 * 			|this.getTask().getExecutionContext().setInstructionBudget(
+	 * 			|	this.getFaction().claimInstructions(getInstructionBudget(duration)))
+	 * @effect While this unit is not executing a statement, its task is not complete 
+	 * 			and the budget is not used up, the next step of the task is executed.
+	 * 				|executeNextStep()
+	 * @effect The unused instructions of the budget are returned to the faction of this unit.
+	 * 			If the budget ran out before the task gave this unit something to do, 
+	 * 			an instruction overrun is registered for the faction of this unit.
+	 * 			|this.getFaction().releaseInstructions(...)
+	 * 			|this.getFaction().addInstructionOverrun()
+	 * @effect Afterwards, if this unit is still executing its task and the task is complete, 
+	 * 			or if the unit is not executing a statement but has a task whose program is finished:
 	 * 				The task of this unit is removed from the scheduler, 
 	 * 				the unit stops executing its task and the units status is set to done.
-	 * 				|if ((this.getTask().isComplete())||(!this.isExecutingStatement && this.isExecutingTask && this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) == null)){
+	 * 				|if ((this.getTask().isComplete())||(!this.isExecutingStatement && this.isExecutingTask 
+	 * 				|		&& this.getTask().getProgram().isFinished(this.getTask().getExecutionContext()))){
 	 *				|	this.getFaction().getScheduler().removeAsTask(this.getTask());
 	 *				|	this.stopExecutingTask();
 	 *				|	this.setStatus(Status.DONE);
-	 *
-	 * 		
 	 */
 	private void executeProgram(float duration) {
-		taskTimer = 0.001;
-		if (!this.getTask().isComplete()){			
-			if (taskTimer > duration){
-				if (this.getCurrentStatement()==null){
-					System.out.println(" start executing task");
-					this.isExecutingStatement = true;
-					this.getTask().executeTask();
-				}
-				else if (this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) != null){
-					this.isExecutingStatement = true;
-					this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()).executeStatement(this.getTask().getExecutionContext());
-					
-				}
-				else{
-					this.getTask().setComplete(true);
-				}
-			}
-			else{				
-				while (taskTimer < duration && !isExecutingStatement && !this.getTask().isComplete()){
-					if (this.getCurrentStatement()==null){
-						this.isExecutingStatement = true;
-						this.getTask().executeTask();
-					}
-
-					else if (this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) != null){
-						this.isExecutingStatement = true;
-						this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()).executeStatement(this.getTask().getExecutionContext());
-					}
-					else
-						this.getTask().setComplete(true);
-					
-					taskTimer += 0.001;
-				}
-			}
+		Faction faction = this.getFaction();
+		ExecutionContext context = this.getTask().getExecutionContext();
+		context.setInstructionBudget(faction.claimInstructions(getInstructionBudget(duration)));
+		while (!isExecutingStatement && this.isExecutingTask && !this.getTask().isComplete()
+				&& context.getInstructionBudget() > 0){
+			executeNextStep();
 		}
-		if ((this.getTask().isComplete())||(!this.isExecutingStatement && this.isExecutingTask && this.getCurrentStatement().getNextStatement(this.getTask().getExecutionContext()) == null)){
+		if (context.getInstructionBudget() == 0 && !isExecutingStatement && this.isExecutingTask 
+				&& !this.getTask().isComplete() && !this.getTask().getProgram().isFinished(context))
+			faction.addInstructionOverrun();
+		faction.releaseInstructions(context.getInstructionBudget());
+		context.setInstructionBudget(0);
+		if (!this.isExecutingTask)
+			return;
+		if ((this.getTask().isComplete())||(!this.isExecutingStatement
+				&& this.getTask().getProgram().isFinished(this.getTask().getExecutionContext()))){
 			this.getFaction().getScheduler().removeAsTask(this.getTask());
 			this.stopExecutingTask();
 			this.setStatus(Status.DONE);
 		}
 	}
+
+	/**
+	 * Execute the next step of the task of this unit.
+	 * 
+	 * @effect If the program of the task of this unit is finished, the task is complete.
+	 * 			Otherwise, this unit is executing a statement and the next step of its task is executed.
+	 * 			If that step is suspended because the instruction budget ran out, 
+	 * 			this unit is not executing a statement.
+	 * 			|if (this.getTask().getProgram().isFinished(this.getTask().getExecutionContext()))
+	 * 			|	then this.getTask().setComplete(true)
+	 * 			|else this.isExecutingStatement = true && this.getTask().executeStep()
+	 */
+	private void executeNextStep(){
+		if (this.getTask().getProgram().isFinished(this.getTask().getExecutionContext()))
+			this.getTask().setComplete(true);
+		else{
+			this.isExecutingStatement = true;
+			if (!this.getTask().executeStep())
+				this.isExecutingStatement = false;
+		}
+	}
+
+	/**
+	 * Return the number of task instructions this unit may execute in a tick of the given duration.
+	 * 
+	 * @param duration
+	 * 		The duration of the tick, expressed in seconds of game time.
+	 * @return INSTRUCTIONS_PER_MILLISECOND instructions for each started millisecond of the given duration, 
+	 * 		and at least that many.
+	 * 		| result == Math.max(1, (int) Math.ceil(duration * 1000)) * INSTRUCTIONS_PER_MILLISECOND
+	 */
+	public static int getInstructionBudget(double duration){
+		return Math.max(1, (int) Math.ceil(duration * 1000 - 1e-3)) * INSTRUCTIONS_PER_MILLISECOND;
+	}
 	
 	/**
 	 * Make the unit fall.
@@ -1132,15 +1135,34 @@ public class Unit {
 	 * 				&& !this.getWorld().getTerrain(neighboringCubes).isPassable() && ! this.isTerminated())
 	 */
 	public boolean mustFall() {
-		if ( isTerminated()||(this.getCubeCoordinate()[2]==0)){
+		if ( isTerminated()||(Math.floor(this.getPosition()[2])==0)){
 			return false;
 		}
-		for (int[] cube: this.getWorld().getNeighboringCubes(this.getCubeCoordinate())){
-			if (!this.getWorld().getTerrain(cube).isPassable())
-				return false;
-		}
+		return !this.getWorld().isNeighboringSolidTerrain(this.getCubeIndex());
+	}
 
-		return true;
+	/**
+	 * Return the index of the cube in which this unit is located, in the world of this unit.
+	 * @return The index of the cube coordinate of this unit.
+	 * 		| result == this.getWorld().getCubeIndex(this.getCubeCoordinate())
+	 */
+	private int getCubeIndex() {
+		double[] position = this.getPosition();
+		return this.getWorld().getCubeIndex((int) Math.floor(position[0]), (int) Math.floor(position[1]), 
+				(int) Math.floor(position[2]));
+	}
+
+	/**
+	 * Add the units of another faction than this unit in the cube with the given index to the given list.
+	 * @param index
+	 * 		The index of the cube, in the world of this unit.
+	 * @param enemies
+	 * 		The list to add the enemies to.
+	 */
+	private void addEnemiesAt(int index, List<Unit> enemies) {
+		for (Unit other: this.getWorld().getUnits(index))
+			if (other.getFaction() != this.getFaction())
+				enemies.add(other);
 	}
 	
 	/**
@@ -1322,61 +1344,204 @@ public class Unit {
 	}
 
 	/**
-	 * A list collecting valid neighboring positions.
+	 * A list collecting the cubes this unit still has to walk through to reach the cube of its target position.
 	 */
-	private Queue<int[]> queue =  new LinkedList<int[]>();
+	private Queue<int[]> path;
+	
 	/**
-	 * A list collecting valid neighboring positions.
+	 * A variable registering the cube for which the path of this unit was computed.
 	 */
-	private Queue<int[]> queuePos = new LinkedList<int[]>();
+	private int[] pathTarget;
+	
 	/**
-	 * A variable registering the length of the queue.
-	 */
-	private int length = 0; 
+	 * Return the next cube this unit has to move to, in order to reach the given target cube.
+	 * @param targetCube
+	 * 		The cube to reach.
+	 * @effect If this unit needs a new path to the given target cube, the path planned for this unit
+	 * 		is used if it is still valid, or else a new path to the given target cube is computed.
+	 * 		| if (needsNewPath(targetCube) && !hasValidPlannedPath(targetCube))
+	 * 		|	then path = this.getWorld().getPathFinder().findPath(this.getCubeCoordinate(), targetCube)
+	 * @return Null if the given target cube cannot be reached. Otherwise, the cube of this unit 
+	 * 		if this unit is positioned in the target cube, or else the next cube on the path of this unit,
+	 * 		which is removed from its path.
+	 */
+	private int[] getNextCubeOnPath(int[] targetCube){
+		if (needsNewPath(targetCube)){
+			if (hasValidPlannedPath(targetCube))
+				path = plannedPath;
+			else
+				path = this.getWorld().getPathFinder().findPath(this.getCubeCoordinate(), targetCube);
+			pathTarget = targetCube;
+		}
+		clearPlannedPath();
+		if (path == null)
+			return null;
+		if (path.isEmpty())
+			return this.getCubeCoordinate();
+		return path.poll();
+	}
 	
+	/**
+	 * Check whether the given cube is a valid next step for this unit on its way to the given target cube.
+	 * @param cube
+	 * 		The cube to check.
+	 * @param targetCube
+	 * 		The cube this unit wants to reach.
+	 * @return True if and only if the given cube is neighbouring this unit, is passable and
+	 * 		is the target cube or is neighbouring solid terrain.
+	 * 		| result == this.isNeighbouringCube(cube) && this.getWorld().getPassable(cube)
+	 * 		|	&& (Arrays.equals(cube, targetCube) || this.getWorld().isNeighboringSolidTerrain(cube))
+	 */
+	private boolean isValidStep(int[] cube, int[] targetCube){
+		return this.isNeighbouringCube(cube) && this.getWorld().getPassable(cube)
+				&& (Arrays.equals(cube, targetCube) || this.getWorld().isNeighboringSolidTerrain(cube));
+	}
 	
-	// Documentatie bij een for loop? 
-	/**
-	 * Search the neighboring cubes of the array that are passable and
-	 * are neighboring solid terrain.
-	 * @param array
-	 * 		The array to search around.
-	 * @return A collection of all the neighboring cubes, with an extra index
-	 * 		 (one greater then that of the array),
-	 * 		 of the array that are passable and are neighboring solid terrain. 
-	 */
-	public Queue<int[]> search(int[] array){
-		//System.out.println("search");
-		int[] position = {array[0], array[1], array[2]};
-		int n = array[3];
-		List<int[]> neighboringCubes = this.getWorld().getNeighboringCubes(position);
-		for (int index= 0; index< neighboringCubes.size(); index++){
-			int[] currentNeighbour = neighboringCubes.get(index);
-			if( this.getWorld().getPassable(currentNeighbour) && 
-					this.getWorld().isNeighboringSolidTerrain(currentNeighbour)){
-				//System.out.print(Arrays.toString(currentNeighbour));
-				//System.out.println("Add1");
-				boolean toAdd = true;
-				for (int[] queueArray: queue){
-					if (queueArray[0]==currentNeighbour[0]&& queueArray[1] == currentNeighbour[1] 
-							&& queueArray[2] == currentNeighbour[2] && queueArray[3]>=n){
-						//System.out.println("NotAdd");
-						toAdd = false;
-					}
-				}
-				//System.out.println("UitFor");
-				//System.out.print("toadd? " + toAdd);
-				if (toAdd){
-					//System.out.println("Add2");
-					queuePos.add(currentNeighbour);
-					queue.add(new int[] {currentNeighbour[0],currentNeighbour[1],currentNeighbour[2],n+1});
-					length = length +1;
-				}
+	/**
+	 * Forget the path of this unit.
+	 * @post This unit has no path.
+	 * 		| path == null && pathTarget == null
+	 */
+	private void clearPath(){
+		path = null;
+		pathTarget = null;
+	}
+
+	/**
+	 * Check whether this unit needs a new path to reach the given target cube.
+	 * @param targetCube
+	 * 		The cube this unit wants to reach.
+	 * @return True if and only if this unit has no path to the given target cube, or the next cube
+	 * 		on its path is no longer a valid step for this unit.
+	 * 		| result == (path == null || !Arrays.equals(pathTarget, targetCube)
+	 * 		|	|| (!path.isEmpty() && !isValidStep(path.peek(), targetCube)))
+	 */
+	private boolean needsNewPath(int[] targetCube){
+		return path == null || !Arrays.equals(pathTarget, targetCube) 
+				|| (!path.isEmpty() && !isValidStep(path.peek(), targetCube));
+	}
+
+	/**
+	 * Plan the path this unit will need when time advances with the given duration.
+	 * This method only reads the world of this unit, so that all units of a world can plan their paths in parallel.
+	 * @param duration
+	 * 		The duration with which time will advance.
+	 * @post If this unit is done and follows a unit that is not neighbouring, the path from the cube of this unit
+	 * 		to the cube of the unit it follows is planned, unless this unit has a path to that cube already.
+	 * 		| if (getStatus() == Status.DONE && isFollowing() != null
+	 * 		|		&& !isNeighbouringOrSameCube(isFollowing().getCubeCoordinate()) && needsNewPath(followedCube))
+	 * 		|	then new.plannedPath == new PathFinder(getWorld()).findPath(getCubeCoordinate(), followedCube)
+	 * @post If this unit is done, has a target position and no default behaviour, the path from the cube of this unit
+	 * 		to the cube of its target position is planned, unless this unit has a path to that cube already.
+	 * 		| if (getStatus() == Status.DONE && isFollowing() == null && targetPosition != null
+	 * 		|		&& !isEnableDefaultBehaviour() && needsNewPath(targetCube))
+	 * 		|	then new.plannedPath == new PathFinder(getWorld()).findPath(getCubeCoordinate(), targetCube)
+	 * @post If this unit is moving and reaches the center of its next cube within the given duration, the path 
+	 * 		from that cube to the cube of its target position is planned.
+	 * 		| if (getStatus() == Status.MOVING && targetPosition != null && reachesNextCube(duration))
+	 * 		|	then new.plannedPath == new PathFinder(getWorld()).findPath(nextCube, targetCube)
+	 * @post The path is planned together with the terrain version of the world of this unit, 
+	 * 		and a path that was planned already for the same cubes and terrain version is kept.
+	 * 		In all other cases, this unit has no planned path.
+	 */
+	void planPath(double duration){
+		int[] startCube = null;
+		int[] targetCube = null;
+		if (getWorld() != null && getStatus() == Status.DONE){
+			if (isFollowing() != null){
+				if (!isNeighbouringOrSameCube(isFollowing().getCubeCoordinate()))
+					targetCube = isFollowing().getCubeCoordinate();
 			}
+			else if (targetPosition != null && !isEnableDefaultBehaviour())
+				targetCube = getWorld().getCubeCoordinate(targetPosition);
+			if (targetCube != null && needsNewPath(targetCube))
+				startCube = getCubeCoordinate();
 		}
-		//System.out.print("length "+ length);
-		return queue;
+		else if (getWorld() != null && getStatus() == Status.MOVING && targetPosition != null && reachesNextCube(duration)){
+			targetCube = getWorld().getCubeCoordinate(targetPosition);
+			if (path == null || !Arrays.equals(pathTarget, targetCube))
+				startCube = getWorld().getCubeCoordinate(nextTargetPosition);
+		}
+		if (startCube == null || !getWorld().isCubeInWorld(targetCube)){
+			clearPlannedPath();
+			return;
+		}
+		if (Arrays.equals(plannedStart, startCube) && Arrays.equals(plannedTarget, targetCube)
+				&& plannedTerrainVersion == getWorld().getTerrainVersion())
+			return;
+		plannedStart = startCube;
+		plannedTerrainVersion = getWorld().getTerrainVersion();
+		PathFinder pathFinder = getWorld().borrowPlanningPathFinder();
+		try {
+			plannedPath = pathFinder.findPath(startCube, targetCube);
+		} finally {
+			getWorld().returnPlanningPathFinder(pathFinder);
+		}
+		plannedTarget = targetCube;
 	}
+
+	/**
+	 * Check whether this unit reaches the center of the next cube it is moving to within the given duration.
+	 * @param duration
+	 * 		The duration to check.
+	 * @return True if and only if the distance this unit still has to walk to the center of its next cube
+	 * 		is at most the distance it walks within the given duration at its current speed.
+	 * 		| result == (Vector.getDistance(nextTargetPosition, startPosition) - Vector.getDistance(startPosition, this.getPosition())
+	 * 		|	<= getCurrentSpeed() * duration)
+	 */
+	private boolean reachesNextCube(double duration){
+		if (nextTargetPosition == null || startPosition == null)
+			return false;
+		return Vector.getDistance(nextTargetPosition, startPosition) - Vector.getDistance(startPosition, this.getPosition())
+				<= getCurrentSpeed() * duration;
+	}
+
+	/**
+	 * Check whether the path planned for this unit can be used to reach the given target cube.
+	 * @param targetCube
+	 * 		The cube this unit wants to reach.
+	 * @return True if and only if a path to the given target cube was planned from the cube of this unit,
+	 * 		and the terrain of its world did not change since.
+	 * 		| result == (Arrays.equals(plannedTarget, targetCube) && Arrays.equals(plannedStart, getCubeCoordinate())
+	 * 		|	&& plannedTerrainVersion == getWorld().getTerrainVersion())
+	 */
+	private boolean hasValidPlannedPath(int[] targetCube){
+		return plannedTarget != null && Arrays.equals(plannedTarget, targetCube) 
+				&& Arrays.equals(plannedStart, getCubeCoordinate())
+				&& plannedTerrainVersion == getWorld().getTerrainVersion();
+	}
+
+	/**
+	 * Forget the path planned for this unit.
+	 * @post This unit has no planned path.
+	 * 		| plannedPath == null && plannedTarget == null && plannedStart == null
+	 */
+	private void clearPlannedPath(){
+		plannedPath = null;
+		plannedTarget = null;
+		plannedStart = null;
+	}
+
+	/**
+	 * A variable registering the path planned for this unit, or null if no path is planned
+	 * or the target cube of the plan cannot be reached.
+	 */
+	private Queue<int[]> plannedPath;
+
+	/**
+	 * A variable registering the cube for which the planned path of this unit was computed.
+	 */
+	private int[] plannedTarget;
+
+	/**
+	 * A variable registering the cube from which the planned path of this unit was computed.
+	 */
+	private int[] plannedStart;
+
+	/**
+	 * A variable registering the terrain version of the world of this unit when its path was planned.
+	 */
+	private long plannedTerrainVersion;
 	
 	//double pathTimer =0;
 	/**
@@ -1386,11 +1551,11 @@ public class Unit {
 	 * @effect If a unit can move, his status is IN_CENTER.
 	 * 		| if canMove()
 	 * 		|	then setStatus(Status.IN_CENTER)
-	 * @effect A list with possible positions for different path is created and 
-	 * 			the unit will move to an adjacent cube that's in the list.
-	 * 		| search(nextPosition)
-	 * 		| moveToAdjacent(candidateNextArray[0]-this.getCubeCoordinate()[0],
-	 *		| candidateNextArray[1]-this.getCubeCoordinate()[1],candidateNextArray[2]-this.getCubeCoordinate()[2])
+	 * @effect If a unit can move, the unit moves to the next cube on its path to the target position.
+	 * 			The path is only computed again if the target position changed or the next cube became invalid.
+	 * 		| nextCube = getNextCubeOnPath(position)
+	 * 		| moveToAdjacent(nextCube[0]-this.getCubeCoordinate()[0],
+	 *		| nextCube[1]-this.getCubeCoordinate()[1],nextCube[2]-this.getCubeCoordinate()[2])
 	 * @effect If this unit is executing a task the unit is not executing a move statement, interrupt the execution of the task.
 	 * 		|if (this.isExecutingTask && ! (this.getCurrentStatement() instanceof MoveToStatement))
 	 *		|		this.getTask().interruptExecution();
@@ -1400,8 +1565,6 @@ public class Unit {
 	 */
 	public void moveTo1(double[] targetPosition)throws IllegalArgumentException{
 		System.out.println(" move to 1");
-		queue.clear();
-		queuePos.clear();
 		int[] position = {(int) targetPosition[0], (int) targetPosition[1], (int) targetPosition[2]};
 		if (!canHaveAsPosition(targetPosition) || !getWorld().isNeighboringSolidTerrain(position)){
 			if (this.isExecutingTask){
@@ -1413,8 +1576,7 @@ public class Unit {
 		}
 		else if (Util.fuzzyEquals(Vector.getDistance(this.getPosition(), targetPosition), 0)){
 			setStatus(Status.DONE);
-			queue = new LinkedList<>();
-			queuePos = new LinkedList<>();
+			clearPath();
 			targetPosition = null;
 			setExperiencePoints(this.getExperiencePoints()+1);
 			if (this.isExecutingStatement){
@@ -1429,42 +1591,17 @@ public class Unit {
 				this.getTask().interruptExecution();
 			this.targetPosition = targetPosition;
 			setStatus(Status.IN_CENTER);
-			int index = 0;
-			int[] nextPosition;
-			while (!Util.fuzzyEquals(Vector.getDistance(this.getPosition(), targetPosition), 0) && canMove()){
-				
-				
-				int[] positionn = {(int) targetPosition[0], (int) targetPosition[1], (int) targetPosition[2], 0};
-				System.out.println(" wants to move to " +Arrays.toString(position));
-				//System.out.println("StartPositie" +Arrays.toString(getCubeCoordinate()));
-				queue.add(positionn);
-				length = length +1;
-				queuePos.add(position);
-				while(!queueContainsPos((LinkedList<int[]>) queue, this.getCubeCoordinate()) && length>index && index<getWorld().getxDimension()*getWorld().getyDimension()*getWorld().getzDimension()){
-					//System.out.println("index:" +index) ;
- 					nextPosition = ((LinkedList<int[]>) queue).get(index);
-					search(nextPosition);
-					index = index+1;
-				}
-			if( queueContainsPos((LinkedList<int[]>) queue, this.getCubeCoordinate())){
-				int[] candidateNextArray = null;
-				for (int[] array: queue){
-					int[] nextPos = {array[0],array[1],array[2]};
-					int n = array[3];
-					if (this.isNeighbouringCube(nextPos)){
-						if (candidateNextArray == null || candidateNextArray[3]> n){
-							candidateNextArray = array;
-						}
-					}
-				}
+			System.out.println(" wants to move to " +Arrays.toString(position));
+			int[] nextCube = getNextCubeOnPath(position);
+			if (nextCube != null){
 				System.out.println(" is moving" );
-				moveToAdjacent(candidateNextArray[0]-this.getCubeCoordinate()[0],
-						candidateNextArray[1]-this.getCubeCoordinate()[1],
-						candidateNextArray[2]-this.getCubeCoordinate()[2]);
+				moveToAdjacent(nextCube[0]-this.getCubeCoordinate()[0],
+						nextCube[1]-this.getCubeCoordinate()[1],
+						nextCube[2]-this.getCubeCoordinate()[2]);
 			}
 			else{
 				System.out.println("Unreachable");
-				//throw new IllegalArgumentException();
+				clearPath();
 				if (this.isExecutingTask)
 					this.getTask().interruptExecution();
 				this.setStatus(Status.DONE);
@@ -1472,7 +1609,6 @@ public class Unit {
 				this.startDefaultBehaviour();
 
 			}
-			}
 		}	
 	}
 	
@@ -1571,8 +1707,7 @@ public class Unit {
 				&& Vector.getDistance(targetPosition, startPosition)-Vector.getDistance(startPosition, this.getPosition())<=0.0){
 			setPosition(targetPosition);
 			setStatus(Status.DONE);
-			queue = new LinkedList<>();
-			queuePos = new LinkedList<>();
+			clearPath();
 			targetPosition = null;
 			setExperiencePoints(this.getExperiencePoints()+1);
 			if (this.isExecutingStatement){
@@ -2272,6 +2407,18 @@ public class Unit {
 		return enableDefaultBehaviour;
 	}
 
+	/**
+	 * Check whether this unit is idle: its default behaviour is enabled, it has nothing to do
+	 * and it is not executing a task, so it will look for a task the next time it advances time.
+	 * 
+	 * @return True if and only if this unit's default behaviour is enabled, its status is done
+	 * 			and it is not executing a task.
+	 * 		   | result == (this.isEnableDefaultBehaviour() && this.getStatus() == Status.DONE && !this.isExecutingTask)
+	 */
+	public boolean isIdle() {
+		return this.isEnableDefaultBehaviour() && this.getStatus() == Status.DONE && !this.isExecutingTask;
+	}
+
 	/**
 	 * Set the enableDefaultBehaviour of this unit to the given enableDefaultBehaviour.
 	 * 
@@ -2293,11 +2440,10 @@ public class Unit {
 	 * @effect If this unit's status is not done, its enableDefaultBehaviour is set to false.
 	 * 		 | if !(status == Status.DONE)
 	 * 		 |	then this.setEnableDefaultBehaviour(false)
-	 * @post If this unit can be assigned a task, this unit will start executing his task.
+	 * @post If this unit can claim a task, this unit will start executing his task.
+	 * 		 | potentialTask = this.getFaction().getScheduler().claimTask(this)
 	 * 		 | if (this.getFaction().getScheduler() != null && potentialTask!=null)
 	 * 		 |		then this.isExecutingTask = true;
-	 * 		 |		&& Task newTask = potentialTask;
-	 *		 |		&& newTask.setExecutingUnit(this);
 	 *		 |		&& this.isExecutingStatement = false;
 	 * @effect Else if this unit's status is done, it will conduct at random an activity:
 	 * 			 - this new unit's status is moving and this unit sprints to a random position
@@ -2319,26 +2465,20 @@ public class Unit {
 		if (this.getStatus() == Status.DONE) {
 			setEnableDefaultBehaviour(true);
 		
-			Task potentialTask = this.getFaction().getScheduler().getHighestPriorityTask
-					(this.getFaction().getScheduler().getTasksSatisfying(n->(n.getScheduledUnit()==null||n.getScheduledUnit()==this)));
+			Task potentialTask = this.getFaction().getScheduler().claimTask(this);
 
 			if (this.getFaction().getScheduler() != null && potentialTask!=null){
 				System.out.println(" start 1");
 				this.isExecutingTask = true;
-				Task newTask = potentialTask;
-				newTask.setExecutingUnit(this);
 				this.isExecutingStatement = false;
 			}
 			else{
 			//System.out.println(" 7 ");
 			List<Unit> potentialEnemies = new ArrayList<>();
-			List<int[]> potEnemyPos = this.getWorld().getNeighboringCubes(this.getCubeCoordinate());
-			potEnemyPos.add(this.getCubeCoordinate());		
-			for (int[] neighbouringCube: potEnemyPos)
-				for(Unit other: this.getWorld().getUnits(neighbouringCube)){
-					if (other.getFaction() != this.getFaction())
-						potentialEnemies.add(other);
-				}
+			int cubeIndex = this.getCubeIndex();
+			int nbNeighbours = this.getWorld().getNbNeighbours(cubeIndex);
+			addEnemiesAt(cubeIndex, potentialEnemies);
+			this.getWorld().forEachNeighbour(cubeIndex, neighbour -> addEnemiesAt(neighbour, potentialEnemies));
 			int i = 0;
 			if (! (potentialEnemies.size()==0)){
 				i = new Random().nextInt(5);
@@ -2381,13 +2521,12 @@ public class Unit {
 				}
 			}
 			else if (i == 2){
-				List<int[]> neighbouring = this.getWorld().getNeighboringCubes(this.getCubeCoordinate());
-				neighbouring.add(this.getCubeCoordinate());
-				for (int[] n:neighbouring)
-					//System.out.println(Arrays.toString(n));
-				i = new Random().nextInt(neighbouring.size());
-				//System.out.print(Arrays.toString(neighbouring.get(i)));
-				work(neighbouring.get(i));
+				// the unit works at one of its neighbouring cubes or at its own cube
+				i = new Random().nextInt(nbNeighbours + 1);
+				if (i < nbNeighbours)
+					work(this.getWorld().getCubeOfIndex(this.getWorld().getNeighbour(cubeIndex, i)));
+				else
+					work(this.getCubeCoordinate());
 			}
 			else if (i == 3){
 				rest();
@@ -2443,9 +2582,9 @@ public class Unit {
 	public boolean isExecutingStatement = false;
 	
 	/**
-	 * A variable registering the duration of a task. 
+	 * A constant registering the number of task instructions a unit may execute per millisecond of game time.
 	 */
-	private double taskTimer = 0.0;
+	public static final int INSTRUCTIONS_PER_MILLISECOND = 2;
 
 	/**
  	 * Terminate this unit.
@@ -2,18 +2,22 @@ package hillbillies.model;
 
 
 import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.part2.listener.TerrainChangeListener;
-import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.DynamicConnectedToBorder;
 import ogp.framework.util.Util;
 
 /**
@@ -35,24 +39,54 @@ public class World {
 	 * 			A matrix of the terrain types of the cubes in this new world.
 	 * @param listener
 	 * 			The terrain change listener of this new world.
-	 * @effect Set the terrain types of this new world to the given terrain types.
-	 * @post The x-dimension of this new world is equal to the length of terrain types in the x-direction.
-	 * @post The y-dimension of this new world is equal to the length of terrain types in the y-direction.
-	 * @post The z-dimension of this new world is equal to the length of terrain types in the z-direction.
-	 * @post The terrain change listener of this new world is equal to the given listener.
-	 * @post The variable connectedToBorder of this new world is initialized as a new instance of ConnectedToBorder, 
-	 * 			with the dimensions of this new world as its dimensions.
-	 * @effect Initialize the cube terrains of this new world.
+	 * @effect Initialize this new world with a chunked terrain with the given terrain types
+	 * 			and the given terrain change listener.
+	 * @post The integer matrix of terrain types of this new world is the given matrix.
+	 * @throws IllegalArgumentException
+	 * 			If the matrix of terrain types contains invalid integers
+	 * 			that do not reference terrain types (integers other than 0,1,2 and 3)
+	 */
+	public World(int[][][] terrainTypes, TerrainChangeListener listener) throws IllegalArgumentException {
+		this(new ChunkedTerrain(terrainTypes), listener);
+		this.terrainTypes = terrainTypes;
+	}
+
+	/**
+	 * Initialize this new world with given chunked terrain and terrain change listener.
 	 * 
+	 * @param terrain
+	 * 			The chunked terrain of this new world.
+	 * @param listener
+	 * 			The terrain change listener of this new world.
+	 * @effect Set the chunked terrain of this new world to the given chunked terrain.
+	 * @post The x-dimension of this new world is equal to the x-dimension of the given terrain.
+	 * @post The y-dimension of this new world is equal to the y-dimension of the given terrain.
+	 * @post The z-dimension of this new world is equal to the z-dimension of the given terrain.
+	 * @post The terrain change listener of this new world is equal to the given listener.
+	 * @post The variable connectedToBorder of this new world is initialized as a new instance of DynamicConnectedToBorder, 
+	 * 			with the dimensions of this new world as its dimensions, and it is built from the passable cubes
+	 * 			of the given terrain at the first update of the cube terrains.
+	 * @post The spatial indices of units, boulders and logs of this new world are initialized as empty
+	 * 			spatial indices, with the dimensions of this new world as their dimensions.
+	 * @throws IllegalArgumentException
+	 * 			If the given terrain is not effective.
 	 */
-	public World(int[][][] terrainTypes, TerrainChangeListener listener) {
-		this.setTerrainTypes(terrainTypes);
-		//this.terrainTypes = terrainTypes;
-		this.xDimension = terrainTypes.length;
-		this.yDimension = terrainTypes[0].length;
-		this.zDimension = terrainTypes[0][0].length;
+	public World(ChunkedTerrain terrain, TerrainChangeListener listener) throws IllegalArgumentException {
+		if (terrain == null)
+			throw new IllegalArgumentException();
+		this.setChunkedTerrain(terrain);
+		this.xDimension = terrain.getxDimension();
+		this.yDimension = terrain.getyDimension();
+		this.zDimension = terrain.getzDimension();
+		this.neighbourSteps = new int[NEIGHBOUR_OFFSETS.length];
+		for (int offset = 0; offset < NEIGHBOUR_OFFSETS.length; offset++)
+			neighbourSteps[offset] = getCubeIndex(NEIGHBOUR_OFFSETS[offset][0], NEIGHBOUR_OFFSETS[offset][1], 
+					NEIGHBOUR_OFFSETS[offset][2]);
 		this.listener = listener;
-		this.connectedToBorder = new ConnectedToBorder(this.getxDimension(),this.getyDimension(),this.getzDimension());
+		this.connectedToBorder = new DynamicConnectedToBorder(this.getxDimension(),this.getyDimension(),this.getzDimension());
+		this.unitIndex = new SpatialIndex<Unit>(this.getxDimension(),this.getyDimension(),this.getzDimension(), Unit::getPosition);
+		this.boulderIndex = new SpatialIndex<Boulder>(this.getxDimension(),this.getyDimension(),this.getzDimension(), Boulder::getPosition);
+		this.logIndex = new SpatialIndex<Log>(this.getxDimension(),this.getyDimension(),this.getzDimension(), Log::getPosition);
 		//initializeCubeTerrains();
 	}
 	
@@ -77,7 +111,7 @@ public class World {
 	 * Return the terrain of a cube with the given position in this world.
 	 * @param position
 	 * 		The position of the cube to check.
-	 * @effect Get the type of the terrain at the given position in getTerrainTypes() of this world.
+	 * @effect Get the type of the terrain at the given position in the chunked terrain of this world.
 	 * @throws IllegalArgumentException
 	 * 			If the given position is not a position inside this world.
 	 * 
@@ -85,7 +119,7 @@ public class World {
 	public TerrainType getTerrain(int[] position) throws IllegalArgumentException {
 		if (!this.isCubeInWorld(position))
 			throw new IllegalArgumentException();
-		return TerrainType.getTerrain(getTerrainTypes()[position[0]][position[1]][position[2]]);
+		return terrain.getTerrain(position[0], position[1], position[2]);
 	}
 	/**
 	 * Return the terrain type of the cube at the given double position.
@@ -106,7 +140,11 @@ public class World {
 	 * @param terrain
 	 * 		The new terraintype for the given cube.
 	 * @post The terrain type of the given cube in this new world is equal to the given terrain type.
-	 * @effect The listener of this new world is notified about the terrain change.
+	 * @effect If the terrain type of the given cube changes, the given cube is marked as dirty.
+	 * @effect If the given cube becomes a workshop, it is added to the spatial index of workshops.
+	 * 			If it stops being a workshop, it is removed from the spatial index of workshops.
+	 * @effect The listener of this new world is notified about the terrain change, immediately 
+	 * 			or at the end of the current batch of terrain changes.
 	 * @throws IllegalArgumentException
 	 * 			If the given position is not a position inside this world.
 	 * 
@@ -114,15 +152,116 @@ public class World {
 	public void setTerrain(int[] position, TerrainType terrain) throws IllegalArgumentException{
 		if (!this.isCubeInWorld(position))
 			throw new IllegalArgumentException();
-		terrainTypes[position[0]][position[1]][position[2]] = terrain.getType();
-		getListener().notifyTerrainChanged(position[0], position[1], position[2]);
+		TerrainType oldTerrain = this.terrain.getTerrain(position[0], position[1], position[2]);
+		if (oldTerrain != terrain){
+			terrainVersion++;
+			markCubeDirty(position);
+			if (terrain == TerrainType.WORKSHOP)
+				workshopIndex.add(getCubeIndex(position[0], position[1], position[2]), position, null);
+			else if (oldTerrain == TerrainType.WORKSHOP)
+				workshopIndex.remove(getCubeIndex(position[0], position[1], position[2]));
+		}
+		this.terrain.setTerrain(position[0], position[1], position[2], terrain);
+		if (standableGrid != null)
+			standableGrid.terrainChanged(position[0], position[1], position[2], oldTerrain);
+		if (terrainTypes != null)
+			terrainTypes[position[0]][position[1]][position[2]] = terrain.getType();
+		if (terrainChangeBatches > 0)
+			addPendingTerrainChange(getCubeIndex(position[0], position[1], position[2]));
+		else
+			getListener().notifyTerrainChanged(position[0], position[1], position[2]);
+	}
+
+	/**
+	 * Start a batch of terrain changes in this world.
+	 * @post Until the matching call of endTerrainChanges, the cubes of which the terrain is set are 
+	 * 			collected instead of being reported to the listener of this world one by one.
+	 */
+	void beginTerrainChanges(){
+		terrainChangeBatches++;
 	}
+
+	/**
+	 * End a batch of terrain changes in this world.
+	 * @effect If this ends the outermost batch, the listener of this world is notified once 
+	 * 			about the region of all the cubes of which the terrain was set during the batch.
+	 */
+	void endTerrainChanges(){
+		terrainChangeBatches--;
+		if (terrainChangeBatches > 0 || nbPendingTerrainChanges == 0)
+			return;
+		List<int[]> cubes = new ArrayList<>(nbPendingTerrainChanges);
+		int[] min = { getxDimension(), getyDimension(), getzDimension() };
+		int[] max = { -1, -1, -1 };
+		for (int i = 0; i < nbPendingTerrainChanges; i++){
+			pendingTerrainChangeSet.clear(pendingTerrainChanges[i]);
+			int[] cube = getCubeOfIndex(pendingTerrainChanges[i]);
+			for (int j = 0; j < 3; j++){
+				min[j] = Math.min(min[j], cube[j]);
+				max[j] = Math.max(max[j], cube[j]);
+			}
+			cubes.add(cube);
+		}
+		nbPendingTerrainChanges = 0;
+		getListener().notifyTerrainRegionChanged(min, max, cubes);
+	}
+
+	/**
+	 * Register the cube with the given index as changed during the current batch of terrain changes.
+	 * @param index
+	 * 			The index of the changed cube.
+	 * @post The given cube is one of the pending terrain changes of this world.
+	 */
+	private void addPendingTerrainChange(int index){
+		if (pendingTerrainChangeSet.get(index))
+			return;
+		pendingTerrainChangeSet.set(index);
+		if (nbPendingTerrainChanges == pendingTerrainChanges.length)
+			pendingTerrainChanges = Arrays.copyOf(pendingTerrainChanges, 2 * nbPendingTerrainChanges);
+		pendingTerrainChanges[nbPendingTerrainChanges++] = index;
+	}
+
+	/**
+	 * A variable registering the number of unfinished batches of terrain changes in this world.
+	 */
+	private int terrainChangeBatches = 0;
+
+	/**
+	 * A variable referencing an array collecting, in its first nbPendingTerrainChanges elements, the indices 
+	 * of the cubes of which the terrain was set during the current batch of terrain changes, 
+	 * in the order of their first change.
+	 * 
+	 * @invar Each index in the array is the index of a cube inside this world, and appears only once.
+	 */
+	private int[] pendingTerrainChanges = new int[16];
+
+	/**
+	 * A variable registering the number of pending terrain changes of this world.
+	 */
+	private int nbPendingTerrainChanges = 0;
+
+	/**
+	 * A bit set registering, by the index of each cube, whether it is one of the pending terrain changes of this world.
+	 * 
+	 * @invar The bits that are set are exactly the first nbPendingTerrainChanges elements of the array 
+	 * 			of pending terrain changes.
+	 */
+	private final BitSet pendingTerrainChangeSet = new BitSet();
 	
 	
 	/**
 	 * Return the integer matrix of terrain types of this world.
+	 * 
+	 * @return The matrix with the integers of the terrain types of the cubes of this world.
+	 * 			This is the matrix this world was created with or last given to setTerrainTypes. 
+	 * 			If there is no such matrix, a matrix is created from the terrain of this world at the first request, 
+	 * 			and the same matrix is returned from then on.
+	 * @note The matrix is a live view for the facades: this world keeps a reference to it 
+	 * 			and setTerrain updates it, but changing the matrix itself does not change this world.
 	 */
 	public int[][][] getTerrainTypes() {
+		if (terrainTypes == null)
+			terrainTypes = terrain.toMatrix();
 		return terrainTypes;
 	}
 
@@ -130,27 +269,110 @@ public class World {
 	 * Set the integer matrix of terrain types of this world to the given integer matrix.
 	 * @param terrainTypes
 	 * 			The terrain types for this new world.
-	 * @post This new world has the given matrix of terrain types as its terrain types.
+	 * @post This new world has the terrain types of the given matrix as its terrain types.
+	 * @post All cubes of this world are dirty.
+	 * @post The spatial index of workshops of this world contains exactly the workshop cubes 
+	 * 			of the given terrain types.
 	 * @throws IllegalArgumentException
 	 * 			If the matrix of terrain types contains invalid integers
 	 * 			that do not reference terrain types (integers other than 0,1,2 and 3)
 	 */
 	public final void setTerrainTypes(int[][][] terrainTypes) throws IllegalArgumentException {
-		for (int[][] i : terrainTypes){
-			for (int[] j: i){
-				for (int k: j){
-					if (k != 0 &&k != 1 &&k != 2&&k!= 3)
-						throw new IllegalArgumentException();
-				}
-			}
-		}
+		this.setChunkedTerrain(new ChunkedTerrain(terrainTypes));
 		this.terrainTypes = terrainTypes;
 	}
+
+	/**
+	 * Set the chunked terrain of this world to the given chunked terrain.
+	 * @param terrain
+	 * 			The chunked terrain for this world.
+	 * @post This world has the given chunked terrain as its terrain.
+	 * @post All cubes of this world are dirty, so the connected to border aspects of this world 
+	 * 			are built again from the given terrain at the next update of the cube terrains.
+	 * @post The spatial index of workshops of this world contains exactly the workshop cubes 
+	 * 			of the given terrain.
+	 * @post The standable grid of this world is created again the next time it is requested.
+	 */
+	private void setChunkedTerrain(ChunkedTerrain terrain){
+		this.terrain = terrain;
+		this.standableGrid = null;
+		this.terrainVersion++;
+		this.terrainTypes = null;
+		this.allCubesDirty = true;
+		this.workshopIndex = new SpatialIndex<Integer>(terrain.getxDimension(), terrain.getyDimension(), terrain.getzDimension(),
+				index -> getCubeCenter(getCubeOfIndex(index)));
+		for (int[] cube: terrain.getCubesOfTerrain(TerrainType.WORKSHOP))
+			workshopIndex.add(terrain.getIndex(cube[0], cube[1], cube[2]), cube, null);
+	}
 	
 	/**
-	 * An integer matrix as variable registering the terrain types of this world.
+	 * A variable registering the terrain types of this world, in chunks that are uniform until one of their cubes changes.
+	 */
+	private ChunkedTerrain terrain;
+
+	/**
+	 * Return the terrain version of this world.
+	 * @return A number that changes each time the terrain type of a cube of this world changes.
+	 */
+	long getTerrainVersion(){
+		return terrainVersion;
+	}
+
+	/**
+	 * Return the standable grid of this world.
+	 * @return The grid registering the solid neighbours of each cube of this world and the cubes 
+	 * 			a unit can stand in, which is created the first time it is requested, 
+	 * 			so worlds of which no cube is checked do not hold a count for each cube.
+	 */
+	private StandableGrid getStandableGrid(){
+		StandableGrid grid = standableGrid;
+		if (grid == null){
+			// the grid may be requested by several threads during the parallel phase of advanceTime
+			synchronized (this){
+				if (standableGrid == null)
+					standableGrid = new StandableGrid(terrain);
+				grid = standableGrid;
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * A variable referencing the grid registering the solid neighbours of each cube of this world
+	 * and the cubes a unit can stand in.
+	 */
+	private volatile StandableGrid standableGrid;
+
+	/**
+	 * A variable registering the number of terrain changes of this world.
+	 */
+	private long terrainVersion = 0;
+
+	/**
+	 * A variable referencing the integer matrix of terrain types of this world, 
+	 * or null if no matrix has been given or requested since the terrain of this world was last set.
 	 */
 	private int[][][] terrainTypes;
+
+	/**
+	 * A variable referencing a spatial index of the indices of the workshop cubes of this world.
+	 */
+	private SpatialIndex<Integer> workshopIndex;
+
+	/**
+	 * Return the workshop cube of this world nearest to the given position.
+	 * 
+	 * @param position
+	 * 			The position to search from.
+	 * @return The workshop cube of this world of which the center is at the smallest distance 
+	 * 			to the given position. Null if this world has no workshops.
+	 */
+	public Position findNearestWorkshop(double[] position){
+		Integer nearest = workshopIndex.findNearest(position, group -> true, null);
+		if (nearest == null)
+			return null;
+		return new Position(getCubeOfIndex(nearest));
+	}
 	
 	
 	/**
@@ -231,25 +453,275 @@ public class World {
 	 * 
 	 */
 	public List<int[]> getNeighboringCubes( int[] position) throws IllegalArgumentException{
-		if (!this.isCubeInWorld(position)){
-			throw new IllegalArgumentException();}
 		List<int[]> neighboringCubes = new ArrayList<int[]>();
-		for(int i =-1; i < 2; i++){
-			for (int j =-1; j<2; j++){
-				for (int k =-1; k<2; k++){
-					int[] newPosition = {position[0]+i, position[1]+j, position[2]+k};
-					if(( i!= 0 || j!=0 || k!=0)){
-						if (isCubeInWorld(newPosition))
-							neighboringCubes.add(newPosition);
-					}
-				}
-			}
-		}
+		forEachNeighbour(getCubeIndex(position), neighbour -> neighboringCubes.add(getCubeOfIndex(neighbour)));
 		return neighboringCubes;
 	}
 
+	/**
+	 * Return the index of the cube with the given coordinates.
+	 * 
+	 * @param x
+	 * 			The x-coordinate of the cube.
+	 * @param y
+	 * 			The y-coordinate of the cube.
+	 * @param z
+	 * 			The z-coordinate of the cube.
+	 * @return The index of the given cube, which is different for each cube of this world 
+	 * 			and lies between 0 and the number of cubes of this world for cubes inside this world.
+	 * 			It is the linear index of the cube in the terrain of this world, so the x-coordinate changes fastest.
+	 * 			| result == x + getxDimension() * (y + getyDimension() * z)
+	 */
+	public int getCubeIndex(int x, int y, int z){
+		return x + getxDimension() * (y + getyDimension() * z);
+	}
+
+	/**
+	 * Return the index of the given cube.
+	 * 
+	 * @param cubePosition
+	 * 			The position of the cube.
+	 * @return The index of the given cube.
+	 * 			| result == getCubeIndex(cubePosition[0], cubePosition[1], cubePosition[2])
+	 * @throws IllegalArgumentException
+	 * 			If the given position is not inside this world.
+	 */
+	public int getCubeIndex(int[] cubePosition) throws IllegalArgumentException{
+		if (!this.isCubeInWorld(cubePosition))
+			throw new IllegalArgumentException();
+		return getCubeIndex(cubePosition[0], cubePosition[1], cubePosition[2]);
+	}
+
+	/**
+	 * Return the index of the cube in which the given position is located.
+	 * 
+	 * @param position
+	 * 			A position inside this world.
+	 * @return The index of the cube in which the given position is located.
+	 * 			| result == getCubeIndex(getCubeCoordinate(position))
+	 */
+	int getCubeIndex(double[] position){
+		return getCubeIndex((int) Math.floor(position[0]/L), (int) Math.floor(position[1]/L), 
+				(int) Math.floor(position[2]/L));
+	}
 
+	/**
+	 * Check whether the given positions are located in the same cube.
+	 * 
+	 * @param position
+	 * 			A position inside this world, or null.
+	 * @param other
+	 * 			A position inside this world, or null.
+	 * @return True if and only if both positions are effective and located in the same cube.
+	 * 			| result == (position != null && other != null && getCubeIndex(position) == getCubeIndex(other))
+	 */
+	boolean isSameCube(double[] position, double[] other){
+		return position != null && other != null && getCubeIndex(position) == getCubeIndex(other);
+	}
 
+	/**
+	 * Return the position of the cube of this world with the given index.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @return The position of the cube with the given index.
+	 * 			| getCubeIndex(result) == index
+	 */
+	public int[] getCubeOfIndex(int index){
+		return new int[] { index % getxDimension(), (index / getxDimension()) % getyDimension(), 
+				index / (getxDimension() * getyDimension()) };
+	}
+
+	/**
+	 * Check whether the terrain of the cube with the given index is passable.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @return True if and only if the terrain type of the cube with the given index is passable.
+	 * 			| result == getPassable(getCubeOfIndex(index))
+	 */
+	public boolean getPassable(int index){
+		return terrain.getTerrain(index).isPassable();
+	}
+
+	/**
+	 * Perform the given action on the index of each neighbouring cube of the cube with the given index.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @param action
+	 * 			The action to perform.
+	 * @effect The action is performed on the indices of the neighbouring cubes inside this world, 
+	 * 			in the order of getNeighbour.
+	 * 			| for n in 0..getNbNeighbours(index)-1:
+	 * 			|	action.accept(getNeighbour(index, n))
+	 */
+	public void forEachNeighbour(int index, IntConsumer action){
+		int x = index % getxDimension();
+		int y = (index / getxDimension()) % getyDimension();
+		int z = index / (getxDimension() * getyDimension());
+		for (int offset = 0; offset < NEIGHBOUR_OFFSETS.length; offset++)
+			if (isNeighbourInWorld(x, y, z, offset))
+				action.accept(index + neighbourSteps[offset]);
+	}
+
+	/**
+	 * Check whether a neighbouring cube of the cube with the given index satisfies the given condition.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @param condition
+	 * 			The condition to check.
+	 * @return True if and only if the index of at least one neighbouring cube inside this world 
+	 * 			satisfies the given condition. The condition is not checked for the neighbours after the first one
+	 * 			that satisfies it.
+	 * 			| result == (for some n in 0..getNbNeighbours(index)-1: condition.test(getNeighbour(index, n)))
+	 */
+	public boolean anyNeighbour(int index, IntPredicate condition){
+		int x = index % getxDimension();
+		int y = (index / getxDimension()) % getyDimension();
+		int z = index / (getxDimension() * getyDimension());
+		for (int offset = 0; offset < NEIGHBOUR_OFFSETS.length; offset++)
+			if (isNeighbourInWorld(x, y, z, offset) && condition.test(index + neighbourSteps[offset]))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Return the number of neighbouring cubes inside this world of the cube with the given index.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @return The number of neighbouring cubes of the given cube that are inside this world, 
+	 * 			which is 26 for cubes that are not at the border of this world.
+	 */
+	public int getNbNeighbours(int index){
+		int x = index % getxDimension();
+		int y = (index / getxDimension()) % getyDimension();
+		int z = index / (getxDimension() * getyDimension());
+		return getNbCoordinates(x, getxDimension()) * getNbCoordinates(y, getyDimension()) 
+				* getNbCoordinates(z, getzDimension()) - 1;
+	}
+
+	/**
+	 * Return the index of the neighbouring cube with the given number of the cube with the given index.
+	 * 
+	 * @param index
+	 * 			The index of the cube.
+	 * @param number
+	 * 			The number of the neighbouring cube.
+	 * @return The index of a neighbouring cube inside this world of the given cube, 
+	 * 			different for each number from 0 to the number of neighbouring cubes of the given cube.
+	 * @throws IllegalArgumentException
+	 * 			If the given number is negative or not smaller than the number of neighbouring cubes of the given cube.
+	 * 			| number < 0 || number >= getNbNeighbours(index)
+	 */
+	public int getNeighbour(int index, int number) throws IllegalArgumentException{
+		int x = index % getxDimension();
+		int y = (index / getxDimension()) % getyDimension();
+		int z = index / (getxDimension() * getyDimension());
+		for (int offset = 0; offset < NEIGHBOUR_OFFSETS.length; offset++)
+			if (isNeighbourInWorld(x, y, z, offset) && number-- == 0)
+				return index + neighbourSteps[offset];
+		throw new IllegalArgumentException();
+	}
+
+	/**
+	 * Check whether the neighbour at the given offset of the cube with the given coordinates is inside this world.
+	 */
+	private boolean isNeighbourInWorld(int x, int y, int z, int offset){
+		int[] neighbourOffset = NEIGHBOUR_OFFSETS[offset];
+		return x + neighbourOffset[0] >= 0 && x + neighbourOffset[0] < getxDimension() 
+				&& y + neighbourOffset[1] >= 0 && y + neighbourOffset[1] < getyDimension()
+				&& z + neighbourOffset[2] >= 0 && z + neighbourOffset[2] < getzDimension();
+	}
+
+	/**
+	 * Return the number of coordinates from the given coordinate minus one to the given coordinate plus one
+	 * that lie between zero and the given dimension.
+	 */
+	private static int getNbCoordinates(int coordinate, int dimension){
+		return Math.min(dimension - 1, coordinate + 1) - Math.max(0, coordinate - 1) + 1;
+	}
+
+	/**
+	 * The offsets of the 26 neighbouring cubes of a cube, shared with the path finders of worlds.
+	 */
+	static final int[][] NEIGHBOUR_OFFSETS = new int[26][];
+
+	static {
+		int offset = 0;
+		for (int dx = -1; dx <= 1; dx++)
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dz = -1; dz <= 1; dz++)
+					if (dx != 0 || dy != 0 || dz != 0)
+						NEIGHBOUR_OFFSETS[offset++] = new int[] { dx, dy, dz };
+	}
+
+	/**
+	 * The difference between the index of a cube of this world and the index of its neighbour 
+	 * at each of the neighbour offsets.
+	 */
+	private final int[] neighbourSteps;
+
+
+
+
+	/**
+	 * Return the path finder of this world.
+	 * @return The path finder of this world, which is created the first time it is requested.
+	 */
+	PathFinder getPathFinder(){
+		if (pathFinder == null)
+			pathFinder = new PathFinder(this);
+		return pathFinder;
+	}
+	
+	/**
+	 * A variable referencing the path finder of this world.
+	 */
+	private PathFinder pathFinder;
+
+	/**
+	 * Borrow a path finder of this world to plan paths during the parallel phase of advanceTime.
+	 * @return A path finder of this world that is not used by any other thread until it is returned,
+	 * 			taken from the pool of planning path finders of this world, or a new one if that pool is empty.
+	 * @note Each borrowed path finder must be returned with returnPlanningPathFinder.
+	 */
+	PathFinder borrowPlanningPathFinder(){
+		synchronized (planningPathFinders){
+			PathFinder result = planningPathFinders.poll();
+			if (result != null)
+				return result;
+		}
+		return new PathFinder(this);
+	}
+
+	/**
+	 * Return the given borrowed path finder to this world.
+	 * @param pathFinder
+	 * 			The path finder to return.
+	 * @post If the pool of planning path finders of this world has less than MAX_PLANNING_PATH_FINDERS path finders,
+	 * 			the given path finder is added to it, otherwise it is dropped.
+	 */
+	void returnPlanningPathFinder(PathFinder pathFinder){
+		synchronized (planningPathFinders){
+			if (planningPathFinders.size() < MAX_PLANNING_PATH_FINDERS)
+				planningPathFinders.push(pathFinder);
+		}
+	}
+
+	/**
+	 * A variable referencing the pool of path finders of this world that are not borrowed,
+	 * used by the threads of the parallel phase of advanceTime.
+	 */
+	private final Deque<PathFinder> planningPathFinders = new ArrayDeque<PathFinder>();
+
+	/**
+	 * The maximal number of path finders kept in the pool of planning path finders of a world,
+	 * which is the number of threads that can plan paths at the same time.
+	 */
+	private static final int MAX_PLANNING_PATH_FINDERS = Runtime.getRuntime().availableProcessors();
 
 	/**
 	 * Checks if the given cube is neighboring any solid terrain cubes.
@@ -263,13 +735,42 @@ public class World {
 	public boolean isNeighboringSolidTerrain( int[] position)throws IllegalArgumentException{
 		if (!this.isCubeInWorld(position))
 			throw new IllegalArgumentException();
-		List<int[]> neighboringCubes = getNeighboringCubes(position);
-		for(int index=0; index<neighboringCubes.size(); index++){
-			if(this.getTerrain(neighboringCubes.get(index)) == TerrainType.ROCK 
-					|| this.getTerrain(neighboringCubes.get(index)) == TerrainType.TREE)
-				return true;
-		}
-		return false;
+		return getStandableGrid().isNeighbouringSolid(position[0], position[1], position[2]);
+	}
+
+	/**
+	 * Checks if the cube with the given index is neighboring any solid terrain cubes.
+	 * 
+	 * @param index
+	 * 		The index of the cube to check.
+	 * @return True if and only if at least one neighboring cube of the given cube is not passable.
+	 * 		| result == isNeighboringSolidTerrain(getCubeOfIndex(index))
+	 */
+	public boolean isNeighboringSolidTerrain(int index){
+		return getStandableGrid().isNeighbouringSolid(index);
+	}
+
+	/**
+	 * Check whether a unit can stand in the given cube.
+	 * 
+	 * @param position
+	 * 		The position to check.
+	 * @return True if and only if the given cube is passable and it is at the bottom of this world 
+	 * 			or the cube below it is not passable.
+	 * @throws IllegalArgumentException
+	 * 			If the given position is not inside this world.
+	 */
+	public boolean isStandable(int[] position) throws IllegalArgumentException{
+		if (!this.isCubeInWorld(position))
+			throw new IllegalArgumentException();
+		return getStandableGrid().isStandable(position[0], position[1], position[2]);
+	}
+
+	/**
+	 * Return the number of cubes of this world in which a unit can stand.
+	 */
+	public int getNbStandableCubes(){
+		return getStandableGrid().getNbStandableCubes();
 	}
 
 
@@ -294,32 +795,33 @@ public class World {
 	 * @effect This unit is been initialized with random name, position, weight, strength,
 	 * 		agility, toughness, hitpoints, stamina points and orientation and with the given state of default behavior.
 	 * @effect If the maximum number units is not yet reached for this world, this unit is added to this world.
-	 */
-	public Unit spawnUnit(boolean enableDefaultBehavior){
-		int randomToughness = new Random().nextInt(76)+25;
-		int randomAgility = new Random().nextInt(76)+25;
-		int randomStrength = new Random().nextInt(76)+25;
-		int randomWeight = new Random().nextInt(101-((randomAgility+randomStrength)/2))+((randomAgility+randomStrength)/2);
-		double randomHitpoints = (double) new Random().nextInt(((int) Math.ceil(200.0*(randomWeight/100.0)*(randomToughness/100.0))))+1;
-		double randomStaminaPoints = (double) new Random().nextInt(((int) Math.ceil(200.0*(randomWeight/100.0)*(randomToughness/100.0))))+1;
-		boolean validPosFound = false;
-		double[] pos = new double[]{};
-		while (!validPosFound){
-			pos = getCubeCenter(getCubeCoordinate(new double[] { (new Random().nextDouble()) * getxDimension()*L, 
-					(new Random().nextDouble()) * this.getyDimension()*L,(new Random().nextDouble()) * getzDimension()*L }));
-			if (this.isCubeInWorld(this.getCubeCoordinate(pos)) && this.getPassable(this.getCubeCoordinate(pos))
-					&& ((int) Math.floor(pos[2]) == 0 ||
-					!this.getPassable(getCubeCoordinate(new double[] {pos[0],pos[1],pos[2]-1.0}))))
-				validPosFound = true;
-		}
+	 * @throws IllegalStateException
+	 * 			If this world has no cube in which a unit can stand.
+	 */
+	public Unit spawnUnit(boolean enableDefaultBehavior) throws IllegalStateException{
+		int randomToughness = random.nextInt(76)+25;
+		int randomAgility = random.nextInt(76)+25;
+		int randomStrength = random.nextInt(76)+25;
+		int randomWeight = random.nextInt(101-((randomAgility+randomStrength)/2))+((randomAgility+randomStrength)/2);
+		double randomHitpoints = (double) random.nextInt(((int) Math.ceil(200.0*(randomWeight/100.0)*(randomToughness/100.0))))+1;
+		double randomStaminaPoints = (double) random.nextInt(((int) Math.ceil(200.0*(randomWeight/100.0)*(randomToughness/100.0))))+1;
+		int[] cube = getStandableGrid().getRandomStandableCube(random);
+		if (cube == null)
+			throw new IllegalStateException();
+		double[] pos = getCubeCenter(cube);
 		Unit spawnUnit = new Unit(randomName(), pos, 
 				randomWeight,randomStrength, randomAgility,randomToughness,enableDefaultBehavior,
-				randomHitpoints,randomStaminaPoints,new Random().nextDouble()*360);
+				randomHitpoints,randomStaminaPoints,random.nextDouble()*360);
 		if (this.getNumberUnits()<MAX_UNITS)
 			addAsUnit(spawnUnit);
 		return spawnUnit;
 	}
 
+	/**
+	 * A variable referencing the random generator used for spawning units and caving in cubes of this world.
+	 */
+	private final Random random = new Random();
+
 	/**
 	 * Create a random name for a unit.
 	 * 
@@ -330,11 +832,11 @@ public class World {
 	private String randomName(){
 		String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz \'\"";
 		StringBuilder name = new StringBuilder();
-		int Length = new Random().nextInt(9)+2;
-		char character = characters.charAt(new Random().nextInt(26));
+		int Length = random.nextInt(9)+2;
+		char character = characters.charAt(random.nextInt(26));
 		name.append(character);
 		for( int i = 0; i < Length; i++ ){ 
-		      name.append( characters.charAt(new Random().nextInt(characters.length()) ) );
+		      name.append( characters.charAt(random.nextInt(characters.length()) ) );
 		}
 		return name.toString();
 	}
@@ -450,6 +952,7 @@ public class World {
 	 * 		the given unit is no longer attached to any world.
 	 * @effect If this world has the given unit as one of its units, 
 	 * 			the unit is removed from this new worlds unitmap at the units position.
+	 * @effect If this world has the given unit as one of its units, the unit is removed from the spatial index of units.
 	 * @effect If this world has the given unit as one of its units, the unit is removed from its faction.
 	 * @effect If this world has the given unit as one of its units,
 	 * 		the given unit is removed from the set of units attached to its faction.
@@ -462,6 +965,7 @@ public class World {
 		if (hasAsUnit(unit)){
 			this.units.remove(unit);
 			this.removeUnitFromUnitsAtCubeMap(unit);
+			this.unitIndex.remove(unit);
 			unit.setWorld(null);
 			unit.getFaction().removeAsUnit(unit);
 		}
@@ -502,12 +1006,18 @@ public class World {
 	public Set<Unit> getUnits(int[] position)throws IllegalArgumentException{
 		if (!this.isCubeInWorld(position))
 			throw new IllegalArgumentException();
-		if (unitsAtCubeMap.get(new Position(position))==null){
-			return new HashSet<>();
-		}
-		else{
-			return unitsAtCubeMap.get(new Position(position));
-		}
+		return unitsAtCubeMap.get(getCubeIndex(position));
+	}
+
+	/**
+	 * Return a set of units in this world that are located in the cube with the given index.
+	 * @param index
+	 * 		The index of the cube.
+	 * @return All the units in this world in the cube with the given index.
+	 * 		| result == getUnits(getCubeOfIndex(index))
+	 */
+	public Set<Unit> getUnits(int index){
+		return unitsAtCubeMap.get(index);
 	}
 
 	/**
@@ -516,23 +1026,28 @@ public class World {
 	 * @param unit
 	 * 			The unit to add to the unit map.
 	 * @post The given unit is added to the unitmap of this world, with its cube position as its key.
+	 * @effect The given unit is added to the spatial index of units at its cube position, in its faction.
 	 * @throws IllegalArgumentException
 	 * 			If the given unit is not attached to this world.
 	 */
 	void addUnitToUnitsAtCubeMap(Unit unit) throws IllegalArgumentException{
 		if (!this.hasAsUnit(unit))
 			throw new IllegalArgumentException();
-		Set<Unit> unitsAtCube = this.unitsAtCubeMap.get(new Position(unit.getCubeCoordinate()));
-		if ( unitsAtCube != null){
-			unitsAtCube.add(unit);
-			this.unitsAtCubeMap.put(new Position(unit.getCubeCoordinate()),unitsAtCube);
-		}
-		else{
-			unitsAtCube = new HashSet<Unit>();
-			unitsAtCube.add(unit);
-			this.unitsAtCubeMap.put(new Position(unit.getCubeCoordinate()),unitsAtCube);
-	
-		}
+		this.unitsAtCubeMap.add(getCubeIndex(unit.getPosition()), unit);
+		this.unitIndex.add(unit, unit.getCubeCoordinate(), unit.getFaction());
+	}
+
+	/**
+	 * Update the faction of the given unit in the spatial index of units.
+	 * 
+	 * @param unit
+	 * 			The unit of which the faction has changed.
+	 * @effect If this world has the given unit as one of its units, the given unit is added 
+	 * 			to the spatial index of units at its cube position, in its faction.
+	 */
+	void updateUnitFaction(Unit unit){
+		if (this.hasAsUnit(unit))
+			this.unitIndex.add(unit, unit.getCubeCoordinate(), unit.getFaction());
 	}
 
 	/**
@@ -546,26 +1061,58 @@ public class World {
 	 * 			If the given unit is not attached to this world.
 	 */
 	void removeUnitFromUnitsAtCubeMap(Unit unit){
-		Set<Unit> unitsAtCube = this.unitsAtCubeMap.get(new Position(unit.getCubeCoordinate()));
-		if (unitsAtCube.contains(unit)){
-			unitsAtCube.remove(unit);
-			if (unitsAtCube.isEmpty())
-				unitsAtCubeMap.remove(new Position(unit.getCubeCoordinate()));
-			else{
-				unitsAtCubeMap.replace(new Position(unit.getCubeCoordinate()), unitsAtCube);
-			}
-		}
+		this.unitsAtCubeMap.remove(getCubeIndex(unit.getPosition()), unit);
 	}
 	
 	/**
-	 * A variable referencing a map collecting the sets of units of this world with their cube position as keys.
+	 * A variable referencing a map collecting the units of this world with the index of their cube as keys.
 	 * 
 	 * @invar The map is effective
-     * @invar   Each key registered in the map is an effective
-     *          Position.
-	 * @invar Each unit in a set associated with a position is a valid unit for this world.
+	 * @invar Each unit in a set associated with a cube is a valid unit for this world.
 	 */
-	private Map<Position,Set<Unit>> unitsAtCubeMap = new HashMap<Position, Set<Unit>>();
+	private final CubeOccupancy<Unit> unitsAtCubeMap = new CubeOccupancy<Unit>();
+
+	/**
+	 * A variable referencing a spatial index of the units of this world, grouped by their faction.
+	 */
+	private final SpatialIndex<Unit> unitIndex;
+
+	/**
+	 * Return the unit of this world nearest to the given unit, different from the given unit.
+	 * 
+	 * @param unit
+	 * 			The unit to search from.
+	 * @return The unit of this world, different from the given unit, 
+	 * 			at the smallest distance to the position of the given unit. Null if there is no such unit.
+	 */
+	public Unit findNearestUnit(Unit unit){
+		return this.unitIndex.findNearest(unit.getPosition(), faction -> true, unit);
+	}
+
+	/**
+	 * Return the unit of this world nearest to the given unit, different from the given unit, 
+	 * in the same faction as the given unit.
+	 * 
+	 * @param unit
+	 * 			The unit to search from.
+	 * @return The unit of this world of the faction of the given unit, different from the given unit, 
+	 * 			at the smallest distance to the position of the given unit. Null if there is no such unit.
+	 */
+	public Unit findNearestFriend(Unit unit){
+		return this.unitIndex.findNearest(unit.getPosition(), faction -> faction == unit.getFaction(), unit);
+	}
+
+	/**
+	 * Return the unit of this world nearest to the given unit, in another faction than the given unit.
+	 * 
+	 * @param unit
+	 * 			The unit to search from.
+	 * @return The unit of this world not of the faction of the given unit, 
+	 * 			at the smallest distance to the position of the given unit. Null if there is no such unit.
+	 */
+	public Unit findNearestEnemy(Unit unit){
+		return this.unitIndex.findNearest(unit.getPosition(), faction -> faction != unit.getFaction(), unit);
+	}
 
 
 	/**
@@ -826,6 +1373,7 @@ public class World {
 	 * @post If this world has the given boulder as one of its boulders,
 	 * 		the given boulder is no longer attached to any world.
 	 * @effect the given boulder is removed from the map of boulders at its position
+	 * @effect the given boulder is removed from the spatial index of boulders
 	 * @throws IllegalArgumentException
 	 * 		If the given boulder is not effective.
 	 */
@@ -835,6 +1383,7 @@ public class World {
 		if (hasAsBoulder(boulder)){
 			this.boulders.remove(boulder);
 			this.removeBoulderFromBouldersAtCubeMap(boulder);
+			this.boulderIndex.remove(boulder);
 			boulder.setWorld(null);
 		}
 	}
@@ -849,11 +1398,7 @@ public class World {
 	public Set<Boulder> getBoulders(int[] position)throws IllegalArgumentException{
 		if (!this.isCubeInWorld(position))
 			throw new IllegalArgumentException();
-		if (bouldersAtCubeMap.get(new Position(position))==null)
-			return new HashSet<>();
-		else{
-			return bouldersAtCubeMap.get(new Position(position));
-		}
+		return bouldersAtCubeMap.get(getCubeIndex(position));
 	}
 	
 	/**
@@ -862,6 +1407,7 @@ public class World {
 	 * @param boulder
 	 * 			The boulder to add to the boulder map.
 	 * @post The given boulder is added to the bouldermap of this world, with its cube position as its key in the map
+	 * @effect The given boulder is added to the spatial index of boulders at its cube position.
 	 * @throws IllegalArgumentException
 	 * 			If the given boulder is not attached to this world.
 	 */
@@ -869,16 +1415,8 @@ public class World {
 		if(!this.hasAsBoulder(boulder))
 			throw new IllegalArgumentException();
 
-		Set<Boulder> bouldersAtCube = this.bouldersAtCubeMap.get(new Position(boulder.getCubeCoordinate()));
-		if ( bouldersAtCube != null){
-			bouldersAtCube.add(boulder);
-			this.bouldersAtCubeMap.put(new Position(boulder.getCubeCoordinate()),bouldersAtCube);
-		}
-		else{
-			bouldersAtCube = new HashSet<Boulder>();
-			bouldersAtCube.add(boulder);
-			this.bouldersAtCubeMap.put(new Position(boulder.getCubeCoordinate()),bouldersAtCube);
-		}
+		this.bouldersAtCubeMap.add(getCubeIndex(boulder.getPosition()), boulder);
+		this.boulderIndex.add(boulder, boulder.getCubeCoordinate(), null);
 	}
 
 
@@ -894,25 +1432,32 @@ public class World {
 	 * 			If the given boulder is not attached to this world.
 	 */
 	void removeBoulderFromBouldersAtCubeMap(Boulder boulder){
-		Set<Boulder> bouldersAtCube = this.bouldersAtCubeMap.get(new Position(boulder.getCubeCoordinate()));
-		if (bouldersAtCube.contains(boulder)){
-			bouldersAtCube.remove(boulder);
-			if (bouldersAtCube.isEmpty())
-				bouldersAtCubeMap.remove(new Position(boulder.getCubeCoordinate()));
-			else{
-				bouldersAtCubeMap.replace(new Position(boulder.getCubeCoordinate()), bouldersAtCube);
-			}
-		}
+		this.bouldersAtCubeMap.remove(getCubeIndex(boulder.getPosition()), boulder);
 	}
 	/**
-	 * A variable referencing a map collecting the sets of boulders of this world with their cube position as keys.
+	 * A variable referencing a map collecting the boulders of this world with the index of their cube as keys.
 	 * 
 	 * @invar The map is effective
-     * @invar   Each key registered in the map is an effective
-     *          Position.
-	 * @invar Each boulder in a set associated with a position is a valid boulder for this world.
+	 * @invar Each boulder in a set associated with a cube is a valid boulder for this world.
+	 */
+	private final CubeOccupancy<Boulder> bouldersAtCubeMap = new CubeOccupancy<Boulder>();
+
+	/**
+	 * A variable referencing a spatial index of the boulders of this world.
+	 */
+	private final SpatialIndex<Boulder> boulderIndex;
+
+	/**
+	 * Return the boulder of this world nearest to the given position.
+	 * 
+	 * @param position
+	 * 			The position to search from.
+	 * @return The boulder of this world at the smallest distance to the given position. 
+	 * 			Null if this world has no boulders.
 	 */
-	private Map<Position,Set<Boulder>> bouldersAtCubeMap = new HashMap<Position,Set<Boulder>>();
+	public Boulder findNearestBoulder(double[] position){
+		return this.boulderIndex.findNearest(position, group -> true, null);
+	}
 
 	/**
 	 * Variable referencing a set collecting references to boulders attached to this world.
@@ -1022,6 +1567,7 @@ public class World {
 		if (hasAsLog(log)){
 			this.logs.remove(log);
 			this.removeLogFromLogsAtCubeMap(log);
+			this.logIndex.remove(log);
 			log.setWorld(null);
 		}
 	}
@@ -1038,11 +1584,7 @@ public class World {
 		if (!this.isCubeInWorld(position)){
 			throw new IllegalArgumentException();
 		}
-		if (logsAtCubeMap.get(new Position(position))==null)
-			return new HashSet<>();
-		else{
-			return logsAtCubeMap.get(new Position(position));
-		}
+		return logsAtCubeMap.get(getCubeIndex(position));
 	}
 	
 	/**
@@ -1051,23 +1593,15 @@ public class World {
 	 * @param log
 	 * 			The log to add to the log map.
 	 * @post The given log is added to the log map of this world, with its cube position as its key in the map.
+	 * @effect The given log is added to the spatial index of logs at its cube position.
 	 * @throws IllegalArgumentException
 	 * 			If the given log is not attached to this world.
 	 */
 	void addLogToLogsAtCubeMap(Log log) throws IllegalArgumentException{
 		if(!this.hasAsLog(log))
 			throw new IllegalArgumentException();
-		Set<Log> logsAtCube = this.logsAtCubeMap.get(new Position(log.getCubeCoordinate()));
-		if ( logsAtCube != null){
-			logsAtCube.add(log);
-			this.logsAtCubeMap.put(new Position(log.getCubeCoordinate()),logsAtCube);
-		}
-		else{
-			logsAtCube = new HashSet<Log>();
-			logsAtCube.add(log);
-			this.logsAtCubeMap.put(new Position(log.getCubeCoordinate()),logsAtCube);
-
-		}
+		this.logsAtCubeMap.add(getCubeIndex(log.getPosition()), log);
+		this.logIndex.add(log, log.getCubeCoordinate(), null);
 	}
 
 	/**
@@ -1081,26 +1615,33 @@ public class World {
 	 * 			If the given log is not attached to this world.
 	 */
 	void removeLogFromLogsAtCubeMap(Log log){
-		Set<Log> logsAtCube = this.logsAtCubeMap.get(new Position(log.getCubeCoordinate()));
-		if (logsAtCube.contains(log)){
-			logsAtCube.remove(log);
-			if (logsAtCube.isEmpty())
-				logsAtCubeMap.remove(new Position(log.getCubeCoordinate()));
-			else{
-				logsAtCubeMap.replace(new Position(log.getCubeCoordinate()), logsAtCube);
-			}
-		}
+		this.logsAtCubeMap.remove(getCubeIndex(log.getPosition()), log);
 	}
 	
 	/**
-	 * A variable referencing a map collecting the sets of logs of this world with their cube position as keys.
+	 * A variable referencing a map collecting the logs of this world with the index of their cube as keys.
 	 * 
 	 * @invar The map is effective
-     * @invar   Each key registered in the map is an effective
-     *          Position.
-	 * @invar Each log in a set associated with a position is a valid log for this world.
+	 * @invar Each log in a set associated with a cube is a valid log for this world.
+	 */
+	private final CubeOccupancy<Log> logsAtCubeMap = new CubeOccupancy<Log>();
+
+	/**
+	 * A variable referencing a spatial index of the logs of this world.
 	 */
-	private Map<Position,Set<Log>> logsAtCubeMap = new HashMap<Position,Set<Log>>();
+	private final SpatialIndex<Log> logIndex;
+
+	/**
+	 * Return the log of this world nearest to the given position.
+	 * 
+	 * @param position
+	 * 			The position to search from.
+	 * @return The log of this world at the smallest distance to the given position. 
+	 * 			Null if this world has no logs.
+	 */
+	public Log findNearestLog(double[] position){
+		return this.logIndex.findNearest(position, group -> true, null);
+	}
 
 	/**
 	 * Variable referencing a set collecting references to logs attached to this world.
@@ -1131,31 +1672,17 @@ public class World {
 		list.add(terrainType);
 		
 		List<Unit> unitList= new ArrayList<Unit>();
-		if(unitsAtCubeMap.get(new Position(position)) !=null){
-			for (Unit unit:unitsAtCubeMap.get(new Position(position))){
-				unitList.add(unit);
-			}
-		}
+		unitList.addAll(unitsAtCubeMap.get(getCubeIndex(position)));
 		list.add(unitList);
 		
 		List<Log> logList= new ArrayList<Log>();
-		if(logsAtCubeMap.get(new Position(position)) !=null){
-
-		for (Log log:logsAtCubeMap.get(new Position(position))){
-			logList.add(log);
-		}
-		}
+		logList.addAll(logsAtCubeMap.get(getCubeIndex(position)));
 		
 		list.add(logList);
 
 		
 		List<Boulder> boulderList= new ArrayList<Boulder>();
-		if(bouldersAtCubeMap.get(new Position(position)) !=null){
-
-		for (Boulder boulder:bouldersAtCubeMap.get(new Position(position))){
-			boulderList.add(boulder);
-		}
-		}
+		boulderList.addAll(bouldersAtCubeMap.get(getCubeIndex(position)));
 		list.add(boulderList);
 	
 		return list;
@@ -1248,23 +1775,130 @@ public class World {
 	/**
 	 * A variable registering the connected to border aspects of this world.
 	 */
-	protected ConnectedToBorder connectedToBorder;
+	protected DynamicConnectedToBorder connectedToBorder;
+
+	/**
+	 * Mark the given cube as dirty, so that it is checked again at the next update of the cube terrains.
+	 * @param position
+	 * 			The position of the cube to mark.
+	 * @post The given cube is one of the dirty cubes of this world.
+	 */
+	private void markCubeDirty(int[] position){
+		markCubeDirty(getCubeIndex(position[0], position[1], position[2]));
+	}
+
+	/**
+	 * Mark the cube with the given index as dirty, so that it is checked again at the next update of the cube terrains.
+	 * @param index
+	 * 			The index of the cube to mark.
+	 * @post The given cube is one of the dirty cubes of this world.
+	 */
+	private void markCubeDirty(int index){
+		if (dirtyCubeSet.get(index))
+			return;
+		dirtyCubeSet.set(index);
+		if (nbDirtyCubes == dirtyCubes.length)
+			dirtyCubes = Arrays.copyOf(dirtyCubes, 2 * nbDirtyCubes);
+		dirtyCubes[nbDirtyCubes++] = index;
+	}
+
+	/**
+	 * Make all the cubes of this world clean.
+	 * @post No cube of this world is dirty.
+	 */
+	private void clearDirtyCubes(){
+		for (int i = 0; i < nbDirtyCubes; i++)
+			dirtyCubeSet.clear(dirtyCubes[i]);
+		nbDirtyCubes = 0;
+	}
+
+	/**
+	 * A variable referencing an array collecting, in its first nbDirtyCubes elements, the indices of the cubes 
+	 * of which the connection to the border could have changed since the last update of the cube terrains.
+	 * 
+	 * @invar Each index in the array is the index of a cube inside this world, and appears only once.
+	 */
+	private int[] dirtyCubes = new int[16];
+
+	/**
+	 * A variable registering the number of dirty cubes of this world.
+	 */
+	private int nbDirtyCubes = 0;
 
 	/**
-	 * Update all the cube terrains of connectedToBorder.
-	 * @effect Update all the cubes that are not solid and connected to border in connectedToBorder,
-	 * 			from solid to passable.
+	 * A bit set registering, by the index of each cube, whether it is one of the dirty cubes of this world.
+	 * 
+	 * @invar The bits that are set are exactly the first nbDirtyCubes elements of the array of dirty cubes.
+	 */
+	private final BitSet dirtyCubeSet = new BitSet();
+	
+	/**
+	 * A variable registering whether all the cubes of this world must be checked
+	 * at the next update of the cube terrains.
+	 */
+	private boolean allCubesDirty = false;
+
+	/**
+	 * Update the dirty cube terrains of connectedToBorder.
+	 * @effect Each dirty cube that is passable in this world is changed from solid to passable in connectedToBorder,
+	 * 			and the cubes that are no longer connected to the border by this change cave in.
+	 * @effect Each dirty cube that is solid in this world is changed from passable to solid in connectedToBorder,
+	 * 			and caves in if it is not connected to the border.
+	 * @effect If all the cubes of this world are dirty, connectedToBorder is built again from the passable cubes 
+	 * 			of this world, and all the solid cubes that are not connected to the border cave in.
+	 * @post Only the cubes that became dirty during this update are dirty.
 	 */
 	void updateCubeTerrains(){
-		for (int x=0; x < getxDimension(); x ++){
-			for (int y=0; y< getyDimension(); y++){
-				for (int z=0; z < getzDimension() ; z ++){
-					if (! connectedToBorder.isSolidConnectedToBorder(x, y, z)){
-						solidToPassableUpdate(new int[] {x,y,z});
-						}
-					}
-				}
-			}
+		if (allCubesDirty){
+			allCubesDirty = false;
+			clearDirtyCubes();
+			connectedToBorder = new DynamicConnectedToBorder(getxDimension(), getyDimension(), getzDimension());
+			for (int x=0; x < getxDimension(); x ++)
+				for (int y=0; y< getyDimension(); y++)
+					for (int z=0; z < getzDimension() ; z ++)
+						if (terrain.getTerrain(x, y, z).isPassable())
+							connectedToBorder.changeSolidToPassable(x, y, z);
+			for (int x=0; x < getxDimension(); x ++)
+				for (int y=0; y< getyDimension(); y++)
+					for (int z=0; z < getzDimension() ; z ++)
+						if (! terrain.getTerrain(x, y, z).isPassable() && ! connectedToBorder.isSolidConnectedToBorder(x, y, z))
+							solidToPassableUpdate(new int[] {x,y,z});
+			clearDirtyCubes();
+			return;
+		}
+		int nbToUpdate = nbDirtyCubes;
+		for (int i = 0; i < nbToUpdate; i++)
+			dirtyCubeSet.clear(dirtyCubes[i]);
+		for (int i = 0; i < nbToUpdate; i++)
+			updateDirtyCube(dirtyCubes[i]);
+		// the cubes that became dirty during this update stay dirty, at the front of the array
+		System.arraycopy(dirtyCubes, nbToUpdate, dirtyCubes, 0, nbDirtyCubes - nbToUpdate);
+		nbDirtyCubes -= nbToUpdate;
+	}
+
+	/**
+	 * Update the connection to the border of the dirty cube with the given index.
+	 * @param index
+	 * 			The index of the dirty cube.
+	 * @effect If the given cube is passable, it is changed from solid to passable in connectedToBorder 
+	 * 			and the cubes that are no longer connected to the border by this change cave in.
+	 * @effect If the given cube is solid, it is changed from passable to solid in connectedToBorder, 
+	 * 			and it caves in if it is not connected to the border.
+	 */
+	private void updateDirtyCube(int index){
+		int x = index % getxDimension();
+		int y = (index / getxDimension()) % getyDimension();
+		int z = index / (getxDimension() * getyDimension());
+		if (getPassable(index)){
+			List<int[]> disconnected = connectedToBorder.changeSolidToPassable(x, y, z);
+			if (! disconnected.isEmpty())
+				caveIn(null, disconnected);
+		}
+		else {
+			connectedToBorder.changePassableToSolid(x, y, z);
+			if (! connectedToBorder.isSolidConnectedToBorder(x, y, z))
+				solidToPassableUpdate(new int[] {x, y, z});
+		}
 	}
 	
 	/**
@@ -1277,36 +1911,117 @@ public class World {
 	 * @post If the terrain of the given position is tree, the terrain type is changed to air
 	 * 			and a log can appear in the given position.
 	 * @effect For all positions neighboring the given position, if these positions are 
-	 * 			not connected to the borders of this world anymore, they are updated to passable cubes (with this method).
+	 * 			not connected to the borders of this world anymore, they are marked as dirty 
+	 * 			and updated to passable cubes in the same way, until no more cubes cave in.
+	 * @effect The boulders and logs appearing in the caved in cubes are added to this world
+	 * 			after all the cubes have caved in.
+	 * @effect The terrain changes are reported to the listener of this world as one batch.
+	 * @note The cubes caving in are processed with a worklist instead of recursively, 
+	 * 			so large regions can cave in at once. A cube that caved in because it was disconnected 
+	 * 			is made passable without searching its disconnected region again.
 	 */
 	protected void solidToPassableUpdate(int[] position){
-		List<int[]> toChange = connectedToBorder.changeSolidToPassable(position[0],position[1],position[2]);
-		if (new Random().nextDouble() <= 0.25){
-			if (getTerrain(position) == TerrainType.ROCK){
-				setTerrain(position,TerrainType.AIR);
-				Boulder boulder = new Boulder(position);
-				addAsBoulder(boulder);
-			}
-			if (getTerrain(position) == TerrainType.TREE){
-				setTerrain(position,TerrainType.AIR);
-				Log log = new Log(position);
-				addAsLog(log);
+		caveIn(position, Collections.<int[]>emptyList());
+	}
+
+	/**
+	 * Let the given cube and the given cubes that are no longer connected to the border cave in.
+	 * @param root
+	 * 			The cube to make passable first, or null.
+	 * @param disconnectedCubes
+	 * 			Cubes that connectedToBorder has reported as no longer connected to the border.
+	 * @effect The given cube, if effective, and the given disconnected cubes are updated to passable cubes 
+	 * 			as described for solidToPassableUpdate, and so are the cubes that become disconnected in turn.
+	 */
+	private void caveIn(int[] root, List<int[]> disconnectedCubes){
+		beginTerrainChanges();
+		try {
+			List<int[]> boulderCubes = new ArrayList<>();
+			List<int[]> logCubes = new ArrayList<>();
+			if (root != null)
+				queueCaveIn(getCubeIndex(root));
+			for (int[] disconnectedCube: disconnectedCubes)
+				queueCaveIn(getCubeIndex(disconnectedCube));
+			for (int next = 0; next < nbCaveIns; next++){
+				int[] cube = getCubeOfIndex(caveIns[next]);
+				boolean disconnected = root == null || next > 0;
+				List<int[]> toChange = Collections.emptyList();
+				if (! disconnected || ! connectedToBorder.changeDisconnectedToPassable(cube[0], cube[1], cube[2]))
+					toChange = connectedToBorder.changeSolidToPassable(cube[0], cube[1], cube[2]);
+				for (int[] positionToChange: toChange)
+					queueCaveIn(getCubeIndex(positionToChange));
+				if (random.nextDouble() <= 0.25){
+					if (getTerrain(cube) == TerrainType.ROCK)
+						boulderCubes.add(cube);
+					else if (getTerrain(cube) == TerrainType.TREE)
+						logCubes.add(cube);
+				}
+				setTerrain(cube, TerrainType.AIR);
 			}
+			for (int[] boulderCube: boulderCubes)
+				addAsBoulder(new Boulder(boulderCube));
+			for (int[] logCube: logCubes)
+				addAsLog(new Log(logCube));
+		} finally {
+			for (int i = 0; i < nbCaveIns; i++)
+				caveInSet.clear(caveIns[i]);
+			nbCaveIns = 0;
+			endTerrainChanges();
 		}
-		setTerrain(position,TerrainType.AIR);
-		for (int[] positionToChange: toChange){
-			solidToPassableUpdate(positionToChange);
-		}
 	}
+
+	/**
+	 * Queue the cube with the given index to cave in, unless it was queued before during the current cave-in.
+	 * @param index
+	 * 			The index of the cube.
+	 * @post The given cube is one of the queued cave-ins of this world.
+	 */
+	private void queueCaveIn(int index){
+		if (caveInSet.get(index))
+			return;
+		caveInSet.set(index);
+		if (nbCaveIns == caveIns.length)
+			caveIns = Arrays.copyOf(caveIns, 2 * nbCaveIns);
+		caveIns[nbCaveIns++] = index;
+	}
+
+	/**
+	 * A variable referencing an array collecting, in its first nbCaveIns elements, the indices of the cubes 
+	 * queued to cave in during the current cave-in, in the order in which they cave in.
+	 * 
+	 * @invar Each index in the array is the index of a cube inside this world, and appears only once.
+	 */
+	private int[] caveIns = new int[16];
+
+	/**
+	 * A variable registering the number of queued cave-ins of this world.
+	 */
+	private int nbCaveIns = 0;
+
+	/**
+	 * A bit set registering, by the index of each cube, whether it is one of the queued cave-ins of this world.
+	 * 
+	 * @invar The bits that are set are exactly the first nbCaveIns elements of the array of queued cave-ins.
+	 */
+	private final BitSet caveInSet = new BitSet();
 	
 	/**
 	 * Advance time for this world. Update the position and activity status of all the logs, boulders and units in this world.
 	 * @param duration
 	 *         The game time after which advanceTime is called.
-	 * @effect Update the cube terrains of this world.
+	 * @effect Update the dirty cube terrains of this world.
+	 * @effect The scheduler of each active faction assigns its tasks to the idle units of that faction.
+	 *         | for each faction in getActiveFactions():
+	 *         |	faction.getScheduler().assignTasks({unit in faction.getUnits() | unit.isIdle()})
+	 * @effect If the tick of this world is parallel, all units first plan the path they need
+	 *         in parallel, before they advance time one after another.
+	 *         | if (isParallelTick())
+	 *         |	then for each unit in listAllUnits(): unit.planPath(duration)
 	 * @effect Advance time for all the units in this world.
 	 * @effect Advance time for all the boulders in this world.
 	 * @effect Advance time for all the logs in this world.
+	 * @effect The terrain changes made while advancing time are reported to the listener of this world
+	 * 			at once, at the end of this tick.
 	 * @throws IllegalArgumentException
 	 * 			If the duration is not valid, not between 0 and 0.2.
 	 */
@@ -1314,21 +2029,109 @@ public class World {
 		if (!(Util.fuzzyGreaterThanOrEqualTo(duration, 0.0-Util.DEFAULT_EPSILON )&& Util.fuzzyLessThanOrEqualTo((double)duration, 0.2+Util.DEFAULT_EPSILON))){
 			throw new IllegalArgumentException();
 		}
-		updateCubeTerrains();
-		if (!listAllUnits().isEmpty()){
-			for (Unit unit : this.listAllUnits()){
-				unit.advanceTime((float)duration);
+		beginTerrainChanges();
+		try {
+			long time = System.nanoTime();
+			updateCubeTerrains();
+			for (Faction faction : getActiveFactions())
+				faction.refillInstructionBudget(duration);
+			time = addPhaseTime(TickPhase.TERRAIN, time);
+			for (Faction faction : getActiveFactions()){
+				List<Unit> idleUnits = new ArrayList<>();
+				for (Unit unit : faction.getUnits())
+					if (unit.isIdle())
+						idleUnits.add(unit);
+				faction.getScheduler().assignTasks(idleUnits);
 			}
+			time = addPhaseTime(TickPhase.ASSIGNMENT, time);
+			if (isParallelTick() && listAllUnits().size() > 1)
+				listAllUnits().parallelStream().forEach(unit -> unit.planPath(duration));
+			time = addPhaseTime(TickPhase.PLANNING, time);
+			if (!listAllUnits().isEmpty()){
+				for (Unit unit : this.listAllUnits()){
+					unit.advanceTime((float)duration);
+				}
+			}
+			time = addPhaseTime(TickPhase.UNITS, time);
+			for (Boulder boulder: boulders){
+				boulder.advanceTime((float) duration);
+			}
+			time = addPhaseTime(TickPhase.BOULDERS, time);
+			for (Log log: logs){
+				log.advanceTime((float) duration);
+			}
+			time = addPhaseTime(TickPhase.LOGS, time);
+			updateCubeTerrains();
+			addPhaseTime(TickPhase.TERRAIN, time);
+		} finally {
+			endTerrainChanges();
 		}
-		for (Boulder boulder: boulders){
-			boulder.advanceTime((float) duration);
-		}
-		for (Log log: logs){
-			log.advanceTime((float) duration);
-		}
-		updateCubeTerrains();
 	}
 
+	/**
+	 * Return the time spent in the given phase of advancing time in this world, expressed in seconds of wall-clock time.
+	 * @param phase
+	 * 		The phase to return the time of.
+	 */
+	public double getPhaseTime(TickPhase phase){
+		return phaseTimes[phase.ordinal()] / 1e9;
+	}
+
+	/**
+	 * Reset the time spent in each phase of advancing time in this world.
+	 * @post The time spent in each phase is zero.
+	 * 		| for each phase in TickPhase.values(): new.getPhaseTime(phase) == 0
+	 */
+	public void resetPhaseTimes(){
+		Arrays.fill(phaseTimes, 0L);
+	}
+
+	/**
+	 * Add the wall-clock time since the given start time to the time spent in the given phase.
+	 * @param phase
+	 * 		The phase to add the time to.
+	 * @param start
+	 * 		The start time of the phase, expressed in nanoseconds.
+	 * @return The current time, expressed in nanoseconds.
+	 */
+	private long addPhaseTime(TickPhase phase, long start){
+		long now = System.nanoTime();
+		phaseTimes[phase.ordinal()] += now - start;
+		return now;
+	}
+
+	/**
+	 * A variable registering the wall-clock time spent in each phase of advancing time, expressed in nanoseconds.
+	 */
+	private final long[] phaseTimes = new long[TickPhase.values().length];
+
+	/**
+	 * Return whether the units of this world plan their paths in parallel when time advances.
+	 */
+	@Basic
+	public boolean isParallelTick(){
+		return parallelTick;
+	}
+
+	/**
+	 * Set whether the units of this world plan their paths in parallel when time advances.
+	 * @param parallelTick
+	 * 		Whether the tick of this world is parallel.
+	 * @post The tick of this world is parallel if and only if the given flag is true.
+	 * 		| new.isParallelTick() == parallelTick
+	 * @note The units still advance time one after another in the same order, and a planned path
+	 * 		is only used if the terrain did not change since it was planned, so the outcome of
+	 * 		a parallel tick is the same as the outcome of a serial tick.
+	 */
+	public void setParallelTick(boolean parallelTick){
+		this.parallelTick = parallelTick;
+	}
+
+	/**
+	 * A variable registering whether the tick of this world is parallel.
+	 */
+	private boolean parallelTick = false;
+
 	
 	/**
 	 * Symbolic constant registering the side length of cubes, expressed in meters.
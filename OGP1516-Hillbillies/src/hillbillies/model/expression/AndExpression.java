@@ -9,19 +9,21 @@ extends BinaryBooleanExpression<E,F> {
 		super(left, right);
 	}
 
+	/**
+	 * Return the conjunction of both operands. The right operand is only evaluated
+	 * if the left operand is true.
+	 * 
+	 * @return False if the left operand is false, null if one of the operands has no value,
+	 * 		and the value of the right operand otherwise.
+	 */
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
-		try{
-		this.getLeftExpression().evaluateExpression(context);
-		this.getRightExpression().evaluateExpression(context);
-
-		setValue(getRightExpression().getValue() && getLeftExpression().getValue());
-		return getValue();
-		}
-		catch(NullPointerException e){
+		Boolean left = this.getLeftExpression().evaluateExpression(context);
+		if (left == null)
 			return null;
-		}
-
+		if (! left)
+			return false;
+		return this.getRightExpression().evaluateExpression(context);
 	}
 
 }
@@ -10,24 +10,12 @@ public class AnyExpression extends UnitExpression{
 	public Unit findNearestAnyUnit(Unit unit){
 		//Unit unit = this.getStatement().getTask().getExecutingUnit();
 		assert (unit!=null);
-		Unit nearest = null;
-		double nearestDist = 0;
-		for (Unit other: unit.getWorld().listAllUnits()){
-			if (other!=unit){
-				double dist = Vector.getDistance(unit.getPosition(), other.getPosition());
-				if (nearest == null || nearestDist > dist){
-					nearestDist = dist;
-					nearest = other;
-				}
-			}
-		}
-		return nearest;
+		return unit.getWorld().findNearestUnit(unit);
 	}
 
 	@Override
 	public Unit evaluateExpression(ExecutionContext context) {
-		setValue(findNearestAnyUnit(context.getExecutingUnit()));
-		return getValue();
+		return findNearestAnyUnit(context.getExecutingUnit());
 	}
 	
 
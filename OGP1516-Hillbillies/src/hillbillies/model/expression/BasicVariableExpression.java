@@ -19,15 +19,26 @@ public class BasicVariableExpression<V extends Object> extends VariableExpressio
 	
 	private String name;
 
+	/**
+	 * Return the slot of the variable of this expression in the frame of an execution context.
+	 */
+	public int getSlot(){
+		return slot;
+	}
+
+	/**
+	 * Set the slot of the variable of this expression to the given slot.
+	 * Slots are resolved once, when the program of a task is created.
+	 */
+	public void setSlot(int slot){
+		this.slot = slot;
+	}
+
+	private int slot = -1;
+
 	@Override
 	public V evaluateExpression(ExecutionContext context) {
-		setValue((V) context.getVariables().get(getName()).getValue());
-		
-		return getValue();
-	}
-	
-	public Expression<?> getAssociatedExpression(ExecutionContext context){
-		return context.getVariables().get(getName());
+		return (V) context.getVariable(getSlot());
 	}
 	
 	
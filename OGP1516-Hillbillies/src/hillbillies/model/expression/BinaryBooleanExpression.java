@@ -3,7 +3,7 @@ package hillbillies.model.expression;
 import hillbillies.model.ExecutionContext;
 
 public abstract class BinaryBooleanExpression<E extends Expression<Boolean>,F extends Expression<Boolean>> 
-extends Expression<Boolean> implements IComposedBinaryExpression<E,F> {
+extends BooleanExpression implements IComposedBinaryExpression<E,F> {
 	
 	public BinaryBooleanExpression(E left, F right){
 		setRightExpression(right);
@@ -9,17 +9,6 @@ public abstract class BooleanExpression extends Expression<Boolean> {
 		
 	}
 	
-	public void setValue(boolean object){
-		value = object;
-	}
-	
-	private boolean value;
-	
-	@Override
-	public final Boolean getValue() {
-		return value;
-	}
-	
 	@Override
 	public abstract Boolean evaluateExpression(ExecutionContext context);
 
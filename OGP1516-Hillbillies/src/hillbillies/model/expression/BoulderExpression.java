@@ -4,7 +4,6 @@ import hillbillies.model.Boulder;
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Position;
 import hillbillies.model.Unit;
-import hillbillies.model.Vector;
 
 public class BoulderExpression extends PositionExpression {
 		public BoulderExpression(){
@@ -12,15 +11,7 @@ public class BoulderExpression extends PositionExpression {
 		}
 
 		private Position findNearestBoulder(Unit unit) {
-			Boulder nearest = null;
-			double nearestDist = 0;
-			for (Boulder boulder: unit.getWorld().listAllBoulders() ){
-				double dist = Vector.getDistance(unit.getPosition(), boulder.getPosition());
-				if (nearest == null || nearestDist > dist){
-					nearestDist = dist;
-					nearest = boulder;
-				}
-			}
+			Boulder nearest = unit.getWorld().findNearestBoulder(unit.getPosition());
 			if(nearest != null)
 				return new Position(nearest.getWorld().getCubeCoordinate(nearest.getPosition()));
 			else
@@ -29,8 +20,7 @@ public class BoulderExpression extends PositionExpression {
 
 		@Override
 		public Position evaluateExpression(ExecutionContext context) {
-			setValue(findNearestBoulder(context.getExecutingUnit()));
-			return getValue();
+			return findNearestBoulder(context.getExecutingUnit());
 		}
 
 
@@ -10,8 +10,7 @@ public class BracketBooleanExpression<E extends Expression<Boolean>> extends Una
 
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
-		setValue(getExpression().getValue());
-		return getValue();
+		return getExpression().evaluateExpression(context);
 	}
 
 }
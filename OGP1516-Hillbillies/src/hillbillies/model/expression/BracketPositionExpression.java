@@ -11,8 +11,6 @@ public class BracketPositionExpression<E extends Expression<Position>> extends U
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
-		this.getExpression().evaluateExpression(context);
-		setValue(getExpression().getValue());
-		return getValue();
+		return this.getExpression().evaluateExpression(context);
 	}
 }
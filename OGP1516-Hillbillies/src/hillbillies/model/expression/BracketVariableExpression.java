@@ -10,9 +10,7 @@ public class BracketVariableExpression<V extends Object, E extends VariableExpre
 
 	@Override
 	public V evaluateExpression(ExecutionContext context) {
-		getExpression().evaluateExpression(context);
-		setValue((V)getExpression().getValue());
-		return getValue();
+		return (V) getExpression().evaluateExpression(context);
 	}
 
 	@Override
@@ -11,10 +11,8 @@ public class CarriesItemExpression<E extends Expression<Unit>> extends UnaryBool
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-		getExpression().evaluateExpression(context);
-		Unit unit = getExpression().getValue();
-		setValue(unit.getBoulder()!= null|| unit.getLog()!=null);
-		return getValue();
+		Unit unit = getExpression().evaluateExpression(context);
+		return unit.getBoulder()!= null|| unit.getLog()!=null;
 		}
 		catch(NullPointerException e){
 			return null;
@@ -2,7 +2,6 @@ package hillbillies.model.expression;
 
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Unit;
-import hillbillies.model.Vector;
 
 public class EnemyExpression extends UnitExpression{
 	
@@ -12,24 +11,12 @@ public class EnemyExpression extends UnitExpression{
 	private Unit findEnemyUnit(Unit unit) {
 		//Unit unit = this.getStatement().getTask().getExecutingUnit();
 		assert (unit!=null);
-		Unit nearest = null;
-		double nearestDist = 0;
-		for (Unit other: unit.getWorld().listAllUnits()){
-			if (other.getFaction()!=unit.getFaction()){
-				double dist = Vector.getDistance(unit.getPosition(), other.getPosition());
-				if (nearest == null || nearestDist > dist){
-					nearestDist = dist;
-					nearest = other;
-				}
-			}
-		}
-		return nearest;
+		return unit.getWorld().findNearestEnemy(unit);
 	}
 
 	@Override
 	public Unit evaluateExpression(ExecutionContext context) {
-		setValue(findEnemyUnit(context.getExecutingUnit()));
-		return getValue();
+		return findEnemyUnit(context.getExecutingUnit());
 	}
 
 }
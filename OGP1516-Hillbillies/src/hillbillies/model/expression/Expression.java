@@ -2,24 +2,21 @@ package hillbillies.model.expression;
 
 import java.util.List;
 
-import be.kuleuven.cs.som.annotate.Basic;
-import be.kuleuven.cs.som.annotate.Raw;
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Task;
-import hillbillies.model.statement.ExpressionStatement;
-import hillbillies.model.statement.Statement;
 import hillbillies.part3.programs.SourceLocation;
 
 public abstract class Expression<V>{
 	
-	public V getValue() {
-		return value;
-	}
-	private V value;
-	public void setValue(V value){
-		this.value = value;
-	}
-	
+	/**
+	 * Evaluate this expression in the given execution context.
+	 * 
+	 * @param context
+	 * 			The execution context to evaluate this expression in.
+	 * @return The value of this expression for the executing unit, the selected cube and 
+	 * 			the variables of the given context. Expressions hold no state of their own, 
+	 * 			so one expression can be evaluated in many contexts at once.
+	 */
 	public abstract V evaluateExpression(ExecutionContext context);
 
 	public void setSourceLocation(SourceLocation sourceLocation) {
@@ -33,18 +30,5 @@ public abstract class Expression<V>{
 	
 	private SourceLocation sourceLocation;
 	
-	
-	public void setStatement(Statement statement){
-		if (((ExpressionStatement) statement).getExpression() == this)
-			this.statement = statement;
-	}
-	
-	@Basic @Raw
-	public final Statement getStatement() {
-		return statement;
-	}
-
-	private Statement statement;
-	
 
 }
@@ -5,7 +5,13 @@ import hillbillies.model.expression.BooleanExpression;
 
 public class FalseExpression extends BooleanExpression {
 	public FalseExpression(){
-		setValue(false);
+	}
+
+	/**
+	 * Return the value of this expression, which is false.
+	 */
+	public Boolean getValue() {
+		return false;
 	}
 
 	@Override
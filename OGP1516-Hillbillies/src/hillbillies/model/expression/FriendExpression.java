@@ -1,11 +1,7 @@
 package hillbillies.model.expression;
 
-import java.util.Comparator;
-import java.util.Optional;
-
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Unit;
-import hillbillies.model.Vector;
 
 public class FriendExpression extends UnitExpression{
 	
@@ -13,25 +9,13 @@ public class FriendExpression extends UnitExpression{
 		
 	}
 	
-	private Unit findFriendUnitStream(Unit unit){
-
-		final Comparator<Unit> comp = (u1, u2) -> Integer.compare( (int) Vector.getDistance(u1.getPosition(), unit.getPosition()), 
-				(int) Vector.getDistance(u2.getPosition(), unit.getPosition()));
-		
-		Optional<Unit> nearest = unit.getWorld().listAllUnits().stream()
-				.filter(n -> n.getFaction() == unit.getFaction() && n != unit)
-				.min(comp);
-		if(nearest.isPresent()){
-			return nearest.get();
-		}
-		else 
-			return null;
+	private Unit findFriendUnit(Unit unit){
+		return unit.getWorld().findNearestFriend(unit);
 	}
 
 
 	@Override
 	public Unit evaluateExpression(ExecutionContext context) {
-		setValue(findFriendUnitStream(context.getExecutingUnit()));
-		return getValue();
+		return findFriendUnit(context.getExecutingUnit());
 	}
 }
@@ -11,8 +11,6 @@ public class HereExpression extends PositionExpression {
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
-		Position here = new Position(context.getExecutingUnit().getCubeCoordinate());
-		setValue(here);
-		return getValue();
+		return new Position(context.getExecutingUnit().getCubeCoordinate());
 	}
 }
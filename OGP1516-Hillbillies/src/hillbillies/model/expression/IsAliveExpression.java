@@ -14,8 +14,7 @@ public class IsAliveExpression<E extends Expression<Unit>> extends UnaryBooleanE
 		try{
 		getExpression().evaluateExpression(context);
 
-		setValue(!context.getExecutingUnit().isTerminated());
-		return getValue();
+		return !context.getExecutingUnit().isTerminated();
 		}
 		catch(NullPointerException e){
 			return null;
@@ -12,10 +12,9 @@ public class IsEnemyExpression<E extends Expression<Unit>> extends UnaryBooleanE
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-		getExpression().evaluateExpression(context);
+		Unit unit = getExpression().evaluateExpression(context);
 
-		setValue(context.getExecutingUnit().getFaction() != getExpression().getValue().getFaction());
-		return getValue();
+		return context.getExecutingUnit().getFaction() != unit.getFaction();
 		}
 		catch(NullPointerException e){
 			return null;
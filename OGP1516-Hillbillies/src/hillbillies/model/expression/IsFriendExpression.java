@@ -12,9 +12,8 @@ public class IsFriendExpression<E extends Expression<Unit>> extends UnaryBoolean
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-			getExpression().evaluateExpression(context);
-			setValue(context.getExecutingUnit().getFaction() == getExpression().getValue().getFaction());
-			return getValue();
+			Unit unit = getExpression().evaluateExpression(context);
+			return context.getExecutingUnit().getFaction() == unit.getFaction();
 		}
 		catch(NullPointerException e){
 			return null;
@@ -12,10 +12,9 @@ public class IsPassableExpression<E extends Expression<Position>> extends UnaryB
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-			getExpression().evaluateExpression(context);
+			Position position = getExpression().evaluateExpression(context);
 		
-			setValue(context.getExecutingUnit().getWorld().getTerrain(getExpression().getValue().getCoords()).isPassable());
-			return getValue();
+			return context.getExecutingUnit().getWorld().getTerrain(position.getCoords()).isPassable();
 		}
 		catch(NullPointerException e){
 			return null;
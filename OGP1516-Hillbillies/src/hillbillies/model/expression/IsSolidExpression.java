@@ -12,9 +12,8 @@ public class IsSolidExpression<E extends Expression<Position>> extends UnaryBool
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-			getExpression().evaluateExpression(context);
-			setValue(!context.getExecutingUnit().getWorld().getTerrain(getExpression().getValue().getCoords()).isPassable());
-			return getValue();
+			Position position = getExpression().evaluateExpression(context);
+			return !context.getExecutingUnit().getWorld().getTerrain(position.getCoords()).isPassable();
 
 		}
 		catch(NullPointerException e){
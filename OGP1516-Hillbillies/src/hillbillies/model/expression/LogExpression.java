@@ -4,7 +4,6 @@ import hillbillies.model.ExecutionContext;
 import hillbillies.model.Log;
 import hillbillies.model.Position;
 import hillbillies.model.Unit;
-import hillbillies.model.Vector;
 
 public class LogExpression extends PositionExpression {
 	public LogExpression(){
@@ -12,15 +11,7 @@ public class LogExpression extends PositionExpression {
 	}
 
 	private Position findNearestLog(Unit unit) {
-		Log nearest = null;
-		double nearestDist = 0;
-		for (Log log: unit.getWorld().listAllLogs() ){
-			double dist = Vector.getDistance(unit.getPosition(), log.getPosition());
-			if (nearest == null || nearestDist > dist){
-				nearestDist = dist;
-				nearest = log;
-			}
-		}
+		Log nearest = unit.getWorld().findNearestLog(unit.getPosition());
 		if(nearest != null)
 			return new Position(nearest.getWorld().getCubeCoordinate(nearest.getPosition()));
 		else
@@ -29,7 +20,6 @@ public class LogExpression extends PositionExpression {
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
-		setValue(findNearestLog(context.getExecutingUnit()));
-		return getValue();
+		return findNearestLog(context.getExecutingUnit());
 	}
 }
@@ -11,9 +11,7 @@ public class NegationExpression<E extends Expression<Boolean>> extends UnaryBool
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
 		try{
-		getExpression().evaluateExpression(context);
-		setValue(!getExpression().getValue());
-		return getValue();
+		return !getExpression().evaluateExpression(context);
 		}
 		catch(NullPointerException e){
 			return null;
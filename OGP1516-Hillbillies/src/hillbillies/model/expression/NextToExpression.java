@@ -1,11 +1,11 @@
 package hillbillies.model.expression;
 
-import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Position;
 import hillbillies.model.Unit;
+import hillbillies.model.World;
 
 public class NextToExpression<E extends Expression<Position>> extends UnaryPositionExpression<E> {
 	
@@ -14,20 +14,20 @@ public class NextToExpression<E extends Expression<Position>> extends UnaryPosit
 	}
 
 	private Position getNextTo(ExecutionContext context) {
-		getExpression().evaluateExpression(context);
-		int[] pos = getExpression().getValue().getCoords();
-		List<int[]> neighbouringPositions = context.getExecutingUnit().getWorld().getNeighboringCubes(pos);
-		if (neighbouringPositions.isEmpty())
+		int[] pos = getExpression().evaluateExpression(context).getCoords();
+		World world = context.getExecutingUnit().getWorld();
+		int index = world.getCubeIndex(pos);
+		int nbNeighbours = world.getNbNeighbours(index);
+		if (nbNeighbours == 0)
 			return null;
-		int i = new Random().nextInt(neighbouringPositions.size());
-		return new Position(neighbouringPositions.get(i));
+		// only the chosen neighbour is turned into coordinates
+		return new Position(world.getCubeOfIndex(world.getNeighbour(index, ThreadLocalRandom.current().nextInt(nbNeighbours))));
 	}
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
 		try{
-		setValue(getNextTo(context));
-		return getValue();
+		return getNextTo(context);
 		}
 		catch(NullPointerException e){
 			return null;
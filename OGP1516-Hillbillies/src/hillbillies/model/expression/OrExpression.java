@@ -7,18 +7,21 @@ public class OrExpression<E extends Expression<Boolean>,F extends Expression<Boo
 		super(left, right);
 	}
 
+	/**
+	 * Return the disjunction of both operands. The right operand is only evaluated
+	 * if the left operand is false.
+	 * 
+	 * @return True if the left operand is true, null if one of the operands has no value,
+	 * 		and the value of the right operand otherwise.
+	 */
 	@Override
 	public Boolean evaluateExpression(ExecutionContext context) {
-		try{
-		this.getLeftExpression().evaluateExpression(context);
-		this.getRightExpression().evaluateExpression(context);
-		setValue(getRightExpression().getValue() || getLeftExpression().getValue());
-		return getValue();
-		}
-		catch(NullPointerException e){
+		Boolean left = this.getLeftExpression().evaluateExpression(context);
+		if (left == null)
 			return null;
-		}
-
+		if (left)
+			return true;
+		return this.getRightExpression().evaluateExpression(context);
 	}
 
 	
@@ -8,16 +8,6 @@ public abstract class PositionExpression extends Expression<Position> {
 		
 	}
 	
-	public void setValue(Position object){
-		value = object;
-	}
-	
-	private Position value;
-
-	public Position getValue() {
-		return value;
-	}
-	
 	@Override
 	public abstract Position evaluateExpression(ExecutionContext context);
 }
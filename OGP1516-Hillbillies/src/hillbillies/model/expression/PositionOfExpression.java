@@ -10,17 +10,14 @@ public class PositionOfExpression<E extends Expression<Unit>> extends UnaryPosit
 		setExpression(unit);
 	}
 
-	private int[] getPositionOfUnit() {
-		return (getExpression().getValue().
-				getWorld().getCubeCoordinate(getExpression().getValue().getPosition())) ;
+	private int[] getPositionOfUnit(Unit unit) {
+		return (unit.getWorld().getCubeCoordinate(unit.getPosition())) ;
 	}
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
 		try{
-		getExpression().evaluateExpression(context);
-		setValue(new Position(getPositionOfUnit()));
-		return getValue();
+		return new Position(getPositionOfUnit(getExpression().evaluateExpression(context)));
 		}
 		catch(NullPointerException e){
 			return null;
@@ -10,7 +10,6 @@ public class SelectedExpression extends PositionExpression {
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
-		setValue(new Position(context.getSelectedCube()));
-		return getValue();
+		return new Position(context.getSelectedCube());
 	}
 }
@@ -10,8 +10,7 @@ public class ThisExpression extends UnitExpression{
 
 	@Override
 	public Unit evaluateExpression(ExecutionContext context) {
-		setValue(context.getExecutingUnit());
-		return getValue();
+		return context.getExecutingUnit();
 	}
 
 }
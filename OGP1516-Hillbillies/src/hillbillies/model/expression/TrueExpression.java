@@ -4,7 +4,13 @@ import hillbillies.model.ExecutionContext;
 
 public class TrueExpression extends BooleanExpression {
 	public TrueExpression(){
-		setValue(true);
+	}
+
+	/**
+	 * Return the value of this expression, which is true.
+	 */
+	public Boolean getValue() {
+		return true;
 	}
 
 	@Override
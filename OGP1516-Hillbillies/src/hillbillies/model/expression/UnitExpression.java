@@ -8,15 +8,6 @@ public abstract class UnitExpression extends Expression<Unit> {
 		
 	}
 	
-	public void setValue(Unit object){
-		value = object;
-	}
-	
-	private Unit value;
-
-	public Unit getValue() {
-		return value;
-	}
 	@Override
 	public abstract Unit evaluateExpression(ExecutionContext context);
 }
@@ -1,11 +1,8 @@
 package hillbillies.model.expression;
 
-import java.util.Arrays;
-
 import hillbillies.model.ExecutionContext;
 import hillbillies.model.Position;
 import hillbillies.model.Unit;
-import hillbillies.model.Vector;
 
 public class WorkshopExpression extends PositionExpression {
 	public WorkshopExpression(){
@@ -13,24 +10,9 @@ public class WorkshopExpression extends PositionExpression {
 	}
 
 	private Position findNearestWorkshop(Unit unit) {
-		int[] nearest = null;
-		double nearestDist = 0;
-		for (int i=0; i< unit.getWorld().getTerrainTypes().length; i++){
-			for (int j=0; j< unit.getWorld().getTerrainTypes()[0].length; j++){
-				for (int k=0; k< unit.getWorld().getTerrainTypes()[0][0].length; k++){
-					if (unit.getWorld().getTerrainTypes()[i][j][k]==3){
-						double dist = Vector.getDistance(unit.getPosition(), new double[] {i+0.5,j+0.5,k+0.5});
-						if (nearest == null || nearestDist > dist){
-							nearestDist = dist;
-							nearest = new int[] {i,j,k};
-						}
-
-					}
-				}
-			}
-		}				
+		Position nearest = unit.getWorld().findNearestWorkshop(unit.getPosition());
 		if(nearest != null){
-			return new Position(nearest);
+			return new Position(nearest.getCoords().clone());
 		}
 		else{
 			return null;
@@ -39,7 +21,6 @@ public class WorkshopExpression extends PositionExpression {
 
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
-		setValue(findNearestWorkshop(context.getExecutingUnit()));
-		return getValue();
+		return findNearestWorkshop(context.getExecutingUnit());
 	}
 }
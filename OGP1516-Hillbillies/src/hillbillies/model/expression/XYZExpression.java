@@ -7,9 +7,18 @@ public class XYZExpression extends PositionExpression {
 
 	
 	public XYZExpression(Position pos){
-		setValue(pos);
+		this.value = pos;
 	}
 
+	/**
+	 * Return the position of this expression.
+	 */
+	public Position getValue() {
+		return value;
+	}
+
+	private final Position value;
+
 	@Override
 	public Position evaluateExpression(ExecutionContext context) {
 		return getValue();
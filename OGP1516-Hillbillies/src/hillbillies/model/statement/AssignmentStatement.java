@@ -26,11 +26,30 @@ public class AssignmentStatement<E extends Expression<?>> extends ExpressionStat
 	public void setVariableName(String variableName) {
 		this.variableName = variableName;
 	}
+
+	/**
+	 * Return the slot of the assigned variable in the frame of an execution context.
+	 */
+	@Basic @Raw
+	public int getSlot() {
+		return slot;
+	}
+
+	/**
+	 * Set the slot of the assigned variable to the given slot.
+	 * Slots are resolved once, when the program of a task is created.
+	 */
+	@Raw
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	private int slot = -1;
+
 	@Override
 	public void executeStatement(ExecutionContext context) {
 		context.getExecutingUnit().setCurrentStatement(this);
-		getExpression().evaluateExpression(context);
-		context.addVariable(getVariableName(), getExpression());
+		context.setVariable(getSlot(), getExpression().evaluateExpression(context));
 		context.getExecutingUnit().stopExecutingStatement();
 	}
 
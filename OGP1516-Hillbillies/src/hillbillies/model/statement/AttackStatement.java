@@ -17,8 +17,7 @@ public class AttackStatement<E extends Expression<Unit>> extends ActionStatement
 	public void executeStatement(ExecutionContext context) {
 		try{
 		context.getExecutingUnit().setCurrentStatement(this);
-		getExpression().evaluateExpression(context);
-		context.getExecutingUnit().attack(getExpression().getValue());
+		context.getExecutingUnit().attack(getExpression().evaluateExpression(context));
 		}
 		catch(NullPointerException e){
 			context.getExecutingUnit().stopExecutingTask();
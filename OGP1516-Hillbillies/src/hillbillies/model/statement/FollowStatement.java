@@ -18,8 +18,7 @@ public class FollowStatement<E extends Expression<Unit>> extends ActionStatement
 		try{
 		context.getExecutingUnit().setCurrentStatement(this);
 
-		getExpression().evaluateExpression(context);
-		context.getExecutingUnit().startFollowing(getExpression().getValue());
+		context.getExecutingUnit().startFollowing(getExpression().evaluateExpression(context));
 		}
 		catch(NullPointerException e){
 			context.getExecutingUnit().stopExecutingTask();
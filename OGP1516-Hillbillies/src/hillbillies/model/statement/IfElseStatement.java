@@ -1,6 +1,5 @@
 package hillbillies.model.statement;
 
-import hillbillies.model.ExecutionContext;
 import hillbillies.model.expression.BooleanExpression;
 import hillbillies.model.expression.Expression;
 
@@ -53,20 +52,4 @@ extends ExpressionStatement<E> implements IComposedBinaryStatement<S,T>{
 		return elseBody;
 	}
 
-
-	@Override
-	public void executeStatement(ExecutionContext context) {
-		context.getExecutingUnit().setCurrentStatement(this);
-		getExpression().evaluateExpression(context);
-		if (getExpression().getValue()){
-			getFirstStatement().executeStatement(context);
-		}
-		else if (getSecondStatement()!= null){
-			getSecondStatement().executeStatement(context);
-		}
-		else{
-			context.getExecutingUnit().stopExecutingStatement();
-		}
-	}
-
 }
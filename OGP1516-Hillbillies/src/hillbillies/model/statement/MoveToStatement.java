@@ -21,8 +21,7 @@ public class MoveToStatement<E extends Expression<Position>> extends ActionState
 	public void executeStatement(ExecutionContext context) {
 		try{
 		context.getExecutingUnit().setCurrentStatement(this);
-		getExpression().evaluateExpression(context);
-		context.getExecutingUnit().moveTo1(getExpression().getValue().getCoords());
+		context.getExecutingUnit().moveTo1(getExpression().evaluateExpression(context).getCoords());
 		}
 		catch(NullPointerException e){
 			context.getExecutingUnit().stopExecutingTask();
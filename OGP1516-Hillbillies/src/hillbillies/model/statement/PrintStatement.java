@@ -14,8 +14,7 @@ public class PrintStatement<E extends Expression<?>> extends ExpressionStatement
 	@Override
 	public void executeStatement(ExecutionContext context) {
 		context.getExecutingUnit().setCurrentStatement(this);
-		getExpression().evaluateExpression(context);
-		System.out.println(getExpression().toString());
+		System.out.println(getExpression().evaluateExpression(context));
 		context.getExecutingUnit().stopExecutingStatement();
 	}
 	
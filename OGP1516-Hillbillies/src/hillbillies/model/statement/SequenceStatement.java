@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import be.kuleuven.cs.som.annotate.*;
-import hillbillies.model.ExecutionContext;
 import hillbillies.model.Unit;
 
 public class SequenceStatement<E extends Statement> extends ComposedStatement  
@@ -26,20 +25,6 @@ public class SequenceStatement<E extends Statement> extends ComposedStatement
 	}
 
 	private List<E> statements = new ArrayList <>();
-
-	@Override
-	public void executeStatement(ExecutionContext context) {
-		
-		context.getExecutingUnit().setCurrentStatement(this);
-		for (int index = 0 ; index < getStatements().size() ; index++){
-			getStatements().get(index).setIndex(index);
-			getStatements().get(index).setLast(false);
-		}
-		this.getStatements().get(getStatements().size()-1).setLast(true);
-		getStatements().get(0).executeStatement(context);
-		
-	}
-	
 	
 	public void addStatement(Statement statement){
 		List<E> list = getStatements();
@@ -8,7 +8,18 @@ import hillbillies.model.expression.Expression;
 
 public abstract class Statement{
 
-	public abstract void executeStatement(ExecutionContext context);
+	/**
+	 * Execute this statement in the given execution context.
+	 * 
+	 * @param context
+	 * 			The execution context to execute this statement in.
+	 * @throws UnsupportedOperationException
+	 * 			Only basic statements are executed by themselves. Sequences, if-else statements,
+	 * 			while statements and break statements are lowered into jumps by Program.
+	 */
+	public void executeStatement(ExecutionContext context) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException();
+	}
 	
 	/**
 	 * @return the superStatement
@@ -25,72 +36,11 @@ public abstract class Statement{
 	}
 
 	private Statement superStatement;
-	
-	
-	public Statement getNextStatement(ExecutionContext context){
-		if (! context.isBroken() &&!isLast() && this.getSuperStatement() != null){
-			return (Statement) ((SequenceStatement<?>)getSuperStatement()).getStatements().get(this.getIndex()+1);
-		}
-		if (this.getSuperStatement() != null){
-			return getSuperStatement().getNextStatement(context);
-		}
-		else
-			return null;
-	
-	}
 
 
 //	public abstract void removeFirstStatement();
 //	
 //	public abstract void stopExecutingStatement();
-	
-	private boolean statementExecuted = false;
-
-	/**
-	 * @return the statementExecuted
-	 */
-	public boolean isStatementExecuted() {
-		return statementExecuted;
-	}
-
-	/**
-	 * @param statementExecuted the statementExecuted to set
-	 */
-	public void setStatementExecuted(boolean statementExecuted) {
-		this.statementExecuted = statementExecuted;
-	}
-	
-	private int index;
-	
-	private boolean isLast = true;
-
-	/**
-	 * @return the index
-	 */
-	public int getIndex() {
-		return index;
-	}
-
-	/**
-	 * @param index the index to set
-	 */
-	public void setIndex(int index) {
-		this.index = index;
-	}
-
-	/**
-	 * @return the isLast
-	 */
-	public boolean isLast() {
-		return isLast;
-	}
-
-	/**
-	 * @param isLast the isLast to set
-	 */
-	public void setLast(boolean isLast) {
-		this.isLast = isLast;
-	}
 
 
 }
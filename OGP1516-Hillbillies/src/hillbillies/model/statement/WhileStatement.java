@@ -2,7 +2,6 @@ package hillbillies.model.statement;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Raw;
-import hillbillies.model.ExecutionContext;
 import hillbillies.model.Unit;
 import hillbillies.model.expression.BooleanExpression;
 import hillbillies.model.expression.Expression;
@@ -41,39 +40,5 @@ extends ExpressionStatement<E> implements IComposedUnaryStatement<S> {
 	private S statement;
 
 
-	@Override
-	public void executeStatement(ExecutionContext context) {
-		context.getExecutingUnit().setCurrentStatement(this);
-		super.executeStatement(context);
-		if (getExpression().getValue()){
-			getStatement().executeStatement(context);
-//			}
-		}
-		else
-			context.getExecutingUnit().stopExecutingStatement();
-
-			
-	}
-	
-	@Override
-	public Statement getNextStatement(ExecutionContext context){
-		super.executeStatement(context);
-		if (!context.isBroken()&& getExpression().getValue()){
-			return this;
-		}
-		context.setBroken(false);
-		if (!isLast() && this.getSuperStatement() != null){
-			return (Statement) ((SequenceStatement<?>)getSuperStatement()).getStatements().get(this.getIndex()+1);
-		}
-		else if (this.getSuperStatement() != null){
-			return getSuperStatement().getNextStatement(context);
-		}
-		else{
-			return null;
-		}
-			
-	}
-	
-
 
 }
@@ -17,8 +17,7 @@ public class WorkStatement<E extends Expression<Position>> extends ActionStateme
 		try{
 		context.getExecutingUnit().setCurrentStatement(this);
 		super.executeStatement(context);
-		getExpression().evaluateExpression(context);
-		context.getExecutingUnit().work(getExpression().getValue().getCoords());	
+		context.getExecutingUnit().work(getExpression().evaluateExpression(context).getCoords());	
 		}
 		catch(NullPointerException e){
 			context.getExecutingUnit().stopExecutingTask();
@@ -0,0 +1,267 @@
+package hillbillies.part3;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import hillbillies.model.BinaryWorldFile;
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.Faction;
+import hillbillies.model.Task;
+import hillbillies.model.TickPhase;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.facade.Facade;
+import hillbillies.part3.facade.IFacade;
+import ogp.framework.util.ModelException;
+
+/**
+ * A runner that advances a world without a display, with a fixed time step and as fast as possible.
+ *
+ * The world is built from the chunked terrain of a map file, populated with spawned units through the facade of part 3,
+ * and the tasks of the given task files are scheduled for each faction of the world.
+ * At the end, the number of ticks per second and the time spent in each phase of a tick are reported.
+ *
+ * Usage: HeadlessRunner map [-seconds s] [-dt dt] [-units n] [-default] [-parallel]
+ *        [-task file]... [-selected x,y,z]... [-verbose]
+ */
+public class HeadlessRunner {
+
+	/**
+	 * Initialize this new headless runner for the world with the given map file.
+	 *
+	 * @param mapFile
+	 * 			The file of the map, either a text map (.wrld) or a binary map (.bwrld).
+	 * @post The map file of this new headless runner is equal to the given map file.
+	 * @post This new headless runner advances 60 seconds in steps of 0.1 seconds,
+	 * 			with 10 units without default behaviour and without tasks.
+	 */
+	public HeadlessRunner(String mapFile) {
+		this.mapFile = mapFile;
+	}
+
+	private final String mapFile;
+
+	private double seconds = 60.0;
+
+	private double timeStep = 0.1;
+
+	private int nbUnits = 10;
+
+	private boolean enableDefaultBehaviour = false;
+
+	private boolean parallelTick = false;
+
+	private boolean verbose = false;
+
+	private final List<String> taskFiles = new ArrayList<>();
+
+	private final List<int[]> selectedCubes = new ArrayList<>();
+
+	private final IFacade facade = new Facade();
+
+	/**
+	 * Set the number of simulated seconds of this runner to the given number.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			If the given number is negative.
+	 */
+	public void setSeconds(double seconds) throws IllegalArgumentException {
+		if (!(seconds >= 0))
+			throw new IllegalArgumentException();
+		this.seconds = seconds;
+	}
+
+	/**
+	 * Set the fixed time step of this runner to the given time step.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			If the given time step is not positive or exceeds 0.2 seconds.
+	 */
+	public void setTimeStep(double timeStep) throws IllegalArgumentException {
+		if (!(timeStep > 0 && timeStep <= 0.2))
+			throw new IllegalArgumentException();
+		this.timeStep = timeStep;
+	}
+
+	/**
+	 * Set the number of units this runner spawns to the given number.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			If the given number is negative.
+	 */
+	public void setNbUnits(int nbUnits) throws IllegalArgumentException {
+		if (nbUnits < 0)
+			throw new IllegalArgumentException();
+		this.nbUnits = nbUnits;
+	}
+
+	/**
+	 * Set whether the units this runner spawns have their default behaviour enabled.
+	 */
+	public void setEnableDefaultBehaviour(boolean enableDefaultBehaviour) {
+		this.enableDefaultBehaviour = enableDefaultBehaviour;
+	}
+
+	/**
+	 * Set whether the world of this runner uses the parallel tick.
+	 */
+	public void setParallelTick(boolean parallelTick) {
+		this.parallelTick = parallelTick;
+	}
+
+	/**
+	 * Set whether the output the model writes while time advances is shown.
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Add the given task file to the task files this runner schedules for each faction.
+	 */
+	public void addTaskFile(String taskFile) {
+		taskFiles.add(taskFile);
+	}
+
+	/**
+	 * Add the given cube to the cubes used as selected cubes in the tasks of this runner.
+	 */
+	public void addSelectedCube(int[] cube) {
+		selectedCubes.add(cube.clone());
+	}
+
+	/**
+	 * Build the world of this runner, populate it, schedule the tasks and advance time.
+	 *
+	 * @param out
+	 * 			The stream to report on.
+	 * @throws IOException
+	 * 			If the map file or one of the task files cannot be read.
+	 * @throws ModelException
+	 * 			If the facade rejects the spawned units or the tasks.
+	 */
+	public void run(PrintStream out) throws IOException, ModelException {
+		long start = System.nanoTime();
+		// the world is built from the chunked terrain directly, so no matrix of the whole map is allocated
+		World world = new World(readMap(), new DefaultTerrainChangeListener());
+		world.setParallelTick(parallelTick);
+		for (int i = 0; i < nbUnits; i++)
+			facade.spawnUnit(world, enableDefaultBehaviour);
+		int nbTasks = 0;
+		TaskLibrary taskLibrary = new TaskLibrary(facade.createTaskFactory());
+		for (Faction faction : facade.getActiveFactions(world))
+			for (String taskFile : taskFiles) {
+				List<Task> tasks = taskLibrary.getTasks(taskFile, selectedCubes);
+				if (tasks == null)
+					throw new IOException("cannot parse " + taskFile);
+				for (Task task : tasks) {
+					facade.schedule(facade.getScheduler(faction), task);
+					nbTasks++;
+				}
+			}
+		double setupTime = (System.nanoTime() - start) / 1e9;
+		out.printf("%s: %d x %d x %d cubes, %d units, %d factions, %d tasks (set up in %.3f s)%n", mapFile,
+				facade.getNbCubesX(world), facade.getNbCubesY(world), facade.getNbCubesZ(world),
+				facade.getUnits(world).size(), facade.getActiveFactions(world).size(), nbTasks, setupTime);
+
+		long nbTicks = Math.round(seconds / timeStep);
+		int nbFailedTicks = 0;
+		world.resetPhaseTimes();
+		PrintStream modelOut = System.out;
+		if (!verbose)
+			System.setOut(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+			}));
+		start = System.nanoTime();
+		try {
+			for (long tick = 0; tick < nbTicks; tick++) {
+				try {
+					facade.advanceTime(world, timeStep);
+				} catch (ModelException | IllegalArgumentException exc) {
+					nbFailedTicks++;
+				}
+			}
+		} finally {
+			System.setOut(modelOut);
+		}
+		double wallTime = (System.nanoTime() - start) / 1e9;
+
+		out.printf("%d ticks of %.3f s (%.1f simulated seconds) in %.3f s: %.1f ticks/s, %.1f x real time%n",
+				nbTicks, timeStep, nbTicks * timeStep, wallTime, nbTicks / wallTime, nbTicks * timeStep / wallTime);
+		if (nbFailedTicks > 0)
+			out.printf("%d ticks ended with an exception%n", nbFailedTicks);
+		long nbOverruns = 0;
+		for (Faction faction : facade.getActiveFactions(world))
+			nbOverruns += faction.getNbInstructionOverruns();
+		if (nbOverruns > 0)
+			out.printf("%d task instruction budget overruns%n", nbOverruns);
+		for (TickPhase phase : TickPhase.values())
+			out.printf("  %-10s %10.3f s %6.1f %% %10.1f us/tick%n", phase, world.getPhaseTime(phase),
+					100.0 * world.getPhaseTime(phase) / wallTime, 1e6 * world.getPhaseTime(phase) / Math.max(nbTicks, 1));
+		out.printf("%d units alive, %d boulders, %d logs%n", facade.getUnits(world).size(),
+				facade.getBoulders(world).size(), facade.getLogs(world).size());
+	}
+
+	/**
+	 * Return the chunked terrain of the map file of this runner.
+	 */
+	private ChunkedTerrain readMap() throws IOException {
+		ChunkedTerrain terrain;
+		if (mapFile.endsWith(BinaryWorldFile.BINARY_EXTENSION))
+			terrain = BinaryWorldFile.read(Paths.get(mapFile));
+		else
+			try (FileReader reader = new FileReader(mapFile)) {
+				terrain = BinaryWorldFile.readText(reader);
+			}
+		return terrain;
+	}
+
+	public static void main(String[] args) throws IOException, ModelException {
+		if (args.length == 0) {
+			System.err.println("Usage: HeadlessRunner map [-seconds s] [-dt dt] [-units n] [-default] [-parallel] "
+					+ "[-task file]... [-selected x,y,z]... [-verbose]");
+			System.exit(1);
+		}
+		HeadlessRunner runner = new HeadlessRunner(args[0]);
+		for (int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+			case "-seconds":
+				runner.setSeconds(Double.parseDouble(args[++i]));
+				break;
+			case "-dt":
+				runner.setTimeStep(Double.parseDouble(args[++i]));
+				break;
+			case "-units":
+				runner.setNbUnits(Integer.parseInt(args[++i]));
+				break;
+			case "-default":
+				runner.setEnableDefaultBehaviour(true);
+				break;
+			case "-parallel":
+				runner.setParallelTick(true);
+				break;
+			case "-verbose":
+				runner.setVerbose(true);
+				break;
+			case "-task":
+				runner.addTaskFile(args[++i]);
+				break;
+			case "-selected":
+				String[] coordinates = args[++i].split(",");
+				runner.addSelectedCube(new int[] { Integer.parseInt(coordinates[0]),
+						Integer.parseInt(coordinates[1]), Integer.parseInt(coordinates[2]) });
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+		runner.run(System.out);
+	}
+}
@@ -0,0 +1,145 @@
+package hillbillies.part3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hillbillies.model.Program;
+import hillbillies.model.Task;
+import hillbillies.part3.programs.ITaskFactory;
+import hillbillies.part3.programs.TaskParser;
+import ogp.framework.util.internal.ResourceUtils;
+
+/**
+ * A library of parsed tasks, caching the name, priority and program of each task file it has parsed.
+ *
+ * The cache is keyed by a hash of the content of the file, so a file is parsed again as soon as its
+ * content changes, and files with the same content share their program. The tasks for the selected
+ * cubes are created from the cached program, without lexing or parsing the file again.
+ */
+public class TaskLibrary {
+
+	/**
+	 * Initialize this new task library with the given task factory.
+	 *
+	 * @param factory
+	 * 			The factory used to parse task files.
+	 * @post This new task library has not parsed any file.
+	 * @throws IllegalArgumentException
+	 * 			If the given factory is not effective.
+	 */
+	public TaskLibrary(ITaskFactory<?, ?, Task> factory) throws IllegalArgumentException {
+		if (factory == null)
+			throw new IllegalArgumentException();
+		this.factory = factory;
+	}
+
+	private final ITaskFactory<?, ?, Task> factory;
+
+	/**
+	 * A map registering the parsed task for the hash of the content of each parsed file.
+	 */
+	private final Map<String, ParsedTask> parsedTasks = new HashMap<>();
+
+	private int nbParses = 0;
+
+	/**
+	 * Return the tasks of the task file with the given name, one for each of the given selected cubes,
+	 * or a single task without selected cube if no cubes are given.
+	 *
+	 * @param filename
+	 * 			The name of the task file.
+	 * @param selectedCubes
+	 * 			The cubes to use as selected cubes in the created tasks.
+	 * @return The created tasks, all sharing one program, or null if the file cannot be parsed.
+	 * @throws IOException
+	 * 			If the file cannot be read.
+	 */
+	public List<Task> getTasks(String filename, List<int[]> selectedCubes) throws IOException {
+		String content = readFile(filename);
+		String key = hash(content);
+		ParsedTask parsedTask = parsedTasks.get(key);
+		if (parsedTask == null) {
+			nbParses++;
+			List<Task> tasks = TaskParser.parseTasksFromString(content, factory, new ArrayList<>());
+			if (tasks == null || tasks.isEmpty())
+				return null;
+			Task task = tasks.get(0);
+			parsedTask = new ParsedTask(task.getName(), task.getPriority(), task.getProgram());
+			parsedTasks.put(key, parsedTask);
+		}
+		List<Task> result = new ArrayList<>();
+		if (selectedCubes.isEmpty())
+			result.add(parsedTask.createTask(null));
+		for (int[] selectedCube : selectedCubes)
+			result.add(parsedTask.createTask(selectedCube));
+		return result;
+	}
+
+	/**
+	 * Return the number of times this library has parsed a task file.
+	 */
+	public int getNbParses() {
+		return nbParses;
+	}
+
+	/**
+	 * Return the content of the file with the given name.
+	 */
+	private static String readFile(String filename) throws IOException {
+		try (InputStream in = ResourceUtils.openResource(filename)) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+				bytes.write(buffer, 0, n);
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Return the SHA-256 hash of the given content, as a hexadecimal string.
+	 */
+	private static String hash(String content) {
+		try {
+			StringBuilder result = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)))
+				result.append(String.format("%02x", b));
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The name, priority and validated program of a parsed task file.
+	 */
+	private static class ParsedTask {
+
+		private ParsedTask(String name, int priority, Program program) {
+			this.name = name;
+			this.priority = priority;
+			this.program = program;
+		}
+
+		private final String name;
+
+		private final int priority;
+
+		private final Program program;
+
+		/**
+		 * Return a new task for this parsed task file with the given selected cube.
+		 */
+		private Task createTask(int[] selectedCube) {
+			return new Task(name, priority, program, selectedCube == null ? null : selectedCube.clone());
+		}
+	}
+}
@@ -669,7 +669,7 @@ public class Facade implements IFacade{
 	@Override
 	public boolean isWellFormed(Task task) throws ModelException {
 		try{
-			return Task.isWellFormed(task.getActivities(),null);
+			return task.getProgram().isWellFormed();
 			}
 		catch (NullPointerException exc){
 			throw new ModelException();
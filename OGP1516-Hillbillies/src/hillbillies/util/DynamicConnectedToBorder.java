@@ -0,0 +1,622 @@
+package hillbillies.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An implementation of the algorithm of {@link ConnectedToBorder} that keeps,
+ * for each solid cube, the length of the shortest path of solid cubes from
+ * that cube to the border of the world.
+ *
+ * The levels form a breadth-first spanning forest rooted at the border: each
+ * connected solid cube that is not at the border has a directly adjacent solid
+ * cube one level lower. When a cube becomes passable, only the cubes that lose
+ * all their neighbours one level lower are affected; the search for a
+ * replacement stops at the first unaffected neighbour. Digging into a large,
+ * well-connected rock mass therefore touches a handful of cubes, instead of
+ * searching a path to the border for each neighbour. The levels of the
+ * affected cubes are then recomputed from their unaffected neighbours, and
+ * the affected cubes that cannot be reached anymore are reported as
+ * disconnected.
+ *
+ * The levels are stored in blocks of consecutive cube indices, which are only
+ * allocated once one of their cubes changes, like in
+ * {@link IndexedConnectedToBorder}: an unallocated block holds the levels of
+ * an entirely solid world, which only depend on the position of each cube.
+ *
+ * The contract of the public methods is the same as the contract of the
+ * corresponding methods of {@link ConnectedToBorder}: the same cubes are
+ * reported, possibly in a different order.
+ *
+ * The algorithm assumes that initially, the entire world is solid.
+ */
+public class DynamicConnectedToBorder {
+
+	/**
+	 * Create a new instance of the algorithm, initialized for a world of the
+	 * given dimensions where all cubes are solid.
+	 *
+	 * @param nbX
+	 * @param nbY
+	 * @param nbZ
+	 */
+	public DynamicConnectedToBorder(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		int nbBlocks = (int) (((long) nbX * nbY * nbZ + BLOCK_SIZE - 1) >> BLOCK_SHIFT);
+		this.levels = new int[nbBlocks][];
+		this.marks = new int[nbBlocks][];
+	}
+
+	/**
+	 * Returns whether the cube at the given position is a solid cube that is
+	 * connected to a border of the world through other directly adjacent solid
+	 * cubes.
+	 *
+	 * @note The result is pre-computed, so this query returns immediately.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to test
+	 * @param y
+	 *            The y-coordinate of the cube to test
+	 * @param z
+	 *            The z-coordinate of the cube to test
+	 * @return true if the cube is connected; false otherwise
+	 */
+	public boolean isSolidConnectedToBorder(int x, int y, int z) {
+		return isSolidConnectedToBorder(getIndex(x, y, z));
+	}
+
+	/**
+	 * Return the length of the shortest path of directly adjacent solid cubes
+	 * from the cube at the given position to a border of the world.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube
+	 * @param y
+	 *            The y-coordinate of the cube
+	 * @param z
+	 *            The z-coordinate of the cube
+	 * @return The number of steps from the given cube to the border, 0 for a
+	 *         solid cube at the border, or -1 if the cube is passable or not
+	 *         connected to the border.
+	 */
+	public int getLevel(int x, int y, int z) {
+		int level = getLevel(getIndex(x, y, z));
+		return level == PASSABLE || level == UNREACHABLE ? -1 : level;
+	}
+
+	/**
+	 * Make the cube at the given position solid instead of passable, and return
+	 * the list of coordinates that became connected to a border of the world
+	 * due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make solid
+	 * @param y
+	 *            The y-coordinate of the cube to make solid
+	 * @param z
+	 *            The z-coordinate of the cube to make solid
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become connected to the border by performing
+	 *         this change. If non-empty, this always includes the provided
+	 *         coordinate itself.
+	 */
+	public List<int[]> changePassableToSolid(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (isSolid(index))
+			return Collections.emptyList();
+		int level = UNREACHABLE;
+		if (isBorder(index))
+			level = 0;
+		else
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(index, direction);
+				if (neighbour >= 0 && getLevel(neighbour) != UNREACHABLE)
+					level = Math.min(level, getLevel(neighbour) + 1);
+			}
+		setLevel(index, level);
+		if (level == UNREACHABLE)
+			return Collections.emptyList();
+		List<int[]> result = new ArrayList<>();
+		result.add(getCoordinate(index));
+		heap.clear();
+		heap.add(level, index);
+		lowerLevels(result, -1);
+		return result;
+	}
+
+	/**
+	 * Make the cube at the given position passable instead of solid, and return
+	 * the list of coordinates that are no longer connected to a border of the
+	 * world due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make passable
+	 * @param y
+	 *            The y-coordinate of the cube to make passable
+	 * @param z
+	 *            The z-coordinate of the cube to make passable
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become disconnected from the border by
+	 *         performing this change.
+	 */
+	public List<int[]> changeSolidToPassable(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (!isSolid(index))
+			return Collections.emptyList();
+		int level = getLevel(index);
+		setLevel(index, PASSABLE);
+		List<int[]> changed = new ArrayList<>();
+		if (level == UNREACHABLE) {
+			reportDisconnectedNeighbours(index, changed);
+			return changed;
+		}
+
+		// find the cubes of which all neighbours one level lower are affected,
+		// in the order of their levels
+		reserveStamps(2);
+		int queued = ++stamp;
+		int affected = ++stamp;
+		affectedSize = 0;
+		deque.clear();
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getAdjacentSolid(index, direction);
+			if (neighbour >= 0 && getLevel(neighbour) == level + 1 && !isBorder(neighbour)) {
+				setMark(neighbour, queued);
+				deque.addLast(neighbour);
+			}
+		}
+		while (!deque.isEmpty()) {
+			// this might take a long time - check if the impatient user has
+			// stopped us yet
+			if (Thread.currentThread().isInterrupted()) {
+				throw new IllegalStateException();
+			}
+			int cube = deque.pollFirst();
+			int cubeLevel = getLevel(cube);
+			if (hasSupport(cube, cubeLevel, affected))
+				continue;
+			setMark(cube, affected);
+			addAffected(cube);
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour >= 0 && getLevel(neighbour) == cubeLevel + 1 && getMark(neighbour) < queued
+						&& !isBorder(neighbour)) {
+					setMark(neighbour, queued);
+					deque.addLast(neighbour);
+				}
+			}
+		}
+		if (affectedSize == 0)
+			return changed;
+
+		// recompute the levels of the affected cubes from their unaffected
+		// neighbours, which keep their levels
+		for (int i = 0; i < affectedSize; i++)
+			setLevel(affectedCubes[i], UNREACHABLE);
+		heap.clear();
+		for (int i = 0; i < affectedSize; i++) {
+			int cube = affectedCubes[i];
+			int cubeLevel = UNREACHABLE;
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour >= 0 && getMark(neighbour) != affected && getLevel(neighbour) != UNREACHABLE)
+					cubeLevel = Math.min(cubeLevel, getLevel(neighbour) + 1);
+			}
+			if (cubeLevel != UNREACHABLE) {
+				setLevel(cube, cubeLevel);
+				heap.add(cubeLevel, cube);
+			}
+		}
+		lowerLevels(null, affected);
+		for (int i = 0; i < affectedSize; i++)
+			if (getLevel(affectedCubes[i]) == UNREACHABLE)
+				changed.add(getCoordinate(affectedCubes[i]));
+		return changed;
+	}
+
+	/**
+	 * Make the cube at the given position passable instead of solid, if it is
+	 * a solid cube that is not connected to a border of the world.
+	 *
+	 * Unlike {@link #changeSolidToPassable(int, int, int)}, the solid cubes
+	 * connected to the given cube are not searched and reported: the caller
+	 * already knows them to be disconnected, for instance because they were
+	 * reported by the change that disconnected the given cube. Removing a
+	 * disconnected region cube by cube therefore takes linear time.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make passable
+	 * @param y
+	 *            The y-coordinate of the cube to make passable
+	 * @param z
+	 *            The z-coordinate of the cube to make passable
+	 * @return true if the cube was solid and not connected to the border, and
+	 *         has been made passable; false otherwise, in which case nothing
+	 *         has changed.
+	 */
+	public boolean changeDisconnectedToPassable(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (getLevel(index) != UNREACHABLE)
+			return false;
+		setLevel(index, PASSABLE);
+		return true;
+	}
+
+	/**
+	 * Lower the levels of the cubes reachable from the cubes in the heap, in
+	 * the order of their levels.
+	 *
+	 * @param connected
+	 *            The list to which the cubes that become connected are added,
+	 *            or null if they need not be collected.
+	 * @param restriction
+	 *            The stamp of the only cubes of which the level may change, or
+	 *            -1 if all cubes may change.
+	 */
+	private void lowerLevels(List<int[]> connected, int restriction) {
+		while (!heap.isEmpty()) {
+			int level = heap.peekKey();
+			int cube = heap.poll();
+			if (getLevel(cube) != level)
+				// the cube has been reached by a shorter path in the meantime
+				continue;
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour < 0 || getLevel(neighbour) <= level + 1
+						|| (restriction >= 0 && getMark(neighbour) != restriction))
+					continue;
+				if (connected != null && getLevel(neighbour) == UNREACHABLE)
+					connected.add(getCoordinate(neighbour));
+				setLevel(neighbour, level + 1);
+				heap.add(level + 1, neighbour);
+			}
+		}
+	}
+
+	/**
+	 * Return whether the given cube has a directly adjacent solid cube one
+	 * level lower that is not stamped with the given stamp.
+	 */
+	private boolean hasSupport(int cube, int level, int affected) {
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getAdjacentSolid(cube, direction);
+			if (neighbour >= 0 && getLevel(neighbour) == level - 1 && getMark(neighbour) != affected)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add all solid cubes that are connected to the solid neighbours of the
+	 * given cube to the given list. None of these cubes is connected to the
+	 * border.
+	 */
+	private void reportDisconnectedNeighbours(int index, List<int[]> changed) {
+		reserveStamps(1);
+		int search = ++stamp;
+		deque.clear();
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getAdjacentSolid(index, direction);
+			if (neighbour >= 0 && getMark(neighbour) != search) {
+				setMark(neighbour, search);
+				deque.addLast(neighbour);
+			}
+		}
+		while (!deque.isEmpty()) {
+			int cube = deque.pollFirst();
+			changed.add(getCoordinate(cube));
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour >= 0 && getMark(neighbour) != search) {
+					setMark(neighbour, search);
+					deque.addLast(neighbour);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the given cube to the buffer of affected cubes.
+	 */
+	private void addAffected(int cube) {
+		if (affectedSize == affectedCubes.length)
+			affectedCubes = Arrays.copyOf(affectedCubes, 2 * affectedSize);
+		affectedCubes[affectedSize++] = cube;
+	}
+
+	/*
+	 * THE FIELDS AND OPERATIONS BELOW ARE PRIVATE
+	 */
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * The blocks registering the level of each cube: the length of its
+	 * shortest path of solid cubes to the border, UNREACHABLE for a solid cube
+	 * that is not connected to the border, or PASSABLE. A block that is not
+	 * allocated has only solid cubes, with the levels of an entirely solid
+	 * world.
+	 */
+	private final int[][] levels;
+
+	/**
+	 * The blocks registering for each cube the last stamp given to it. A block
+	 * that is not allocated has only unstamped cubes.
+	 */
+	private final int[][] marks;
+
+	private static final int PASSABLE = -1;
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final int BLOCK_SHIFT = 12;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private int getLevel(int index) {
+		int[] block = levels[index >>> BLOCK_SHIFT];
+		return block == null ? getSolidWorldLevel(index) : block[index & BLOCK_MASK];
+	}
+
+	private void setLevel(int index, int level) {
+		int[] block = levels[index >>> BLOCK_SHIFT];
+		if (block == null) {
+			if (level == getSolidWorldLevel(index))
+				return;
+			block = new int[BLOCK_SIZE];
+			int first = index & ~BLOCK_MASK;
+			for (int i = 0; i < BLOCK_SIZE; i++)
+				block[i] = getSolidWorldLevel(first + i);
+			levels[index >>> BLOCK_SHIFT] = block;
+		}
+		block[index & BLOCK_MASK] = level;
+	}
+
+	/**
+	 * Return the level of the cube with the given index in an entirely solid
+	 * world: its distance to the nearest border.
+	 */
+	private int getSolidWorldLevel(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		return Math.min(Math.min(Math.min(x, nbX - 1 - x), Math.min(y, nbY - 1 - y)), Math.min(z, nbZ - 1 - z));
+	}
+
+	private int getMark(int index) {
+		int[] block = marks[index >>> BLOCK_SHIFT];
+		return block == null ? 0 : block[index & BLOCK_MASK];
+	}
+
+	private void setMark(int index, int stamp) {
+		int[] block = marks[index >>> BLOCK_SHIFT];
+		if (block == null) {
+			block = new int[BLOCK_SIZE];
+			marks[index >>> BLOCK_SHIFT] = block;
+		}
+		block[index & BLOCK_MASK] = stamp;
+	}
+
+	/**
+	 * The last stamp handed out.
+	 */
+	private int stamp = 0;
+
+	/**
+	 * A reusable buffer collecting the affected cubes of the last update.
+	 */
+	private int[] affectedCubes = new int[64];
+
+	/**
+	 * The number of cubes in the buffer of affected cubes.
+	 */
+	private int affectedSize = 0;
+
+	/**
+	 * A reusable deque of cubes still to visit.
+	 */
+	private final IntDeque deque = new IntDeque();
+
+	/**
+	 * A reusable heap of cubes still to visit, ordered by their level.
+	 */
+	private final IntHeap heap = new IntHeap();
+
+	private static final int NB_DIRECTIONS = 6;
+
+	/**
+	 * Make sure the given number of stamps can be handed out without overflow.
+	 *
+	 * @post If the stamps would overflow, all cubes are unmarked and the stamps
+	 *       start again from the beginning.
+	 */
+	private void reserveStamps(int number) {
+		if (stamp > Integer.MAX_VALUE - number) {
+			for (int[] block : marks)
+				if (block != null)
+					Arrays.fill(block, 0);
+			stamp = 0;
+		}
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * (nbX * nbY);
+	}
+
+	private int[] getCoordinate(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / (nbX * nbY) };
+	}
+
+	private boolean isSolid(int index) {
+		return getLevel(index) != PASSABLE;
+	}
+
+	private boolean isSolidConnectedToBorder(int index) {
+		int level = getLevel(index);
+		return level != PASSABLE && level != UNREACHABLE;
+	}
+
+	private boolean isBorder(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+	}
+
+	/**
+	 * Return the index of the directly adjacent cube of the given cube in the
+	 * given direction, or -1 if that cube is outside the world or passable.
+	 */
+	private int getAdjacentSolid(int index, int direction) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		int neighbour;
+		switch (direction) {
+		case 0:
+			if (x == 0)
+				return -1;
+			neighbour = index - 1;
+			break;
+		case 1:
+			if (x == nbX - 1)
+				return -1;
+			neighbour = index + 1;
+			break;
+		case 2:
+			if (y == 0)
+				return -1;
+			neighbour = index - nbX;
+			break;
+		case 3:
+			if (y == nbY - 1)
+				return -1;
+			neighbour = index + nbX;
+			break;
+		case 4:
+			if (z == 0)
+				return -1;
+			neighbour = index - nbX * nbY;
+			break;
+		default:
+			if (z == nbZ - 1)
+				return -1;
+			neighbour = index + nbX * nbY;
+			break;
+		}
+		return isSolid(neighbour) ? neighbour : -1;
+	}
+
+	/**
+	 * A growable first-in first-out queue of int values, backed by a circular
+	 * array.
+	 */
+	private static final class IntDeque {
+
+		private int[] elements = new int[64];
+		private int head = 0;
+		private int size = 0;
+
+		void clear() {
+			head = 0;
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void addLast(int value) {
+			if (size == elements.length) {
+				int[] grown = new int[2 * elements.length];
+				for (int i = 0; i < size; i++)
+					grown[i] = elements[(head + i) & (elements.length - 1)];
+				elements = grown;
+				head = 0;
+			}
+			elements[(head + size) & (elements.length - 1)] = value;
+			size++;
+		}
+
+		int pollFirst() {
+			int value = elements[head];
+			head = (head + 1) & (elements.length - 1);
+			size--;
+			return value;
+		}
+	}
+
+	/**
+	 * A growable binary min-heap of int values with int keys, packed in longs.
+	 */
+	private static final class IntHeap {
+
+		private long[] elements = new long[64];
+		private int size = 0;
+
+		void clear() {
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void add(int key, int value) {
+			if (size == elements.length)
+				elements = Arrays.copyOf(elements, 2 * size);
+			long element = ((long) key << 32) | (value & 0xFFFFFFFFL);
+			int index = size++;
+			while (index > 0 && elements[(index - 1) / 2] > element) {
+				elements[index] = elements[(index - 1) / 2];
+				index = (index - 1) / 2;
+			}
+			elements[index] = element;
+		}
+
+		int peekKey() {
+			return (int) (elements[0] >>> 32);
+		}
+
+		int poll() {
+			int value = (int) elements[0];
+			long last = elements[--size];
+			int index = 0;
+			while (2 * index + 1 < size) {
+				int child = 2 * index + 1;
+				if (child + 1 < size && elements[child + 1] < elements[child])
+					child++;
+				if (last <= elements[child])
+					break;
+				elements[index] = elements[child];
+				index = child;
+			}
+			elements[index] = last;
+			return value;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				for (int x = 0; x < nbX; x++) {
+					int index = getIndex(x, y, z);
+					result.append((isSolidConnectedToBorder(index) ? "@@" : (isSolid(index) ? "oo" : "..")));
+				}
+				result.append("\n");
+			}
+			result.append("\n");
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,458 @@
+package hillbillies.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An implementation of the algorithm of {@link ConnectedToBorder} that works on
+ * flat cube indices instead of boxed coordinate lists.
+ *
+ * The visited cubes of a search and the cubes of which the connection to the
+ * border is known during an update are registered by stamping them with the
+ * number of the search in a reusable int array, instead of collecting them in
+ * hash sets. The cubes still to visit are kept in a reusable int array deque.
+ *
+ * The state and the stamp of the cubes are stored in blocks of consecutive
+ * cube indices, which are only allocated once one of their cubes changes. A
+ * large world of which only a small part is ever dug out thus only needs
+ * memory for that part.
+ *
+ * The contract of the public methods is the same as the contract of the
+ * corresponding methods of {@link ConnectedToBorder}: the same cubes are
+ * reported, possibly in a different order.
+ *
+ * The algorithm assumes two things: (1) initially, the entire world is solid;
+ * (2) a cube can only transition from solid to passable.
+ */
+public class IndexedConnectedToBorder {
+
+	/**
+	 * Create a new instance of the algorithm, initialized for a world of the
+	 * given dimensions where all cubes are solid.
+	 *
+	 * @param nbX
+	 * @param nbY
+	 * @param nbZ
+	 */
+	public IndexedConnectedToBorder(int nbX, int nbY, int nbZ) {
+		this.nbX = nbX;
+		this.nbY = nbY;
+		this.nbZ = nbZ;
+		int nbBlocks = (int) (((long) nbX * nbY * nbZ + BLOCK_SIZE - 1) >> BLOCK_SHIFT);
+		this.states = new byte[nbBlocks][];
+		this.marks = new int[nbBlocks][];
+	}
+
+	/**
+	 * Returns whether the cube at the given position is a solid cube that is
+	 * connected to a border of the world through other directly adjacent solid
+	 * cubes.
+	 *
+	 * @note The result is pre-computed, so this query returns immediately.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to test
+	 * @param y
+	 *            The y-coordinate of the cube to test
+	 * @param z
+	 *            The z-coordinate of the cube to test
+	 * @return true if the cube is connected; false otherwise
+	 */
+	public boolean isSolidConnectedToBorder(int x, int y, int z) {
+		return isSolidConnectedToBorder(getIndex(x, y, z));
+	}
+
+	/**
+	 * Make the cube at the given position solid instead of passable, and return
+	 * the list of coordinates that became connected to a border of the world
+	 * due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make solid
+	 * @param y
+	 *            The y-coordinate of the cube to make solid
+	 * @param z
+	 *            The z-coordinate of the cube to make solid
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become connected to the border by performing
+	 *         this change. If non-empty, this always includes the provided
+	 *         coordinate itself.
+	 */
+	public List<int[]> changePassableToSolid(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (isSolid(index))
+			return Collections.emptyList();
+		setState(index, SOLID_NOT_CONNECTED);
+		if (!isBorder(index) && !hasConnectedAdjacentSolid(index))
+			return Collections.emptyList();
+		List<int[]> result = new ArrayList<>();
+		reserveStamps(1);
+		int search = ++stamp;
+		deque.clear();
+		deque.addLast(index);
+		setMark(index, search);
+		while (!deque.isEmpty()) {
+			int cube = deque.pollFirst();
+			setState(cube, SOLID);
+			result.add(getCoordinate(cube));
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour >= 0 && getMark(neighbour) != search && !isSolidConnectedToBorder(neighbour)) {
+					setMark(neighbour, search);
+					deque.addLast(neighbour);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Make the cube at the given position passable instead of solid, and return
+	 * the list of coordinates that are no longer connected to a border of the
+	 * world due to this change.
+	 *
+	 * @param x
+	 *            The x-coordinate of the cube to make passable
+	 * @param y
+	 *            The y-coordinate of the cube to make passable
+	 * @param z
+	 *            The z-coordinate of the cube to make passable
+	 *
+	 * @return The list of cube coordinates (where each coordinate is an array
+	 *         {x, y, z}) that have become disconnected from the border by
+	 *         performing this change.
+	 */
+	public List<int[]> changeSolidToPassable(int x, int y, int z) {
+		int index = getIndex(x, y, z);
+		if (!isSolid(index))
+			return Collections.emptyList();
+
+		setState(index, PASSABLE);
+
+		List<int[]> changed = new ArrayList<>();
+		// every search of this update gets its own stamp; a cube stamped by an
+		// earlier search of this update has a known connection to the border
+		reserveStamps(NB_DIRECTIONS);
+		int firstSearch = stamp + 1;
+		Arrays.fill(searchConnected, false);
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getAdjacentSolid(index, direction);
+			if (neighbour < 0 || getMark(neighbour) >= firstSearch)
+				continue;
+			int search = ++stamp;
+			boolean connected = existsPathToBorder(neighbour, firstSearch, search);
+			searchConnected[search - firstSearch] = connected;
+			if (!connected) {
+				// the whole solid blob of the neighbour has been visited and
+				// is definitely NOT connected to the border
+				for (int i = 0; i < visitedSize; i++) {
+					int cube = visited[i];
+					setState(cube, SOLID_NOT_CONNECTED);
+					changed.add(getCoordinate(cube));
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Return whether a path of solid cubes exists from the given cube to the
+	 * border, stamping all visited cubes with the given search stamp.
+	 *
+	 * @param origin
+	 *            The index of the cube to start from.
+	 * @param firstSearch
+	 *            The stamp of the first search of the current update.
+	 * @param search
+	 *            The stamp of this search.
+	 * @post The visited cubes of this search are collected in the visited
+	 *       buffer, from index 0 up to the visited size.
+	 */
+	private boolean existsPathToBorder(int origin, int firstSearch, int search) {
+		visitedSize = 0;
+		deque.clear();
+		deque.addFirst(origin);
+		visit(origin, search);
+		while (!deque.isEmpty()) {
+			// this might take a long time - check if the impatient user has
+			// stopped us yet
+			if (Thread.currentThread().isInterrupted()) {
+				throw new IllegalStateException();
+			}
+			int cube = deque.pollFirst();
+			if (isBorder(cube))
+				return true;
+			for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+				int neighbour = getAdjacentSolid(cube, direction);
+				if (neighbour < 0)
+					continue;
+				int neighbourMark = getMark(neighbour);
+				if (neighbourMark == search)
+					continue;
+				if (neighbourMark >= firstSearch)
+					// the connection of this neighbour is already known
+					return searchConnected[neighbourMark - firstSearch];
+				visit(neighbour, search);
+				deque.addFirst(neighbour);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stamp the given cube as visited by the given search, and add it to the
+	 * visited buffer.
+	 */
+	private void visit(int cube, int search) {
+		setMark(cube, search);
+		if (visitedSize == visited.length)
+			visited = Arrays.copyOf(visited, 2 * visitedSize);
+		visited[visitedSize++] = cube;
+	}
+
+	/*
+	 * THE FIELDS AND OPERATIONS BELOW ARE PRIVATE
+	 */
+
+	private final int nbX;
+	private final int nbY;
+	private final int nbZ;
+
+	/**
+	 * The blocks registering the state of each cube: solid and connected to
+	 * the border, solid and not connected to the border, or passable. A block
+	 * that is not allocated has only solid cubes connected to the border.
+	 */
+	private final byte[][] states;
+
+	/**
+	 * The blocks registering for each cube the stamp of the last search that
+	 * visited it. A block that is not allocated has only unvisited cubes.
+	 */
+	private final int[][] marks;
+
+	private static final byte SOLID = 0;
+	private static final byte SOLID_NOT_CONNECTED = 1;
+	private static final byte PASSABLE = 2;
+
+	private static final int BLOCK_SHIFT = 12;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private byte getState(int index) {
+		byte[] block = states[index >>> BLOCK_SHIFT];
+		return block == null ? SOLID : block[index & BLOCK_MASK];
+	}
+
+	private void setState(int index, byte state) {
+		byte[] block = states[index >>> BLOCK_SHIFT];
+		if (block == null) {
+			if (state == SOLID)
+				return;
+			block = new byte[BLOCK_SIZE];
+			states[index >>> BLOCK_SHIFT] = block;
+		}
+		block[index & BLOCK_MASK] = state;
+	}
+
+	private int getMark(int index) {
+		int[] block = marks[index >>> BLOCK_SHIFT];
+		return block == null ? 0 : block[index & BLOCK_MASK];
+	}
+
+	private void setMark(int index, int stamp) {
+		int[] block = marks[index >>> BLOCK_SHIFT];
+		if (block == null) {
+			block = new int[BLOCK_SIZE];
+			marks[index >>> BLOCK_SHIFT] = block;
+		}
+		block[index & BLOCK_MASK] = stamp;
+	}
+
+	/**
+	 * The last stamp handed out to a search.
+	 */
+	private int stamp = 0;
+
+	/**
+	 * An array registering, for each search of the current update, whether it
+	 * found a path to the border.
+	 */
+	private final boolean[] searchConnected = new boolean[NB_DIRECTIONS];
+
+	/**
+	 * A reusable buffer collecting the cubes visited by the last search.
+	 */
+	private int[] visited = new int[64];
+
+	/**
+	 * The number of cubes in the visited buffer.
+	 */
+	private int visitedSize = 0;
+
+	/**
+	 * A reusable deque of cubes still to visit.
+	 */
+	private final IntDeque deque = new IntDeque();
+
+	private static final int NB_DIRECTIONS = 6;
+
+	/**
+	 * Make sure the given number of stamps can be handed out without overflow.
+	 *
+	 * @post If the stamps would overflow, all cubes are unmarked and the stamps
+	 *       start again from the beginning.
+	 */
+	private void reserveStamps(int number) {
+		if (stamp > Integer.MAX_VALUE - number) {
+			for (int[] block : marks)
+				if (block != null)
+					Arrays.fill(block, 0);
+			stamp = 0;
+		}
+	}
+
+	private int getIndex(int x, int y, int z) {
+		return x + y * nbX + z * (nbX * nbY);
+	}
+
+	private int[] getCoordinate(int index) {
+		return new int[] { index % nbX, (index / nbX) % nbY, index / (nbX * nbY) };
+	}
+
+	private boolean isSolid(int index) {
+		return getState(index) != PASSABLE;
+	}
+
+	private boolean isSolidConnectedToBorder(int index) {
+		return getState(index) == SOLID;
+	}
+
+	private boolean isBorder(int index) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		return x == 0 || x == nbX - 1 || y == 0 || y == nbY - 1 || z == 0 || z == nbZ - 1;
+	}
+
+	private boolean hasConnectedAdjacentSolid(int index) {
+		for (int direction = 0; direction < NB_DIRECTIONS; direction++) {
+			int neighbour = getAdjacentSolid(index, direction);
+			if (neighbour >= 0 && isSolidConnectedToBorder(neighbour))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the index of the directly adjacent cube of the given cube in the
+	 * given direction, or -1 if that cube is outside the world or passable.
+	 */
+	private int getAdjacentSolid(int index, int direction) {
+		int x = index % nbX;
+		int y = (index / nbX) % nbY;
+		int z = index / (nbX * nbY);
+		int neighbour;
+		switch (direction) {
+		case 0:
+			if (x == 0)
+				return -1;
+			neighbour = index - 1;
+			break;
+		case 1:
+			if (x == nbX - 1)
+				return -1;
+			neighbour = index + 1;
+			break;
+		case 2:
+			if (y == 0)
+				return -1;
+			neighbour = index - nbX;
+			break;
+		case 3:
+			if (y == nbY - 1)
+				return -1;
+			neighbour = index + nbX;
+			break;
+		case 4:
+			if (z == 0)
+				return -1;
+			neighbour = index - nbX * nbY;
+			break;
+		default:
+			if (z == nbZ - 1)
+				return -1;
+			neighbour = index + nbX * nbY;
+			break;
+		}
+		return isSolid(neighbour) ? neighbour : -1;
+	}
+
+	/**
+	 * A growable double-ended queue of int values, backed by a circular array.
+	 */
+	private static final class IntDeque {
+
+		private int[] elements = new int[64];
+		private int head = 0;
+		private int size = 0;
+
+		void clear() {
+			head = 0;
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void addFirst(int value) {
+			ensureCapacity();
+			head = (head - 1) & (elements.length - 1);
+			elements[head] = value;
+			size++;
+		}
+
+		void addLast(int value) {
+			ensureCapacity();
+			elements[(head + size) & (elements.length - 1)] = value;
+			size++;
+		}
+
+		int pollFirst() {
+			int value = elements[head];
+			head = (head + 1) & (elements.length - 1);
+			size--;
+			return value;
+		}
+
+		private void ensureCapacity() {
+			if (size < elements.length)
+				return;
+			int[] grown = new int[2 * elements.length];
+			for (int i = 0; i < size; i++)
+				grown[i] = elements[(head + i) & (elements.length - 1)];
+			elements = grown;
+			head = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (int z = 0; z < nbZ; z++) {
+			for (int y = 0; y < nbY; y++) {
+				for (int x = 0; x < nbX; x++) {
+					int index = getIndex(x, y, z);
+					result.append((isSolidConnectedToBorder(index) ? "@@" : (isSolid(index) ? "oo" : "..")));
+				}
+				result.append("\n");
+			}
+			result.append("\n");
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,132 @@
+package hillbillies.tests.benchmark;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import hillbillies.model.BinaryWorldFile;
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.util.DynamicConnectedToBorder;
+import hillbillies.util.IndexedConnectedToBorder;
+
+/**
+ * Compare the indexed and the dynamic connection to the border on the bundled maps.
+ *
+ * Each tracker first carves out the passable cubes of a map, in random order, and then
+ * replays a mining session in which cubes next to passable cubes are dug out one by one,
+ * as units digging into the walls of the caves of the map would. Both trackers replay the
+ * same changes and must report the same number of cubes caving in.
+ * Usage: ConnectedToBorderBenchmark [number of digs] [map files...]
+ */
+public class ConnectedToBorderBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int nbDigs = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		List<File> maps = new ArrayList<>();
+		for (int i = 1; i < args.length; i++)
+			maps.add(new File(args[i]));
+		if (maps.isEmpty())
+			for (File file : new File("src-provided/resources").listFiles((dir, name) -> name.endsWith(".wrld")))
+				maps.add(file);
+		maps.sort(null);
+		PrintStream out = System.out;
+		out.printf("%-16s %8s %14s %14s %12s %12s %8s%n", "map", "cave-ins", "indexed carve", "dynamic carve",
+				"indexed dig", "dynamic dig", "speedup");
+		for (File map : maps) {
+			ChunkedTerrain terrain = BinaryWorldFile.readText(new FileReader(map));
+			List<int[]> carve = getPassableCubes(terrain);
+			Collections.shuffle(carve, new Random(1516));
+			List<int[]> digs = getDigs(terrain, nbDigs, new Random(1617));
+			// warm up both trackers before measuring
+			runIndexed(terrain, carve, digs);
+			runDynamic(terrain, carve, digs);
+			long[] indexed = runIndexed(terrain, carve, digs);
+			long[] dynamic = runDynamic(terrain, carve, digs);
+			if (indexed[2] != dynamic[2])
+				throw new IllegalStateException("the trackers disagree on " + map.getName());
+			out.printf("%-16s %8d %12.1fms %12.1fms %10.1fms %10.1fms %8.2f%n", map.getName(), indexed[2],
+					indexed[0] / 1e6, dynamic[0] / 1e6, indexed[1] / 1e6, dynamic[1] / 1e6,
+					(double) indexed[1] / dynamic[1]);
+		}
+	}
+
+	/**
+	 * Return the nanoseconds spent carving and digging with the indexed tracker, and the number of
+	 * cubes that caved in.
+	 */
+	private static long[] runIndexed(ChunkedTerrain terrain, List<int[]> carve, List<int[]> digs) {
+		IndexedConnectedToBorder tracker = new IndexedConnectedToBorder(terrain.getxDimension(),
+				terrain.getyDimension(), terrain.getzDimension());
+		long nbCaveIns = 0;
+		long start = System.nanoTime();
+		for (int[] cube : carve)
+			nbCaveIns += tracker.changeSolidToPassable(cube[0], cube[1], cube[2]).size();
+		long carved = System.nanoTime();
+		for (int[] cube : digs)
+			nbCaveIns += tracker.changeSolidToPassable(cube[0], cube[1], cube[2]).size();
+		return new long[] { carved - start, System.nanoTime() - carved, nbCaveIns };
+	}
+
+	/**
+	 * Return the nanoseconds spent carving and digging with the dynamic tracker, and the number of
+	 * cubes that caved in.
+	 */
+	private static long[] runDynamic(ChunkedTerrain terrain, List<int[]> carve, List<int[]> digs) {
+		DynamicConnectedToBorder tracker = new DynamicConnectedToBorder(terrain.getxDimension(),
+				terrain.getyDimension(), terrain.getzDimension());
+		long nbCaveIns = 0;
+		long start = System.nanoTime();
+		for (int[] cube : carve)
+			nbCaveIns += tracker.changeSolidToPassable(cube[0], cube[1], cube[2]).size();
+		long carved = System.nanoTime();
+		for (int[] cube : digs)
+			nbCaveIns += tracker.changeSolidToPassable(cube[0], cube[1], cube[2]).size();
+		return new long[] { carved - start, System.nanoTime() - carved, nbCaveIns };
+	}
+
+	/**
+	 * Return the passable cubes of the given terrain.
+	 */
+	private static List<int[]> getPassableCubes(ChunkedTerrain terrain) {
+		List<int[]> passable = new ArrayList<>();
+		for (int x = 0; x < terrain.getxDimension(); x++)
+			for (int y = 0; y < terrain.getyDimension(); y++)
+				for (int z = 0; z < terrain.getzDimension(); z++)
+					if (terrain.getTerrain(x, y, z).isPassable())
+						passable.add(new int[] { x, y, z });
+		return passable;
+	}
+
+	/**
+	 * Return the given number of solid cubes of the given terrain, each next to a passable cube of
+	 * the terrain or to an earlier cube of the result.
+	 */
+	private static List<int[]> getDigs(ChunkedTerrain terrain, int nbDigs, Random random) {
+		int nbX = terrain.getxDimension(), nbY = terrain.getyDimension(), nbZ = terrain.getzDimension();
+		boolean[][][] passable = new boolean[nbX][nbY][nbZ];
+		List<int[]> open = getPassableCubes(terrain);
+		for (int[] cube : open)
+			passable[cube[0]][cube[1]][cube[2]] = true;
+		if (open.isEmpty())
+			open.add(new int[] { nbX / 2, nbY / 2, nbZ / 2 });
+		List<int[]> digs = new ArrayList<>();
+		for (int attempt = 0; digs.size() < nbDigs && attempt < 100 * nbDigs; attempt++) {
+			int[] from = open.get(random.nextInt(open.size()));
+			int axis = random.nextInt(3);
+			int[] cube = from.clone();
+			cube[axis] += random.nextBoolean() ? 1 : -1;
+			if (cube[0] < 0 || cube[0] >= nbX || cube[1] < 0 || cube[1] >= nbY || cube[2] < 0 || cube[2] >= nbZ
+					|| passable[cube[0]][cube[1]][cube[2]])
+				continue;
+			passable[cube[0]][cube[1]][cube[2]] = true;
+			open.add(cube);
+			digs.add(cube);
+		}
+		return digs;
+	}
+}
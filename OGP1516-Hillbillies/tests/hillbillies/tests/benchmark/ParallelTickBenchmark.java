@@ -0,0 +1,113 @@
+package hillbillies.tests.benchmark;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import hillbillies.model.BinaryWorldFile;
+import hillbillies.model.Status;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+/**
+ * Compare the serial and the parallel tick of worlds on the bundled maps.
+ *
+ * Each world is populated with the maximal number of units, half of which keep walking to
+ * random cubes while each unit of the other half follows one of them, and advances time
+ * for a number of simulated seconds.
+ * Usage: ParallelTickBenchmark [seconds] [map files...]
+ */
+public class ParallelTickBenchmark {
+
+	private static final double STEP = 0.1;
+
+	public static void main(String[] args) throws IOException {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 30.0;
+		List<File> maps = new ArrayList<>();
+		for (int i = 1; i < args.length; i++)
+			maps.add(new File(args[i]));
+		if (maps.isEmpty())
+			for (File file : new File("src-provided/resources").listFiles((dir, name) -> name.endsWith(".wrld")))
+				maps.add(file);
+		maps.sort(null);
+		PrintStream out = System.out;
+		out.printf("%d threads%n", Runtime.getRuntime().availableProcessors());
+		out.printf("%-16s %14s %14s %8s%n", "map", "serial ticks/s", "parallel ticks/s", "speedup");
+		for (File map : maps) {
+			// warm up both ticks before measuring
+			run(map, 2.0, false);
+			run(map, 2.0, true);
+			double serial = run(map, seconds, false);
+			double parallel = run(map, seconds, true);
+			out.printf("%-16s %14.1f %16.1f %8.2f%n", map.getName(), serial, parallel, parallel / serial);
+		}
+	}
+
+	/**
+	 * Return the number of ticks per second of a world with the given map and the given kind of tick.
+	 */
+	private static double run(File map, double seconds, boolean parallelTick) throws IOException {
+		World world = new World(BinaryWorldFile.readText(new FileReader(map)), new DefaultTerrainChangeListener());
+		world.setParallelTick(parallelTick);
+		// let the cubes that are not connected to the border cave in before the units arrive
+		world.advanceTime(STEP);
+		Random random = new Random(1516);
+		List<int[]> standable = getStandableCubes(world);
+		List<Unit> units = new ArrayList<>();
+		for (int i = 0; i < 100 && !standable.isEmpty(); i++) {
+			int[] cube = standable.get(random.nextInt(standable.size()));
+			Unit unit = new Unit("Unit", new double[] { cube[0] + 0.5, cube[1] + 0.5, cube[2] + 0.5 }, 50, 50, 50, 50, false);
+			world.addAsUnit(unit);
+			units.add(unit);
+		}
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		int nbTicks = (int) (seconds / STEP);
+		long start = System.nanoTime();
+		try {
+			for (int tick = 0; tick < nbTicks; tick++) {
+				for (int i = 0; i < units.size(); i++) {
+					Unit unit = units.get(i);
+					if (unit.isTerminated() || unit.getStatus() != Status.DONE)
+						continue;
+					if (i % 2 == 0)
+						unit.moveTo1(standable.get(random.nextInt(standable.size())));
+					else if (!units.get(i - 1).isTerminated())
+						unit.startFollowing(units.get(i - 1));
+				}
+				try {
+					world.advanceTime(STEP);
+				} catch (IllegalArgumentException exc) {
+					// a unit that cannot reach its target falls back to its default behaviour, which
+					// sometimes fails; the remaining units of that tick are skipped in both kinds of tick
+				}
+			}
+		} finally {
+			System.setOut(out);
+		}
+		return nbTicks / ((System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Return the passable cubes of the given world that are right above a solid cube.
+	 */
+	private static List<int[]> getStandableCubes(World world) {
+		List<int[]> standable = new ArrayList<>();
+		for (int x = 0; x < world.getxDimension(); x++)
+			for (int y = 0; y < world.getyDimension(); y++)
+				for (int z = 1; z < world.getzDimension(); z++)
+					if (world.getPassable(new int[] { x, y, z }) && !world.getPassable(new int[] { x, y, z - 1 }))
+						standable.add(new int[] { x, y, z });
+		return standable;
+	}
+}
@@ -0,0 +1,90 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.BinaryWorldFile;
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.TerrainType;
+import hillbillies.part2.internal.map.GameMap;
+import hillbillies.part2.internal.map.GameMapReader;
+
+public class TestBinaryWorldFile {
+
+	@Test
+	public void write_PackedRoundTrip() throws IOException {
+		ChunkedTerrain terrain = createRandomTerrain(21, 13, 37);
+		assertArrayEquals(terrain.toMatrix(), writeAndRead(terrain, false).toMatrix());
+	}
+
+	@Test
+	public void write_RunLengthRoundTrip() throws IOException {
+		ChunkedTerrain terrain = createRandomTerrain(21, 13, 37);
+		assertArrayEquals(terrain.toMatrix(), writeAndRead(terrain, true).toMatrix());
+	}
+
+	@Test
+	public void read_UniformChunksStayUniform() throws IOException {
+		ChunkedTerrain terrain = new ChunkedTerrain(64, 64, 64, TerrainType.ROCK);
+		terrain.setTerrain(3, 4, 5, TerrainType.AIR);
+		assertEquals(1, writeAndRead(terrain, false).getNbDenseChunks());
+		assertEquals(1, writeAndRead(terrain, true).getNbDenseChunks());
+	}
+
+	@Test(expected = IOException.class)
+	public void read_InvalidMagic() throws IOException {
+		BinaryWorldFile.read(ByteBuffer.allocate(64));
+	}
+
+	@Test
+	public void readText_SameAsGameMapReader() throws IOException {
+		File[] files = new File("src-provided/resources").listFiles((dir, name) -> name.endsWith(".wrld"));
+		assertNotNull(files);
+		for (File file : files) {
+			GameMap map = new GameMapReader().readFromReader(new FileReader(file));
+			ChunkedTerrain terrain = BinaryWorldFile.readText(new FileReader(file));
+			assertEquals(map.getNbTilesX(), terrain.getxDimension());
+			assertEquals(map.getNbTilesY(), terrain.getyDimension());
+			assertEquals(map.getNbTilesZ(), terrain.getzDimension());
+			for (int x = 0; x < terrain.getxDimension(); x++)
+				for (int y = 0; y < terrain.getyDimension(); y++)
+					for (int z = 0; z < terrain.getzDimension(); z++)
+						assertEquals(map.getTypeAt(x, y, z).getByteValue(), terrain.getTerrain(x, y, z).getType());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void readText_UnknownType() throws IOException {
+		BinaryWorldFile.readText(new StringReader("2 1 1\n\n.X\n"));
+	}
+
+	private static ChunkedTerrain createRandomTerrain(int nbX, int nbY, int nbZ) {
+		Random random = new Random(1516);
+		int[][][] types = new int[nbX][nbY][nbZ];
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					types[x][y][z] = z < 10 ? TerrainType.ROCK.getType() : random.nextInt(4);
+		return new ChunkedTerrain(types);
+	}
+
+	private static ChunkedTerrain writeAndRead(ChunkedTerrain terrain, boolean runLengthEncoded) throws IOException {
+		Path path = Files.createTempFile("world", BinaryWorldFile.BINARY_EXTENSION);
+		try {
+			BinaryWorldFile.write(terrain, path, runLengthEncoded);
+			return BinaryWorldFile.read(path);
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+}
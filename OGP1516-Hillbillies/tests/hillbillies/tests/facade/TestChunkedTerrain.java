@@ -0,0 +1,68 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.ChunkedTerrain;
+import hillbillies.model.TerrainType;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestChunkedTerrain {
+
+	@Test
+	public void constructor_MatrixRoundTrip() {
+		Random random = new Random(1516);
+		int[][][] types = new int[20][35][17];
+		for (int x = 0; x < 20; x++)
+			for (int y = 0; y < 35; y++)
+				for (int z = 10; z < 17; z++)
+					types[x][y][z] = random.nextInt(4);
+		ChunkedTerrain terrain = new ChunkedTerrain(types);
+		assertArrayEquals(types, terrain.toMatrix());
+		// 2 x 3 x 2 chunks hold random cubes, the chunks with z up to 15 also hold air
+		assertEquals(12, terrain.getNbDenseChunks());
+	}
+
+	@Test
+	public void setTerrain_UniformChunkBecomesDense() {
+		ChunkedTerrain terrain = new ChunkedTerrain(40, 40, 40, TerrainType.ROCK);
+		assertEquals(0, terrain.getNbDenseChunks());
+		terrain.setTerrain(17, 3, 39, TerrainType.ROCK);
+		assertEquals(0, terrain.getNbDenseChunks());
+		terrain.setTerrain(17, 3, 39, TerrainType.WORKSHOP);
+		assertEquals(1, terrain.getNbDenseChunks());
+		assertEquals(TerrainType.WORKSHOP, terrain.getTerrain(17, 3, 39));
+		assertEquals(TerrainType.ROCK, terrain.getTerrain(16, 3, 39));
+		assertEquals(1, terrain.getCubesOfTerrain(TerrainType.WORKSHOP).size());
+	}
+
+	@Test
+	public void world_TerrainTypesStaysTheSameMatrix() {
+		World world = new World(new ChunkedTerrain(5, 5, 5, TerrainType.AIR), new DefaultTerrainChangeListener());
+		int[][][] types = world.getTerrainTypes();
+		System.gc();
+		assertSame(types, world.getTerrainTypes());
+		world.setTerrain(new int[] { 1, 2, 3 }, TerrainType.ROCK);
+		assertEquals(TerrainType.ROCK.getType(), types[1][2][3]);
+		int[][][] other = new int[5][5][5];
+		world.setTerrainTypes(other);
+		assertSame(other, world.getTerrainTypes());
+		world.setTerrain(new int[] { 1, 2, 3 }, TerrainType.TREE);
+		assertEquals(TerrainType.TREE.getType(), other[1][2][3]);
+		assertEquals(TerrainType.ROCK.getType(), types[1][2][3]);
+	}
+
+	@Test
+	public void world_LargeUniformTerrain() {
+		ChunkedTerrain terrain = new ChunkedTerrain(1024, 1024, 256, TerrainType.ROCK);
+		World world = new World(terrain, new DefaultTerrainChangeListener());
+		world.setTerrain(new int[] { 500, 600, 100 }, TerrainType.AIR);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 500, 600, 100 }));
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 1023, 1023, 255 }));
+		assertEquals(1, terrain.getNbDenseChunks());
+	}
+}
@@ -0,0 +1,97 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.Set;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.facade.Facade;
+import hillbillies.part3.facade.IFacade;
+import ogp.framework.util.ModelException;
+
+public class TestCubeOccupancy {
+
+	private final IFacade facade = new Facade();
+
+	@Test
+	public void getUnits_ManyUnitsAndCubes() throws ModelException {
+		World world = createWorld();
+		Unit[] units = new Unit[60];
+		for (int i = 0; i < units.length; i++) {
+			units[i] = facade.createUnit("Test", new int[] { i % 10, (i / 10) % 5, 1 }, 50, 50, 50, 50, false);
+			facade.addUnit(units[i], world);
+		}
+		for (int i = 0; i < units.length; i++)
+			assertTrue(world.getUnits(units[i].getCubeCoordinate()).contains(units[i]));
+		assertEquals(2, world.getUnits(new int[] { 3, 0, 1 }).size());
+		assertSame(world.getUnits(new int[] { 3, 0, 1 }), world.getUnits(world.getCubeIndex(3, 0, 1)));
+		// moving units out of cubes in the middle of probe sequences keeps the other cubes reachable
+		for (int i = 0; i < units.length; i += 2)
+			units[i].setPosition(new double[] { 9.5, 4.5, 1.5 });
+		for (int i = 1; i < units.length; i += 2)
+			assertTrue(world.getUnits(units[i].getCubeCoordinate()).contains(units[i]));
+		// the even units and unit 49, which was already there
+		assertEquals(31, world.getUnits(new int[] { 9, 4, 1 }).size());
+		assertTrue(world.getUnits(new int[] { 0, 0, 1 }).isEmpty());
+	}
+
+	@Test
+	public void setPosition_SameCubeKeepsOccupants() throws ModelException {
+		World world = createWorld();
+		Unit unit = facade.createUnit("Test", new int[] { 1, 1, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		Set<Unit> occupants = world.getUnits(new int[] { 1, 1, 1 });
+		unit.setPosition(new double[] { 1.2, 1.9, 1.1 });
+		assertSame(occupants, world.getUnits(new int[] { 1, 1, 1 }));
+		assertTrue(occupants.contains(unit));
+		unit.setPosition(new double[] { 2.5, 1.5, 1.5 });
+		assertTrue(world.getUnits(new int[] { 1, 1, 1 }).isEmpty());
+		assertTrue(world.getUnits(new int[] { 2, 1, 1 }).contains(unit));
+	}
+
+	@Test
+	public void getUnits_LeftCubeNotReused() throws ModelException {
+		World world = createWorld();
+		Unit unit = facade.createUnit("Test", new int[] { 1, 1, 1 }, 50, 50, 50, 50, false);
+		Unit other = facade.createUnit("Test", new int[] { 5, 1, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		Set<Unit> occupants = world.getUnits(new int[] { 1, 1, 1 });
+		unit.setPosition(new double[] { 2.5, 1.5, 1.5 });
+		facade.addUnit(other, world);
+		other.setPosition(new double[] { 6.5, 1.5, 1.5 });
+		// the set of a cube that was left never shows the occupants of other cubes
+		assertTrue(occupants.isEmpty());
+		assertFalse(world.getUnits(new int[] { 6, 1, 1 }).contains(unit));
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void getUnits_IteratorFailsFast() throws ModelException {
+		World world = createWorld();
+		for (int i = 0; i < 3; i++)
+			facade.addUnit(facade.createUnit("Test", new int[] { 1, 1, 1 }, 50, 50, 50, 50, false), world);
+		for (Unit unit : world.getUnits(new int[] { 1, 1, 1 }))
+			unit.setPosition(new double[] { 2.5, 1.5, 1.5 });
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void getUnits_Unmodifiable() throws ModelException {
+		World world = createWorld();
+		Unit unit = facade.createUnit("Test", new int[] { 1, 1, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		world.getUnits(new int[] { 1, 1, 1 }).add(unit);
+	}
+
+	private World createWorld() throws ModelException {
+		int[][][] types = new int[10][5][3];
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 5; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		return facade.createWorld(types, new DefaultTerrainChangeListener());
+	}
+}
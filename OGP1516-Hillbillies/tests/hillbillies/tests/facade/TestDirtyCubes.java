@@ -0,0 +1,92 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestDirtyCubes {
+
+	@Test
+	public void setTerrain_DisconnectedCubeCavesInNextTick() {
+		World world = createWorld();
+		world.advanceTime(0.1);
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 2, 2, 2 }));
+		assertTrue(world.isSolidConnectedToBorder(new int[] { 2, 2, 2 }));
+		world.setTerrain(new int[] { 2, 2, 1 }, TerrainType.AIR);
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 2, 2, 2 }));
+		world.advanceTime(0.1);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 2 }));
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 2, 2, 0 }));
+	}
+
+	@Test
+	public void setTerrain_FloatingRockCollapsesBeforeFirstTick() {
+		World world = createWorld();
+		world.setTerrain(new int[] { 2, 2, 1 }, TerrainType.AIR);
+		world.setTerrain(new int[] { 0, 0, 1 }, TerrainType.ROCK);
+		for (int tick = 0; tick < 5; tick++)
+			world.advanceTime(0.1);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 2 }));
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 1 }));
+		// the new rock lies on the border of the world
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 0, 0, 1 }));
+		assertTrue(world.isSolidConnectedToBorder(new int[] { 0, 0, 1 }));
+	}
+
+	@Test
+	public void constructor_SameCaveInsAsSetTerrainTypes() {
+		int[][][] types = createTypes();
+		types[2][2][1] = TerrainType.AIR.getType();
+		World created = new World(types, new DefaultTerrainChangeListener());
+		types = createTypes();
+		types[2][2][1] = TerrainType.AIR.getType();
+		World replaced = createWorld();
+		replaced.setTerrainTypes(types);
+		created.advanceTime(0.1);
+		replaced.advanceTime(0.1);
+		for (int z = 0; z < 4; z++) {
+			assertEquals(replaced.getTerrain(new int[] { 2, 2, z }), created.getTerrain(new int[] { 2, 2, z }));
+			assertEquals(replaced.isSolidConnectedToBorder(new int[] { 2, 2, z }),
+					created.isSolidConnectedToBorder(new int[] { 2, 2, z }));
+		}
+		assertEquals(TerrainType.AIR, created.getTerrain(new int[] { 2, 2, 2 }));
+	}
+
+	@Test
+	public void setTerrainTypes_FallsBackToFullScan() {
+		World world = createWorld();
+		int[][][] types = world.getTerrainTypes();
+		types[2][2][1] = TerrainType.AIR.getType();
+		world.setTerrainTypes(types);
+		assertEquals(TerrainType.ROCK, world.getTerrain(new int[] { 2, 2, 2 }));
+		world.advanceTime(0.1);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 2 }));
+		assertTrue(world.isSolidConnectedToBorder(new int[] { 2, 2, 0 }));
+		assertFalse(world.isSolidConnectedToBorder(new int[] { 2, 2, 1 }));
+	}
+
+	/**
+	 * Return a world with the terrain types of createTypes.
+	 */
+	private static World createWorld() {
+		return new World(createTypes(), new DefaultTerrainChangeListener());
+	}
+
+	/**
+	 * Return the terrain types of a world of 5 by 5 by 4 cubes with a floor of rock and a column of rock 
+	 * on its middle cube.
+	 */
+	private static int[][][] createTypes() {
+		int[][][] types = new int[5][5][4];
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		types[2][2][1] = TerrainType.ROCK.getType();
+		types[2][2][2] = TerrainType.ROCK.getType();
+		return types;
+	}
+}
@@ -0,0 +1,130 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.DynamicConnectedToBorder;
+
+public class TestDynamicConnectedToBorder {
+
+	@Test
+	public void changeSolidToPassable_SingleCubeCaveIn() {
+		ConnectedToBorder original = new ConnectedToBorder(3, 3, 3);
+		DynamicConnectedToBorder dynamic = new DynamicConnectedToBorder(3, 3, 3);
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 1; z < 3; z++)
+					if (x != 1 || y != 1 || z != 1)
+						assertSameCubes(original.changeSolidToPassable(x, y, z), dynamic.changeSolidToPassable(x, y, z));
+		assertTrue(dynamic.isSolidConnectedToBorder(1, 1, 1));
+		assertSameState(original, dynamic, 3, 3, 3);
+	}
+
+	@Test
+	public void changeSolidToPassable_RandomSequences() {
+		Random random = new Random(1516);
+		for (int run = 0; run < 20; run++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			ConnectedToBorder original = new ConnectedToBorder(nbX, nbY, nbZ);
+			DynamicConnectedToBorder dynamic = new DynamicConnectedToBorder(nbX, nbY, nbZ);
+			for (int step = 0; step < nbX * nbY * nbZ / 2; step++) {
+				int x = random.nextInt(nbX);
+				int y = random.nextInt(nbY);
+				int z = random.nextInt(nbZ);
+				assertSameCubes(original.changeSolidToPassable(x, y, z), dynamic.changeSolidToPassable(x, y, z));
+			}
+			assertSameState(original, dynamic, nbX, nbY, nbZ);
+		}
+	}
+
+	@Test
+	public void changePassableToSolid_RandomSequences() {
+		Random random = new Random(1617);
+		for (int run = 0; run < 20; run++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			ConnectedToBorder original = new ConnectedToBorder(nbX, nbY, nbZ);
+			DynamicConnectedToBorder dynamic = new DynamicConnectedToBorder(nbX, nbY, nbZ);
+			for (int step = 0; step < nbX * nbY * nbZ; step++) {
+				int x = random.nextInt(nbX);
+				int y = random.nextInt(nbY);
+				int z = random.nextInt(nbZ);
+				if (random.nextInt(3) == 0)
+					assertSameCubes(original.changePassableToSolid(x, y, z), dynamic.changePassableToSolid(x, y, z));
+				else
+					assertSameCubes(original.changeSolidToPassable(x, y, z), dynamic.changeSolidToPassable(x, y, z));
+			}
+			assertSameState(original, dynamic, nbX, nbY, nbZ);
+		}
+	}
+
+	@Test
+	public void getLevel_TunnelDetour() {
+		DynamicConnectedToBorder dynamic = new DynamicConnectedToBorder(7, 7, 7);
+		assertEquals(3, dynamic.getLevel(3, 3, 3));
+		// dig out the cubes between the centre and the border in three directions
+		for (int x = 0; x < 3; x++)
+			dynamic.changeSolidToPassable(x, 3, 3);
+		assertEquals(3, dynamic.getLevel(3, 3, 3));
+		for (int z = 4; z < 7; z++)
+			dynamic.changeSolidToPassable(3, 3, z);
+		assertEquals(3, dynamic.getLevel(3, 3, 3));
+		assertEquals(-1, dynamic.getLevel(3, 3, 4));
+		assertEquals(0, dynamic.getLevel(0, 0, 0));
+	}
+
+	@Test
+	public void changeDisconnectedToPassable_DisconnectedRegion() {
+		DynamicConnectedToBorder dynamic = new DynamicConnectedToBorder(7, 7, 7);
+		List<int[]> disconnected = new ArrayList<>();
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 7; y++)
+				for (int z = 0; z < 7; z++)
+					if (x == 0 || x == 6 || y == 0 || y == 6 || z == 0 || z == 6) {
+						assertFalse(dynamic.changeDisconnectedToPassable(x, y, z));
+						disconnected.addAll(dynamic.changeSolidToPassable(x, y, z));
+					}
+		// carving the border disconnects the entire inner block
+		assertEquals(125, disconnected.size());
+		for (int[] cube : disconnected)
+			assertTrue(dynamic.changeDisconnectedToPassable(cube[0], cube[1], cube[2]));
+		for (int[] cube : disconnected) {
+			assertFalse(dynamic.changeDisconnectedToPassable(cube[0], cube[1], cube[2]));
+			assertTrue(dynamic.changeSolidToPassable(cube[0], cube[1], cube[2]).isEmpty());
+			assertEquals(-1, dynamic.getLevel(cube[0], cube[1], cube[2]));
+		}
+		assertTrue(dynamic.changePassableToSolid(3, 3, 3).isEmpty());
+		assertFalse(dynamic.isSolidConnectedToBorder(3, 3, 3));
+	}
+
+	private static void assertSameCubes(List<int[]> expected, List<int[]> actual) {
+		assertEquals(toSet(expected), toSet(actual));
+		assertEquals(expected.size(), actual.size());
+	}
+
+	private static void assertSameState(ConnectedToBorder original, DynamicConnectedToBorder dynamic, int nbX,
+			int nbY, int nbZ) {
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					assertEquals(original.isSolidConnectedToBorder(x, y, z), dynamic.isSolidConnectedToBorder(x, y, z));
+	}
+
+	private static Set<Integer> toSet(List<int[]> cubes) {
+		Set<Integer> result = new HashSet<>();
+		for (int[] cube : cubes)
+			result.add((cube[0] * 1000 + cube[1]) * 1000 + cube[2]);
+		return result;
+	}
+}
@@ -0,0 +1,47 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+import hillbillies.model.TickPhase;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.HeadlessRunner;
+
+public class TestHeadlessRunner {
+
+	@Test
+	public void run_ReportsTicksAndPhases() throws Exception {
+		HeadlessRunner runner = new HeadlessRunner("src-provided/resources/15x15x15.wrld");
+		runner.setSeconds(2.0);
+		runner.setTimeStep(0.2);
+		runner.setNbUnits(5);
+		runner.addTaskFile("src-provided/resources/tasks/goto_10_10_10.txt");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		runner.run(new PrintStream(bytes, true));
+		String report = bytes.toString();
+		assertTrue(report.contains("5 units"));
+		assertTrue(report.contains("10 ticks of 0.200 s"));
+		for (TickPhase phase : TickPhase.values())
+			assertTrue(report.contains(phase.toString()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setTimeStep_TooLarge() {
+		new HeadlessRunner("src-provided/resources/15x15x15.wrld").setTimeStep(0.25);
+	}
+
+	@Test
+	public void advanceTime_PhaseTimes() {
+		World world = new World(new int[3][3][3], new DefaultTerrainChangeListener());
+		world.advanceTime(0.1);
+		assertTrue(world.getPhaseTime(TickPhase.TERRAIN) > 0);
+		world.resetPhaseTimes();
+		for (TickPhase phase : TickPhase.values())
+			assertEquals(0.0, world.getPhaseTime(phase), 0.0);
+	}
+}
@@ -0,0 +1,90 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import hillbillies.util.ConnectedToBorder;
+import hillbillies.util.IndexedConnectedToBorder;
+
+public class TestIndexedConnectedToBorder {
+
+	@Test
+	public void changeSolidToPassable_SingleCubeCaveIn() {
+		ConnectedToBorder original = new ConnectedToBorder(3, 3, 3);
+		IndexedConnectedToBorder indexed = new IndexedConnectedToBorder(3, 3, 3);
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 1; z < 3; z++)
+					if (x != 1 || y != 1 || z != 1)
+						assertSameCubes(original.changeSolidToPassable(x, y, z), indexed.changeSolidToPassable(x, y, z));
+		assertTrue(indexed.isSolidConnectedToBorder(1, 1, 1));
+		assertSameState(original, indexed, 3, 3, 3);
+	}
+
+	@Test
+	public void changeSolidToPassable_RandomSequences() {
+		Random random = new Random(1516);
+		for (int run = 0; run < 20; run++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			ConnectedToBorder original = new ConnectedToBorder(nbX, nbY, nbZ);
+			IndexedConnectedToBorder indexed = new IndexedConnectedToBorder(nbX, nbY, nbZ);
+			for (int step = 0; step < nbX * nbY * nbZ / 2; step++) {
+				int x = random.nextInt(nbX);
+				int y = random.nextInt(nbY);
+				int z = random.nextInt(nbZ);
+				assertSameCubes(original.changeSolidToPassable(x, y, z), indexed.changeSolidToPassable(x, y, z));
+			}
+			assertSameState(original, indexed, nbX, nbY, nbZ);
+		}
+	}
+
+	@Test
+	public void changePassableToSolid_RandomSequences() {
+		Random random = new Random(1617);
+		for (int run = 0; run < 20; run++) {
+			int nbX = 3 + random.nextInt(8);
+			int nbY = 3 + random.nextInt(8);
+			int nbZ = 3 + random.nextInt(8);
+			ConnectedToBorder original = new ConnectedToBorder(nbX, nbY, nbZ);
+			IndexedConnectedToBorder indexed = new IndexedConnectedToBorder(nbX, nbY, nbZ);
+			for (int step = 0; step < nbX * nbY * nbZ; step++) {
+				int x = random.nextInt(nbX);
+				int y = random.nextInt(nbY);
+				int z = random.nextInt(nbZ);
+				if (random.nextInt(3) == 0)
+					assertSameCubes(original.changePassableToSolid(x, y, z), indexed.changePassableToSolid(x, y, z));
+				else
+					assertSameCubes(original.changeSolidToPassable(x, y, z), indexed.changeSolidToPassable(x, y, z));
+			}
+			assertSameState(original, indexed, nbX, nbY, nbZ);
+		}
+	}
+
+	private static void assertSameCubes(List<int[]> expected, List<int[]> actual) {
+		assertEquals(toSet(expected), toSet(actual));
+		assertEquals(expected.size(), actual.size());
+	}
+
+	private static void assertSameState(ConnectedToBorder original, IndexedConnectedToBorder indexed, int nbX,
+			int nbY, int nbZ) {
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				for (int z = 0; z < nbZ; z++)
+					assertEquals(original.isSolidConnectedToBorder(x, y, z), indexed.isSolidConnectedToBorder(x, y, z));
+	}
+
+	private static Set<Integer> toSet(List<int[]> cubes) {
+		Set<Integer> result = new HashSet<>();
+		for (int[] cube : cubes)
+			result.add((cube[0] * 1000 + cube[1]) * 1000 + cube[2]);
+		return result;
+	}
+}
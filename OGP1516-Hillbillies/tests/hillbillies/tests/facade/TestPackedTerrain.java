@@ -0,0 +1,43 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.PackedTerrain;
+import hillbillies.model.TerrainType;
+
+public class TestPackedTerrain {
+
+	@Test
+	public void constructor_MatrixRoundTrip() {
+		Random random = new Random(1516);
+		int[][][] types = new int[7][5][11];
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 5; y++)
+				for (int z = 0; z < 11; z++)
+					types[x][y][z] = random.nextInt(4);
+		PackedTerrain terrain = new PackedTerrain(types);
+		assertArrayEquals(types, terrain.toMatrix());
+		assertEquals(TerrainType.getTerrain(types[6][4][10]), terrain.getTerrain(6, 4, 10));
+	}
+
+	@Test
+	public void setTerrain_NeighbouringCubesUnchanged() {
+		PackedTerrain terrain = new PackedTerrain(4, 4, 4);
+		for (int x = 0; x < 4; x++)
+			terrain.setTerrain(x, 1, 1, TerrainType.WORKSHOP);
+		terrain.setTerrain(2, 1, 1, TerrainType.TREE);
+		assertEquals(TerrainType.WORKSHOP, terrain.getTerrain(1, 1, 1));
+		assertEquals(TerrainType.TREE, terrain.getTerrain(2, 1, 1));
+		assertEquals(TerrainType.WORKSHOP, terrain.getTerrain(3, 1, 1));
+		assertEquals(TerrainType.AIR, terrain.getTerrain(3, 2, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_InvalidType() {
+		new PackedTerrain(new int[][][] { { { 0, 4 } } });
+	}
+}
@@ -0,0 +1,97 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestParallelTick {
+
+	@Test
+	public void advanceTime_SameAsSerial() {
+		World serialWorld = createWorld();
+		World parallelWorld = createWorld();
+		parallelWorld.setParallelTick(true);
+		List<Unit> serialUnits = spawnMovingUnits(serialWorld);
+		List<Unit> parallelUnits = spawnMovingUnits(parallelWorld);
+		for (int tick = 0; tick < 200; tick++) {
+			serialWorld.advanceTime(0.1);
+			parallelWorld.advanceTime(0.1);
+			for (int i = 0; i < serialUnits.size(); i++)
+				assertArrayEquals(serialUnits.get(i).getPosition(), parallelUnits.get(i).getPosition(), 0.0);
+		}
+	}
+
+	@Test
+	public void advanceTime_TerrainChangeDuringTick() {
+		World serialWorld = createWorld();
+		World parallelWorld = createWorld();
+		parallelWorld.setParallelTick(true);
+		List<Unit> serialUnits = spawnMovingUnits(serialWorld);
+		List<Unit> parallelUnits = spawnMovingUnits(parallelWorld);
+		List<int[]> pillarTops = new ArrayList<>();
+		for (int x = 0; x < serialWorld.getxDimension(); x++)
+			for (int y = 0; y < serialWorld.getyDimension(); y++)
+				if (!serialWorld.getPassable(new int[] { x, y, 3 }))
+					pillarTops.add(new int[] { x, y, 3 });
+		for (int tick = 0; tick < 100; tick++) {
+			if (tick % 5 == 0) {
+				// the units must plan their paths against the changed terrain
+				int[] cube = pillarTops.get(tick % pillarTops.size());
+				serialWorld.setTerrain(cube, TerrainType.AIR);
+				parallelWorld.setTerrain(cube, TerrainType.AIR);
+			}
+			serialWorld.advanceTime(0.1);
+			parallelWorld.advanceTime(0.1);
+			for (int i = 0; i < serialUnits.size(); i++)
+				assertArrayEquals(serialUnits.get(i).getPosition(), parallelUnits.get(i).getPosition(), 0.0);
+		}
+	}
+
+	/**
+	 * Create a world with a rock floor and rock pillars, none of which can cave in.
+	 */
+	private static World createWorld() {
+		Random random = new Random(1516);
+		int[][][] types = new int[30][30][6];
+		for (int x = 0; x < 30; x++)
+			for (int y = 0; y < 30; y++) {
+				types[x][y][0] = TerrainType.ROCK.getType();
+				if (random.nextInt(5) == 0)
+					for (int z = 1; z < 4; z++)
+						types[x][y][z] = TerrainType.ROCK.getType();
+			}
+		return new World(types, new DefaultTerrainChangeListener());
+	}
+
+	private static List<Unit> spawnMovingUnits(World world) {
+		Random random = new Random(1516);
+		List<int[]> standable = new ArrayList<>();
+		for (int x = 0; x < world.getxDimension(); x++)
+			for (int y = 0; y < world.getyDimension(); y++)
+				for (int z = 1; z < world.getzDimension(); z++) {
+					int[] cube = { x, y, z };
+					if (world.getPassable(cube) && !world.getPassable(new int[] { x, y, z - 1 }))
+						standable.add(cube);
+				}
+		List<Unit> units = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			int[] start = standable.get(random.nextInt(standable.size()));
+			int[] target = standable.get(random.nextInt(standable.size()));
+			Unit unit = new Unit("Unit", new double[] { start[0] + 0.5, start[1] + 0.5, start[2] + 0.5 },
+					50, 50, 50, 50, false);
+			world.addAsUnit(unit);
+			unit.moveTo1(target);
+			units.add(unit);
+		}
+		return units;
+	}
+}
@@ -0,0 +1,208 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.PathFinder;
+import hillbillies.model.TerrainType;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestPathFinder {
+
+	@Test
+	public void findPath_StraightAndDiagonalOnFloor() {
+		World world = createFloorWorld(10, 10, 3);
+		int[] start = { 0, 0, 1 };
+		int[] target = { 9, 3, 1 };
+		LinkedList<int[]> path = new PathFinder(world).findPath(start, target);
+		assertValidPath(world, start, target, path);
+		// on an open floor, the octile distance is the cost of a shortest path
+		assertEquals(PathFinder.getEstimatedCost(start, target), getCost(start, path), 1e-9);
+		assertEquals(9, path.size());
+	}
+
+	@Test
+	public void findPath_SameCube() {
+		World world = createFloorWorld(5, 5, 3);
+		assertTrue(new PathFinder(world).findPath(new int[] { 2, 2, 1 }, new int[] { 2, 2, 1 }).isEmpty());
+	}
+
+	@Test
+	public void findPath_ShortestAmongObstacles() {
+		Random random = new Random(1516);
+		World world = createFloorWorld(12, 12, 4);
+		for (int x = 0; x < 12; x++)
+			for (int y = 0; y < 12; y++)
+				if (random.nextInt(4) == 0) {
+					world.setTerrain(new int[] { x, y, 1 }, TerrainType.ROCK);
+					if (random.nextBoolean())
+						world.setTerrain(new int[] { x, y, 2 }, TerrainType.TREE);
+				}
+		List<int[]> standable = getStandableCubes(world);
+		// one path finder is reused for all searches
+		PathFinder pathFinder = new PathFinder(world);
+		for (int search = 0; search < 200; search++) {
+			int[] start = standable.get(random.nextInt(standable.size()));
+			int[] target = standable.get(random.nextInt(standable.size()));
+			LinkedList<int[]> path = pathFinder.findPath(start, target);
+			double expected = getShortestCost(world, start, target);
+			if (expected == Double.POSITIVE_INFINITY) {
+				assertNull(path);
+			} else {
+				assertValidPath(world, start, target, path);
+				assertEquals(expected, getCost(start, path), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void findPath_UnreachableTarget() {
+		World world = createFloorWorld(10, 10, 3);
+		int[] target = { 8, 8, 1 };
+		for (int x = 7; x <= 9; x++)
+			for (int y = 7; y <= 9; y++)
+				for (int z = 1; z <= 2; z++)
+					if (x != 8 || y != 8 || z != 1)
+						world.setTerrain(new int[] { x, y, z }, TerrainType.ROCK);
+		assertNull(new PathFinder(world).findPath(new int[] { 0, 0, 1 }, target));
+	}
+
+	@Test
+	public void findPath_TargetNotStandable() {
+		World world = createFloorWorld(10, 10, 4);
+		int[] start = { 0, 0, 1 };
+		// the target itself need not be walkable, so a solid cube next to walkable cubes can be reached
+		int[] solid = { 5, 5, 1 };
+		world.setTerrain(solid, TerrainType.ROCK);
+		assertFalse(world.getPassable(solid));
+		LinkedList<int[]> path = new PathFinder(world).findPath(start, solid);
+		assertValidPath(world, start, solid, path);
+		assertEquals(getShortestCost(world, start, solid), getCost(start, path), 1e-9);
+		// a cube in the air has no walkable neighbours, so there is no path to it
+		int[] floating = { 8, 8, 3 };
+		assertFalse(world.isNeighboringSolidTerrain(floating));
+		assertNull(new PathFinder(world).findPath(start, floating));
+	}
+
+	@Test
+	public void findPath_ReusedAfterTerrainChange() {
+		World world = createFloorWorld(10, 3, 3);
+		PathFinder pathFinder = new PathFinder(world);
+		int[] start = { 0, 1, 1 };
+		int[] target = { 9, 1, 1 };
+		assertEquals(9, pathFinder.findPath(start, target).size());
+		// a wall across the world, with one opening at y = 2
+		for (int y = 0; y < 2; y++)
+			for (int z = 1; z < 3; z++)
+				world.setTerrain(new int[] { 5, y, z }, TerrainType.ROCK);
+		world.setTerrain(new int[] { 5, 2, 2 }, TerrainType.ROCK);
+		LinkedList<int[]> path = pathFinder.findPath(start, target);
+		assertValidPath(world, start, target, path);
+		assertEquals(getShortestCost(world, start, target), getCost(start, path), 1e-9);
+		world.setTerrain(new int[] { 5, 2, 1 }, TerrainType.ROCK);
+		assertNull(pathFinder.findPath(start, target));
+		for (int y = 0; y < 3; y++)
+			for (int z = 1; z < 3; z++)
+				world.setTerrain(new int[] { 5, y, z }, TerrainType.AIR);
+		assertEquals(9, pathFinder.findPath(start, target).size());
+	}
+
+	/**
+	 * Check that the given path leads from the given start cube to the given target cube through
+	 * neighbouring cubes, each of which a unit can walk through.
+	 */
+	private static void assertValidPath(World world, int[] start, int[] target, List<int[]> path) {
+		assertNotNull(path);
+		int[] previous = start;
+		for (int[] cube : path) {
+			for (int i = 0; i < 3; i++)
+				assertTrue(Math.abs(cube[i] - previous[i]) <= 1);
+			assertFalse(Arrays.equals(cube, previous));
+			assertTrue(isWalkable(world, cube, target));
+			previous = cube;
+		}
+		assertArrayEquals(target, previous);
+	}
+
+	/**
+	 * Return the cost of walking the given path from the given start cube.
+	 */
+	private static double getCost(int[] start, List<int[]> path) {
+		double cost = 0;
+		int[] previous = start;
+		for (int[] cube : path) {
+			int dx = cube[0] - previous[0], dy = cube[1] - previous[1], dz = cube[2] - previous[2];
+			cost += Math.sqrt(dx * dx + dy * dy + dz * dz);
+			previous = cube;
+		}
+		return cost;
+	}
+
+	/**
+	 * Return the cost of a shortest path from the given start cube to the given target cube,
+	 * computed with Dijkstra's algorithm, or infinity if there is no path.
+	 */
+	private static double getShortestCost(World world, int[] start, int[] target) {
+		int nbX = world.getxDimension(), nbY = world.getyDimension(), nbZ = world.getzDimension();
+		double[][][] costs = new double[nbX][nbY][nbZ];
+		for (double[][] plane : costs)
+			for (double[] row : plane)
+				Arrays.fill(row, Double.POSITIVE_INFINITY);
+		PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+		costs[start[0]][start[1]][start[2]] = 0;
+		queue.add(new double[] { 0, start[0], start[1], start[2] });
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int x = (int) entry[1], y = (int) entry[2], z = (int) entry[3];
+			if (entry[0] > costs[x][y][z])
+				continue;
+			if (x == target[0] && y == target[1] && z == target[2])
+				return entry[0];
+			for (int[] neighbour : world.getNeighboringCubes(new int[] { x, y, z })) {
+				if (!isWalkable(world, neighbour, target))
+					continue;
+				int dx = neighbour[0] - x, dy = neighbour[1] - y, dz = neighbour[2] - z;
+				double cost = entry[0] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+				if (cost < costs[neighbour[0]][neighbour[1]][neighbour[2]]) {
+					costs[neighbour[0]][neighbour[1]][neighbour[2]] = cost;
+					queue.add(new double[] { cost, neighbour[0], neighbour[1], neighbour[2] });
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	private static boolean isWalkable(World world, int[] cube, int[] target) {
+		return Arrays.equals(cube, target) || (world.getPassable(cube) && world.isNeighboringSolidTerrain(cube));
+	}
+
+	private static List<int[]> getStandableCubes(World world) {
+		List<int[]> result = new ArrayList<>();
+		for (int x = 0; x < world.getxDimension(); x++)
+			for (int y = 0; y < world.getyDimension(); y++)
+				for (int z = 0; z < world.getzDimension(); z++)
+					if (world.isStandable(new int[] { x, y, z }))
+						result.add(new int[] { x, y, z });
+		return result;
+	}
+
+	/**
+	 * Return a world of the given dimensions with a floor of rock.
+	 */
+	private static World createFloorWorld(int nbX, int nbY, int nbZ) {
+		int[][][] types = new int[nbX][nbY][nbZ];
+		for (int x = 0; x < nbX; x++)
+			for (int y = 0; y < nbY; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		return new World(types, new DefaultTerrainChangeListener());
+	}
+}
@@ -0,0 +1,260 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import hillbillies.model.ExecutionContext;
+import hillbillies.model.Faction;
+import hillbillies.model.Program;
+import hillbillies.model.Task;
+import hillbillies.model.TaskFactory;
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.model.expression.AndExpression;
+import hillbillies.model.expression.BasicVariableExpression;
+import hillbillies.model.expression.BooleanExpression;
+import hillbillies.model.expression.FalseExpression;
+import hillbillies.model.expression.OrExpression;
+import hillbillies.model.expression.TrueExpression;
+import hillbillies.model.statement.AssignmentStatement;
+import hillbillies.model.statement.Statement;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.facade.Facade;
+import hillbillies.part3.facade.IFacade;
+import hillbillies.part3.programs.TaskParser;
+import ogp.framework.util.ModelException;
+
+public class TestProgram {
+
+	private final IFacade facade = new Facade();
+
+	@Test
+	public void program_WhileWithBreak() throws ModelException {
+		Task task = parseTask("while true do moveTo (2,0,1); break; done x := true;");
+		// branch, moveTo, break, loop, assignment
+		assertEquals(5, task.getProgram().getNbInstructions());
+		Unit unit = executeTask(task);
+		assertArrayEquals(new int[] { 2, 0, 1 }, unit.getCubeCoordinate());
+	}
+
+	@Test
+	public void program_IfElse() throws ModelException {
+		Task task = parseTask("if is_solid (1,1,1) then print true; else moveTo (0,2,1); fi");
+		// branch to else, print, jump, moveTo
+		assertEquals(4, task.getProgram().getNbInstructions());
+		Unit unit = executeTask(task);
+		assertArrayEquals(new int[] { 0, 2, 1 }, unit.getCubeCoordinate());
+	}
+
+	@Test
+	public void program_SharedByTasks() throws ModelException {
+		List<Task> tasks = TaskParser.parseTasksFromString("name: \"shared\"\npriority: 1\nactivities: x := selected; moveTo x;",
+				facade.createTaskFactory(), Arrays.asList(new int[] { 2, 0, 1 }, new int[] { 0, 2, 1 }));
+		assertSame(tasks.get(0).getProgram(), tasks.get(1).getProgram());
+		World world = createWorld();
+		Unit[] units = new Unit[2];
+		int[][] cubes = new int[2][];
+		for (int i = 0; i < 2; i++) {
+			units[i] = facade.createUnit("Test", new int[] { 0, 0, 1 }, 50, 50, 50, 50, true);
+			facade.addUnit(units[i], world);
+		}
+		assertNotSame(facade.getFaction(units[0]), facade.getFaction(units[1]));
+		for (int i = 0; i < 2; i++)
+			facade.schedule(facade.getScheduler(facade.getFaction(units[i])), tasks.get(i));
+		// both units execute the same program at the same time, each with its own value for x
+		for (int tick = 0; tick < 100 && (cubes[0] == null || cubes[1] == null); tick++) {
+			facade.advanceTime(world, 0.1);
+			for (int i = 0; i < 2; i++)
+				if (cubes[i] == null && !facade.areTasksPartOf(facade.getScheduler(facade.getFaction(units[i])),
+						Collections.singleton(tasks.get(i))))
+					cubes[i] = units[i].getCubeCoordinate();
+		}
+		assertArrayEquals(new int[] { 2, 0, 1 }, cubes[0]);
+		assertArrayEquals(new int[] { 0, 2, 1 }, cubes[1]);
+	}
+
+	@Test
+	public void program_VariableSlots() throws ModelException {
+		Task task = parseTask("x := true; y := (1,1,1); x := false; if is_solid y then moveTo (2,2,1); else moveTo y; fi");
+		assertEquals(2, task.getProgram().getNbVariables());
+		assertTrue(task.getProgram().isWellFormed());
+		Unit unit = executeTask(task);
+		assertArrayEquals(new int[] { 1, 1, 1 }, unit.getCubeCoordinate());
+	}
+
+	@Test
+	public void program_UnassignedNestedVariable() {
+		TaskFactory factory = new TaskFactory();
+		Statement activities = factory.createIf(factory.createIsSolid(factory.createReadVariable("y", null), null),
+				factory.createMoveTo(factory.createLiteralPosition(1, 1, 1, null), null), null, null);
+		assertFalse(new Program(activities).isWellFormed());
+		assertFalse(Task.isValidActivities(activities));
+	}
+
+	@Test
+	public void isWellFormed_LeavesSlotsUnresolved() {
+		TaskFactory factory = new TaskFactory();
+		AssignmentStatement<?> assignment = (AssignmentStatement<?>) factory.createAssignment("x",
+				factory.createTrue(null), null);
+		BasicVariableExpression<?> variable = (BasicVariableExpression<?>) factory.createReadVariable("x", null);
+		Statement activities = factory.createSequence(Arrays.asList(assignment, factory.createPrint(variable, null)),
+				null);
+		assertTrue(Task.isWellFormed(activities, null));
+		assertEquals(-1, assignment.getSlot());
+		assertEquals(-1, variable.getSlot());
+		Program program = new Program(activities, true);
+		assertTrue(program.isWellFormed());
+		assertEquals(1, program.getNbVariables());
+		assertEquals(0, assignment.getSlot());
+		assertEquals(0, variable.getSlot());
+	}
+
+	@Test
+	public void program_BusyLoopOverrunsBudget() throws ModelException {
+		Task task = parseTask("while true do x := true; done");
+		World world = createWorld();
+		Unit unit = facade.createUnit("Test", new int[] { 0, 0, 1 }, 50, 50, 50, 50, true);
+		facade.addUnit(unit, world);
+		Faction faction = facade.getFaction(unit);
+		facade.schedule(facade.getScheduler(faction), task);
+		for (int i = 0; i < 10; i++)
+			facade.advanceTime(world, 0.1);
+		// the loop never gives the unit something to do, so it uses up its budget every tick
+		assertSame(task, unit.getTask());
+		assertTrue(faction.getNbInstructionOverruns() >= 9);
+		assertEquals(Faction.INSTRUCTIONS_PER_MILLISECOND * 100, faction.getInstructionBudget()
+				+ Unit.getInstructionBudget(0.1));
+	}
+
+	@Test
+	public void program_BusyLoopsShareBudget() throws ModelException {
+		World world = createWorld();
+		// five factions of twenty units each
+		Unit first = null;
+		for (int i = 0; i < 100; i++) {
+			Unit unit = facade.createUnit("Test", new int[] { i % 3, (i / 3) % 3, 1 }, 50, 50, 50, 50, false);
+			facade.addUnit(unit, world);
+			if (first == null)
+				first = unit;
+		}
+		Faction faction = facade.getFaction(first);
+		assertEquals(20, faction.getUnits().size());
+		// together, the units of the faction want twice the instructions of the budget of the faction
+		for (int i = 0; i < 19; i++)
+			facade.schedule(facade.getScheduler(faction), parseTask("while true do x := true; done"));
+		Task task = parseTask("x := true; x := true; x := true; x := true; x := true; x := true; x := true; x := true;");
+		facade.schedule(facade.getScheduler(faction), task);
+		// only the units of this faction look for tasks, and each of them claims one
+		for (Unit unit : faction.getUnits())
+			facade.setDefaultBehaviorEnabled(unit, true);
+		assertNotNull(task.getExecutingUnit());
+		for (int i = 0; i < 10; i++)
+			facade.advanceTime(world, 0.1);
+		assertFalse(facade.areTasksPartOf(facade.getScheduler(faction), Collections.singleton(task)));
+	}
+
+	@Test
+	public void program_OptimisedLiterals() throws ModelException {
+		Task task = parseTask("while false do moveTo (2,2,1); done if (true && !true) || false then moveTo (2,2,1); "
+				+ "else moveTo ((0,2,1)); fi");
+		// only the moveTo of the else part remains
+		assertEquals(1, task.getProgram().getNbInstructions());
+		Unit unit = executeTask(task);
+		assertArrayEquals(new int[] { 0, 2, 1 }, unit.getCubeCoordinate());
+	}
+
+	@Test
+	public void program_OptimisedEmpty() throws ModelException {
+		Task task = parseTask("if false then moveTo (2,2,1); fi");
+		assertEquals(0, task.getProgram().getNbInstructions());
+		Unit unit = executeTask(task);
+		assertArrayEquals(new int[] { 0, 0, 1 }, unit.getCubeCoordinate());
+	}
+
+	@Test
+	public void program_IllFormedNotOptimised() {
+		// the assignment is only visible inside the if statement, also when the condition is true
+		assertNull(TaskParser.parseTasksFromString("name: \"program\"\npriority: 1\nactivities: "
+				+ "if true then x := (2,0,1); fi moveTo x;", facade.createTaskFactory(), Collections.emptyList()));
+	}
+
+	@Test
+	public void shortCircuit() {
+		int[] nbEvaluations = { 0 };
+		BooleanExpression counting = new BooleanExpression() {
+			@Override
+			public Boolean evaluateExpression(ExecutionContext context) {
+				nbEvaluations[0]++;
+				return true;
+			}
+		};
+		assertFalse(new AndExpression<>(new FalseExpression(), counting).evaluateExpression(null));
+		assertTrue(new OrExpression<>(new TrueExpression(), counting).evaluateExpression(null));
+		assertEquals(0, nbEvaluations[0]);
+		assertTrue(new AndExpression<>(new TrueExpression(), counting).evaluateExpression(null));
+		assertEquals(1, nbEvaluations[0]);
+	}
+
+	@Test
+	public void shortCircuit_OperandWithoutValue() {
+		int[] nbEvaluations = { 0 };
+		BooleanExpression noValue = new BooleanExpression() {
+			@Override
+			public Boolean evaluateExpression(ExecutionContext context) {
+				nbEvaluations[0]++;
+				return null;
+			}
+		};
+		// an operand without value makes the result have no value, and the right operand is skipped
+		assertNull(new AndExpression<>(noValue, noValue).evaluateExpression(null));
+		assertNull(new OrExpression<>(noValue, noValue).evaluateExpression(null));
+		assertEquals(2, nbEvaluations[0]);
+		assertNull(new AndExpression<>(new TrueExpression(), noValue).evaluateExpression(null));
+		assertNull(new OrExpression<>(new FalseExpression(), noValue).evaluateExpression(null));
+		assertFalse(new AndExpression<>(new FalseExpression(), noValue).evaluateExpression(null));
+		assertEquals(4, nbEvaluations[0]);
+	}
+
+	@Test
+	public void getInstructionBudget() {
+		assertEquals(100 * Unit.INSTRUCTIONS_PER_MILLISECOND, Unit.getInstructionBudget(0.1));
+		assertEquals(Unit.INSTRUCTIONS_PER_MILLISECOND, Unit.getInstructionBudget(0.0));
+	}
+
+	private Task parseTask(String activities) {
+		List<Task> tasks = TaskParser.parseTasksFromString("name: \"program\"\npriority: 1\nactivities: " + activities,
+				facade.createTaskFactory(), Collections.singletonList(new int[] { 1, 1, 1 }));
+		assertNotNull(tasks);
+		return tasks.get(0);
+	}
+
+	/**
+	 * Let a unit in a small world execute the given task until it is finished, and return that unit.
+	 */
+	private Unit executeTask(Task task) throws ModelException {
+		World world = createWorld();
+		Unit unit = facade.createUnit("Test", new int[] { 0, 0, 1 }, 50, 50, 50, 50, true);
+		facade.addUnit(unit, world);
+		facade.schedule(facade.getScheduler(facade.getFaction(unit)), task);
+		// stop as soon as the task is finished, before the default behaviour moves the unit elsewhere
+		for (int i = 0; i < 100 && facade.areTasksPartOf(facade.getScheduler(facade.getFaction(unit)),
+				Collections.singleton(task)); i++)
+			facade.advanceTime(world, 0.1);
+		assertFalse(facade.areTasksPartOf(facade.getScheduler(facade.getFaction(unit)), Collections.singleton(task)));
+		return unit;
+	}
+
+	private World createWorld() throws ModelException {
+		int[][][] types = new int[3][3][2];
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		return facade.createWorld(types, new DefaultTerrainChangeListener());
+	}
+}
@@ -0,0 +1,253 @@
+package hillbillies.tests.facade;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Faction;
+import hillbillies.model.Scheduler;
+import hillbillies.model.Task;
+import hillbillies.model.TaskFactory;
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.programs.TaskParser;
+
+public class TestScheduler {
+
+	private World world;
+	private Unit unit;
+	private Unit unit2;
+	private Scheduler scheduler;
+	private Task task1;
+	private Task task2;
+	private Task task3;
+
+	@Before
+	public void setUp() {
+		int[][][] types = new int[3][3][3];
+		types[1][1][0] = 1;
+		world = new World(types, new DefaultTerrainChangeListener());
+		unit = new Unit("Test", new double[] { 0, 0, 0 }, 50, 50, 50, 50, false);
+		unit2 = new Unit("Test", new double[] { 0, 0, 0 }, 50, 50, 50, 50, false);
+		scheduler = new Scheduler();
+		List<int[]> selectedCubes = new ArrayList<int[]>();
+		selectedCubes.add(new int[] { 1, 1, 1 });
+		selectedCubes.add(new int[] { 1, 2, 2 });
+		List<Task> tasks = TaskParser.parseTasksFromString("name: \"work task\"\npriority: 1\nactivities: work selected;",
+				new TaskFactory(), selectedCubes);
+		task1 = tasks.get(0);
+		task2 = tasks.get(1);
+		task3 = TaskParser.parseTasksFromString("name: \"low task\"\npriority: -10\nactivities: work selected;",
+				new TaskFactory(), Collections.singletonList(new int[] { 1, 1, 1 })).get(0);
+	}
+
+	@Test
+	public void iterator_PriorityOrder() {
+		scheduler.addAsTask(task3);
+		scheduler.addAsTask(task1);
+		scheduler.addAsTask(task2);
+		Iterator<Task> iterator = scheduler.iterator();
+		// tasks with the same priority keep the order in which they were added
+		Assert.assertEquals(task1, iterator.next());
+		Assert.assertEquals(task2, iterator.next());
+		scheduler.removeAsTask(task3);
+		// the iterator works on a snapshot
+		Assert.assertEquals(task3, iterator.next());
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void getHighestPriorityTask_Reprioritised() {
+		scheduler.addAsTask(task1);
+		scheduler.addAsTask(task2);
+		scheduler.addAsTask(task3);
+		Assert.assertEquals(task1, scheduler.getHighestPriorityTask());
+		task3.setPriority(5);
+		Assert.assertEquals(task3, scheduler.getHighestPriorityTask());
+		Assert.assertEquals(Arrays.asList(task3, task1, task2), scheduler.getTasks());
+		task3.setPriority(-10);
+		Assert.assertEquals(Arrays.asList(task1, task2, task3), scheduler.getTasks());
+	}
+
+	@Test
+	public void getHighestPriorityTask_Interrupted() {
+		world.addAsUnit(unit);
+		unit.getFaction().setScheduler(scheduler);
+		scheduler.addAsTask(task1);
+		scheduler.addAsTask(task2);
+		scheduler.addAsTask(task3);
+		task1.setExecutingUnit(unit);
+		Assert.assertEquals(task2, scheduler.getHighestPriorityTask());
+		task1.interruptExecution();
+		Assert.assertEquals(0, task1.getPriority());
+		Assert.assertEquals(task2, scheduler.getHighestPriorityTask());
+		Assert.assertEquals(Arrays.asList(task2, task1, task3), scheduler.getTasks());
+	}
+
+	@Test
+	public void getHighestPriorityTask_ForUnit() {
+		world.addAsUnit(unit);
+		world.addAsUnit(unit2);
+		Faction faction = unit.getFaction();
+		unit2.setFaction(null);
+		faction.addAsUnit(unit2);
+		faction.setScheduler(scheduler);
+		scheduler.addAsTask(task1);
+		scheduler.addAsTask(task3);
+		scheduler.markTaskForUnit(task1, unit2);
+		Assert.assertEquals(task3, scheduler.getHighestPriorityTask(unit));
+		Assert.assertEquals(task1, scheduler.getHighestPriorityTask(unit2));
+	}
+
+	@Test
+	public void claimTask_Concurrent() throws Exception {
+		world.addAsUnit(unit);
+		Faction faction = unit.getFaction();
+		faction.setScheduler(scheduler);
+		List<Unit> units = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			Unit claimer = new Unit("Test", new double[] { 0, 0, 0 }, 50, 50, 50, 50, false);
+			world.addAsUnit(claimer);
+			claimer.setFaction(null);
+			faction.addAsUnit(claimer);
+			units.add(claimer);
+		}
+		List<Task> tasks = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+			tasks.add(TaskParser.parseTasksFromString("name: \"task\"\npriority: " + i + "\nactivities: work position_of this;",
+					new TaskFactory(), Collections.emptyList()).get(0));
+		scheduler.addTasks(tasks);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Callable<Task>> claims = new ArrayList<>();
+		for (Unit claimer : units)
+			claims.add(() -> scheduler.claimTask(claimer));
+		List<Future<Task>> results = executor.invokeAll(claims);
+		executor.shutdown();
+		Set<Task> claimed = new HashSet<>();
+		for (int i = 0; i < units.size(); i++) {
+			Task task = results.get(i).get();
+			if (task != null) {
+				// no task is claimed twice
+				Assert.assertTrue(claimed.add(task));
+				Assert.assertEquals(units.get(i), task.getExecutingUnit());
+			}
+		}
+		Assert.assertEquals(new HashSet<>(tasks), claimed);
+		Assert.assertNull(scheduler.getHighestPriorityTask());
+		Assert.assertTrue(tasks.get(0).release(tasks.get(0).getExecutingUnit()));
+		Assert.assertEquals(tasks.get(0), scheduler.getHighestPriorityTask());
+	}
+
+	@Test
+	public void claim_AlreadyClaimed() {
+		world.addAsUnit(unit);
+		world.addAsUnit(unit2);
+		scheduler.addAsTask(task1);
+		Assert.assertTrue(task1.claim(unit));
+		Assert.assertFalse(task1.claim(unit2));
+		Assert.assertFalse(task1.release(unit2));
+		Assert.assertEquals(unit, task1.getExecutingUnit());
+		Assert.assertTrue(task1.release(unit));
+		Assert.assertNull(task1.getExecutingUnit());
+	}
+
+	@Test
+	public void assignTasks_ByTravelCost() {
+		World world = createFlatWorld();
+		Unit near = new Unit("Near", new double[] { 9.5, 0.5, 1.5 }, 50, 50, 50, 50, true);
+		Unit far = new Unit("Far", new double[] { 0.5, 0.5, 1.5 }, 50, 50, 50, 50, true);
+		world.addAsUnit(near);
+		world.addAsUnit(far);
+		Faction faction = near.getFaction();
+		far.setFaction(null);
+		faction.addAsUnit(far);
+		faction.setScheduler(scheduler);
+		List<Task> tasks = TaskParser.parseTasksFromString("name: \"work\"\npriority: 1\nactivities: work selected;",
+				new TaskFactory(), Arrays.asList(new int[] { 9, 2, 1 }, new int[] { 0, 2, 1 }));
+		Task urgent = TaskParser.parseTasksFromString("name: \"urgent\"\npriority: 5\nactivities: work selected;",
+				new TaskFactory(), Collections.singletonList(new int[] { 9, 1, 1 })).get(0);
+		scheduler.addTasks(tasks);
+		scheduler.assignTasks(Arrays.asList(far, near));
+		// each unit gets the task next to it
+		Assert.assertEquals(tasks.get(0), scheduler.getAssignedTask(near));
+		Assert.assertEquals(tasks.get(1), scheduler.getAssignedTask(far));
+		scheduler.addAsTask(urgent);
+		scheduler.assignTasks(Collections.singletonList(far));
+		// priority comes before travel cost
+		Assert.assertEquals(urgent, scheduler.getAssignedTask(far));
+		Assert.assertNull(scheduler.getAssignedTask(near));
+	}
+
+	@Test
+	public void assignTasks_MoreTasksThanUnits() {
+		World world = createFlatWorld();
+		Unit near = new Unit("Near", new double[] { 9.5, 0.5, 1.5 }, 50, 50, 50, 50, true);
+		world.addAsUnit(near);
+		near.getFaction().setScheduler(scheduler);
+		List<Task> tasks = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			tasks.add(TaskParser.parseTasksFromString("name: \"work\"\npriority: " + (i * 7) % 20
+					+ "\nactivities: work selected;", new TaskFactory(),
+					Collections.singletonList(new int[] { i % 10, 2, 1 })).get(0));
+		scheduler.addTasks(tasks);
+		scheduler.assignTasks(Collections.singletonList(near));
+		// only the task with the highest priority, 19 for i = 17, is assigned
+		Assert.assertEquals(tasks.get(17), scheduler.getAssignedTask(near));
+		Assert.assertEquals(tasks.get(17), scheduler.getHighestPriorityTask(near));
+		scheduler.assignTasks(Collections.<Unit>emptyList());
+		Assert.assertNull(scheduler.getAssignedTask(near));
+	}
+
+	@Test
+	public void assignTasks_ClaimedByDefaultBehaviour() {
+		World world = createFlatWorld();
+		Unit near = new Unit("Near", new double[] { 9.5, 0.5, 1.5 }, 50, 50, 50, 50, true);
+		Unit far = new Unit("Far", new double[] { 0.5, 0.5, 1.5 }, 50, 50, 50, 50, true);
+		world.addAsUnit(far);
+		world.addAsUnit(near);
+		Faction faction = near.getFaction();
+		far.setFaction(null);
+		faction.addAsUnit(far);
+		faction.setScheduler(scheduler);
+		Task task = TaskParser.parseTasksFromString("name: \"work\"\npriority: 1\nactivities: work selected;",
+				new TaskFactory(), Collections.singletonList(new int[] { 9, 2, 1 })).get(0);
+		scheduler.addAsTask(task);
+		world.advanceTime(0.1);
+		Assert.assertEquals(near, task.getExecutingUnit());
+		Assert.assertNull(far.getTask());
+	}
+
+	/**
+	 * Return a world of 10 by 3 by 2 cubes with a floor of rock.
+	 */
+	private World createFlatWorld() {
+		int[][][] types = new int[10][3][2];
+		for (int x = 0; x < 10; x++)
+			for (int y = 0; y < 3; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		return new World(types, new DefaultTerrainChangeListener());
+	}
+
+	@Test
+	public void replaceTask_KeepsOrder() {
+		scheduler.addAsTask(task1);
+		scheduler.addAsTask(task3);
+		scheduler.replaceTask(task1, task2);
+		Assert.assertEquals(Arrays.asList(task2, task3), scheduler.getTasks());
+		Assert.assertEquals(task2, scheduler.getHighestPriorityTask());
+	}
+}
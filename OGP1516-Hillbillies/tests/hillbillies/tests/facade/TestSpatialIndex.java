@@ -0,0 +1,65 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.SpatialIndex;
+import hillbillies.model.Vector;
+
+public class TestSpatialIndex {
+
+	@Test
+	public void findNearest_EmptyIndex() {
+		SpatialIndex<double[]> index = new SpatialIndex<double[]>(20, 20, 20, p -> p);
+		assertNull(index.findNearest(new double[] { 1.5, 1.5, 1.5 }, group -> true, null));
+	}
+
+	@Test
+	public void findNearest_MovedAndRemovedElements() {
+		SpatialIndex<double[]> index = new SpatialIndex<double[]>(30, 30, 30, p -> p);
+		double[] first = { 0.5, 0.5, 0.5 };
+		double[] second = { 29.5, 29.5, 29.5 };
+		index.add(first, new int[] { 0, 0, 0 }, null);
+		index.add(second, new int[] { 29, 29, 29 }, null);
+		assertSame(first, index.findNearest(new double[] { 5.5, 5.5, 5.5 }, group -> true, null));
+		assertSame(second, index.findNearest(new double[] { 5.5, 5.5, 5.5 }, group -> true, first));
+		first[0] = 28.5;
+		first[1] = 28.5;
+		first[2] = 28.5;
+		index.add(first, new int[] { 28, 28, 28 }, null);
+		assertSame(first, index.findNearest(new double[] { 27.5, 27.5, 27.5 }, group -> true, null));
+		index.remove(first);
+		assertEquals(1, index.size());
+		assertSame(second, index.findNearest(new double[] { 27.5, 27.5, 27.5 }, group -> true, null));
+	}
+
+	@Test
+	public void findNearest_RandomElementsAndGroups() {
+		Random random = new Random(1516);
+		SpatialIndex<double[]> index = new SpatialIndex<double[]>(50, 40, 30, p -> p);
+		List<double[]> elements = new ArrayList<double[]>();
+		List<Integer> groups = new ArrayList<Integer>();
+		for (int i = 0; i < 200; i++) {
+			double[] element = { random.nextDouble() * 50, random.nextDouble() * 40, random.nextDouble() * 30 };
+			int group = random.nextInt(3);
+			elements.add(element);
+			groups.add(group);
+			index.add(element, new int[] { (int) element[0], (int) element[1], (int) element[2] }, group);
+		}
+		for (int i = 0; i < 100; i++) {
+			double[] position = { random.nextDouble() * 50, random.nextDouble() * 40, random.nextDouble() * 30 };
+			Integer group = random.nextInt(3);
+			double[] expected = null;
+			for (int j = 0; j < elements.size(); j++)
+				if (groups.get(j) != group && (expected == null || Vector.getDistance(position, elements.get(j))
+						< Vector.getDistance(position, expected)))
+					expected = elements.get(j);
+			assertSame(expected, index.findNearest(position, other -> !group.equals(other), null));
+		}
+	}
+}
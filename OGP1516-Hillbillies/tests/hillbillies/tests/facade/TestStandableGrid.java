@@ -0,0 +1,102 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestStandableGrid {
+
+	@Test
+	public void setTerrain_MatchesNeighbours() {
+		Random random = new Random(1516);
+		int[][][] types = new int[6][5][4];
+		for (int x = 0; x < 6; x++)
+			for (int y = 0; y < 5; y++)
+				for (int z = 0; z < 4; z++)
+					types[x][y][z] = random.nextInt(4);
+		World world = new World(types, new DefaultTerrainChangeListener());
+		assertMatchesNeighbours(world);
+		for (int i = 0; i < 200; i++) {
+			int[] cube = { random.nextInt(6), random.nextInt(5), random.nextInt(4) };
+			world.setTerrain(cube, TerrainType.getTerrain(random.nextInt(4)));
+		}
+		assertMatchesNeighbours(world);
+	}
+
+	@Test
+	public void setTerrain_MatchesNeighboursAcrossChunks() {
+		Random random = new Random(16);
+		// rock below z = 17 and air above it, so most chunks are uniform
+		int[][][] types = new int[40][20][34];
+		for (int x = 0; x < 40; x++)
+			for (int y = 0; y < 20; y++)
+				for (int z = 0; z < 17; z++)
+					types[x][y][z] = TerrainType.ROCK.getType();
+		World world = new World(types, new DefaultTerrainChangeListener());
+		assertEquals(40 * 20, world.getNbStandableCubes());
+		assertMatchesNeighbours(world);
+		for (int i = 0; i < 2000; i++) {
+			int[] cube = { random.nextInt(40), random.nextInt(20), 14 + random.nextInt(6) };
+			world.setTerrain(cube, TerrainType.getTerrain(random.nextInt(4)));
+		}
+		// cubes on the sides of chunks that were uniform until now
+		world.setTerrain(new int[] { 16, 0, 31 }, TerrainType.ROCK);
+		world.setTerrain(new int[] { 31, 15, 0 }, TerrainType.AIR);
+		assertMatchesNeighbours(world);
+	}
+
+	@Test
+	public void spawnUnit_OnlyStandableCube() {
+		int[][][] types = new int[3][3][3];
+		for (int x = 0; x < 3; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 0; z < 3; z++)
+					types[x][y][z] = TerrainType.ROCK.getType();
+		types[1][2][1] = TerrainType.AIR.getType();
+		types[1][2][2] = TerrainType.AIR.getType();
+		World world = new World(types, new DefaultTerrainChangeListener());
+		assertEquals(1, world.getNbStandableCubes());
+		for (int i = 0; i < 10; i++) {
+			Unit unit = world.spawnUnit(false);
+			assertArrayEquals(new int[] { 1, 2, 1 }, unit.getCubeCoordinate());
+		}
+		world.setTerrain(new int[] { 1, 2, 1 }, TerrainType.ROCK);
+		assertEquals(1, world.getNbStandableCubes());
+		assertTrue(world.isStandable(new int[] { 1, 2, 2 }));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void spawnUnit_NoStandableCube() {
+		World world = new World(new int[][][] { { { TerrainType.ROCK.getType() } } }, new DefaultTerrainChangeListener());
+		world.spawnUnit(false);
+	}
+
+	/**
+	 * Check the solid neighbours and standable cubes of the given world against its terrain.
+	 */
+	private void assertMatchesNeighbours(World world) {
+		int nbStandable = 0;
+		for (int x = 0; x < world.getxDimension(); x++)
+			for (int y = 0; y < world.getyDimension(); y++)
+				for (int z = 0; z < world.getzDimension(); z++) {
+					int[] cube = { x, y, z };
+					boolean neighbouringSolid = false;
+					for (int[] neighbour : world.getNeighboringCubes(cube))
+						neighbouringSolid |= !world.getPassable(neighbour);
+					assertEquals(neighbouringSolid, world.isNeighboringSolidTerrain(cube));
+					boolean standable = world.getPassable(cube)
+							&& (z == 0 || !world.getPassable(new int[] { x, y, z - 1 }));
+					assertEquals(standable, world.isStandable(cube));
+					if (standable)
+						nbStandable++;
+				}
+		assertEquals(nbStandable, world.getNbStandableCubes());
+	}
+}
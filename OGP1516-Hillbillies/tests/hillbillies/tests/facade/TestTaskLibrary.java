@@ -0,0 +1,70 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import hillbillies.model.Task;
+import hillbillies.model.TaskFactory;
+import hillbillies.part3.TaskLibrary;
+
+public class TestTaskLibrary {
+
+	private static final String TASK_FILE = "src-provided/resources/tasks/goto_10_10_10.txt";
+
+	@Test
+	public void getTasks_ParsedOnce() throws IOException {
+		TaskLibrary library = new TaskLibrary(new TaskFactory());
+		List<Task> first = library.getTasks(TASK_FILE, Collections.emptyList());
+		List<Task> second = library.getTasks(TASK_FILE, Arrays.asList(new int[] { 1, 1, 1 }, new int[] { 2, 2, 2 }));
+		assertEquals(1, library.getNbParses());
+		assertEquals(1, first.size());
+		assertNull(first.get(0).getSelectedCube());
+		assertEquals(2, second.size());
+		assertArrayEquals(new int[] { 2, 2, 2 }, second.get(1).getSelectedCube());
+		assertSame(first.get(0).getProgram(), second.get(0).getProgram());
+		assertEquals(first.get(0).getName(), second.get(0).getName());
+		assertEquals(first.get(0).getPriority(), second.get(0).getPriority());
+		assertNotSame(second.get(0), second.get(1));
+	}
+
+	@Test
+	public void getTasks_FileChanged() throws IOException {
+		File file = File.createTempFile("task", ".txt");
+		try {
+			TaskLibrary library = new TaskLibrary(new TaskFactory());
+			write(file, "name: \"first\"\npriority: 1\nactivities: moveTo (1,1,1);");
+			assertEquals("first", library.getTasks(file.getPath(), Collections.emptyList()).get(0).getName());
+			write(file, "name: \"second\"\npriority: 2\nactivities: moveTo (1,1,1);");
+			Task task = library.getTasks(file.getPath(), Collections.emptyList()).get(0);
+			assertEquals("second", task.getName());
+			assertEquals(2, task.getPriority());
+			assertEquals(2, library.getNbParses());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void getTasks_ParseError() throws IOException {
+		File file = File.createTempFile("task", ".txt");
+		try {
+			write(file, "name: \"broken\"\npriority: 1\nactivities: moveTo;");
+			assertNull(new TaskLibrary(new TaskFactory()).getTasks(file.getPath(), Collections.emptyList()));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,80 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hillbillies.model.Task;
+import hillbillies.model.TaskFactory;
+import hillbillies.part3.programs.TaskParser;
+
+public class TestTaskParser {
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tasks").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+	}
+
+	@Test
+	public void parseDirectory_ValidAndInvalidFiles() throws IOException {
+		for (int i = 0; i < 200; i++)
+			write("task" + i + ".txt", "name: \"task " + i + "\"\npriority: " + i
+					+ "\nactivities: if is_solid selected then work selected; else moveTo selected; fi");
+		write("broken.txt", "name: \"broken\"\npriority: 1\nactivities: moveTo;");
+		write("notes.md", "not a task file");
+		TaskParser.BulkResult<Task> result = TaskParser.parseDirectory(directory.getPath(), new TaskFactory(),
+				Collections.singletonList(new int[] { 1, 1, 1 }));
+		assertEquals(200, result.getTasks().size());
+		assertEquals(1, result.getErrors().size());
+		assertFalse(result.getErrors().get(new File(directory, "broken.txt").getPath()).isEmpty());
+	}
+
+	@Test
+	public void parseFiles_KeepsOrder() throws IOException {
+		List<String> filenames = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			write("task" + i + ".txt", "name: \"task " + i + "\"\npriority: 1\nactivities: moveTo (1,1,1);");
+			filenames.add(new File(directory, "task" + i + ".txt").getPath());
+		}
+		filenames.add(new File(directory, "missing.txt").getPath());
+		TaskParser.BulkResult<Task> result = TaskParser.parseFiles(filenames, new TaskFactory(),
+				Collections.emptyList());
+		for (int i = 0; i < 20; i++)
+			assertEquals("task " + i, result.getTasks().get(i).getName());
+		assertTrue(result.getErrors().containsKey(new File(directory, "missing.txt").getPath()));
+	}
+
+	@Test
+	public void parseString_SyntaxErrorsReported() {
+		TaskParser<?, ?, Task> parser = TaskParser.create(new TaskFactory());
+		assertFalse(parser.parseString("name: \"broken\"\npriority: 1\nactivities: moveTo; work;",
+				Collections.emptyList()).isPresent());
+		assertFalse(parser.getErrors().isEmpty());
+		assertTrue(parser.parseString("name: \"valid\"\npriority: 1\nactivities: moveTo (1,1,1);",
+				Collections.emptyList()).isPresent());
+		assertTrue(parser.getErrors().isEmpty());
+	}
+
+	private void write(String name, String content) throws IOException {
+		Files.write(new File(directory, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
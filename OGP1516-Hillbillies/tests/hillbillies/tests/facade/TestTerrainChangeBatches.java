@@ -0,0 +1,114 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.part2.listener.TerrainChangeListener;
+import hillbillies.part3.facade.Facade;
+import hillbillies.part3.facade.IFacade;
+import ogp.framework.util.ModelException;
+
+public class TestTerrainChangeBatches {
+
+	private final IFacade facade = new Facade();
+
+	@Test
+	public void setTerrain_OutsideTickNotifiesImmediately() throws ModelException {
+		RecordingListener listener = new RecordingListener();
+		World world = facade.createWorld(createTypes(), listener);
+		world.setTerrain(new int[] { 2, 2, 1 }, TerrainType.AIR);
+		assertEquals(1, listener.nbSingleChanges);
+		assertTrue(listener.regions.isEmpty());
+	}
+
+	@Test
+	public void advanceTime_DigNotifiesRegionOnce() throws ModelException {
+		RecordingListener listener = new RecordingListener();
+		World world = facade.createWorld(createTypes(), listener);
+		Unit unit = facade.createUnit("Test", new int[] { 1, 2, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		facade.workAt(unit, 2, 2, 1);
+		for (int tick = 0; tick < 100; tick++)
+			world.advanceTime(0.2);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 1 }));
+		assertEquals(0, listener.nbSingleChanges);
+		assertEquals(1, listener.regions.size());
+		List<int[]> cubes = listener.regions.get(0);
+		assertEquals(1, cubes.size());
+		assertArrayEquals(new int[] { 2, 2, 1 }, cubes.get(0));
+		assertArrayEquals(new int[] { 2, 2, 1 }, listener.min);
+		assertArrayEquals(new int[] { 2, 2, 1 }, listener.max);
+	}
+
+	@Test
+	public void advanceTime_CaveInNotifiesEachCubeOnce() throws ModelException {
+		RecordingListener listener = new RecordingListener();
+		int[][][] types = new int[5][5][4];
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		// a pillar carrying an overhang, which caves in once the pillar is dug away
+		types[2][2][1] = TerrainType.ROCK.getType();
+		types[2][2][2] = TerrainType.ROCK.getType();
+		types[3][2][2] = TerrainType.TREE.getType();
+		World world = facade.createWorld(types, listener);
+		Unit unit = facade.createUnit("Test", new int[] { 1, 2, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		facade.workAt(unit, 2, 2, 1);
+		for (int tick = 0; tick < 100; tick++)
+			world.advanceTime(0.2);
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 2, 2, 2 }));
+		assertEquals(TerrainType.AIR, world.getTerrain(new int[] { 3, 2, 2 }));
+		assertEquals(1, listener.regions.size());
+		List<int[]> cubes = listener.regions.get(0);
+		assertEquals(3, cubes.size());
+		assertArrayEquals(new int[] { 2, 2, 1 }, cubes.get(0));
+		assertArrayEquals(new int[] { 2, 2, 1 }, listener.min);
+		assertArrayEquals(new int[] { 3, 2, 2 }, listener.max);
+		// the cubes of the finished batch are forgotten
+		world.setTerrain(new int[] { 2, 2, 1 }, TerrainType.ROCK);
+		assertEquals(1, listener.nbSingleChanges);
+	}
+
+	/**
+	 * Return the terrain types of a world with a rock floor and a single rock cube on top of it.
+	 */
+	private static int[][][] createTypes() {
+		int[][][] types = new int[5][5][3];
+		for (int x = 0; x < 5; x++)
+			for (int y = 0; y < 5; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		types[2][2][1] = TerrainType.ROCK.getType();
+		return types;
+	}
+
+	private static class RecordingListener implements TerrainChangeListener {
+
+		private int nbSingleChanges = 0;
+
+		private final List<List<int[]>> regions = new ArrayList<>();
+
+		private int[] min;
+
+		private int[] max;
+
+		@Override
+		public void notifyTerrainChanged(int x, int y, int z) {
+			nbSingleChanges++;
+		}
+
+		@Override
+		public void notifyTerrainRegionChanged(int[] min, int[] max, List<int[]> cubes) {
+			regions.add(cubes);
+			this.min = min;
+			this.max = max;
+		}
+	}
+}
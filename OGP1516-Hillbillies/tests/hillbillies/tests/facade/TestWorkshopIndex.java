@@ -0,0 +1,82 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import hillbillies.model.ExecutionContext;
+import hillbillies.model.Position;
+import hillbillies.model.TerrainType;
+import hillbillies.model.Unit;
+import hillbillies.model.World;
+import hillbillies.model.expression.WorkshopExpression;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+import hillbillies.part3.facade.Facade;
+import hillbillies.part3.facade.IFacade;
+import ogp.framework.util.ModelException;
+
+public class TestWorkshopIndex {
+
+	private final IFacade facade = new Facade();
+
+	@Test
+	public void setTerrain_CreatedWorkshopFound() throws ModelException {
+		World world = facade.createWorld(createTypes(), new DefaultTerrainChangeListener());
+		Unit unit = createUnit(world);
+		assertNull(world.findNearestWorkshop(unit.getPosition()));
+		assertNull(evaluateWorkshop(unit));
+		world.setTerrain(new int[] { 15, 15, 1 }, TerrainType.WORKSHOP);
+		assertArrayEquals(new int[] { 15, 15, 1 }, evaluateWorkshop(unit).getCoords());
+		world.setTerrain(new int[] { 3, 3, 1 }, TerrainType.WORKSHOP);
+		assertArrayEquals(new int[] { 3, 3, 1 }, evaluateWorkshop(unit).getCoords());
+		assertArrayEquals(new int[] { 15, 15, 1 }, world.findNearestWorkshop(new double[] { 14.5, 14.5, 1.5 }).getCoords());
+	}
+
+	@Test
+	public void setTerrain_DestroyedWorkshopForgotten() throws ModelException {
+		int[][][] types = createTypes();
+		types[3][3][1] = TerrainType.WORKSHOP.getType();
+		types[15][15][1] = TerrainType.WORKSHOP.getType();
+		World world = facade.createWorld(types, new DefaultTerrainChangeListener());
+		Unit unit = createUnit(world);
+		assertArrayEquals(new int[] { 3, 3, 1 }, evaluateWorkshop(unit).getCoords());
+		world.setTerrain(new int[] { 3, 3, 1 }, TerrainType.AIR);
+		assertArrayEquals(new int[] { 15, 15, 1 }, evaluateWorkshop(unit).getCoords());
+		world.setTerrain(new int[] { 15, 15, 1 }, TerrainType.ROCK);
+		assertNull(evaluateWorkshop(unit));
+		assertNull(world.findNearestWorkshop(new double[] { 15.5, 15.5, 1.5 }));
+	}
+
+	@Test
+	public void setTerrainTypes_WorkshopsIndexedAgain() throws ModelException {
+		World world = facade.createWorld(createTypes(), new DefaultTerrainChangeListener());
+		Unit unit = createUnit(world);
+		int[][][] types = createTypes();
+		types[10][2][1] = TerrainType.WORKSHOP.getType();
+		world.setTerrainTypes(types);
+		assertArrayEquals(new int[] { 10, 2, 1 }, evaluateWorkshop(unit).getCoords());
+		world.setTerrainTypes(createTypes());
+		assertNull(evaluateWorkshop(unit));
+	}
+
+	private Unit createUnit(World world) throws ModelException {
+		Unit unit = facade.createUnit("Test", new int[] { 2, 2, 1 }, 50, 50, 50, 50, false);
+		facade.addUnit(unit, world);
+		return unit;
+	}
+
+	private static Position evaluateWorkshop(Unit unit) {
+		return new WorkshopExpression().evaluateExpression(new ExecutionContext(unit, null, 0));
+	}
+
+	/**
+	 * Return the terrain types of a world of 20 by 20 by 3 cubes with a floor of rock.
+	 */
+	private static int[][][] createTypes() {
+		int[][][] types = new int[20][20][3];
+		for (int x = 0; x < 20; x++)
+			for (int y = 0; y < 20; y++)
+				types[x][y][0] = TerrainType.ROCK.getType();
+		return types;
+	}
+}
@@ -0,0 +1,73 @@
+package hillbillies.tests.facade;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import hillbillies.model.TerrainType;
+import hillbillies.model.World;
+import hillbillies.part2.listener.DefaultTerrainChangeListener;
+
+public class TestWorldNeighbours {
+
+	private final World world = new World(new int[4][3][5], new DefaultTerrainChangeListener());
+
+	@Test
+	public void getCubeIndex_RoundTrip() {
+		for (int x = 0; x < 4; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 0; z < 5; z++) {
+					int index = world.getCubeIndex(new int[] { x, y, z });
+					assertTrue(0 <= index && index < 4 * 3 * 5);
+					// the index of a cube in its world is its linear index in the terrain
+					assertEquals(x + 4 * (y + 3 * z), index);
+					assertArrayEquals(new int[] { x, y, z }, world.getCubeOfIndex(index));
+				}
+	}
+
+	@Test
+	public void forEachNeighbour_MatchesNeighbouringCubes() {
+		for (int x = 0; x < 4; x++)
+			for (int y = 0; y < 3; y++)
+				for (int z = 0; z < 5; z++) {
+					int index = world.getCubeIndex(x, y, z);
+					List<int[]> expected = new ArrayList<>();
+					for (int dx = -1; dx <= 1; dx++)
+						for (int dy = -1; dy <= 1; dy++)
+							for (int dz = -1; dz <= 1; dz++) {
+								int[] cube = { x + dx, y + dy, z + dz };
+								if ((dx != 0 || dy != 0 || dz != 0) && world.isCubeInWorld(cube))
+									expected.add(cube);
+							}
+					List<int[]> visited = new ArrayList<>();
+					world.forEachNeighbour(index, neighbour -> visited.add(world.getCubeOfIndex(neighbour)));
+					assertArrayEquals(expected.toArray(), visited.toArray());
+					assertEquals(expected.size(), world.getNbNeighbours(index));
+					for (int n = 0; n < expected.size(); n++)
+						assertArrayEquals(expected.get(n), world.getCubeOfIndex(world.getNeighbour(index, n)));
+				}
+		assertEquals(26, world.getNbNeighbours(world.getCubeIndex(1, 1, 1)));
+		assertEquals(7, world.getNbNeighbours(world.getCubeIndex(3, 2, 4)));
+	}
+
+	@Test
+	public void anyNeighbour_StopsAtFirstMatch() {
+		world.setTerrain(new int[] { 2, 1, 1 }, TerrainType.ROCK);
+		int rock = world.getCubeIndex(2, 1, 1);
+		int[] nbTested = { 0 };
+		assertTrue(world.anyNeighbour(world.getCubeIndex(1, 1, 1), neighbour -> {
+			nbTested[0]++;
+			return !world.getPassable(neighbour);
+		}));
+		assertTrue(nbTested[0] < 26);
+		assertFalse(world.anyNeighbour(world.getCubeIndex(0, 0, 4), neighbour -> neighbour == rock));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getNeighbour_NumberTooLarge() {
+		world.getNeighbour(world.getCubeIndex(0, 0, 0), 7);
+	}
+}